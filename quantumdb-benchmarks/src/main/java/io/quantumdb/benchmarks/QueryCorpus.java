@@ -0,0 +1,102 @@
+package io.quantumdb.benchmarks;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A corpus of statements and table mappings which resemble the traffic a QuantumDB driver rewrites in production.
+ */
+public final class QueryCorpus {
+
+	static final String[] TABLE_NAMES = {
+			"users", "accounts", "orders", "order_lines", "products", "categories", "addresses", "payments",
+			"shipments", "invoices"
+	};
+
+	public enum Workload {
+
+		SHORT_OLTP {
+			@Override
+			public String createStatement() {
+				return "SELECT id, email, name FROM users WHERE id = ?";
+			}
+		},
+
+		WIDE_JOIN {
+			@Override
+			public String createStatement() {
+				return new StringBuilder()
+						.append("SELECT u.id, u.name, a.iban, o.id, o.created_at, l.quantity, p.name, c.name, ")
+						.append("ad.street, pm.amount, s.tracking_code, i.number\n")
+						.append("FROM users u\n")
+						.append("JOIN accounts a ON a.user_id = u.id\n")
+						.append("JOIN orders o ON o.user_id = u.id\n")
+						.append("JOIN order_lines l ON l.order_id = o.id\n")
+						.append("JOIN products p ON p.id = l.product_id\n")
+						.append("LEFT JOIN categories c ON c.id = p.category_id\n")
+						.append("LEFT JOIN addresses ad ON ad.id = o.address_id\n")
+						.append("LEFT JOIN payments pm ON pm.order_id = o.id\n")
+						.append("LEFT JOIN shipments s ON s.order_id = o.id\n")
+						.append("LEFT JOIN invoices i ON i.order_id = o.id\n")
+						.append("WHERE u.id = ? AND o.status <> 'cancelled' -- skip cancelled orders\n")
+						.append("ORDER BY o.created_at DESC LIMIT 50")
+						.toString();
+			}
+		},
+
+		MULTI_ROW_INSERT {
+			@Override
+			public String createStatement() {
+				StringBuilder builder = new StringBuilder()
+						.append("INSERT INTO order_lines (order_id, product_id, quantity, price, description) VALUES ");
+
+				for (int i = 0; i < 500; i++) {
+					if (i > 0) {
+						builder.append(", ");
+					}
+					builder.append("(").append(i).append(", ").append(i * 7).append(", ").append(i % 5 + 1)
+							.append(", ").append(i * 1.25).append(", 'Line ").append(i).append(" from orders')");
+				}
+				return builder.toString();
+			}
+		},
+
+		CTE {
+			@Override
+			public String createStatement() {
+				return new StringBuilder()
+						.append("WITH recent_orders AS (\n")
+						.append("  SELECT o.id, o.user_id FROM orders o WHERE o.created_at > now() - interval '7 days'\n")
+						.append("), totals AS (\n")
+						.append("  SELECT l.order_id, sum(l.quantity * l.price) AS total\n")
+						.append("  FROM order_lines l JOIN recent_orders r ON r.id = l.order_id\n")
+						.append("  GROUP BY l.order_id\n")
+						.append(")\n")
+						.append("UPDATE invoices SET amount = t.total\n")
+						.append("FROM totals t\n")
+						.append("WHERE invoices.order_id = t.order_id AND invoices.note <> $$paid from users$$")
+						.toString();
+			}
+		};
+
+		public abstract String createStatement();
+
+	}
+
+	/**
+	 * @return A table mapping of the specified size, which contains (at least) all tables used by the corpus.
+	 */
+	public static Map<String, String> createTableMapping(int size) {
+		Map<String, String> tableMapping = new LinkedHashMap<>();
+		for (int i = 0; i < size; i++) {
+			String tableName = i < TABLE_NAMES.length ? TABLE_NAMES[i] : String.format("table_%05d", i);
+			tableMapping.put(tableName, String.format("table_%010x", tableName.hashCode() & 0xffffffffL));
+		}
+		return tableMapping;
+	}
+
+	private QueryCorpus() {
+		// Prevent instantiation.
+	}
+
+}
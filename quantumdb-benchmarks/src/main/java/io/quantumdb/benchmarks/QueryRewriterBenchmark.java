@@ -0,0 +1,53 @@
+package io.quantumdb.benchmarks;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import io.quantumdb.benchmarks.QueryCorpus.Workload;
+import io.quantumdb.query.rewriter.PostgresqlQueryRewriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link PostgresqlQueryRewriter#rewrite(String)} for each workload of the {@link QueryCorpus}, and for
+ * table mappings of different sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryRewriterBenchmark {
+
+	@Param({ "10", "100", "1000", "10000" })
+	private int mappingSize;
+
+	@Param
+	private Workload workload;
+
+	private PostgresqlQueryRewriter rewriter;
+	private String statement;
+
+	@Setup
+	public void setUp() {
+		rewriter = new PostgresqlQueryRewriter();
+		rewriter.setTableMapping(QueryCorpus.createTableMapping(mappingSize));
+		statement = workload.createStatement();
+	}
+
+	@Benchmark
+	public String rewrite() throws SQLException {
+		return rewriter.rewrite(statement);
+	}
+
+}
@@ -0,0 +1,69 @@
+package io.quantumdb.driver;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import io.quantumdb.benchmarks.QueryCorpus;
+import io.quantumdb.benchmarks.QueryCorpus.Workload;
+import io.quantumdb.query.rewriter.PostgresqlQueryRewriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the path an application takes through {@link ProxyConnection#prepareStatement(String)}: rewriting the
+ * query (with and without the {@link RewriteCache}) and wrapping the delegate's statement. The delegate connection
+ * is a stub, so no time is spent in the PostgreSQL driver or on the network.
+ *
+ * This benchmark lives in the driver's package, since the proxies can only be created from within that package.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProxyConnectionBenchmark {
+
+	private static final String URL = "jdbc:postgresql://localhost:5432/benchmark";
+	private static final String VERSION = "benchmark";
+
+	@Param({ "10", "1000" })
+	private int mappingSize;
+
+	@Param
+	private Workload workload;
+
+	@Param({ "0", "1000" })
+	private int rewriteCacheSize;
+
+	private ProxyConnection connection;
+	private String statement;
+
+	@Setup
+	public void setUp() throws SQLException {
+		java.sql.Connection delegate = StubConnections.create(QueryCorpus.createTableMapping(mappingSize));
+		// Table mappings are shared per URL and version, so every mapping size needs to use its own URL.
+		String url = URL + "?mappingSize=" + mappingSize;
+		Transformer transformer = new Transformer(delegate, new PostgresqlQueryRewriter(), url, VERSION,
+				rewriteCacheSize);
+
+		connection = new ProxyConnection(delegate, transformer);
+		statement = workload.createStatement();
+	}
+
+	@Benchmark
+	public PreparedStatement prepareStatement() throws SQLException {
+		return connection.prepareStatement(statement);
+	}
+
+}
@@ -0,0 +1,85 @@
+package io.quantumdb.driver;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Creates JDBC objects which do not talk to a database, so that the overhead of the driver's proxy layer can be
+ * measured in isolation. The only query a stub connection answers is the table mapping lookup of the Transformer.
+ */
+final class StubConnections {
+
+	static Connection create(Map<String, String> tableMapping) {
+		PreparedStatement statement = proxy(PreparedStatement.class, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "executeQuery":
+					return createTableMappingResultSet(tableMapping);
+				case "unwrap":
+					return proxy;
+				default:
+					return defaultValue(method.getReturnType());
+			}
+		});
+
+		return proxy(Connection.class, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "prepareStatement":
+				case "prepareCall":
+					return statement;
+				case "unwrap":
+					return proxy;
+				default:
+					return defaultValue(method.getReturnType());
+			}
+		});
+	}
+
+	private static ResultSet createTableMappingResultSet(Map<String, String> tableMapping) {
+		Iterator<Map.Entry<String, String>> iterator = tableMapping.entrySet().iterator();
+		AtomicReference<Map.Entry<String, String>> current = new AtomicReference<>();
+
+		return proxy(ResultSet.class, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "next":
+					current.set(iterator.hasNext() ? iterator.next() : null);
+					return current.get() != null;
+				case "getString":
+					return "ref_id".equals(args[0]) ? current.get().getValue() : current.get().getKey();
+				default:
+					return defaultValue(method.getReturnType());
+			}
+		});
+	}
+
+	private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+		return type.cast(Proxy.newProxyInstance(StubConnections.class.getClassLoader(), new Class<?>[] { type },
+				handler));
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		if (type == boolean.class) {
+			return false;
+		}
+		else if (type == int.class) {
+			return 0;
+		}
+		else if (type == long.class) {
+			return 0L;
+		}
+		else if (type.isPrimitive() && type != void.class) {
+			throw new UnsupportedOperationException("No default value for: " + type);
+		}
+		return null;
+	}
+
+	private StubConnections() {
+		// Prevent instantiation.
+	}
+
+}
@@ -65,6 +65,50 @@ public class Fork extends Command {
 				config.enableDryRun(outputFile);
 			}
 
+			int parallelism = getArgument(arguments, "parallelism", Integer.class, () -> 1);
+			config.setBackfillParallelism(parallelism);
+
+			boolean setBased = getArgument(arguments, "set-based", Boolean.class, () -> false);
+			config.setBackfillSetBased(setBased);
+
+			Long targetBatchTime = getArgument(arguments, "target-batch-time", Long.class, () -> null);
+			if (targetBatchTime != null) {
+				config.setBackfillTargetBatchTime(targetBatchTime);
+			}
+			Long maxReplicationLag = getArgument(arguments, "max-replication-lag", Long.class, () -> null);
+			if (maxReplicationLag != null) {
+				config.setBackfillMaxReplicationLag(maxReplicationLag);
+			}
+			Integer maxLockWaits = getArgument(arguments, "max-lock-waits", Integer.class, () -> null);
+			if (maxLockWaits != null) {
+				config.setBackfillMaxLockWaits(maxLockWaits);
+			}
+			Integer maxActiveQueries = getArgument(arguments, "max-active-queries", Integer.class, () -> null);
+			if (maxActiveQueries != null) {
+				config.setBackfillMaxActiveQueries(maxActiveQueries);
+			}
+
+			int stepConcurrency = getArgument(arguments, "step-concurrency", Integer.class, () -> 1);
+			config.setStepConcurrency(stepConcurrency);
+
+			int indexConcurrency = getArgument(arguments, "index-concurrency", Integer.class, () -> 1);
+			config.setIndexBuildConcurrency(indexConcurrency);
+
+			String maintenanceWorkMem = getArgument(arguments, "maintenance-work-mem", String.class, () -> null);
+			if (maintenanceWorkMem != null) {
+				config.setIndexMaintenanceWorkMem(maintenanceWorkMem);
+			}
+			Integer maxParallelWorkers = getArgument(arguments, "max-parallel-maintenance-workers", Integer.class, () -> null);
+			if (maxParallelWorkers != null) {
+				config.setIndexMaxParallelWorkers(maxParallelWorkers);
+			}
+
+			boolean versionSchemas = getArgument(arguments, "version-schemas", Boolean.class, () -> false);
+			config.setVersionSchemas(versionSchemas);
+
+			boolean resume = getArgument(arguments, "resume", Boolean.class, () -> false);
+			config.setResume(resume);
+
 			writer.write("Forking database from: " + from.getId() + " to: " + to.getId() + "...");
 
 			Migrator migrator = new Migrator(backend);
@@ -27,6 +27,9 @@ public class Init extends Command {
 	public void perform(CliWriter writer, List<String> arguments) {
 		try {
 			Config config = Config.load();
+			boolean catalogSnapshots = getArgument(arguments, "catalog-snapshots", Boolean.class, () -> false);
+			config.setCatalogSnapshots(catalogSnapshots);
+
 			if (!arguments.isEmpty()) {
 				String hosts = getArgument(arguments, "host", String.class, () -> "localhost:5432");
 				String catalogName = getArgument(arguments, "database", String.class);
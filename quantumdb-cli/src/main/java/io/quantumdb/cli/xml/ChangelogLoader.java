@@ -3,6 +3,7 @@ package io.quantumdb.cli.xml;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import io.quantumdb.core.schema.operations.Operation;
@@ -25,6 +25,19 @@ public class Config {
 	private static final String DRIVER = "driver";
 	private static final String DRY_RUN = "dryRun";
 	private static final String OUTPUT_FILE = "outputFile";
+	private static final String BACKFILL_PARALLELISM = "backfillParallelism";
+	private static final String BACKFILL_SET_BASED = "backfillSetBased";
+	private static final String BACKFILL_TARGET_BATCH_TIME = "backfillTargetBatchTime";
+	private static final String BACKFILL_MAX_REPLICATION_LAG = "backfillMaxReplicationLag";
+	private static final String BACKFILL_MAX_LOCK_WAITS = "backfillMaxLockWaits";
+	private static final String BACKFILL_MAX_ACTIVE_QUERIES = "backfillMaxActiveQueries";
+	private static final String RESUME = "resume";
+	private static final String STEP_CONCURRENCY = "stepConcurrency";
+	private static final String INDEX_BUILD_CONCURRENCY = "indexBuildConcurrency";
+	private static final String INDEX_MAINTENANCE_WORK_MEM = "indexMaintenanceWorkMem";
+	private static final String INDEX_MAX_PARALLEL_WORKERS = "indexMaxParallelWorkers";
+	private static final String VERSION_SCHEMAS = "versionSchemas";
+	private static final String CATALOG_SNAPSHOTS = "catalogSnapshots";
 
 	private static final String FILE = ".quantumdb";
 
@@ -118,6 +131,139 @@ public class Config {
 		return transientProperties.getProperty(OUTPUT_FILE);
 	}
 
+	public Config setBackfillParallelism(int parallelism) {
+		checkArgument(parallelism > 0, "You must specify a parallelism of at least 1.");
+		transientProperties.setProperty(BACKFILL_PARALLELISM, Integer.toString(parallelism));
+		return this;
+	}
+
+	public int getBackfillParallelism() {
+		return Integer.parseInt(transientProperties.getProperty(BACKFILL_PARALLELISM, "1"));
+	}
+
+	public Config setBackfillSetBased(boolean setBased) {
+		transientProperties.setProperty(BACKFILL_SET_BASED, Boolean.toString(setBased));
+		return this;
+	}
+
+	public boolean isBackfillSetBased() {
+		return Boolean.toString(true).equalsIgnoreCase(transientProperties.getProperty(BACKFILL_SET_BASED));
+	}
+
+	public Config setBackfillTargetBatchTime(long milliseconds) {
+		checkArgument(milliseconds > 0, "You must specify a target batch time of at least 1 ms.");
+		transientProperties.setProperty(BACKFILL_TARGET_BATCH_TIME, Long.toString(milliseconds));
+		return this;
+	}
+
+	public long getBackfillTargetBatchTime() {
+		return Long.parseLong(transientProperties.getProperty(BACKFILL_TARGET_BATCH_TIME, "500"));
+	}
+
+	public Config setBackfillMaxReplicationLag(long milliseconds) {
+		transientProperties.setProperty(BACKFILL_MAX_REPLICATION_LAG, Long.toString(milliseconds));
+		return this;
+	}
+
+	public long getBackfillMaxReplicationLag() {
+		return Long.parseLong(transientProperties.getProperty(BACKFILL_MAX_REPLICATION_LAG, "5000"));
+	}
+
+	public Config setBackfillMaxLockWaits(int lockWaits) {
+		transientProperties.setProperty(BACKFILL_MAX_LOCK_WAITS, Integer.toString(lockWaits));
+		return this;
+	}
+
+	public int getBackfillMaxLockWaits() {
+		return Integer.parseInt(transientProperties.getProperty(BACKFILL_MAX_LOCK_WAITS, "5"));
+	}
+
+	public Config setBackfillMaxActiveQueries(int activeQueries) {
+		transientProperties.setProperty(BACKFILL_MAX_ACTIVE_QUERIES, Integer.toString(activeQueries));
+		return this;
+	}
+
+	public int getBackfillMaxActiveQueries() {
+		return Integer.parseInt(transientProperties.getProperty(BACKFILL_MAX_ACTIVE_QUERIES, "0"));
+	}
+
+	public Config setResume(boolean resume) {
+		transientProperties.setProperty(RESUME, Boolean.toString(resume));
+		return this;
+	}
+
+	public boolean isResume() {
+		return Boolean.toString(true).equalsIgnoreCase(transientProperties.getProperty(RESUME));
+	}
+
+	public Config setStepConcurrency(int concurrency) {
+		checkArgument(concurrency > 0, "You must specify a step concurrency of at least 1.");
+		transientProperties.setProperty(STEP_CONCURRENCY, Integer.toString(concurrency));
+		return this;
+	}
+
+	public int getStepConcurrency() {
+		return Integer.parseInt(transientProperties.getProperty(STEP_CONCURRENCY, "1"));
+	}
+
+	public Config setIndexBuildConcurrency(int concurrency) {
+		checkArgument(concurrency > 0, "You must specify an index build concurrency of at least 1.");
+		transientProperties.setProperty(INDEX_BUILD_CONCURRENCY, Integer.toString(concurrency));
+		return this;
+	}
+
+	public int getIndexBuildConcurrency() {
+		return Integer.parseInt(transientProperties.getProperty(INDEX_BUILD_CONCURRENCY, "1"));
+	}
+
+	public Config setIndexMaintenanceWorkMem(String maintenanceWorkMem) {
+		checkArgument(maintenanceWorkMem.matches("\\d+\\s*(kB|MB|GB|TB)?"),
+				"You must specify the maintenance work memory as a number, optionally followed by kB, MB, GB or TB.");
+		transientProperties.setProperty(INDEX_MAINTENANCE_WORK_MEM, maintenanceWorkMem);
+		return this;
+	}
+
+	public String getIndexMaintenanceWorkMem() {
+		return transientProperties.getProperty(INDEX_MAINTENANCE_WORK_MEM);
+	}
+
+	public Config setIndexMaxParallelWorkers(int workers) {
+		checkArgument(workers >= 0, "You must specify a non-negative number of parallel workers.");
+		transientProperties.setProperty(INDEX_MAX_PARALLEL_WORKERS, Integer.toString(workers));
+		return this;
+	}
+
+	public Integer getIndexMaxParallelWorkers() {
+		String workers = transientProperties.getProperty(INDEX_MAX_PARALLEL_WORKERS);
+		return workers == null ? null : Integer.parseInt(workers);
+	}
+
+	public Config setVersionSchemas(boolean versionSchemas) {
+		transientProperties.setProperty(VERSION_SCHEMAS, Boolean.toString(versionSchemas));
+		return this;
+	}
+
+	/**
+	 * @return True if a schema of views should be created for each activated version, which allows clients to use a
+	 * version by setting their search_path instead of having their queries rewritten.
+	 */
+	public boolean isVersionSchemas() {
+		return Boolean.toString(true).equalsIgnoreCase(transientProperties.getProperty(VERSION_SCHEMAS));
+	}
+
+	public Config setCatalogSnapshots(boolean catalogSnapshots) {
+		transientProperties.setProperty(CATALOG_SNAPSHOTS, Boolean.toString(catalogSnapshots));
+		return this;
+	}
+
+	/**
+	 * @return True if the event triggers which allow the introspected catalog to be cached between runs should be
+	 * installed. Once installed, cached catalogs are used regardless of this setting.
+	 */
+	public boolean isCatalogSnapshots() {
+		return Boolean.toString(true).equalsIgnoreCase(transientProperties.getProperty(CATALOG_SNAPSHOTS));
+	}
+
 	public void persist() throws IOException {
 		try (FileWriter fileWriter = new FileWriter(FILE)) {
 			persistentProperties.store(fileWriter, null);
@@ -109,8 +109,7 @@ public class Graph {
 				.filter(entry -> refIds.contains(entry.getKey()))
 				.collect(Collectors.toMap(Entry::getKey, entry -> {
 					String tableName = entry.getKey();
-					return catalog.getForeignKeys().stream()
-							.filter(foreignKey -> foreignKey.getReferredTableName().equals(tableName))
+					return catalog.getForeignKeysReferencingTable(tableName).stream()
 							.filter(ForeignKey::isNotNullable)
 							.map(ForeignKey::getReferencingTableName)
 							.distinct()
@@ -53,6 +53,10 @@ public class Plan {
 			}
 
 			Step step = new Step(new Operation(table, filtered, Type.COPY));
+
+			// Successive copies of the same table must never run at the same time.
+			findLastCopy(table).ifPresent(step::makeDependentOn);
+
 			state.markColumnsAsMigrated(table.getName(), filtered);
 			steps.add(step);
 			return step;
@@ -91,6 +95,17 @@ public class Plan {
 					.findFirst();
 		}
 
+		private Optional<Step> findLastCopy(Table table) {
+			for (int i = steps.size() - 1; i >= 0; i--) {
+				Step step = steps.get(i);
+				Operation operation = step.getOperation();
+				if (operation.getTables().contains(table) && operation.getType() == Type.COPY) {
+					return Optional.of(step);
+				}
+			}
+			return Optional.empty();
+		}
+
 		public Plan build(RefLog refLog, Set<Table> ghostTables, Set<View> views) {
 			return new Plan(Lists.newArrayList(steps), refLog, ghostTables, views);
 		}
@@ -123,6 +138,16 @@ public class Plan {
 				.findFirst();
 	}
 
+	/**
+	 * @return All steps which have not yet been executed, but whose dependencies have all been executed, in the order
+	 * in which they appear in the plan. These steps can safely be executed at the same time.
+	 */
+	public List<Step> getExecutableSteps() {
+		return steps.stream()
+				.filter(Step::canBeExecuted)
+				.collect(Collectors.toList());
+	}
+
 	public boolean isExecuted() {
 		return steps.stream()
 				.allMatch(Step::isExecuted);
@@ -4,17 +4,33 @@ import static com.google.common.base.Preconditions.checkArgument;
 
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Queues;
 import com.google.common.collect.Sets;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.experimental.Accessors;
 
+/**
+ * A (mutable) description of the tables, views and sequences of a database. Copies of a catalog share the tables of
+ * the catalog they were copied from: a table is only copied once it's retrieved from the copy, or about to be changed
+ * in either catalog. Tables which are linked through foreign keys are copied together.
+ */
 @Data
 @Accessors(chain = true)
+@EqualsAndHashCode(exclude = { "tablesByName", "viewsByName", "sequencesByName", "sharedTables", "tablesView",
+		"viewsView" })
 public class Catalog implements Copyable<Catalog> {
 
 	private final String name;
@@ -22,6 +38,29 @@ public class Catalog implements Copyable<Catalog> {
 	private final Collection<View> views;
 	private final Collection<Sequence> sequences;
 
+	// Name-keyed indexes of the sorted collections above, kept up to date when their elements are renamed.
+	@Getter(AccessLevel.NONE)
+	private final Map<String, Table> tablesByName;
+
+	@Getter(AccessLevel.NONE)
+	private final Map<String, View> viewsByName;
+
+	@Getter(AccessLevel.NONE)
+	private final Map<String, Sequence> sequencesByName;
+
+	// Tables of other catalogs, which this catalog shares until it retrieves or changes these, or until they change.
+	@Getter(AccessLevel.NONE)
+	private final Map<String, Table> sharedTables;
+
+	// Immutable copies of the tables and views, shared by all callers until the next change to either collection.
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private ImmutableSet<Table> tablesView;
+
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private ImmutableSet<View> viewsView;
+
 	public Catalog(String name) {
 		checkArgument(!Strings.isNullOrEmpty(name), "You must specify a 'name'");
 
@@ -29,6 +68,10 @@ public class Catalog implements Copyable<Catalog> {
 		this.tables = Sets.newTreeSet(Comparator.comparing(Table::getName));
 		this.views = Sets.newTreeSet(Comparator.comparing(View::getName));
 		this.sequences = Sets.newTreeSet(Comparator.comparing(Sequence::getName));
+		this.tablesByName = Maps.newHashMap();
+		this.viewsByName = Maps.newHashMap();
+		this.sequencesByName = Maps.newHashMap();
+		this.sharedTables = Maps.newHashMap();
 	}
 
 	public Catalog addTable(Table table) {
@@ -39,6 +82,8 @@ public class Catalog implements Copyable<Catalog> {
 		checkArgument(!table.getPrimaryKeyColumns().isEmpty(), "Table: '" + table.getName() + "' has no primary key columns.");
 
 		tables.add(table);
+		tablesByName.put(table.getName(), table);
+		tablesView = null;
 		table.setParent(this);
 		return this;
 	}
@@ -46,25 +91,32 @@ public class Catalog implements Copyable<Catalog> {
 	public boolean containsTable(String tableName) {
 		checkArgument(!Strings.isNullOrEmpty(tableName), "You must specify a 'tableName'");
 
-		return tables.stream()
-				.anyMatch(t -> t.getName().equals(tableName));
+		return tablesByName.containsKey(tableName) || sharedTables.containsKey(tableName);
 	}
 
 	public Table getTable(String tableName) {
 		checkArgument(!Strings.isNullOrEmpty(tableName), "You must specify a 'tableName'");
 
-		return tables.stream()
-				.filter(t -> t.getName().equals(tableName))
-				.findFirst()
-				.orElseThrow(() -> new IllegalStateException(
-						"Catalog: " + name + " does not contain a table: " + tableName));
+		Table shared = sharedTables.get(tableName);
+		if (shared != null) {
+			materialize(shared);
+		}
+
+		Table table = tablesByName.get(tableName);
+		if (table == null) {
+			throw new IllegalStateException("Catalog: " + name + " does not contain a table: " + tableName);
+		}
+		return table;
 	}
 
 	public Table removeTable(String tableName) {
 		Table table = getTable(tableName);
 		table.canBeDropped();
+		table.beforeChange();
 
 		tables.remove(table);
+		tablesByName.remove(tableName);
+		tablesView = null;
 		table.setParent(null);
 		table.dropOutgoingForeignKeys();
 
@@ -78,30 +130,33 @@ public class Catalog implements Copyable<Catalog> {
 
 		view.setParent(this);
 		views.add(view);
+		viewsByName.put(view.getName(), view);
+		viewsView = null;
 		return this;
 	}
 
 	public boolean containsView(String viewName) {
 		checkArgument(!Strings.isNullOrEmpty(viewName), "You must specify a 'viewName'");
 
-		return views.stream()
-				.anyMatch(v -> v.getName().equals(viewName));
+		return viewsByName.containsKey(viewName);
 	}
 
 	public View getView(String viewName) {
 		checkArgument(!Strings.isNullOrEmpty(viewName), "You must specify a 'viewName'");
 
-		return views.stream()
-				.filter(v -> v.getName().equals(viewName))
-				.findFirst()
-				.orElseThrow(() -> new IllegalStateException(
-						"Catalog: " + name + " does not contain a view: " + viewName));
+		View view = viewsByName.get(viewName);
+		if (view == null) {
+			throw new IllegalStateException("Catalog: " + name + " does not contain a view: " + viewName);
+		}
+		return view;
 	}
 
 	public View removeView(String viewName) {
 		View view = getView(viewName);
 
-		tables.remove(view);
+		views.remove(view);
+		viewsByName.remove(viewName);
+		viewsView = null;
 		view.setParent(null);
 
 		return view;
@@ -110,7 +165,9 @@ public class Catalog implements Copyable<Catalog> {
 	public Catalog addSequence(Sequence sequence) {
 		checkArgument(sequence != null, "You must specify a 'sequence'");
 
-		sequences.add(sequence);
+		if (sequences.add(sequence)) {
+			sequencesByName.put(sequence.getName(), sequence);
+		}
 		sequence.setParent(this);
 		return this;
 	}
@@ -119,13 +176,12 @@ public class Catalog implements Copyable<Catalog> {
 		checkArgument(!Strings.isNullOrEmpty(sequenceName), "You must specify a 'sequenceName'");
 
 		Sequence sequence = getSequence(sequenceName);
+		List<Column> columns = getColumnsUsingSequence(sequence);
+
 		sequences.remove(sequence);
+		sequencesByName.remove(sequenceName);
 		sequence.setParent(null);
-
-		tables.stream()
-				.flatMap(table -> table.getColumns().stream())
-				.filter(column -> sequence.equals(column.getSequence()))
-				.forEach(Column::dropDefaultValue);
+		columns.forEach(Column::dropDefaultValue);
 
 		return sequence;
 	}
@@ -133,55 +189,176 @@ public class Catalog implements Copyable<Catalog> {
 	private Sequence getSequence(String sequenceName) {
 		checkArgument(!Strings.isNullOrEmpty(sequenceName), "You must specify a 'sequenceName'");
 
-		return sequences.stream()
-				.filter(sequence -> sequence.getName().equals(sequenceName))
-				.findFirst()
-				.orElseThrow(() -> new IllegalStateException(
-						"Catalog: " + name + " does not contain a sequence: " + sequenceName));
+		Sequence sequence = sequencesByName.get(sequenceName);
+		if (sequence == null) {
+			throw new IllegalStateException("Catalog: " + name + " does not contain a sequence: " + sequenceName);
+		}
+		return sequence;
+	}
+
+	void renameTable(Table table, Runnable rename) {
+		tables.remove(table);
+		tablesByName.remove(table.getName());
+		rename.run();
+		tables.add(table);
+		tablesByName.put(table.getName(), table);
+		tablesView = null;
+	}
+
+	void renameView(View view, Runnable rename) {
+		views.remove(view);
+		viewsByName.remove(view.getName());
+		rename.run();
+		views.add(view);
+		viewsByName.put(view.getName(), view);
+		viewsView = null;
+	}
+
+	void renameSequence(Sequence sequence, Runnable rename) {
+		getColumnsUsingSequence(sequence).forEach(column -> column.getParent().beforeChange());
+
+		sequences.remove(sequence);
+		sequencesByName.remove(sequence.getName());
+		rename.run();
+		sequences.add(sequence);
+		sequencesByName.put(sequence.getName(), sequence);
 	}
 
 	public ImmutableSet<Table> getTables() {
-		return ImmutableSet.copyOf(tables);
+		while (!sharedTables.isEmpty()) {
+			materialize(sharedTables.values().iterator().next());
+		}
+		if (tablesView == null) {
+			tablesView = ImmutableSet.copyOf(tables);
+		}
+		return tablesView;
 	}
 
 	public ImmutableSet<View> getViews() {
-		return ImmutableSet.copyOf(views);
+		if (viewsView == null) {
+			viewsView = ImmutableSet.copyOf(views);
+		}
+		return viewsView;
 	}
 
 	public ImmutableSet<ForeignKey> getForeignKeys() {
-		return ImmutableSet.copyOf(tables.stream()
+		return ImmutableSet.copyOf(getTables().stream()
 				.flatMap(table -> table.getForeignKeys().stream())
 				.collect(Collectors.toSet()));
 	}
 
 	public ImmutableSet<Index> getIndexes() {
-		return ImmutableSet.copyOf(tables.stream()
+		return ImmutableSet.copyOf(getTables().stream()
 				.flatMap(table -> table.getIndexes().stream())
 				.collect(Collectors.toSet()));
 	}
 
+	/**
+	 * @return A copy of this catalog, which shares the tables of this catalog until either catalog changes these.
+	 */
 	@Override
 	public Catalog copy() {
 		Catalog schema = new Catalog(name);
+		for (Sequence sequence : sequences) {
+			schema.addSequence(sequence.copy());
+		}
 		for (Table table : tables) {
-			schema.addTable(table.copy());
+			schema.share(table);
+		}
+		for (Table table : sharedTables.values()) {
+			schema.share(table);
 		}
 		for (View view : views) {
 			schema.addView(view.copy());
 		}
-		for (ForeignKey foreignKey : getForeignKeys()) {
-			Table source = schema.getTable(foreignKey.getReferencingTableName());
-			Table target = schema.getTable(foreignKey.getReferredTableName());
-			source.addForeignKey(foreignKey.getReferencingColumns())
-					.named(foreignKey.getForeignKeyName())
-					.onDelete(foreignKey.getOnDelete())
-					.onUpdate(foreignKey.getOnUpdate())
-					.referencing(target, foreignKey.getReferredColumns());
+		return schema;
+	}
+
+	/**
+	 * @return True if this catalog still shares the specified table with the catalog it was copied from.
+	 */
+	boolean isShared(String tableName) {
+		return sharedTables.containsKey(tableName);
+	}
+
+	private void share(Table table) {
+		sharedTables.put(table.getName(), table);
+		table.addSharer(this);
+	}
+
+	/**
+	 * Replaces the specified shared table, and the shared tables linked to it through foreign keys, with copies
+	 * owned by this catalog. Does nothing if this catalog no longer shares the specified table.
+	 */
+	void materialize(Table table) {
+		if (sharedTables.get(table.getName()) != table) {
+			return;
 		}
-		for (Sequence sequence : sequences) {
-			schema.addSequence(sequence.copy());
+
+		Set<Table> component = Sets.newIdentityHashSet();
+		Deque<Table> pending = Queues.newArrayDeque();
+		pending.add(table);
+		while (!pending.isEmpty()) {
+			Table current = pending.poll();
+			if (!component.add(current)) {
+				continue;
+			}
+			for (ForeignKey foreignKey : current.getForeignKeys()) {
+				addIfShared(pending, foreignKey.getReferredTable());
+			}
+			for (ForeignKey foreignKey : current.getIncomingForeignKeys()) {
+				addIfShared(pending, foreignKey.getReferencingTable());
+			}
 		}
-		return schema;
+
+		for (Table source : component) {
+			sharedTables.remove(source.getName());
+			source.removeSharer(this);
+
+			Table copy = source.copy();
+			copy.getColumns().stream()
+					.filter(column -> column.getSequence() != null)
+					.forEach(column -> column.setSequence(sequencesByName.get(column.getSequence().getName())));
+
+			addTable(copy);
+		}
+
+		for (Table source : component) {
+			Table copy = tablesByName.get(source.getName());
+			for (ForeignKey foreignKey : source.getForeignKeys()) {
+				Table target = tablesByName.get(foreignKey.getReferredTableName());
+				copy.addForeignKey(foreignKey.getReferencingColumns())
+						.named(foreignKey.getForeignKeyName())
+						.onDelete(foreignKey.getOnDelete())
+						.onUpdate(foreignKey.getOnUpdate())
+						.referencing(target, foreignKey.getReferredColumns());
+			}
+		}
+	}
+
+	private void addIfShared(Deque<Table> pending, Table table) {
+		if (sharedTables.get(table.getName()) == table) {
+			pending.add(table);
+		}
+	}
+
+	/**
+	 * @return The columns of this catalog's tables which use the specified sequence. Shared tables which use a
+	 * sequence by the same name are copied first, since these are matched with this catalog's sequences by name.
+	 */
+	private List<Column> getColumnsUsingSequence(Sequence sequence) {
+		List<Table> sharedUsers = sharedTables.values().stream()
+				.filter(table -> table.getColumns().stream()
+						.anyMatch(column -> column.getSequence() != null
+								&& column.getSequence().getName().equals(sequence.getName())))
+				.collect(Collectors.toList());
+
+		sharedUsers.forEach(this::materialize);
+
+		return tables.stream()
+				.flatMap(table -> table.getColumns().stream())
+				.filter(column -> sequence.equals(column.getSequence()))
+				.collect(Collectors.toList());
 	}
 
 	@Override
@@ -190,10 +367,24 @@ public class Catalog implements Copyable<Catalog> {
 	}
 
 	public Set<String> getTablesReferencingTable(String tableName) {
-		return tables.stream()
-				.filter(table -> table.referencesTable(tableName))
-				.map(Table::getName)
+		return getForeignKeysReferencingTable(tableName).stream()
+				.map(ForeignKey::getReferencingTableName)
 				.collect(Collectors.toSet());
 	}
 
+	/**
+	 * @return The foreign keys of the tables in this catalog which refer to the specified table.
+	 */
+	public ImmutableSet<ForeignKey> getForeignKeysReferencingTable(String tableName) {
+		if (!containsTable(tableName)) {
+			return ImmutableSet.of();
+		}
+
+		Table table = getTable(tableName);
+
+		return ImmutableSet.copyOf(table.getIncomingForeignKeys().stream()
+				.filter(foreignKey -> foreignKey.getReferencingTable().getParent() == this)
+				.collect(Collectors.toList()));
+	}
+
 }
@@ -72,22 +72,26 @@ public class Column implements Copyable<Column> {
 	}
 
 	public void modifyType(ColumnType newColumnType) {
+		beforeChange();
 		this.type = newColumnType;
 	}
 
 	public void dropDefaultValue() {
+		beforeChange();
 		this.defaultValue = null;
 		this.sequence = null;
 		this.hints.remove(Hint.AUTO_INCREMENT);
 	}
 
 	public void modifyDefaultValue(String defaultValue) {
+		beforeChange();
 		this.defaultValue = defaultValue;
 		this.sequence = null;
 		this.hints.remove(Hint.AUTO_INCREMENT);
 	}
 
 	public void modifyDefaultValue(Sequence sequence) {
+		beforeChange();
 		this.hints.add(Hint.AUTO_INCREMENT);
 		this.sequence = sequence;
 		this.defaultValue = null;
@@ -106,10 +110,12 @@ public class Column implements Copyable<Column> {
 	}
 
 	public void addHint(Hint hint) {
+		beforeChange();
 		hints.add(hint);
 	}
 
 	public void dropHint(Hint hint) {
+		beforeChange();
 		hints.remove(hint);
 	}
 
@@ -118,12 +124,22 @@ public class Column implements Copyable<Column> {
 		if (parent != null) {
 			checkArgument(!parent.containsColumn(newName),
 					"Table: " + parent.getName() + " already contains column with name: " + newName);
-		}
 
-		this.name = newName;
+			parent.beforeChange();
+			parent.renameColumn(this, () -> this.name = newName);
+		}
+		else {
+			this.name = newName;
+		}
 		return this;
 	}
 
+	private void beforeChange() {
+		if (parent != null) {
+			parent.beforeChange();
+		}
+	}
+
 	@Override
 	public Column copy() {
 		return new Column(name, type, sequence, defaultValue, hints.toArray(new Hint[0]));
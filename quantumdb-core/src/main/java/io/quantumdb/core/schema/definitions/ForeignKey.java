@@ -110,7 +110,20 @@ public class ForeignKey {
 				.anyMatch(primaryKeyColumns::contains);
 	}
 
+	public void setOnUpdate(Action onUpdate) {
+		referencingTable.beforeChange();
+		this.onUpdate = onUpdate;
+	}
+
+	public void setOnDelete(Action onDelete) {
+		referencingTable.beforeChange();
+		this.onDelete = onDelete;
+	}
+
 	public void drop() {
+		referencingTable.beforeChange();
+		referredTable.beforeChange();
+
 		referencingColumns.stream()
 				.forEach(column -> referencingTable.getColumn(column).setOutgoingForeignKey(null));
 
@@ -22,7 +22,12 @@ public class Sequence {
 	}
 
 	public Sequence rename(String newName) {
-		this.name = newName;
+		if (parent != null) {
+			parent.renameSequence(this, () -> this.name = newName);
+		}
+		else {
+			this.name = newName;
+		}
 		return this;
 	}
 
@@ -3,9 +3,11 @@ package io.quantumdb.core.schema.definitions;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 
+import java.lang.ref.WeakReference;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -13,16 +15,19 @@ import java.util.stream.Collectors;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import io.quantumdb.core.schema.definitions.ForeignKey.Action;
 import io.quantumdb.core.utils.RandomHasher;
 import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.Setter;
 
 @Data
-@EqualsAndHashCode(exclude = { "parent", "foreignKeys", "indexes" })
+@EqualsAndHashCode(exclude = { "parent", "foreignKeys", "incomingForeignKeys", "indexes", "columnsByName",
+		"columnsView", "indexesView", "sharers" })
 @Setter(AccessLevel.NONE)
 public class Table implements Copyable<Table>, Comparable<Table> {
 
@@ -65,10 +70,14 @@ public class Table implements Copyable<Table>, Comparable<Table> {
 			ForeignKey constraint = new ForeignKey(name, parentTable, referringColumns, table, referredColumns,
 					onUpdate, onDelete);
 
+			parentTable.beforeChange();
+			table.beforeChange();
+
 			referringColumns.forEach(column -> parentTable.getColumn(column).setOutgoingForeignKey(constraint));
 			referredColumns.forEach(column -> table.getColumn(column).getIncomingForeignKeys().add(constraint));
 
 			parentTable.foreignKeys.add(constraint);
+			table.incomingForeignKeys.add(constraint);
 
 			return constraint;
 		}
@@ -79,8 +88,23 @@ public class Table implements Copyable<Table>, Comparable<Table> {
 
 	private final LinkedHashSet<Column> columns = Sets.newLinkedHashSet();
 	private final List<ForeignKey> foreignKeys = Lists.newArrayList();
+	private final List<ForeignKey> incomingForeignKeys = Lists.newArrayList();
 	private final List<Index> indexes = Lists.newArrayList();
 
+	@Getter(AccessLevel.NONE)
+	private final Map<String, Column> columnsByName = Maps.newHashMap();
+
+	// Immutable copies of the columns and indexes, shared by all callers until the next change to either collection.
+	@Getter(AccessLevel.NONE)
+	private ImmutableList<Column> columnsView;
+
+	@Getter(AccessLevel.NONE)
+	private ImmutableList<Index> indexesView;
+
+	// The copies of catalogs which share this table, rather than a copy of it. See Catalog.copy().
+	@Getter(AccessLevel.NONE)
+	private final List<WeakReference<Catalog>> sharers = Lists.newArrayList();
+
 	public Table(String name) {
 		checkArgument(!Strings.isNullOrEmpty(name), "You must specify a 'name'.");
 		this.name = name;
@@ -103,7 +127,9 @@ public class Table implements Copyable<Table>, Comparable<Table> {
 		checkArgument(index != null, "You must specify an 'index'.");
 		checkState(!containsIndex(index.getIndexName()), "Table already contains an index with name: " + index.getIndexName());
 
+		beforeChange();
 		indexes.add(index);
+		indexesView = null;
 		index.setParent(this);
 		return this;
 	}
@@ -127,8 +153,10 @@ public class Table implements Copyable<Table>, Comparable<Table> {
 		checkState(containsIndex(columns), "You cannot remove an index which does not exist: " + columns);
 
 		Index index = getIndex(columns);
+		beforeChange();
 		index.setParent(null);
 		indexes.remove(index);
+		indexesView = null;
 		return index;
 	}
 
@@ -146,14 +174,20 @@ public class Table implements Copyable<Table>, Comparable<Table> {
 	}
 
 	public ImmutableList<Index> getIndexes() {
-		return ImmutableList.copyOf(indexes);
+		if (indexesView == null) {
+			indexesView = ImmutableList.copyOf(indexes);
+		}
+		return indexesView;
 	}
 
 	public Table addColumn(Column column) {
 		checkArgument(column != null, "You must specify a 'column'.");
 		checkState(!containsColumn(column.getName()), "Table already contains a column with name: " + column.getName());
 
+		beforeChange();
 		columns.add(column);
+		columnsView = null;
+		columnsByName.put(column.getName(), column);
 		column.setParent(this);
 		return this;
 	}
@@ -167,11 +201,11 @@ public class Table implements Copyable<Table>, Comparable<Table> {
 	public Column getColumn(String columnName) {
 		checkArgument(!Strings.isNullOrEmpty(columnName), "You must specify a 'columnName'.");
 
-		return columns.stream()
-				.filter(c -> c.getName().equals(columnName))
-				.findFirst()
-				.orElseThrow(() -> new IllegalStateException(
-						"Table: " + name + " does not contain column: " + columnName));
+		Column column = columnsByName.get(columnName);
+		if (column == null) {
+			throw new IllegalStateException("Table: " + name + " does not contain column: " + columnName);
+		}
+		return column;
 	}
 
 	public List<Column> getPrimaryKeyColumns() {
@@ -183,8 +217,7 @@ public class Table implements Copyable<Table>, Comparable<Table> {
 	public boolean containsColumn(String columnName) {
 		checkArgument(!Strings.isNullOrEmpty(columnName), "You must specify a 'name'.");
 
-		return columns.stream()
-				.anyMatch(c -> c.getName().equals(columnName));
+		return columnsByName.containsKey(columnName);
 	}
 
 	public Column removeColumn(String columnName) {
@@ -199,18 +232,24 @@ public class Table implements Copyable<Table>, Comparable<Table> {
 		primaryKeyColumns.remove(column);
 		checkState(!primaryKeyColumns.isEmpty(), "You drop the last remaining primary key column of a table.");
 
+		beforeChange();
 		if (column.getOutgoingForeignKey() != null) {
 			column.getOutgoingForeignKey().drop();
 		}
 
 		column.setParent(null);
 		columns.remove(column);
+		columnsView = null;
+		columnsByName.remove(columnName);
 
 		return column;
 	}
 
 	public ImmutableList<Column> getColumns() {
-		return ImmutableList.copyOf(columns);
+		if (columnsView == null) {
+			columnsView = ImmutableList.copyOf(columns);
+		}
+		return columnsView;
 	}
 
 	public ForeignKeyBuilder addForeignKey(String... referringColumns) {
@@ -222,7 +261,25 @@ public class Table implements Copyable<Table>, Comparable<Table> {
 	}
 
 	public void dropForeignKey(ForeignKey constraint) {
-		foreignKeys.remove(constraint);
+		if (foreignKeys.contains(constraint)) {
+			beforeChange();
+			constraint.getReferredTable().beforeChange();
+			foreignKeys.remove(constraint);
+			constraint.getReferredTable().incomingForeignKeys.remove(constraint);
+		}
+	}
+
+	/**
+	 * @return The foreign keys which refer to this table.
+	 */
+	public ImmutableList<ForeignKey> getIncomingForeignKeys() {
+		return ImmutableList.copyOf(incomingForeignKeys);
+	}
+
+	void renameColumn(Column column, Runnable rename) {
+		columnsByName.remove(column.getName());
+		rename.run();
+		columnsByName.put(column.getName(), column);
 	}
 
 	public Table rename(String newName) {
@@ -230,20 +287,47 @@ public class Table implements Copyable<Table>, Comparable<Table> {
 		if (parent != null) {
 			checkState(!parent.containsTable(newName),
 					"Catalog: " + parent.getName() + " already contains table with name: " + newName);
-		}
 
-		this.name = newName;
+			beforeChange();
+			parent.renameTable(this, () -> this.name = newName);
+		}
+		else {
+			beforeChange();
+			this.name = newName;
+		}
 		return this;
 	}
 
+	void addSharer(Catalog catalog) {
+		sharers.add(new WeakReference<>(catalog));
+	}
+
+	void removeSharer(Catalog catalog) {
+		sharers.removeIf(sharer -> sharer.get() == null || sharer.get() == catalog);
+	}
+
+	/**
+	 * Gives every catalog which still shares this table a copy of its own, so that it's unaffected by the change
+	 * which is about to be made to this table (or its columns and foreign keys).
+	 */
+	void beforeChange() {
+		if (sharers.isEmpty()) {
+			return;
+		}
+
+		List<Catalog> catalogs = sharers.stream()
+				.map(WeakReference::get)
+				.filter(Objects::nonNull)
+				.collect(Collectors.toList());
+
+		sharers.clear();
+		catalogs.forEach(catalog -> catalog.materialize(this));
+	}
+
 	void canBeDropped() {
 		boolean error = false;
 		StringBuilder builder = new StringBuilder("Table: " + name + " is still being referenced to:\n");
-		for (ForeignKey foreignKey : parent.getForeignKeys()) {
-			if (!foreignKey.getReferredTableName().equals(name)) {
-				continue;
-			}
-
+		for (ForeignKey foreignKey : parent.getForeignKeysReferencingTable(name)) {
 			error = true;
 			builder.append(" - Foreign key: " + foreignKey.getForeignKeyName()
 					+ " refers to column(s): " + foreignKey.getReferredColumns()
@@ -48,9 +48,12 @@ public class View implements Copyable<View>, Comparable<View> {
 		if (parent != null) {
 			checkState(!parent.containsTable(newName),
 					"Catalog: " + parent.getName() + " already contains view with name: " + newName);
-		}
 
-		this.name = newName;
+			parent.renameView(this, () -> this.name = newName);
+		}
+		else {
+			this.name = newName;
+		}
 		return this;
 	}
 
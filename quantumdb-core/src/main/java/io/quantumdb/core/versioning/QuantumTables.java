@@ -67,7 +67,27 @@ public class QuantumTables {
 
 			// Creates the "active_versions" table which describes which versions are active at this time.
 			"CREATE TABLE quantumdb.active_versions (version_id VARCHAR(10), PRIMARY KEY (version_id));",
-			"ALTER TABLE quantumdb.active_versions ADD CONSTRAINT active_versions_version_id FOREIGN KEY (version_id) REFERENCES quantumdb.changelog (version_id) ON DELETE CASCADE;"
+			"ALTER TABLE quantumdb.active_versions ADD CONSTRAINT active_versions_version_id FOREIGN KEY (version_id) REFERENCES quantumdb.changelog (version_id) ON DELETE CASCADE;",
+
+			// Creates the "backfill_checkpoints" table which stores the progress of copying records from a source table into a ghost table.
+			"CREATE TABLE quantumdb.backfill_checkpoints (source_ref_id VARCHAR(255) NOT NULL, target_ref_id VARCHAR(255) NOT NULL, columns TEXT NOT NULL, range_index INTEGER NOT NULL, lower_bound TEXT, upper_bound TEXT, highest_id TEXT NOT NULL, last_processed_id TEXT, completed BOOLEAN NOT NULL DEFAULT FALSE, updated TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(), PRIMARY KEY (source_ref_id, target_ref_id, columns, range_index));",
+			"ALTER TABLE quantumdb.backfill_checkpoints ADD CONSTRAINT backfill_checkpoints_source_ref_id FOREIGN KEY (source_ref_id) REFERENCES quantumdb.refs (ref_id) ON DELETE CASCADE;",
+			"ALTER TABLE quantumdb.backfill_checkpoints ADD CONSTRAINT backfill_checkpoints_target_ref_id FOREIGN KEY (target_ref_id) REFERENCES quantumdb.refs (ref_id) ON DELETE CASCADE;",
+
+			// Creates the "null_records" table which stores the identities of the temporary NULL records inserted into ghost tables.
+			"CREATE TABLE quantumdb.null_records (ref_id VARCHAR(255) NOT NULL, identity TEXT NOT NULL, PRIMARY KEY (ref_id));",
+			"ALTER TABLE quantumdb.null_records ADD CONSTRAINT null_records_ref_id FOREIGN KEY (ref_id) REFERENCES quantumdb.refs (ref_id) ON DELETE CASCADE;",
+
+			// Creates the "pending_indexes" table which stores the indexes which still have to be created on ghost tables.
+			"CREATE TABLE quantumdb.pending_indexes (ref_id VARCHAR(255) NOT NULL, index_name VARCHAR(255) NOT NULL, statement TEXT NOT NULL, PRIMARY KEY (ref_id, index_name));",
+			"ALTER TABLE quantumdb.pending_indexes ADD CONSTRAINT pending_indexes_ref_id FOREIGN KEY (ref_id) REFERENCES quantumdb.refs (ref_id) ON DELETE CASCADE;",
+
+			// Creates the "pending_foreign_keys" table which stores the foreign keys which still have to be created on ghost tables.
+			"CREATE TABLE quantumdb.pending_foreign_keys (ref_id VARCHAR(255) NOT NULL, foreign_key_name VARCHAR(255) NOT NULL, statement TEXT NOT NULL, PRIMARY KEY (ref_id, foreign_key_name));",
+			"ALTER TABLE quantumdb.pending_foreign_keys ADD CONSTRAINT pending_foreign_keys_ref_id FOREIGN KEY (ref_id) REFERENCES quantumdb.refs (ref_id) ON DELETE CASCADE;",
+
+			// Creates the "catalog_snapshots" table which caches the introspected catalog, stamped with the schema generation it was loaded at.
+			"CREATE TABLE quantumdb.catalog_snapshots (catalog_name VARCHAR(255) NOT NULL, generation BIGINT NOT NULL, snapshot TEXT NOT NULL, PRIMARY KEY (catalog_name));"
 	);
 
 	public static int prepare(Connection connection) throws SQLException {
@@ -4,41 +4,61 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Strings.isNullOrEmpty;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
+import com.google.common.collect.Table;
 import io.quantumdb.core.migration.VersionTraverser;
 import io.quantumdb.core.migration.VersionTraverser.Direction;
 import io.quantumdb.core.schema.definitions.Catalog;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 
+/**
+ * This class tracks which tables, columns and sync functions are present in which versions of the database schema.
+ * It is not thread-safe: changes to a RefLog must be serialised by the caller, and must not be made while other
+ * threads are reading from it. Concurrent reads are safe, including those which populate its memoised results.
+ */
 @Slf4j
-@ToString
-@EqualsAndHashCode
+@ToString(of = { "refMapping", "activeVersions" })
+@EqualsAndHashCode(of = { "refMapping", "activeVersions" })
 public class RefLog {
 
 	@Data
 	@ToString(of = { "refId", "name", "versions" })
 	public static abstract class DataRef {
 
+		@Setter(AccessLevel.NONE)
 		private String name;
+
+		@Setter(AccessLevel.NONE)
 		private String refId;
 		private final Set<Version> versions;
 		private final RefLog refLog;
@@ -51,20 +71,20 @@ public class RefLog {
 		}
 
 		public DataRef rename(String newName) {
-			this.name = newName;
+			refLog.rename(this, newName);
 			return this;
 		}
 
 		protected DataRef markAsPresent(Version version) {
 			getVersions().add(version);
-			getRefLog().refMapping.put(version, this);
+			getRefLog().register(version, this);
 			log.debug("Marked TableRef: {} ({}) as present in version: {}", getName(), getRefId(), version.getId());
 			return this;
 		}
 
 		protected DataRef markAsAbsent(Version version) {
 			getVersions().remove(version);
-			getRefLog().refMapping.remove(version, this);
+			getRefLog().unregister(version, this);
 			log.debug("Marked TableRef: {} ({}) as absent in version: {}", getName(), getRefId(), version.getId());
 			return this;
 		}
@@ -126,6 +146,11 @@ public class RefLog {
 		private final Set<SyncRef> outboundSyncs;
 		private final Set<SyncRef> inboundSyncs;
 
+		// An immutable copy of the columns, shared by all callers until the next change to the columns.
+		@Getter(AccessLevel.NONE)
+		@Setter(AccessLevel.NONE)
+		private ImmutableMap<String, ColumnRef> columnsView;
+
 		private TableRef(RefLog refLog, String name, String refId, Version version, Collection<ColumnRef> columns) {
 			super(refLog, name, refId, version);
 			this.columns = Maps.newLinkedHashMap();
@@ -149,7 +174,10 @@ public class RefLog {
 		}
 
 		public ImmutableMap<String, ColumnRef> getColumns() {
-			return ImmutableMap.copyOf(columns);
+			if (columnsView == null) {
+				columnsView = ImmutableMap.copyOf(columns);
+			}
+			return columnsView;
 		}
 
 		public ColumnRef getColumn(String name) {
@@ -181,13 +209,17 @@ public class RefLog {
 
 		public TableRef addColumn(ColumnRef column) {
 			columns.put(column.getName(), column);
+			columnsView = null;
 			column.setTable(this);
+			getRefLog().clearTableMappings();
 			return this;
 		}
 
 		public ColumnRef dropColumn(String name) {
 			ColumnRef removed = columns.remove(name);
+			columnsView = null;
 			removed.drop();
+			getRefLog().clearTableMappings();
 			return removed;
 		}
 
@@ -195,6 +227,7 @@ public class RefLog {
 			columns.forEach((name, ref) -> ref.drop());
 			inboundSyncs.forEach(syncRef -> syncRef.getSource().outboundSyncs.remove(syncRef));
 			outboundSyncs.forEach(syncRef -> syncRef.getTarget().inboundSyncs.remove(syncRef));
+			getRefLog().clearTableMappings();
 		}
 
 		public TableRef renameColumn(String oldName, String newName) {
@@ -204,6 +237,7 @@ public class RefLog {
 			ColumnRef removed = columns.remove(oldName);
 			removed.name = newName;
 			columns.put(newName, removed);
+			columnsView = null;
 			return this;
 		}
 
@@ -250,7 +284,10 @@ public class RefLog {
 			this.basedOn = Sets.newHashSet(basedOn);
 			this.basisFor = Sets.newHashSet();
 
-			basedOn.forEach(column -> column.basisFor.add(this));
+			basedOn.forEach(column -> {
+				column.basisFor.add(this);
+				column.clearTableMappings();
+			});
 		}
 
 		public ColumnRef ghost() {
@@ -275,6 +312,13 @@ public class RefLog {
 					from.basisFor.add(to);
 				}
 			}
+			clearTableMappings();
+		}
+
+		private void clearTableMappings() {
+			if (table != null) {
+				table.getRefLog().clearTableMappings();
+			}
 		}
 
 		public boolean equals(Object other) {
@@ -348,6 +392,7 @@ public class RefLog {
 				from.basisFor.add(to);
 				to.basedOn.add(from);
 			});
+			source.getRefLog().clearTableMappings();
 		}
 
 		public Direction getDirection() {
@@ -420,15 +465,110 @@ public class RefLog {
 		return new RefLog().bootstrap(catalog, version);
 	}
 
+	@Data
+	private static class TableMappingKey {
+		private final Version from;
+		private final Version to;
+		private final boolean filterUnchanged;
+	}
+
 	private final Multimap<Version, DataRef> refMapping;
 	private final Set<Version> activeVersions;
 
+	// Indexes of the refMapping, kept up to date by register() and unregister().
+	private final Table<Version, String, DataRef> refsByName;
+	private final ListMultimap<String, DataRef> refsById;
+	private final Map<DataRef, Integer> registrations;
+
+	// Memoised results, which are discarded when the refs they were derived from change. These are populated by
+	// getters, so they must tolerate concurrent readers.
+	private final Map<Version, ImmutableSet<TableRef>> tableRefsPerVersion;
+	private final Map<TableMappingKey, Multimap<TableRef, TableRef>> tableMappings;
+	private volatile ImmutableSet<TableRef> tableRefs;
+
 	/**
 	 * Creates a new RefLog object.
 	 */
 	public RefLog() {
 		this.refMapping = LinkedHashMultimap.create();
 		this.activeVersions = Sets.newLinkedHashSet();
+		this.refsByName = HashBasedTable.create();
+		this.refsById = ArrayListMultimap.create();
+		this.registrations = Maps.newIdentityHashMap();
+		this.tableRefsPerVersion = new ConcurrentHashMap<>();
+		this.tableMappings = new ConcurrentHashMap<>();
+	}
+
+	private void register(Version version, DataRef ref) {
+		if (!refMapping.put(version, ref)) {
+			return;
+		}
+
+		if (!refsByName.contains(version, ref.getName())) {
+			refsByName.put(version, ref.getName(), ref);
+		}
+		if (registrations.merge(ref, 1, Integer::sum) == 1) {
+			refsById.put(ref.getRefId(), ref);
+			tableRefs = null;
+		}
+		tableRefsPerVersion.remove(version);
+		clearTableMappings();
+	}
+
+	private void unregister(Version version, DataRef ref) {
+		if (!refMapping.remove(version, ref)) {
+			return;
+		}
+
+		if (refsByName.get(version, ref.getName()) == ref) {
+			refsByName.remove(version, ref.getName());
+		}
+		if (registrations.computeIfPresent(ref, (key, count) -> count == 1 ? null : count - 1) == null) {
+			refsById.get(ref.getRefId()).removeIf(other -> other == ref);
+			tableRefs = null;
+		}
+		tableRefsPerVersion.remove(version);
+		clearTableMappings();
+	}
+
+	private void rename(DataRef ref, String newName) {
+		List<Version> versions = ref.getVersions().stream()
+				.filter(version -> refMapping.containsEntry(version, ref))
+				.collect(Collectors.toList());
+
+		// The name is part of the hash code of a DataRef, so it must be re-registered under its new name.
+		versions.forEach(version -> unregister(version, ref));
+		ref.name = newName;
+		versions.forEach(version -> register(version, ref));
+	}
+
+	private void clearTableMappings() {
+		if (!tableMappings.isEmpty()) {
+			tableMappings.clear();
+		}
+	}
+
+	private <T extends DataRef> T findRef(Version version, String name, Class<T> type) {
+		DataRef ref = refsByName.get(version, name);
+		if (ref == null || type.isInstance(ref)) {
+			return type.cast(ref);
+		}
+
+		// A ref of another type has the same name in this version.
+		return refMapping.get(version).stream()
+				.filter(type::isInstance)
+				.map(type::cast)
+				.filter(other -> other.getName().equals(name))
+				.findFirst()
+				.orElse(null);
+	}
+
+	private <T extends DataRef> T findRefById(String refId, Class<T> type) {
+		return refsById.get(refId).stream()
+				.filter(type::isInstance)
+				.map(type::cast)
+				.findFirst()
+				.orElse(null);
 	}
 
 	/**
@@ -480,10 +620,15 @@ public class RefLog {
 	 * @return a Collection of TableRef objects currently registered with this RefLog object.
 	 */
 	public Collection<TableRef> getTableRefs() {
-		return ImmutableSet.copyOf(refMapping.values().stream()
-				.filter(ref -> ref instanceof TableRef)
-				.map(ref -> (TableRef) ref)
-				.collect(Collectors.toSet()));
+		ImmutableSet<TableRef> result = tableRefs;
+		if (result == null) {
+			result = ImmutableSet.copyOf(registrations.keySet().stream()
+					.filter(ref -> ref instanceof TableRef)
+					.map(ref -> (TableRef) ref)
+					.collect(Collectors.toSet()));
+			tableRefs = result;
+		}
+		return result;
 	}
 
 	/**
@@ -492,10 +637,10 @@ public class RefLog {
 	 */
 	public Collection<TableRef> getTableRefs(Version version) {
 		checkArgument(version != null, "You must specify a version!");
-		return ImmutableSet.copyOf(refMapping.get(version).stream()
+		return tableRefsPerVersion.computeIfAbsent(version, key -> ImmutableSet.copyOf(refMapping.get(key).stream()
 				.filter(ref -> ref instanceof TableRef)
 				.map(ref -> (TableRef) ref)
-				.collect(Collectors.toSet()));
+				.collect(Collectors.toSet())));
 	}
 
 	/**
@@ -511,15 +656,23 @@ public class RefLog {
 		checkArgument(version != null, "You must specify a version!");
 		checkArgument(!isNullOrEmpty(tableName), "You must specify a table name!");
 
-		return refMapping.get(version).stream()
-				.filter(ref -> ref instanceof TableRef)
-				.map(ref -> (TableRef) ref)
-				.filter(table -> table.getName().equals(tableName))
-				.findFirst()
+		return findTableRef(version, tableName)
 				.orElseThrow(() -> new IllegalArgumentException("Version: " + version.getId()
 						+ " does not contain a TableRef with tableName: " + tableName));
 	}
 
+	/**
+	 * @param version The version in which the TableRef should be present.
+	 * @param tableName The name of the table represented by the TableRef.
+	 * @return The TableRef object with the specified table name at the specified version, if there is one.
+	 */
+	public Optional<TableRef> findTableRef(Version version, String tableName) {
+		checkArgument(version != null, "You must specify a version!");
+		checkArgument(!isNullOrEmpty(tableName), "You must specify a table name!");
+
+		return Optional.ofNullable(findRef(version, tableName, TableRef.class));
+	}
+
 	/**
 	 * This method retrieves the TableRef object from the RefLog with the specified table ID. If no TableRef
 	 * matches the criteria an IllegalArgumentException will be thrown.
@@ -531,11 +684,7 @@ public class RefLog {
 	public TableRef getTableRefById(String refId) {
 		checkArgument(!isNullOrEmpty(refId), "You must specify a table ID!");
 
-		return refMapping.values().stream()
-				.filter(ref -> ref instanceof TableRef)
-				.map(ref -> (TableRef) ref)
-				.filter(table -> table.getRefId().equals(refId))
-				.findFirst()
+		return Optional.ofNullable(findRefById(refId, TableRef.class))
 				.orElseThrow(() -> new IllegalArgumentException("No table with id: " + refId));
 	}
 
@@ -577,7 +726,7 @@ public class RefLog {
 
 		TableRef tableRef = getTableRef(version, tableName);
 		tableRef.getVersions().remove(version);
-		refMapping.remove(version, tableRef);
+		unregister(version, tableRef);
 
 		if (tableRef.getVersions().isEmpty()) {
 			tableRef.drop();
@@ -594,12 +743,11 @@ public class RefLog {
 	public void dropTable(TableRef tableRef) {
 		checkArgument(tableRef != null, "You must specify a TableRef!");
 
-		List<Version> versions = refMapping.entries().stream()
-				.filter(entry -> entry.getValue().equals(tableRef))
-				.map(Entry::getKey)
+		List<Version> versions = tableRef.getVersions().stream()
+				.filter(version -> refMapping.containsEntry(version, tableRef))
 				.collect(Collectors.toList());
 
-		versions.forEach(version -> refMapping.remove(version, tableRef));
+		versions.forEach(version -> unregister(version, tableRef));
 		tableRef.drop();
 	}
 
@@ -631,11 +779,7 @@ public class RefLog {
 		checkArgument(version != null, "You must specify a 'version'!");
 		checkArgument(columns != null, "You must specify a collection of 'columns'!");
 
-		long matches = refMapping.get(version).stream()
-				.filter(table -> table.getName().equals(name))
-				.count();
-
-		if (matches > 0) {
+		if (refsByName.contains(version, name)) {
 			throw new IllegalStateException("A TableRef for tableName: " + name
 					+ " is already present for version: " + version.getId());
 		}
@@ -678,11 +822,7 @@ public class RefLog {
 		checkArgument(version != null, "You must specify a version!");
 		checkArgument(!isNullOrEmpty(viewName), "You must specify a view name!");
 
-		return refMapping.get(version).stream()
-				.filter(ref -> ref instanceof ViewRef)
-				.map(ref -> (ViewRef) ref)
-				.filter(view -> view.getName().equals(viewName))
-				.findFirst()
+		return Optional.ofNullable(findRef(version, viewName, ViewRef.class))
 				.orElseThrow(() -> new IllegalArgumentException("Version: " + version.getId()
 						+ " does not contain a ViewRef with viewName: " + viewName));
 	}
@@ -698,11 +838,7 @@ public class RefLog {
 	public ViewRef getViewRefById(String refId) {
 		checkArgument(!isNullOrEmpty(refId), "You must specify a view ID!");
 
-		return refMapping.values().stream()
-				.filter(ref -> ref instanceof ViewRef)
-				.map(ref -> (ViewRef) ref)
-				.filter(view -> view.getRefId().equals(refId))
-				.findFirst()
+		return Optional.ofNullable(findRefById(refId, ViewRef.class))
 				.orElseThrow(() -> new IllegalArgumentException("No view with id: " + refId));
 	}/**
 	 * This method replaces an existing ViewRef specified through the version, and source view name, drops that
@@ -740,7 +876,7 @@ public class RefLog {
 
 		ViewRef viewRef = getViewRef(version, viewName);
 		viewRef.getVersions().remove(version);
-		refMapping.remove(version, viewRef);
+		unregister(version, viewRef);
 
 		if (viewRef.getVersions().isEmpty()) {
 			viewRef.drop();
@@ -757,12 +893,11 @@ public class RefLog {
 	public void dropView(ViewRef viewRef) {
 		checkArgument(viewRef != null, "You must specify a ViewRef!");
 
-		List<Version> versions = refMapping.entries().stream()
-				.filter(entry -> entry.getValue().equals(viewRef))
-				.map(Entry::getKey)
+		List<Version> versions = viewRef.getVersions().stream()
+				.filter(version -> refMapping.containsEntry(version, viewRef))
 				.collect(Collectors.toList());
 
-		versions.forEach(version -> refMapping.remove(version, viewRef));
+		versions.forEach(version -> unregister(version, viewRef));
 		viewRef.drop();
 	}
 
@@ -779,11 +914,7 @@ public class RefLog {
 		checkArgument(!isNullOrEmpty(refId), "You must specify a 'refId'!");
 		checkArgument(version != null, "You must specify a 'version'!");
 
-		long matches = refMapping.get(version).stream()
-				.filter(view -> view.getName().equals(name))
-				.count();
-
-		if (matches > 0) {
+		if (refsByName.contains(version, name)) {
 			throw new IllegalStateException("A ViewRef for viewName: " + name
 					+ " is already present for version: " + version.getId());
 		}
@@ -819,21 +950,33 @@ public class RefLog {
 
 	/**
 	 * Returns a Multimap defining the evolutionary relation between TableRefs in the specified 'from' version,
-	 * to TableRefs in specified the 'to' version.
+	 * to TableRefs in specified the 'to' version. The mapping is memoised until the RefLog is changed, and a copy of
+	 * it is returned, which the caller may modify.
 	 *
 	 * @param from The starting version.
 	 * @param to The final version.
 	 * @return The mapping between TableRefs between these two versions.
 	 */
 	public Multimap<TableRef, TableRef> getTableMapping(Version from, Version to, boolean filterUnchanged) {
+		TableMappingKey key = new TableMappingKey(from, to, filterUnchanged);
+		Multimap<TableRef, TableRef> cached = tableMappings.get(key);
+		if (cached != null) {
+			return HashMultimap.create(cached);
+		}
+
 		Multimap<TableRef, TableRef> mapping = HashMultimap.create();
 		getTableRefs(from).forEach(tableRef -> {
 			Set<TableRef> targets = Sets.newHashSet();
-			List<TableRef> toCheck = Lists.newLinkedList();
+			Set<TableRef> visited = Sets.newIdentityHashSet();
+			Deque<TableRef> toCheck = new ArrayDeque<>();
 			toCheck.add(tableRef);
 
 			while (!toCheck.isEmpty()) {
-				TableRef pointer = toCheck.remove(0);
+				TableRef pointer = toCheck.remove();
+				if (!visited.add(pointer)) {
+					continue;
+				}
+
 				if (pointer.getVersions().contains(to)) {
 					if (!filterUnchanged || !pointer.getRefId().equals(tableRef.getRefId())) {
 						targets.add(pointer);
@@ -846,6 +989,8 @@ public class RefLog {
 
 			mapping.putAll(tableRef, targets);
 		});
+
+		tableMappings.put(key, ImmutableSetMultimap.copyOf(mapping));
 		return mapping;
 	}
 
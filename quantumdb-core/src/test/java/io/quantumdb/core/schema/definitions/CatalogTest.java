@@ -4,11 +4,13 @@ import static io.quantumdb.core.schema.definitions.Column.Hint.AUTO_INCREMENT;
 import static io.quantumdb.core.schema.definitions.Column.Hint.PRIMARY_KEY;
 import static io.quantumdb.core.schema.definitions.Column.Hint.NOT_NULL;
 import static io.quantumdb.core.schema.definitions.TestTypes.bigint;
+import static io.quantumdb.core.schema.definitions.TestTypes.varchar;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
 import org.junit.Test;
 
 public class CatalogTest {
@@ -193,6 +195,34 @@ public class CatalogTest {
 		assertEquals(table, catalog.getTable("players"));
 	}
 
+	@Test
+	public void testThatIncomingForeignKeysAreIndexedByReferredTable() {
+		Catalog catalog = new Catalog("test-db");
+		Table users = new Table("users")
+				.addColumn(new Column("id", bigint(), PRIMARY_KEY, NOT_NULL, AUTO_INCREMENT))
+				.addColumn(new Column("address_id", bigint(), NOT_NULL));
+
+		Table addresses = new Table("addresses")
+				.addColumn(new Column("id", bigint(), PRIMARY_KEY, NOT_NULL, AUTO_INCREMENT));
+
+		catalog.addTable(users);
+		catalog.addTable(addresses);
+
+		ForeignKey foreignKey = users.addForeignKey("address_id")
+				.referencing(addresses, "id");
+
+		addresses.rename("locations");
+
+		assertEquals(ImmutableSet.of(foreignKey), catalog.getForeignKeysReferencingTable("locations"));
+		assertEquals(ImmutableSet.of("users"), catalog.getTablesReferencingTable("locations"));
+		assertTrue(catalog.getTablesReferencingTable("users").isEmpty());
+
+		foreignKey.drop();
+
+		assertTrue(catalog.getForeignKeysReferencingTable("locations").isEmpty());
+		assertTrue(addresses.getIncomingForeignKeys().isEmpty());
+	}
+
 	@Test(expected = IllegalStateException.class)
 	public void testThatRenamingTableThrowsExceptionWhenNameIsAlreadyTaken() {
 		Table usersTable = new Table("users")
@@ -222,6 +252,159 @@ public class CatalogTest {
 		assertFalse(catalog == copy);
 	}
 
+	@Test
+	public void testThatCopyMethodCopiesForeignKeysAndSequences() {
+		Sequence sequence = new Sequence("users_id_seq");
+		Table users = new Table("users")
+				.addColumn(new Column("id", bigint(), sequence, PRIMARY_KEY, NOT_NULL, AUTO_INCREMENT))
+				.addColumn(new Column("address_id", bigint(), NOT_NULL));
+
+		Table addresses = new Table("addresses")
+				.addColumn(new Column("id", bigint(), PRIMARY_KEY, NOT_NULL, AUTO_INCREMENT));
+
+		Catalog catalog = new Catalog("test-db")
+				.addSequence(sequence)
+				.addTable(users)
+				.addTable(addresses);
+
+		users.addForeignKey("address_id")
+				.named("users_address_fk")
+				.referencing(addresses, "id");
+
+		Catalog copy = catalog.copy();
+		Table usersCopy = copy.getTable("users");
+		ForeignKey foreignKey = usersCopy.getForeignKeys().get(0);
+
+		assertEquals("users_address_fk", foreignKey.getForeignKeyName());
+		assertTrue(foreignKey.getReferredTable() == copy.getTable("addresses"));
+		assertEquals(ImmutableSet.of("users"), copy.getTablesReferencingTable("addresses"));
+		assertTrue(usersCopy.getColumn("id").getSequence().getParent() == copy);
+	}
+
+	@Test
+	public void testThatTablesAreSharedUntilCatalogChanges() {
+		Catalog catalog = new Catalog("test-db")
+				.addTable(new Table("users")
+						.addColumn(new Column("id", bigint(), PRIMARY_KEY, AUTO_INCREMENT)));
+
+		ImmutableSet<Table> tables = catalog.getTables();
+		assertTrue(tables == catalog.getTables());
+
+		catalog.getTable("users").rename("players");
+		assertFalse(tables == catalog.getTables());
+		assertEquals("players", catalog.getTables().iterator().next().getName());
+	}
+
+	@Test
+	public void testThatCopySharesTablesUntilTheseAreRetrieved() {
+		Catalog catalog = createCatalogWithForeignKey()
+				.addTable(new Table("posts")
+						.addColumn(new Column("id", bigint(), PRIMARY_KEY, AUTO_INCREMENT)));
+
+		Catalog copy = catalog.copy();
+		assertTrue(copy.isShared("users"));
+		assertTrue(copy.isShared("addresses"));
+		assertTrue(copy.isShared("posts"));
+		assertTrue(copy.containsTable("posts"));
+
+		Table users = copy.getTable("users");
+		assertFalse(users == catalog.getTable("users"));
+		assertTrue(users.getParent() == copy);
+		assertTrue(users.getForeignKeys().get(0).getReferredTable() == copy.getTable("addresses"));
+
+		// Tables linked through foreign keys are copied together, others remain shared.
+		assertFalse(copy.isShared("addresses"));
+		assertTrue(copy.isShared("posts"));
+	}
+
+	@Test
+	public void testThatChangesToOriginalAreNotVisibleInCopy() {
+		Catalog catalog = createCatalogWithForeignKey();
+		Table users = catalog.getTable("users");
+
+		Catalog copy = catalog.copy();
+		users.addColumn(new Column("name", varchar(255)));
+		users.getColumn("address_id").rename("location_id");
+
+		assertFalse(copy.isShared("users"));
+		assertFalse(copy.getTable("users").containsColumn("name"));
+		assertTrue(copy.getTable("users").containsColumn("address_id"));
+		assertEquals("address_id", copy.getTable("users").getForeignKeys().get(0).getReferencingColumns().get(0));
+	}
+
+	@Test
+	public void testThatChangesToCopyAreNotVisibleInOriginal() {
+		Catalog catalog = createCatalogWithForeignKey();
+		Catalog copy = catalog.copy();
+
+		copy.getTable("users").addColumn(new Column("name", varchar(255)));
+		copy.getTable("users").getForeignKeys().get(0).drop();
+
+		assertFalse(catalog.getTable("users").containsColumn("name"));
+		assertEquals(1, catalog.getTable("users").getForeignKeys().size());
+		assertEquals(ImmutableSet.of("users"), catalog.getTablesReferencingTable("addresses"));
+	}
+
+	@Test
+	public void testThatRemovingTableFromOriginalKeepsItInCopy() {
+		Catalog catalog = createCatalogWithForeignKey();
+		Catalog copy = catalog.copy();
+
+		catalog.getTable("users").getForeignKeys().get(0).drop();
+		catalog.removeTable("users");
+
+		assertTrue(copy.containsTable("users"));
+		assertEquals(ImmutableSet.of("users"), copy.getTablesReferencingTable("addresses"));
+	}
+
+	@Test
+	public void testThatCopyOfCopyIsUnaffectedByChangesToOriginal() {
+		Catalog catalog = createCatalogWithForeignKey();
+		Catalog copy = catalog.copy();
+		Catalog copyOfCopy = copy.copy();
+
+		catalog.getTable("addresses").addColumn(new Column("street", varchar(255)));
+
+		assertFalse(copy.getTable("addresses").containsColumn("street"));
+		assertFalse(copyOfCopy.getTable("addresses").containsColumn("street"));
+		assertEquals(catalog.getTable("users"), copyOfCopy.getTable("users"));
+	}
+
+	@Test
+	public void testThatRenamingSequenceOfOriginalKeepsSequenceOfCopy() {
+		Sequence sequence = new Sequence("users_id_seq");
+		Catalog catalog = new Catalog("test-db")
+				.addSequence(sequence)
+				.addTable(new Table("users")
+						.addColumn(new Column("id", bigint(), sequence, PRIMARY_KEY, AUTO_INCREMENT)));
+
+		Catalog copy = catalog.copy();
+		sequence.rename("players_id_seq");
+
+		Sequence copiedSequence = copy.getTable("users").getColumn("id").getSequence();
+		assertEquals("users_id_seq", copiedSequence.getName());
+		assertTrue(copiedSequence.getParent() == copy);
+	}
+
+	private Catalog createCatalogWithForeignKey() {
+		Table users = new Table("users")
+				.addColumn(new Column("id", bigint(), PRIMARY_KEY, NOT_NULL, AUTO_INCREMENT))
+				.addColumn(new Column("address_id", bigint(), NOT_NULL));
+
+		Table addresses = new Table("addresses")
+				.addColumn(new Column("id", bigint(), PRIMARY_KEY, NOT_NULL, AUTO_INCREMENT));
+
+		Catalog catalog = new Catalog("test-db")
+				.addTable(users)
+				.addTable(addresses);
+
+		users.addForeignKey("address_id")
+				.named("users_address_fk")
+				.referencing(addresses, "id");
+
+		return catalog;
+	}
+
 	@Test
 	public void toStringReturnsSomething() {
 		Table table = new Table("users")
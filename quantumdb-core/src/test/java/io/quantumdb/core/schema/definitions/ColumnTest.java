@@ -196,6 +196,8 @@ public class ColumnTest {
 		column.rename("uuid");
 
 		assertEquals("uuid", column.getName());
+		assertEquals(column, table.getColumn("uuid"));
+		assertFalse(table.containsColumn("id"));
 	}
 
 	@Test(expected = IllegalArgumentException.class)
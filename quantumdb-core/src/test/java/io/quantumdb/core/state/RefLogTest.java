@@ -5,6 +5,7 @@ import static io.quantumdb.core.schema.definitions.TestTypes.bigint;
 import static io.quantumdb.core.schema.definitions.TestTypes.varchar;
 import static io.quantumdb.core.utils.RandomHasher.generateHash;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.List;
@@ -273,6 +274,48 @@ public class RefLogTest {
 		refLog.addTable("users", generateHash(), version, Lists.newArrayList());
 	}
 
+	@Test
+	public void testRenamedTableRefCanBeLookedUpByItsNewName() {
+		Version nextVersion = new Version(generateHash(), version);
+		refLog.fork(nextVersion);
+
+		TableRef ghost = refLog.getTableRef(nextVersion, "users").ghost("users", nextVersion);
+		ghost.rename("players");
+
+		assertEquals(ghost, refLog.getTableRef(nextVersion, "players"));
+		assertFalse(refLog.findTableRef(nextVersion, "users").isPresent());
+		assertEquals("users", refLog.getTableRef(version, "users").getName());
+		assertEquals("users", refLog.getTableRefById("users").getName());
+	}
+
+	@Test
+	public void testDroppedTableRefCannotBeLookedUpById() {
+		String refId = generateHash();
+		refLog.addTable("transactions", refId, version, Lists.newArrayList());
+		assertEquals("transactions", refLog.getTableRefById(refId).getName());
+
+		refLog.dropTable(version, "transactions");
+
+		assertFalse(refLog.findTableRef(version, "transactions").isPresent());
+		assertEquals(ImmutableSet.of("users"), refLog.getTableRefs().stream()
+				.map(TableRef::getRefId)
+				.collect(Collectors.toSet()));
+	}
+
+	@Test
+	public void testTableMappingReflectsChangesAfterItWasComputed() {
+		Version nextVersion = new Version(generateHash(), version);
+		refLog.fork(nextVersion);
+
+		TableRef oldRef = refLog.getTableRef(version, "users");
+		assertTrue(refLog.getTableMapping(version, nextVersion).isEmpty());
+
+		TableRef newRef = refLog.replaceTable(nextVersion, "users", "users", generateHash());
+
+		assertEquals(ImmutableSet.of(newRef), ImmutableSet.copyOf(refLog.getTableMapping(version, nextVersion)
+				.get(oldRef)));
+	}
+
 	@Test
 	public void testAddingSync() {
 		String refId = generateHash();
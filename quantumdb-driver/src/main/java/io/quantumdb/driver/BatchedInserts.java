@@ -0,0 +1,192 @@
+package io.quantumdb.driver;
+
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Coalesces consecutive single-row INSERT statements of a batch, which insert into the same table and columns, into
+ * multi-row INSERT statements, so that the database has to parse and plan far fewer statements. Like pgjdbc's
+ * "reWriteBatchedInserts" option does for prepared statements, the update count of every coalesced statement is
+ * reported as {@link Statement#SUCCESS_NO_INFO}.
+ * <p>
+ * Only statements of the form "INSERT INTO ... VALUES (...)" (optionally followed by a semicolon) are coalesced.
+ * Statements containing comments, dollar-quoted or escaped strings, multiple rows, or any clause after the VALUES
+ * list (such as RETURNING or ON CONFLICT) are left untouched.
+ */
+final class BatchedInserts {
+
+	static final String COALESCE_BATCHED_INSERTS = "coalesceBatchedInserts";
+
+	private static final int MAX_ROWS = 128;
+	private static final String VALUES = "values";
+
+	private final List<String> statements = Lists.newArrayList();
+	private final List<Integer> rows = Lists.newArrayList();
+
+	/**
+	 * Coalesces the specified (already rewritten) batch of statements.
+	 */
+	BatchedInserts(List<String> batch) {
+		String prefix = null;
+		List<String> group = Lists.newArrayList();
+		List<String> tuples = Lists.newArrayList();
+
+		for (String sql : batch) {
+			String[] parts = split(sql);
+			if (parts == null || !parts[0].equals(prefix) || group.size() == MAX_ROWS) {
+				flush(prefix, group, tuples);
+			}
+
+			if (parts == null) {
+				prefix = null;
+				statements.add(sql);
+				rows.add(1);
+			}
+			else {
+				prefix = parts[0];
+				group.add(sql);
+				tuples.add(parts[1]);
+			}
+		}
+		flush(prefix, group, tuples);
+	}
+
+	List<String> getStatements() {
+		return statements;
+	}
+
+	/**
+	 * @return The update counts of the original batch, given the update counts of the coalesced statements.
+	 */
+	int[] expand(int[] updateCounts) {
+		if (updateCounts.length != statements.size()) {
+			return updateCounts;
+		}
+
+		return expandPartially(updateCounts);
+	}
+
+	/**
+	 * @return The update counts of the original batch, given the (possibly incomplete) update counts of the
+	 * coalesced statements of a batch which failed. Statements which are not accounted for by these update counts
+	 * are reported as {@link Statement#EXECUTE_FAILED}.
+	 */
+	int[] expandPartially(int[] updateCounts) {
+		int size = rows.stream().mapToInt(Integer::intValue).sum();
+		int[] result = new int[size];
+		Arrays.fill(result, Statement.EXECUTE_FAILED);
+
+		int index = 0;
+		int known = updateCounts == null ? 0 : Math.min(updateCounts.length, rows.size());
+		for (int i = 0; i < known; i++) {
+			int count = rows.get(i);
+			int updateCount = updateCounts[i];
+			for (int j = 0; j < count; j++) {
+				if (count == 1 || updateCount == Statement.EXECUTE_FAILED) {
+					result[index++] = updateCount;
+				}
+				else {
+					result[index++] = Statement.SUCCESS_NO_INFO;
+				}
+			}
+		}
+		return result;
+	}
+
+	private void flush(String prefix, List<String> group, List<String> tuples) {
+		if (group.size() == 1) {
+			statements.add(group.get(0));
+			rows.add(1);
+		}
+		else if (group.size() > 1) {
+			statements.add(prefix + " VALUES " + String.join(", ", tuples));
+			rows.add(group.size());
+		}
+		group.clear();
+		tuples.clear();
+	}
+
+	/**
+	 * @return The part of the statement before the VALUES keyword, and the single row which follows it, or NULL if
+	 * the specified statement cannot be coalesced.
+	 */
+	static String[] split(String sql) {
+		if (sql == null || !sql.regionMatches(true, 0, "insert", 0, 6)) {
+			return null;
+		}
+
+		int length = sql.length();
+		int depth = 0;
+		int values = -1;
+		int rowStart = -1;
+		int rowEnd = -1;
+
+		for (int i = 0; i < length; i++) {
+			char c = sql.charAt(i);
+			if (rowEnd != -1) {
+				if (c != ';' && !Character.isWhitespace(c)) {
+					return null;
+				}
+			}
+			else if (c == '\'' || c == '"') {
+				int end = sql.indexOf(c, i + 1);
+				if (end == -1 || sql.lastIndexOf('\\', end) > i) {
+					return null;
+				}
+				i = end;
+			}
+			else if (c == '$' || c == '\\' || c == ';') {
+				return null;
+			}
+			else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-'
+					|| c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+				return null;
+			}
+			else if (c == '(') {
+				if (depth == 0 && values != -1) {
+					if (rowStart != -1) {
+						return null;
+					}
+					rowStart = i;
+				}
+				depth++;
+			}
+			else if (c == ')') {
+				depth--;
+				if (depth < 0) {
+					return null;
+				}
+				if (depth == 0 && rowStart != -1) {
+					rowEnd = i + 1;
+				}
+			}
+			else if (depth == 0 && values == -1 && isKeyword(sql, i, VALUES)) {
+				values = i;
+				i += VALUES.length() - 1;
+			}
+			else if (depth == 0 && values != -1 && !Character.isWhitespace(c)) {
+				return null;
+			}
+		}
+
+		if (rowEnd == -1) {
+			return null;
+		}
+		return new String[] { sql.substring(0, values).trim(), sql.substring(rowStart, rowEnd) };
+	}
+
+	private static boolean isKeyword(String sql, int index, String keyword) {
+		int end = index + keyword.length();
+		return sql.regionMatches(true, index, keyword, 0, keyword.length())
+				&& (index == 0 || !isIdentifierPart(sql.charAt(index - 1)))
+				&& (end == sql.length() || !isIdentifierPart(sql.charAt(end)));
+	}
+
+	private static boolean isIdentifierPart(char c) {
+		return Character.isLetterOrDigit(c) || c == '_';
+	}
+
+}
@@ -22,6 +22,12 @@ public class Driver implements java.sql.Driver {
 		}
 	}
 
+	static final String URL_PREFIX = "jdbc:quantumdb:";
+	static final String REWRITE_CACHE_SIZE = "rewriteCacheSize";
+	static final String VERSION_REFRESH_INTERVAL = "versionRefreshInterval";
+	static final String APPLICATION_NAME = "ApplicationName";
+	static final String REFRESHER_APPLICATION_NAME = "QuantumDB driver (version mapping refresher)";
+
 	private java.sql.Driver delegate;
 	private Transformer transformer;
 
@@ -31,41 +37,60 @@ public class Driver implements java.sql.Driver {
 
 	@Override
 	public Connection connect(String url, Properties info) throws SQLException {
-		if (!url.startsWith("jdbc:quantumdb:")) {
+		if (!acceptsURL(url)) {
 			return null;
 		}
-		url = url.substring(0, 4) + ":" + url.substring(15, url.length());
+		url = toDelegateUrl(url);
 
-		try {
-			Class.forName("org.postgresql.Driver");
-		}
-		catch (ClassNotFoundException e) {
-			throw new SQLException("Could not locate delegate driver.", e);
+		String version = parseParameter(url, "version");
+		if (version != null) {
+			info.setProperty(APPLICATION_NAME, getApplicationName(info, version));
 		}
 
-		String version = parseVersion(url);
-		if (version != null) {
-			String applicationName = info.getProperty("ApplicationName");
-			if (applicationName != null && !applicationName.equals("")) {
-				applicationName += " - " + version;
+		java.sql.Driver delegate = getDelegate(url);
+		this.delegate = delegate;
+		Metrics.configure(url, info);
+
+		String delegateUrl = url;
+		Properties delegateInfo = getRefresherInfo(info);
+
+		int statementCacheSize = parseNonNegativeInteger(url, info, StatementCache.STATEMENT_CACHE_SIZE,
+				StatementCache.DEFAULT_SIZE);
+		StatementCache statementCache = statementCacheSize > 0 ? new StatementCache(statementCacheSize) : null;
+		boolean coalesceInserts = parseBoolean(url, info, BatchedInserts.COALESCE_BATCHED_INSERTS);
+
+		Connection connection = delegate.connect(url, info);
+		if (VersionSchemas.isEnabled(url, info)) {
+			try {
+				VersionSchemas.use(connection, version, VersionSchemas.getSearchPath(connection));
 			}
-			else {
-				applicationName = "QuantumDB driver - " + version;
+			catch (SQLException e) {
+				connection.close();
+				throw e;
 			}
-			info.setProperty("ApplicationName", applicationName);
+
+			Transformer transformer = VersionSchemas.createPassThroughTransformer(version);
+			this.transformer = transformer;
+			return new ProxyConnection(connection, transformer, statementCache, null, coalesceInserts);
 		}
 
-		this.delegate = DriverManager.getDriver(url);
-		Connection connection = delegate.connect(url, info);
+		int refreshInterval = parseNonNegativeInteger(url, info, VERSION_REFRESH_INTERVAL,
+				VersionMappings.DEFAULT_REFRESH_INTERVAL);
+
+		VersionMappings versionMappings = VersionMappings.obtain(url, version, connection,
+				() -> delegate.connect(delegateUrl, delegateInfo), refreshInterval);
+
 		QueryRewriter queryRewriter = new PostgresqlQueryRewriter();
-		this.transformer = new Transformer(connection, queryRewriter, version);
+		int cacheSize = parseNonNegativeInteger(url, info, REWRITE_CACHE_SIZE, RewriteCache.DEFAULT_SIZE);
+		Transformer transformer = new Transformer(queryRewriter, versionMappings, url, cacheSize);
+		this.transformer = transformer;
 
-		return new ProxyConnection(connection, transformer);
+		return new ProxyConnection(connection, transformer, statementCache, null, coalesceInserts);
 	}
 
 	@Override
 	public boolean acceptsURL(String url) throws SQLException {
-		return url != null && url.startsWith("jdbc:quantumdb:");
+		return url != null && url.startsWith(URL_PREFIX);
 	}
 
 	@Override
@@ -97,8 +122,80 @@ public class Driver implements java.sql.Driver {
 		return transformer.getRefId(tableName);
 	}
 
-	private String parseVersion(String url) {
-		String[] lookups = new String[] { "?version=", "&version=" };
+	/**
+	 * @return The URL of the underlying PostgreSQL driver, for instance "jdbc:postgresql://localhost/db" for the URL
+	 * "jdbc:quantumdb:postgresql://localhost/db".
+	 */
+	static String toDelegateUrl(String url) {
+		return url.substring(0, 4) + ":" + url.substring(URL_PREFIX.length());
+	}
+
+	static java.sql.Driver getDelegate(String delegateUrl) throws SQLException {
+		try {
+			Class.forName("org.postgresql.Driver");
+		}
+		catch (ClassNotFoundException e) {
+			throw new SQLException("Could not locate delegate driver.", e);
+		}
+		return DriverManager.getDriver(delegateUrl);
+	}
+
+	/**
+	 * @return The application name connections of the specified version report to the database, which allows the
+	 * QuantumDB CLI to count how many clients are still connected to that version.
+	 */
+	static String getApplicationName(Properties info, String version) {
+		String applicationName = info.getProperty(APPLICATION_NAME);
+		if (applicationName != null && !applicationName.equals("")) {
+			return applicationName + " - " + version;
+		}
+		return "QuantumDB driver - " + version;
+	}
+
+	/**
+	 * @return The properties of connections which refresh table mappings. These report another application name,
+	 * so that they're not counted as clients of any particular version.
+	 */
+	static Properties getRefresherInfo(Properties info) {
+		Properties refresherInfo = new Properties();
+		refresherInfo.putAll(info);
+		refresherInfo.setProperty(APPLICATION_NAME, REFRESHER_APPLICATION_NAME);
+		return refresherInfo;
+	}
+
+	static int parseNonNegativeInteger(String url, Properties info, String name, int defaultValue)
+			throws SQLException {
+
+		String value = info.getProperty(name);
+		if (value == null) {
+			value = parseParameter(url, name);
+		}
+		if (value == null) {
+			return defaultValue;
+		}
+
+		try {
+			int result = Integer.parseInt(value);
+			if (result < 0) {
+				throw new SQLException("The " + name + " may not be negative: " + value);
+			}
+			return result;
+		}
+		catch (NumberFormatException e) {
+			throw new SQLException("The " + name + " is not a number: " + value, e);
+		}
+	}
+
+	static boolean parseBoolean(String url, Properties info, String name) {
+		String value = info.getProperty(name);
+		if (value == null) {
+			value = parseParameter(url, name);
+		}
+		return Boolean.parseBoolean(value);
+	}
+
+	static String parseParameter(String url, String name) {
+		String[] lookups = new String[] { "?" + name + "=", "&" + name + "=" };
 
 		int index = -1;
 		for (String lookup : lookups) {
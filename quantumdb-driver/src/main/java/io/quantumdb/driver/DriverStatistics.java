@@ -0,0 +1,160 @@
+package io.quantumdb.driver;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The built-in MetricsListener, which aggregates the time spent rewriting queries and executing statements across all
+ * connections of the driver. Latencies are reported as the upper bound of the histogram bucket they fall in.
+ */
+public final class DriverStatistics implements MetricsListener, DriverStatisticsMXBean {
+
+	private final LongAdder rewrites = new LongAdder();
+	private final LongAdder rewriteCacheHits = new LongAdder();
+	private final LongAdder rewriteTime = new LongAdder();
+	private final LatencyHistogram rewriteLatencies = new LatencyHistogram();
+
+	private final LongAdder executions = new LongAdder();
+	private final LongAdder executionFailures = new LongAdder();
+	private final LongAdder executionTime = new LongAdder();
+	private final LatencyHistogram executionLatencies = new LatencyHistogram();
+	private final ConcurrentMap<String, LongAdder> executionsPerVersion = new ConcurrentHashMap<>();
+
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder batchedStatements = new LongAdder();
+	private final LongAdder batchTime = new LongAdder();
+
+	DriverStatistics() {
+		// Created through Metrics.
+	}
+
+	@Override
+	public void queryRewritten(String version, long durationNanos, boolean cacheHit) {
+		rewrites.increment();
+		rewriteTime.add(durationNanos);
+		rewriteLatencies.record(durationNanos);
+		if (cacheHit) {
+			rewriteCacheHits.increment();
+		}
+	}
+
+	@Override
+	public void statementExecuted(String version, StatementKind kind, long durationNanos, boolean failed) {
+		executions.increment();
+		executionTime.add(durationNanos);
+		executionLatencies.record(durationNanos);
+		if (failed) {
+			executionFailures.increment();
+		}
+		executionsPerVersion.computeIfAbsent(version == null ? "" : version, key -> new LongAdder()).increment();
+	}
+
+	@Override
+	public void batchExecuted(String version, StatementKind kind, int batchSize, long durationNanos, boolean failed) {
+		batches.increment();
+		batchedStatements.add(batchSize);
+		batchTime.add(durationNanos);
+		if (failed) {
+			executionFailures.increment();
+		}
+		executionsPerVersion.computeIfAbsent(version == null ? "" : version, key -> new LongAdder()).add(batchSize);
+	}
+
+	@Override
+	public long getRewriteCount() {
+		return rewrites.sum();
+	}
+
+	@Override
+	public long getRewriteCacheHitCount() {
+		return rewriteCacheHits.sum();
+	}
+
+	@Override
+	public double getRewriteCacheHitRatio() {
+		long count = rewrites.sum();
+		return count == 0 ? 0 : (double) rewriteCacheHits.sum() / count;
+	}
+
+	@Override
+	public long getRewriteTimeTotalNanos() {
+		return rewriteTime.sum();
+	}
+
+	@Override
+	public long getRewriteLatencyP99Micros() {
+		return rewriteLatencies.getPercentileMicros(99);
+	}
+
+	@Override
+	public long getExecuteCount() {
+		return executions.sum();
+	}
+
+	@Override
+	public long getExecuteFailureCount() {
+		return executionFailures.sum();
+	}
+
+	@Override
+	public long getExecuteTimeTotalNanos() {
+		return executionTime.sum();
+	}
+
+	@Override
+	public long getExecuteLatencyP50Micros() {
+		return executionLatencies.getPercentileMicros(50);
+	}
+
+	@Override
+	public long getExecuteLatencyP99Micros() {
+		return executionLatencies.getPercentileMicros(99);
+	}
+
+	@Override
+	public Map<String, Long> getExecuteLatencyHistogram() {
+		return executionLatencies.getBuckets();
+	}
+
+	@Override
+	public Map<String, Long> getStatementsPerVersion() {
+		Map<String, Long> result = new TreeMap<>();
+		executionsPerVersion.forEach((version, count) -> result.put(version, count.sum()));
+		return result;
+	}
+
+	@Override
+	public long getBatchCount() {
+		return batches.sum();
+	}
+
+	@Override
+	public long getBatchedStatementCount() {
+		return batchedStatements.sum();
+	}
+
+	@Override
+	public long getBatchTimeTotalNanos() {
+		return batchTime.sum();
+	}
+
+	@Override
+	public void reset() {
+		rewrites.reset();
+		rewriteCacheHits.reset();
+		rewriteTime.reset();
+		rewriteLatencies.reset();
+		executions.reset();
+		executionFailures.reset();
+		executionTime.reset();
+		executionLatencies.reset();
+		executionsPerVersion.clear();
+		batches.reset();
+		batchedStatements.reset();
+		batchTime.reset();
+	}
+
+}
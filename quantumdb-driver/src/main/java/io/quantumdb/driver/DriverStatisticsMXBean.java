@@ -0,0 +1,42 @@
+package io.quantumdb.driver;
+
+import java.util.Map;
+
+/**
+ * The JMX interface of {@link DriverStatistics}, registered as "io.quantumdb.driver:type=DriverStatistics".
+ */
+public interface DriverStatisticsMXBean {
+
+	long getRewriteCount();
+
+	long getRewriteCacheHitCount();
+
+	double getRewriteCacheHitRatio();
+
+	long getRewriteTimeTotalNanos();
+
+	long getRewriteLatencyP99Micros();
+
+	long getExecuteCount();
+
+	long getExecuteFailureCount();
+
+	long getExecuteTimeTotalNanos();
+
+	long getExecuteLatencyP50Micros();
+
+	long getExecuteLatencyP99Micros();
+
+	Map<String, Long> getExecuteLatencyHistogram();
+
+	Map<String, Long> getStatementsPerVersion();
+
+	long getBatchCount();
+
+	long getBatchedStatementCount();
+
+	long getBatchTimeTotalNanos();
+
+	void reset();
+
+}
@@ -0,0 +1,116 @@
+package io.quantumdb.driver;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Emits a JFR event for every rewritten query and executed statement. Since events are only committed while a
+ * recording has them enabled, this listener costs next to nothing when no recording is running. This class is only
+ * loaded (reflectively, by {@link Metrics}) on JVMs which support JFR events.
+ */
+final class JfrMetricsListener implements MetricsListener {
+
+	@Name("io.quantumdb.driver.QueryRewrite")
+	@Label("Query Rewrite")
+	@Category({ "QuantumDB", "Driver" })
+	@Description("A query which was rewritten to use the tables of a version.")
+	static class QueryRewriteEvent extends Event {
+
+		@Label("Version")
+		String version;
+
+		@Label("Rewrite Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long rewriteTime;
+
+		@Label("Cache Hit")
+		boolean cacheHit;
+
+	}
+
+	@Name("io.quantumdb.driver.StatementExecute")
+	@Label("Statement Execute")
+	@Category({ "QuantumDB", "Driver" })
+	@Description("A statement which was executed through the QuantumDB driver.")
+	static class StatementExecuteEvent extends Event {
+
+		@Label("Version")
+		String version;
+
+		@Label("Statement Kind")
+		String kind;
+
+		@Label("Execute Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long executeTime;
+
+		@Label("Failed")
+		boolean failed;
+
+	}
+
+	@Name("io.quantumdb.driver.BatchExecute")
+	@Label("Batch Execute")
+	@Category({ "QuantumDB", "Driver" })
+	@Description("A batch of statements which was executed through the QuantumDB driver.")
+	static class BatchExecuteEvent extends Event {
+
+		@Label("Version")
+		String version;
+
+		@Label("Statement Kind")
+		String kind;
+
+		@Label("Batch Size")
+		int batchSize;
+
+		@Label("Execute Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long executeTime;
+
+		@Label("Failed")
+		boolean failed;
+
+	}
+
+	@Override
+	public void queryRewritten(String version, long durationNanos, boolean cacheHit) {
+		QueryRewriteEvent event = new QueryRewriteEvent();
+		if (event.isEnabled()) {
+			event.version = version;
+			event.rewriteTime = durationNanos;
+			event.cacheHit = cacheHit;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void statementExecuted(String version, StatementKind kind, long durationNanos, boolean failed) {
+		StatementExecuteEvent event = new StatementExecuteEvent();
+		if (event.isEnabled()) {
+			event.version = version;
+			event.kind = kind.name();
+			event.executeTime = durationNanos;
+			event.failed = failed;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void batchExecuted(String version, StatementKind kind, int batchSize, long durationNanos, boolean failed) {
+		BatchExecuteEvent event = new BatchExecuteEvent();
+		if (event.isEnabled()) {
+			event.version = version;
+			event.kind = kind.name();
+			event.batchSize = batchSize;
+			event.executeTime = durationNanos;
+			event.failed = failed;
+			event.commit();
+		}
+	}
+
+}
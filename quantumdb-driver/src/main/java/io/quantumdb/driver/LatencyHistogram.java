@@ -0,0 +1,84 @@
+package io.quantumdb.driver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies, with fixed buckets ranging from 10 microseconds to 10 seconds.
+ */
+final class LatencyHistogram {
+
+	private static final long[] UPPER_BOUNDS_MICROS = {
+			10, 25, 50, 100, 250, 500,
+			1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000,
+			1_000_000, 2_500_000, 5_000_000, 10_000_000
+	};
+
+	private final AtomicLongArray counts = new AtomicLongArray(UPPER_BOUNDS_MICROS.length + 1);
+
+	void record(long durationNanos) {
+		long micros = TimeUnit.NANOSECONDS.toMicros(durationNanos);
+		int bucket = 0;
+		while (bucket < UPPER_BOUNDS_MICROS.length && micros > UPPER_BOUNDS_MICROS[bucket]) {
+			bucket++;
+		}
+		counts.incrementAndGet(bucket);
+	}
+
+	/**
+	 * @return The upper bound (in microseconds) of the bucket which contains the specified percentile of all recorded
+	 * latencies, -1 if nothing was recorded, or Long.MAX_VALUE if it exceeds the largest bucket.
+	 */
+	long getPercentileMicros(double percentile) {
+		long[] snapshot = snapshot();
+		long total = 0;
+		for (long count : snapshot) {
+			total += count;
+		}
+		if (total == 0) {
+			return -1;
+		}
+
+		long threshold = (long) Math.ceil(total * percentile / 100.0);
+		long seen = 0;
+		for (int bucket = 0; bucket < snapshot.length; bucket++) {
+			seen += snapshot[bucket];
+			if (seen >= threshold) {
+				return bucket < UPPER_BOUNDS_MICROS.length ? UPPER_BOUNDS_MICROS[bucket] : Long.MAX_VALUE;
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * @return The number of recorded latencies per bucket, keyed by the bucket's upper bound (for instance "<= 250us").
+	 */
+	Map<String, Long> getBuckets() {
+		long[] snapshot = snapshot();
+		Map<String, Long> buckets = new LinkedHashMap<>();
+		for (int bucket = 0; bucket < snapshot.length; bucket++) {
+			String label = bucket < UPPER_BOUNDS_MICROS.length
+					? "<= " + UPPER_BOUNDS_MICROS[bucket] + "us"
+					: "> " + UPPER_BOUNDS_MICROS[UPPER_BOUNDS_MICROS.length - 1] + "us";
+			buckets.put(label, snapshot[bucket]);
+		}
+		return buckets;
+	}
+
+	void reset() {
+		for (int bucket = 0; bucket < counts.length(); bucket++) {
+			counts.set(bucket, 0);
+		}
+	}
+
+	private long[] snapshot() {
+		long[] snapshot = new long[counts.length()];
+		for (int bucket = 0; bucket < snapshot.length; bucket++) {
+			snapshot[bucket] = counts.get(bucket);
+		}
+		return snapshot;
+	}
+
+}
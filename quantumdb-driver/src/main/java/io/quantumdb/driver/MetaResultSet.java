@@ -22,17 +22,24 @@ import java.sql.Timestamp;
 import java.util.Calendar;
 import java.util.Map;
 
+import io.quantumdb.driver.VersionMappings.Snapshot;
 import io.quantumdb.query.rewriter.Experimental;
 
 @Experimental
 class MetaResultSet implements ResultSet {
 
+	private static final String TABLE_NAME = "TABLE_NAME";
+
 	private final ResultSet resultSet;
 	private final Map<String, String> tableMapping;
+	private final Map<String, String> tableNames;
+	private int tableNameColumn;
 
 	MetaResultSet(ResultSet resultSet, Transformer transformer) {
+		Snapshot snapshot = transformer.getSnapshot();
 		this.resultSet = resultSet;
-		this.tableMapping = transformer.getTableMappings();
+		this.tableMapping = snapshot.getTableMapping();
+		this.tableNames = snapshot.getTableNames();
 	}
 
 	@Override
@@ -42,12 +49,12 @@ class MetaResultSet implements ResultSet {
 				return false;
 			}
 
-			String tableName = resultSet.getString("TABLE_NAME");
+			String tableName = resultSet.getString(TABLE_NAME);
 			String refId = tableMapping.get(tableName);
 
 			if (refId == null) {
 				// Check if this is a target table and return true, or false otherwise.
-				if (tableMapping.values().contains(tableName)) {
+				if (tableNames.containsKey(tableName)) {
 					return true;
 				}
 			}
@@ -71,13 +78,8 @@ class MetaResultSet implements ResultSet {
 	@Override
 	public String getString(int columnIndex) throws SQLException {
 		String result = resultSet.getString(columnIndex);
-		String columnName = getMetaData().getColumnName(columnIndex);
-		if ("TABLE_NAME".equalsIgnoreCase(columnName)) {
-			return tableMapping.entrySet().stream()
-					.filter(entry -> entry.getValue().equals(result))
-					.map(entry -> entry.getKey())
-					.findFirst()
-					.orElse(result);
+		if (columnIndex == getTableNameColumn()) {
+			return toTableName(result);
 		}
 		return result;
 	}
@@ -162,12 +164,8 @@ class MetaResultSet implements ResultSet {
 	@Override
 	public String getString(String columnLabel) throws SQLException {
 		String result = resultSet.getString(columnLabel);
-		if ("TABLE_NAME".equalsIgnoreCase(columnLabel)) {
-			return tableMapping.entrySet().stream()
-					.filter(entry -> entry.getValue().equals(result))
-					.map(entry -> entry.getKey())
-					.findFirst()
-					.orElse(result);
+		if (TABLE_NAME.equalsIgnoreCase(columnLabel)) {
+			return toTableName(result);
 		}
 		return result;
 	}
@@ -852,13 +850,8 @@ class MetaResultSet implements ResultSet {
 	@Override
 	public String getNString(int columnIndex) throws SQLException {
 		String result = resultSet.getString(columnIndex);
-		String columnName = getMetaData().getColumnName(columnIndex);
-		if ("TABLE_NAME".equalsIgnoreCase(columnName)) {
-			return tableMapping.entrySet().stream()
-					.filter(entry -> entry.getValue().equals(result))
-					.map(entry -> entry.getKey())
-					.findFirst()
-					.orElse(result);
+		if (columnIndex == getTableNameColumn()) {
+			return toTableName(result);
 		}
 		return result;
 	}
@@ -866,12 +859,8 @@ class MetaResultSet implements ResultSet {
 	@Override
 	public String getNString(String columnLabel) throws SQLException {
 		String result = resultSet.getString(columnLabel);
-		if ("TABLE_NAME".equalsIgnoreCase(columnLabel)) {
-			return tableMapping.entrySet().stream()
-					.filter(entry -> entry.getValue().equals(result))
-					.map(entry -> entry.getKey())
-					.findFirst()
-					.orElse(result);
+		if (TABLE_NAME.equalsIgnoreCase(columnLabel)) {
+			return toTableName(result);
 		}
 		return result;
 	}
@@ -1045,4 +1034,22 @@ class MetaResultSet implements ResultSet {
 	public boolean isWrapperFor(Class<?> iface) throws SQLException {
 		return resultSet.isWrapperFor(iface);
 	}
+
+	private String toTableName(String refId) {
+		if (refId == null) {
+			return null;
+		}
+		return tableNames.getOrDefault(refId, refId);
+	}
+
+	/**
+	 * @return The index of the TABLE_NAME column, which is looked up only once per result set.
+	 */
+	private int getTableNameColumn() throws SQLException {
+		if (tableNameColumn == 0) {
+			tableNameColumn = resultSet.findColumn(TABLE_NAME);
+		}
+		return tableNameColumn;
+	}
+
 }
@@ -0,0 +1,127 @@
+package io.quantumdb.driver;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import io.quantumdb.driver.MetricsListener.StatementKind;
+
+/**
+ * The registry of MetricsListeners of the QuantumDB driver. As long as no listeners are registered, the driver does
+ * not take any measurements. Setting the "metrics" property or URL parameter to "true" registers the built-in
+ * listeners: {@link DriverStatistics}, which is exposed as a JMX MXBean, and (when running on a JVM which supports
+ * it) a listener which emits JFR events.
+ */
+public final class Metrics {
+
+	static final String METRICS = "metrics";
+
+	private static final Logger LOGGER = Logger.getLogger(Metrics.class.getName());
+	private static final String OBJECT_NAME = "io.quantumdb.driver:type=DriverStatistics";
+	private static final String JFR_LISTENER = "io.quantumdb.driver.JfrMetricsListener";
+
+	private static final List<MetricsListener> LISTENERS = new CopyOnWriteArrayList<>();
+	private static volatile boolean enabled;
+	private static DriverStatistics statistics;
+
+	public static synchronized void addListener(MetricsListener listener) {
+		LISTENERS.add(listener);
+		enabled = true;
+	}
+
+	public static synchronized void removeListener(MetricsListener listener) {
+		LISTENERS.remove(listener);
+		enabled = !LISTENERS.isEmpty();
+	}
+
+	/**
+	 * @return The statistics gathered by the built-in listener, or NULL if the built-in listeners are not enabled.
+	 */
+	public static synchronized DriverStatistics getStatistics() {
+		return statistics;
+	}
+
+	static void configure(String url, Properties info) {
+		if (Driver.parseBoolean(url, info, METRICS)) {
+			enableBuiltInListeners();
+		}
+	}
+
+	static synchronized void enableBuiltInListeners() {
+		if (statistics != null) {
+			return;
+		}
+
+		statistics = new DriverStatistics();
+		addListener(statistics);
+
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(statistics, new ObjectName(OBJECT_NAME));
+		}
+		catch (InstanceAlreadyExistsException e) {
+			LOGGER.log(Level.FINE, "Driver statistics were already registered by another class loader.", e);
+		}
+		catch (JMException | RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Could not register the driver statistics with JMX.", e);
+		}
+
+		// JFR events are only supported since Java 11 (and some Java 8 updates), so the listener is loaded reflectively.
+		try {
+			Class.forName("jdk.jfr.Event");
+			Class<?> type = Class.forName(JFR_LISTENER);
+			addListener((MetricsListener) type.getDeclaredConstructor().newInstance());
+		}
+		catch (ReflectiveOperationException | LinkageError e) {
+			LOGGER.log(Level.FINE, "JFR is not available, no JFR events will be emitted.", e);
+		}
+	}
+
+	static boolean isEnabled() {
+		return enabled;
+	}
+
+	static void queryRewritten(String version, long durationNanos, boolean cacheHit) {
+		for (MetricsListener listener : LISTENERS) {
+			try {
+				listener.queryRewritten(version, durationNanos, cacheHit);
+			}
+			catch (RuntimeException e) {
+				LOGGER.log(Level.WARNING, "MetricsListener failed: " + listener, e);
+			}
+		}
+	}
+
+	static void statementExecuted(String version, StatementKind kind, long durationNanos, boolean failed) {
+		for (MetricsListener listener : LISTENERS) {
+			try {
+				listener.statementExecuted(version, kind, durationNanos, failed);
+			}
+			catch (RuntimeException e) {
+				LOGGER.log(Level.WARNING, "MetricsListener failed: " + listener, e);
+			}
+		}
+	}
+
+	static void batchExecuted(String version, StatementKind kind, int batchSize, long durationNanos, boolean failed) {
+		for (MetricsListener listener : LISTENERS) {
+			try {
+				listener.batchExecuted(version, kind, batchSize, durationNanos, failed);
+			}
+			catch (RuntimeException e) {
+				LOGGER.log(Level.WARNING, "MetricsListener failed: " + listener, e);
+			}
+		}
+	}
+
+	private Metrics() {
+		// Prevent instantiation.
+	}
+
+}
@@ -0,0 +1,38 @@
+package io.quantumdb.driver;
+
+/**
+ * Receives measurements of the work done by the QuantumDB driver. Listeners are registered through
+ * {@link Metrics#addListener(MetricsListener)}, and are called on the thread which executes the query, so
+ * implementations should be fast and thread-safe.
+ */
+public interface MetricsListener {
+
+	enum StatementKind {
+		STATEMENT, PREPARED_STATEMENT, CALLABLE_STATEMENT
+	}
+
+	/**
+	 * Called after a query has been rewritten for the specified version.
+	 *
+	 * @param cacheHit True if the rewritten query was served from the RewriteCache.
+	 */
+	default void queryRewritten(String version, long durationNanos, boolean cacheHit) {
+		// Do nothing by default.
+	}
+
+	/**
+	 * Called after a statement has been executed (successfully or not) on a connection using the specified version.
+	 */
+	default void statementExecuted(String version, StatementKind kind, long durationNanos, boolean failed) {
+		// Do nothing by default.
+	}
+
+	/**
+	 * Called after a batch of 'batchSize' statements has been executed (successfully or not) on a connection using
+	 * the specified version.
+	 */
+	default void batchExecuted(String version, StatementKind kind, int batchSize, long durationNanos, boolean failed) {
+		// Do nothing by default.
+	}
+
+}
@@ -24,12 +24,16 @@ import java.sql.Timestamp;
 import java.util.Calendar;
 import java.util.Map;
 
+import io.quantumdb.driver.MetricsListener.StatementKind;
+
 public class ProxyCallableStatement implements CallableStatement {
 
 	private final ProxyConnection connection;
 	private final CallableStatement statement;
 	private final Transformer transformer;
 
+	private int batchSize;
+
 	ProxyCallableStatement(ProxyConnection connection, CallableStatement statement, Transformer transformer) {
 		this.connection = connection;
 		this.statement = statement;
@@ -604,12 +608,12 @@ public class ProxyCallableStatement implements CallableStatement {
 
 	@Override
 	public ResultSet executeQuery() throws SQLException {
-		return statement.executeQuery();
+		return transformer.execute(StatementKind.CALLABLE_STATEMENT, () -> statement.executeQuery());
 	}
 
 	@Override
 	public int executeUpdate() throws SQLException {
-		return statement.executeUpdate();
+		return transformer.execute(StatementKind.CALLABLE_STATEMENT, () -> statement.executeUpdate());
 	}
 
 	@Override
@@ -715,12 +719,13 @@ public class ProxyCallableStatement implements CallableStatement {
 
 	@Override
 	public boolean execute() throws SQLException {
-		return statement.execute();
+		return transformer.execute(StatementKind.CALLABLE_STATEMENT, () -> statement.execute());
 	}
 
 	@Override
 	public void addBatch() throws SQLException {
 		statement.addBatch();
+		batchSize++;
 	}
 
 	@Override
@@ -881,17 +886,18 @@ public class ProxyCallableStatement implements CallableStatement {
 	@Override
 	public ResultSet executeQuery(String sql) throws SQLException {
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.executeQuery(transformedSql);
+		return transformer.execute(StatementKind.CALLABLE_STATEMENT, () -> statement.executeQuery(transformedSql));
 	}
 
 	@Override
 	public int executeUpdate(String sql) throws SQLException {
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.executeUpdate(transformedSql);
+		return transformer.execute(StatementKind.CALLABLE_STATEMENT, () -> statement.executeUpdate(transformedSql));
 	}
 
 	@Override
 	public void close() throws SQLException {
+		connection.unregister(this);
 		statement.close();
 	}
 
@@ -953,7 +959,7 @@ public class ProxyCallableStatement implements CallableStatement {
 	@Override
 	public boolean execute(String sql) throws SQLException {
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.execute(transformedSql);
+		return transformer.execute(StatementKind.CALLABLE_STATEMENT, () -> statement.execute(transformedSql));
 	}
 
 	@Override
@@ -1005,16 +1011,20 @@ public class ProxyCallableStatement implements CallableStatement {
 	public void addBatch(String sql) throws SQLException {
 		String transformedSql = transformer.rewriteQuery(sql);
 		statement.addBatch(transformedSql);
+		batchSize++;
 	}
 
 	@Override
 	public void clearBatch() throws SQLException {
 		statement.clearBatch();
+		batchSize = 0;
 	}
 
 	@Override
 	public int[] executeBatch() throws SQLException {
-		return statement.executeBatch();
+		int size = batchSize;
+		batchSize = 0;
+		return transformer.executeBatch(StatementKind.CALLABLE_STATEMENT, size, () -> statement.executeBatch());
 	}
 
 	@Override
@@ -1035,37 +1045,37 @@ public class ProxyCallableStatement implements CallableStatement {
 	@Override
 	public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.executeUpdate(transformedSql, autoGeneratedKeys);
+		return transformer.execute(StatementKind.CALLABLE_STATEMENT, () -> statement.executeUpdate(transformedSql, autoGeneratedKeys));
 	}
 
 	@Override
 	public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.executeUpdate(transformedSql, columnIndexes);
+		return transformer.execute(StatementKind.CALLABLE_STATEMENT, () -> statement.executeUpdate(transformedSql, columnIndexes));
 	}
 
 	@Override
 	public int executeUpdate(String sql, String[] columnNames) throws SQLException {
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.executeUpdate(transformedSql, columnNames);
+		return transformer.execute(StatementKind.CALLABLE_STATEMENT, () -> statement.executeUpdate(transformedSql, columnNames));
 	}
 
 	@Override
 	public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.execute(transformedSql, autoGeneratedKeys);
+		return transformer.execute(StatementKind.CALLABLE_STATEMENT, () -> statement.execute(transformedSql, autoGeneratedKeys));
 	}
 
 	@Override
 	public boolean execute(String sql, int[] columnIndexes) throws SQLException {
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.execute(transformedSql, columnIndexes);
+		return transformer.execute(StatementKind.CALLABLE_STATEMENT, () -> statement.execute(transformedSql, columnIndexes));
 	}
 
 	@Override
 	public boolean execute(String sql, String[] columnNames) throws SQLException {
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.execute(transformedSql, columnNames);
+		return transformer.execute(StatementKind.CALLABLE_STATEMENT, () -> statement.execute(transformedSql, columnNames));
 	}
 
 	@Override
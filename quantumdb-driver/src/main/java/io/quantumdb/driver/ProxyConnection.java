@@ -15,180 +15,308 @@ import java.sql.SQLXML;
 import java.sql.Savepoint;
 import java.sql.Statement;
 import java.sql.Struct;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.collect.Lists;
 
 public class ProxyConnection implements Connection {
 
 	private final Connection connection;
 	private final Transformer transformer;
+	private final StatementCache statementCache;
+	private final Runnable releaser;
+	private final boolean coalesceInserts;
+
+	private final AtomicBoolean released = new AtomicBoolean();
+
+	// Statements which are still open, and which are closed when this connection is handed back to the pool.
+	private final Set<Statement> openStatements = Collections.newSetFromMap(new ConcurrentHashMap<>());
 
 	ProxyConnection(Connection connection, Transformer transformer) {
+		this(connection, transformer, null, null);
+	}
+
+	/**
+	 * Creates a ProxyConnection which reuses prepared statements through the specified StatementCache (if any),
+	 * and which, when closed, hands the underlying connection back to the 'releaser' instead of closing it. In that
+	 * case the StatementCache is left open, since it belongs to the underlying connection.
+	 */
+	ProxyConnection(Connection connection, Transformer transformer, StatementCache statementCache,
+			Runnable releaser) {
+
+		this(connection, transformer, statementCache, releaser, false);
+	}
+
+	/**
+	 * Creates a ProxyConnection as above, whose statements coalesce single-row INSERT statements of a batch into
+	 * multi-row INSERT statements if 'coalesceInserts' is true.
+	 */
+	ProxyConnection(Connection connection, Transformer transformer, StatementCache statementCache,
+			Runnable releaser, boolean coalesceInserts) {
+
 		this.connection = connection;
 		this.transformer = transformer;
+		this.statementCache = statementCache;
+		this.releaser = releaser;
+		this.coalesceInserts = coalesceInserts;
+	}
+
+	/**
+	 * @return The cache of rewritten queries used by this connection, or NULL if caching was disabled.
+	 */
+	public RewriteCache getRewriteCache() {
+		return transformer.getRewriteCache();
+	}
+
+	/**
+	 * Keeps track of the specified statement, so that it can be closed when this connection is handed back to the
+	 * pool. Statements of a connection which isn't pooled are closed along with the underlying connection instead.
+	 */
+	<T extends Statement> T register(T statement) {
+		if (releaser != null) {
+			openStatements.add(statement);
+		}
+		return statement;
+	}
+
+	void unregister(Statement statement) {
+		openStatements.remove(statement);
 	}
 
 	@Override
 	public Statement createStatement() throws SQLException {
-		return new ProxyStatement(this, connection.createStatement(), transformer);
+		checkOpen();
+		return register(new ProxyStatement(this, connection.createStatement(), transformer, coalesceInserts));
 	}
 
 	@Override
 	public PreparedStatement prepareStatement(String sql) throws SQLException {
+		checkOpen();
 		String transformedSql = transformer.rewriteQuery(sql);
-		PreparedStatement statement = connection.prepareStatement(transformedSql);
-		return new ProxyPreparedStatement(this, statement, transformer);
+		if (statementCache == null) {
+			PreparedStatement statement = connection.prepareStatement(transformedSql);
+			return register(new ProxyPreparedStatement(this, statement, transformer));
+		}
+
+		PreparedStatement statement = statementCache.take(transformedSql);
+		if (statement == null) {
+			statement = connection.prepareStatement(transformedSql);
+		}
+		return register(new ProxyPreparedStatement(this, statement, transformer, statementCache, transformedSql));
 	}
 
 	@Override
 	public CallableStatement prepareCall(String sql) throws SQLException {
+		checkOpen();
 		String transformedSql = transformer.rewriteQuery(sql);
 		CallableStatement statement = connection.prepareCall(transformedSql);
-		return new ProxyCallableStatement(this, statement, transformer);
+		return register(new ProxyCallableStatement(this, statement, transformer));
 	}
 
 	@Override
 	public String nativeSQL(String sql) throws SQLException {
+		checkOpen();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return connection.nativeSQL(transformedSql);
 	}
 
 	@Override
 	public void setAutoCommit(boolean autoCommit) throws SQLException {
+		checkOpen();
 		connection.setAutoCommit(autoCommit);
 	}
 
 	@Override
 	public boolean getAutoCommit() throws SQLException {
+		checkOpen();
 		return connection.getAutoCommit();
 	}
 
 	@Override
 	public void commit() throws SQLException {
+		checkOpen();
 		connection.commit();
 	}
 
 	@Override
 	public void rollback() throws SQLException {
+		checkOpen();
 		connection.rollback();
 	}
 
 	@Override
 	public void close() throws SQLException {
-		connection.close();
+		if (releaser == null) {
+			if (statementCache != null) {
+				statementCache.close();
+			}
+			transformer.close();
+			connection.close();
+		}
+		else if (released.compareAndSet(false, true)) {
+			try {
+				closeStatements();
+			}
+			finally {
+				releaser.run();
+			}
+		}
+	}
+
+	private void closeStatements() {
+		for (Statement statement : Lists.newArrayList(openStatements)) {
+			try {
+				statement.close();
+			}
+			catch (SQLException e) {
+				// The statement is abandoned either way.
+			}
+		}
+		openStatements.clear();
 	}
 
 	@Override
 	public boolean isClosed() throws SQLException {
-		return connection.isClosed();
+		return released.get() || connection.isClosed();
+	}
+
+	private void checkOpen() throws SQLException {
+		if (released.get()) {
+			throw new SQLException("This connection has been closed.");
+		}
 	}
 
 	@Override
 	// TODO: See if we need to adopt this for core...
 	public DatabaseMetaData getMetaData() throws SQLException {
+		checkOpen();
 		return new ProxyDatabaseMetaData(this, connection.getMetaData(), transformer);
 	}
 
 	@Override
 	public void setReadOnly(boolean readOnly) throws SQLException {
+		checkOpen();
 		connection.setReadOnly(readOnly);
 	}
 
 	@Override
 	public boolean isReadOnly() throws SQLException {
+		checkOpen();
 		return connection.isReadOnly();
 	}
 
 	@Override
 	public void setCatalog(String catalog) throws SQLException {
+		checkOpen();
 		connection.setCatalog(catalog);
 	}
 
 	@Override
 	public String getCatalog() throws SQLException {
+		checkOpen();
 		return connection.getCatalog();
 	}
 
 	@Override
 	public void setTransactionIsolation(int level) throws SQLException {
+		checkOpen();
 		connection.setTransactionIsolation(level);
 	}
 
 	@Override
 	public int getTransactionIsolation() throws SQLException {
+		checkOpen();
 		return connection.getTransactionIsolation();
 	}
 
 	@Override
 	public SQLWarning getWarnings() throws SQLException {
+		checkOpen();
 		return connection.getWarnings();
 	}
 
 	@Override
 	public void clearWarnings() throws SQLException {
+		checkOpen();
 		connection.clearWarnings();
 	}
 
 	@Override
 	public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+		checkOpen();
 		Statement statement = connection.createStatement(resultSetType, resultSetConcurrency);
-		return new ProxyStatement(this, statement, transformer);
+		return register(new ProxyStatement(this, statement, transformer, coalesceInserts));
 	}
 
 	@Override
 	public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency)
 			throws SQLException {
 
+		checkOpen();
 		String transformedSql = transformer.rewriteQuery(sql);
 		PreparedStatement statement = connection.prepareStatement(transformedSql, resultSetType, resultSetConcurrency);
-		return new ProxyPreparedStatement(this, statement, transformer);
+		return register(new ProxyPreparedStatement(this, statement, transformer));
 	}
 
 	@Override
 	public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+		checkOpen();
 		String transformedSql = transformer.rewriteQuery(sql);
 		CallableStatement statement = connection.prepareCall(transformedSql, resultSetType, resultSetConcurrency);
-		return new ProxyCallableStatement(this, statement, transformer);
+		return register(new ProxyCallableStatement(this, statement, transformer));
 	}
 
 	@Override
 	public Map<String, Class<?>> getTypeMap() throws SQLException {
+		checkOpen();
 		return connection.getTypeMap();
 	}
 
 	@Override
 	public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+		checkOpen();
 		connection.setTypeMap(map);
 	}
 
 	@Override
 	public void setHoldability(int holdability) throws SQLException {
+		checkOpen();
 		connection.setHoldability(holdability);
 	}
 
 	@Override
 	public int getHoldability() throws SQLException {
+		checkOpen();
 		return connection.getHoldability();
 	}
 
 	@Override
 	public Savepoint setSavepoint() throws SQLException {
+		checkOpen();
 		return connection.setSavepoint();
 	}
 
 	@Override
 	public Savepoint setSavepoint(String name) throws SQLException {
+		checkOpen();
 		return connection.setSavepoint(name);
 	}
 
 	@Override
 	public void rollback(Savepoint savepoint) throws SQLException {
+		checkOpen();
 		connection.rollback(savepoint);
 	}
 
 	@Override
 	public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+		checkOpen();
 		connection.releaseSavepoint(savepoint);
 	}
 
@@ -196,140 +324,169 @@ public class ProxyConnection implements Connection {
 	public Statement createStatement(int resultSetType, int resultSetConcurrency,
 			int resultSetHoldability) throws SQLException {
 
+		checkOpen();
 		Statement statement = connection.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
-		return new ProxyStatement(this, statement, transformer);
+		return register(new ProxyStatement(this, statement, transformer, coalesceInserts));
 	}
 
 	@Override
 	public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency,
 			int resultSetHoldability) throws SQLException {
 
+		checkOpen();
 		String transformedSql = transformer.rewriteQuery(sql);
 		PreparedStatement statement = connection.prepareStatement(transformedSql, resultSetType, resultSetConcurrency,
 				resultSetHoldability);
 
-		return new ProxyPreparedStatement(this, statement, transformer);
+		return register(new ProxyPreparedStatement(this, statement, transformer));
 	}
 
 	@Override
 	public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency,
 			int resultSetHoldability) throws SQLException {
 
+		checkOpen();
 		String transformedSql = transformer.rewriteQuery(sql);
 		CallableStatement transformedStatement = connection.prepareCall(transformedSql, resultSetType,
 				resultSetConcurrency, resultSetHoldability);
 
-		return new ProxyCallableStatement(this, transformedStatement, transformer);
+		return register(new ProxyCallableStatement(this, transformedStatement, transformer));
 	}
 
 	@Override
 	public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+		checkOpen();
 		String transformedSql = transformer.rewriteQuery(sql);
 		PreparedStatement transformedStatement = connection.prepareStatement(transformedSql, autoGeneratedKeys);
-		return new ProxyPreparedStatement(this, transformedStatement, transformer);
+		return register(new ProxyPreparedStatement(this, transformedStatement, transformer));
 	}
 
 	@Override
 	public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+		checkOpen();
 		String transformedSql = transformer.rewriteQuery(sql);
 		PreparedStatement transformedStatement = connection.prepareStatement(transformedSql, columnIndexes);
-		return new ProxyPreparedStatement(this, transformedStatement, transformer);
+		return register(new ProxyPreparedStatement(this, transformedStatement, transformer));
 	}
 
 	@Override
 	public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+		checkOpen();
 		String transformedSql = transformer.rewriteQuery(sql);
 		PreparedStatement transformedStatement = connection.prepareStatement(transformedSql, columnNames);
-		return new ProxyPreparedStatement(this, transformedStatement, transformer);
+		return register(new ProxyPreparedStatement(this, transformedStatement, transformer));
 	}
 
 	@Override
 	public Clob createClob() throws SQLException {
+		checkOpen();
 		return connection.createClob();
 	}
 
 	@Override
 	public Blob createBlob() throws SQLException {
+		checkOpen();
 		return connection.createBlob();
 	}
 
 	@Override
 	public NClob createNClob() throws SQLException {
+		checkOpen();
 		return connection.createNClob();
 	}
 
 	@Override
 	public SQLXML createSQLXML() throws SQLException {
+		checkOpen();
 		return connection.createSQLXML();
 	}
 
 	@Override
 	public boolean isValid(int timeout) throws SQLException {
-		return connection.isValid(timeout);
+		return !released.get() && connection.isValid(timeout);
 	}
 
 	@Override
 	public void setClientInfo(String name, String value) throws SQLClientInfoException {
+		if (released.get()) {
+			throw new SQLClientInfoException("This connection has been closed.", Collections.emptyMap());
+		}
 		connection.setClientInfo(name, value);
 	}
 
 	@Override
 	public void setClientInfo(Properties properties) throws SQLClientInfoException {
+		if (released.get()) {
+			throw new SQLClientInfoException("This connection has been closed.", Collections.emptyMap());
+		}
 		connection.setClientInfo(properties);
 	}
 
 	@Override
 	public String getClientInfo(String name) throws SQLException {
+		checkOpen();
 		return connection.getClientInfo(name);
 	}
 
 	@Override
 	public Properties getClientInfo() throws SQLException {
+		checkOpen();
 		return connection.getClientInfo();
 	}
 
 	@Override
 	public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+		checkOpen();
 		return connection.createArrayOf(typeName, elements);
 	}
 
 	@Override
 	public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+		checkOpen();
 		return connection.createStruct(typeName, attributes);
 	}
 
 	@Override
 	public void setSchema(String schema) throws SQLException {
+		checkOpen();
 		connection.setSchema(schema);
 	}
 
 	@Override
 	public String getSchema() throws SQLException {
+		checkOpen();
 		return connection.getSchema();
 	}
 
 	@Override
 	public void abort(Executor executor) throws SQLException {
-		connection.abort(executor);
+		// Aborting a connection which has been handed back to the pool would abort the connection of another user.
+		if (!released.get()) {
+			connection.abort(executor);
+		}
 	}
 
 	@Override
 	public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+		checkOpen();
 		connection.setNetworkTimeout(executor, milliseconds);
 	}
 
 	@Override
 	public int getNetworkTimeout() throws SQLException {
+		checkOpen();
 		return connection.getNetworkTimeout();
 	}
 
 	@Override
 	public <T> T unwrap(Class<T> iface) throws SQLException {
+		checkOpen();
 		return connection.unwrap(iface);
 	}
 
 	@Override
 	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		checkOpen();
 		return connection.isWrapperFor(iface);
 	}
 
@@ -23,521 +23,685 @@ import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.Calendar;
 
+import io.quantumdb.driver.MetricsListener.StatementKind;
+
 public class ProxyPreparedStatement implements PreparedStatement {
 
 	private final ProxyConnection connection;
 	private final PreparedStatement statement;
 	private final Transformer transformer;
+	private final StatementCache statementCache;
+	private final String sql;
+
+	private boolean closed;
+	private boolean modified;
+	private int batchSize;
 
 	ProxyPreparedStatement(ProxyConnection connection, PreparedStatement statement, Transformer transformer) {
+		this(connection, statement, transformer, null, null);
+	}
+
+	/**
+	 * Creates a ProxyPreparedStatement which, when closed, parks the underlying statement in the specified
+	 * StatementCache under its (rewritten) SQL, instead of closing it.
+	 */
+	ProxyPreparedStatement(ProxyConnection connection, PreparedStatement statement, Transformer transformer,
+			StatementCache statementCache, String sql) {
+
 		this.connection = connection;
 		this.statement = statement;
 		this.transformer = transformer;
+		this.statementCache = statementCache;
+		this.sql = sql;
 	}
 
 	@Override
 	public ResultSet executeQuery() throws SQLException {
-		return statement.executeQuery();
+		checkOpen();
+		return transformer.execute(StatementKind.PREPARED_STATEMENT, () -> statement.executeQuery());
 	}
 
 	@Override
 	public int executeUpdate() throws SQLException {
-		return statement.executeUpdate();
+		checkOpen();
+		return transformer.execute(StatementKind.PREPARED_STATEMENT, () -> statement.executeUpdate());
 	}
 
 	@Override
 	public void setNull(int parameterIndex, int sqlType) throws SQLException {
+		checkOpen();
 		statement.setNull(parameterIndex, sqlType);
 	}
 
 	@Override
 	public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+		checkOpen();
 		statement.setBoolean(parameterIndex, x);
 	}
 
 	@Override
 	public void setByte(int parameterIndex, byte x) throws SQLException {
+		checkOpen();
 		statement.setByte(parameterIndex, x);
 	}
 
 	@Override
 	public void setShort(int parameterIndex, short x) throws SQLException {
+		checkOpen();
 		statement.setShort(parameterIndex, x);
 	}
 
 	@Override
 	public void setInt(int parameterIndex, int x) throws SQLException {
+		checkOpen();
 		statement.setInt(parameterIndex, x);
 	}
 
 	@Override
 	public void setLong(int parameterIndex, long x) throws SQLException {
+		checkOpen();
 		statement.setLong(parameterIndex, x);
 	}
 
 	@Override
 	public void setFloat(int parameterIndex, float x) throws SQLException {
+		checkOpen();
 		statement.setFloat(parameterIndex, x);
 	}
 
 	@Override
 	public void setDouble(int parameterIndex, double x) throws SQLException {
+		checkOpen();
 		statement.setDouble(parameterIndex, x);
 	}
 
 	@Override
 	public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+		checkOpen();
 		statement.setBigDecimal(parameterIndex, x);
 	}
 
 	@Override
 	public void setString(int parameterIndex, String x) throws SQLException {
+		checkOpen();
 		statement.setString(parameterIndex, x);
 	}
 
 	@Override
 	public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+		checkOpen();
 		statement.setBytes(parameterIndex, x);
 	}
 
 	@Override
 	public void setDate(int parameterIndex, Date x) throws SQLException {
+		checkOpen();
 		statement.setDate(parameterIndex, x);
 	}
 
 	@Override
 	public void setTime(int parameterIndex, Time x) throws SQLException {
+		checkOpen();
 		statement.setTime(parameterIndex, x);
 	}
 
 	@Override
 	public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
+		checkOpen();
 		statement.setTimestamp(parameterIndex, x);
 	}
 
 	@Override
 	public void setAsciiStream(int parameterIndex, InputStream x, int length) throws SQLException {
+		checkOpen();
 		statement.setAsciiStream(parameterIndex, x, length);
 	}
 
 	@Override
 	@Deprecated
 	public void setUnicodeStream(int parameterIndex, InputStream x, int length) throws SQLException {
+		checkOpen();
 		statement.setUnicodeStream(parameterIndex, x, length);
 	}
 
 	@Override
 	public void setBinaryStream(int parameterIndex, InputStream x, int length) throws SQLException {
+		checkOpen();
 		statement.setBinaryStream(parameterIndex, x, length);
 	}
 
 	@Override
 	public void clearParameters() throws SQLException {
+		checkOpen();
 		statement.clearParameters();
 	}
 
 	@Override
 	public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
+		checkOpen();
 		statement.setObject(parameterIndex, x, targetSqlType);
 	}
 
 	@Override
 	public void setObject(int parameterIndex, Object x) throws SQLException {
+		checkOpen();
 		statement.setObject(parameterIndex, x);
 	}
 
 	@Override
 	public boolean execute() throws SQLException {
-		return statement.execute();
+		checkOpen();
+		return transformer.execute(StatementKind.PREPARED_STATEMENT, () -> statement.execute());
 	}
 
 	@Override
 	public void addBatch() throws SQLException {
+		checkOpen();
 		statement.addBatch();
+		batchSize++;
 	}
 
 	@Override
 	public void setCharacterStream(int parameterIndex, Reader reader, int length) throws SQLException {
+		checkOpen();
 		statement.setCharacterStream(parameterIndex, reader, length);
 	}
 
 	@Override
 	public void setRef(int parameterIndex, Ref x) throws SQLException {
+		checkOpen();
 		statement.setRef(parameterIndex, x);
 	}
 
 	@Override
 	public void setBlob(int parameterIndex, Blob x) throws SQLException {
+		checkOpen();
 		statement.setBlob(parameterIndex, x);
 	}
 
 	@Override
 	public void setClob(int parameterIndex, Clob x) throws SQLException {
+		checkOpen();
 		statement.setClob(parameterIndex, x);
 	}
 
 	@Override
 	public void setArray(int parameterIndex, Array x) throws SQLException {
+		checkOpen();
 		statement.setArray(parameterIndex, x);
 	}
 
 	@Override
 	public ResultSetMetaData getMetaData() throws SQLException {
+		checkOpen();
 		return statement.getMetaData();
 	}
 
 	@Override
 	public void setDate(int parameterIndex, Date x, Calendar cal) throws SQLException {
+		checkOpen();
 		statement.setDate(parameterIndex, x, cal);
 	}
 
 	@Override
 	public void setTime(int parameterIndex, Time x, Calendar cal) throws SQLException {
+		checkOpen();
 		statement.setTime(parameterIndex, x, cal);
 	}
 
 	@Override
 	public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal) throws SQLException {
+		checkOpen();
 		statement.setTimestamp(parameterIndex, x, cal);
 	}
 
 	@Override
 	public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException {
+		checkOpen();
 		statement.setNull(parameterIndex, sqlType, typeName);
 	}
 
 	@Override
 	public void setURL(int parameterIndex, URL x) throws SQLException {
+		checkOpen();
 		statement.setURL(parameterIndex, x);
 	}
 
 	@Override
 	public ParameterMetaData getParameterMetaData() throws SQLException {
+		checkOpen();
 		return statement.getParameterMetaData();
 	}
 
 	@Override
 	public void setRowId(int parameterIndex, RowId x) throws SQLException {
+		checkOpen();
 		statement.setRowId(parameterIndex, x);
 	}
 
 	@Override
 	public void setNString(int parameterIndex, String value) throws SQLException {
+		checkOpen();
 		statement.setNString(parameterIndex, value);
 	}
 
 	@Override
 	public void setNCharacterStream(int parameterIndex, Reader value, long length) throws SQLException {
+		checkOpen();
 		statement.setNCharacterStream(parameterIndex, value, length);
 	}
 
 	@Override
 	public void setNClob(int parameterIndex, NClob value) throws SQLException {
+		checkOpen();
 		statement.setNClob(parameterIndex, value);
 	}
 
 	@Override
 	public void setClob(int parameterIndex, Reader reader, long length) throws SQLException {
+		checkOpen();
 		statement.setClob(parameterIndex, reader, length);
 	}
 
 	@Override
 	public void setBlob(int parameterIndex, InputStream inputStream, long length) throws SQLException {
+		checkOpen();
 		statement.setBlob(parameterIndex, inputStream, length);
 	}
 
 	@Override
 	public void setNClob(int parameterIndex, Reader reader, long length) throws SQLException {
+		checkOpen();
 		statement.setNClob(parameterIndex, reader, length);
 	}
 
 	@Override
 	public void setSQLXML(int parameterIndex, SQLXML xmlObject) throws SQLException {
+		checkOpen();
 		statement.setSQLXML(parameterIndex, xmlObject);
 	}
 
 	@Override
 	public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength) throws SQLException {
+		checkOpen();
 		statement.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
 	}
 
 	@Override
 	public void setAsciiStream(int parameterIndex, InputStream x, long length) throws SQLException {
+		checkOpen();
 		statement.setAsciiStream(parameterIndex, x, length);
 	}
 
 	@Override
 	public void setBinaryStream(int parameterIndex, InputStream x, long length) throws SQLException {
+		checkOpen();
 		statement.setBinaryStream(parameterIndex, x, length);
 	}
 
 	@Override
 	public void setCharacterStream(int parameterIndex, Reader reader, long length) throws SQLException {
+		checkOpen();
 		statement.setCharacterStream(parameterIndex, reader, length);
 	}
 
 	@Override
 	public void setAsciiStream(int parameterIndex, InputStream x) throws SQLException {
+		checkOpen();
 		statement.setAsciiStream(parameterIndex, x);
 	}
 
 	@Override
 	public void setBinaryStream(int parameterIndex, InputStream x) throws SQLException {
+		checkOpen();
 		statement.setBinaryStream(parameterIndex, x);
 	}
 
 	@Override
 	public void setCharacterStream(int parameterIndex, Reader reader) throws SQLException {
+		checkOpen();
 		statement.setCharacterStream(parameterIndex, reader);
 	}
 
 	@Override
 	public void setNCharacterStream(int parameterIndex, Reader value) throws SQLException {
+		checkOpen();
 		statement.setNCharacterStream(parameterIndex, value);
 	}
 
 	@Override
 	public void setClob(int parameterIndex, Reader reader) throws SQLException {
+		checkOpen();
 		statement.setClob(parameterIndex, reader);
 	}
 
 	@Override
 	public void setBlob(int parameterIndex, InputStream inputStream) throws SQLException {
+		checkOpen();
 		statement.setBlob(parameterIndex, inputStream);
 	}
 
 	@Override
 	public void setNClob(int parameterIndex, Reader reader) throws SQLException {
+		checkOpen();
 		statement.setNClob(parameterIndex, reader);
 	}
 
 	@Override
 	public ResultSet executeQuery(String sql) throws SQLException {
+		checkOpen();
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.executeQuery(transformedSql);
+		return transformer.execute(StatementKind.PREPARED_STATEMENT, () -> statement.executeQuery(transformedSql));
 	}
 
 	@Override
 	public int executeUpdate(String sql) throws SQLException {
+		checkOpen();
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.executeUpdate(transformedSql);
+		return transformer.execute(StatementKind.PREPARED_STATEMENT, () -> statement.executeUpdate(transformedSql));
 	}
 
 	@Override
 	public void close() throws SQLException {
-		statement.close();
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+		connection.unregister(this);
+		if (statementCache == null || modified || statement.isClosed()) {
+			statement.close();
+			return;
+		}
+
+		try {
+			ResultSet resultSet = statement.getResultSet();
+			if (resultSet != null) {
+				resultSet.close();
+			}
+			statement.clearParameters();
+			statement.clearBatch();
+			statement.clearWarnings();
+		}
+		catch (SQLException e) {
+			statement.close();
+			throw e;
+		}
+
+		if (!statementCache.offer(sql, statement)) {
+			statement.close();
+		}
+	}
+
+	private void checkOpen() throws SQLException {
+		if (closed) {
+			throw new SQLException("This statement has been closed.");
+		}
 	}
 
 	@Override
 	public int getMaxFieldSize() throws SQLException {
+		checkOpen();
 		return statement.getMaxFieldSize();
 	}
 
 	@Override
 	public void setMaxFieldSize(int max) throws SQLException {
+		checkOpen();
+		modified = true;
 		statement.setMaxFieldSize(max);
 	}
 
 	@Override
 	public int getMaxRows() throws SQLException {
+		checkOpen();
 		return statement.getMaxRows();
 	}
 
 	@Override
 	public void setMaxRows(int max) throws SQLException {
+		checkOpen();
+		modified = true;
 		statement.setMaxRows(max);
 	}
 
 	@Override
 	public void setEscapeProcessing(boolean enable) throws SQLException {
+		checkOpen();
+		modified = true;
 		statement.setEscapeProcessing(enable);
 	}
 
 	@Override
 	public int getQueryTimeout() throws SQLException {
+		checkOpen();
 		return statement.getQueryTimeout();
 	}
 
 	@Override
 	public void setQueryTimeout(int seconds) throws SQLException {
+		checkOpen();
+		modified = true;
 		statement.setQueryTimeout(seconds);
 	}
 
 	@Override
 	public void cancel() throws SQLException {
+		checkOpen();
 		statement.cancel();
 	}
 
 	@Override
 	public SQLWarning getWarnings() throws SQLException {
+		checkOpen();
 		return statement.getWarnings();
 	}
 
 	@Override
 	public void clearWarnings() throws SQLException {
+		checkOpen();
 		statement.clearWarnings();
 	}
 
 	@Override
 	public void setCursorName(String name) throws SQLException {
+		checkOpen();
+		modified = true;
 		statement.setCursorName(name);
 	}
 
 	@Override
 	public boolean execute(String sql) throws SQLException {
+		checkOpen();
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.execute(transformedSql);
+		return transformer.execute(StatementKind.PREPARED_STATEMENT, () -> statement.execute(transformedSql));
 	}
 
 	@Override
 	public ResultSet getResultSet() throws SQLException {
+		checkOpen();
 		return statement.getResultSet();
 	}
 
 	@Override
 	public int getUpdateCount() throws SQLException {
+		checkOpen();
 		return statement.getUpdateCount();
 	}
 
 	@Override
 	public boolean getMoreResults() throws SQLException {
+		checkOpen();
 		return statement.getMoreResults();
 	}
 
 	@Override
 	public void setFetchDirection(int direction) throws SQLException {
+		checkOpen();
+		modified = true;
 		statement.setFetchDirection(direction);
 	}
 
 	@Override
 	public int getFetchDirection() throws SQLException {
+		checkOpen();
 		return statement.getFetchDirection();
 	}
 
 	@Override
 	public void setFetchSize(int rows) throws SQLException {
+		checkOpen();
+		modified = true;
 		statement.setFetchSize(rows);
 	}
 
 	@Override
 	public int getFetchSize() throws SQLException {
+		checkOpen();
 		return statement.getFetchSize();
 	}
 
 	@Override
 	public int getResultSetConcurrency() throws SQLException {
+		checkOpen();
 		return statement.getResultSetConcurrency();
 	}
 
 	@Override
 	public int getResultSetType() throws SQLException {
+		checkOpen();
 		return statement.getResultSetType();
 	}
 
 	@Override
 	public void addBatch(String sql) throws SQLException {
+		checkOpen();
 		String transformedSql = transformer.rewriteQuery(sql);
 		statement.addBatch(transformedSql);
+		batchSize++;
 	}
 
 	@Override
 	public void clearBatch() throws SQLException {
+		checkOpen();
 		statement.clearBatch();
+		batchSize = 0;
 	}
 
 	@Override
 	public int[] executeBatch() throws SQLException {
-		return statement.executeBatch();
+		checkOpen();
+		int size = batchSize;
+		batchSize = 0;
+		return transformer.executeBatch(StatementKind.PREPARED_STATEMENT, size, () -> statement.executeBatch());
 	}
 
 	@Override
 	public Connection getConnection() throws SQLException {
+		checkOpen();
 		return connection;
 	}
 
 	@Override
 	public boolean getMoreResults(int current) throws SQLException {
+		checkOpen();
 		return statement.getMoreResults(current);
 	}
 
 	@Override
 	public ResultSet getGeneratedKeys() throws SQLException {
+		checkOpen();
 		return statement.getGeneratedKeys();
 	}
 
 	@Override
 	public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+		checkOpen();
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.executeUpdate(transformedSql, autoGeneratedKeys);
+		return transformer.execute(StatementKind.PREPARED_STATEMENT, () -> statement.executeUpdate(transformedSql, autoGeneratedKeys));
 	}
 
 	@Override
 	public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+		checkOpen();
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.executeUpdate(transformedSql, columnIndexes);
+		return transformer.execute(StatementKind.PREPARED_STATEMENT, () -> statement.executeUpdate(transformedSql, columnIndexes));
 	}
 
 	@Override
 	public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+		checkOpen();
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.executeUpdate(transformedSql, columnNames);
+		return transformer.execute(StatementKind.PREPARED_STATEMENT, () -> statement.executeUpdate(transformedSql, columnNames));
 	}
 
 	@Override
 	public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+		checkOpen();
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.execute(transformedSql, autoGeneratedKeys);
+		return transformer.execute(StatementKind.PREPARED_STATEMENT, () -> statement.execute(transformedSql, autoGeneratedKeys));
 	}
 
 	@Override
 	public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+		checkOpen();
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.execute(transformedSql, columnIndexes);
+		return transformer.execute(StatementKind.PREPARED_STATEMENT, () -> statement.execute(transformedSql, columnIndexes));
 	}
 
 	@Override
 	public boolean execute(String sql, String[] columnNames) throws SQLException {
+		checkOpen();
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.execute(transformedSql, columnNames);
+		return transformer.execute(StatementKind.PREPARED_STATEMENT, () -> statement.execute(transformedSql, columnNames));
 	}
 
 	@Override
 	public int getResultSetHoldability() throws SQLException {
+		checkOpen();
 		return statement.getResultSetHoldability();
 	}
 
 	@Override
 	public boolean isClosed() throws SQLException {
-		return statement.isClosed();
+		return closed || statement.isClosed();
 	}
 
 	@Override
 	public void setPoolable(boolean poolable) throws SQLException {
+		checkOpen();
+		modified = true;
 		statement.setPoolable(poolable);
 	}
 
 	@Override
 	public boolean isPoolable() throws SQLException {
+		checkOpen();
 		return statement.isPoolable();
 	}
 
 	@Override
 	public void closeOnCompletion() throws SQLException {
+		checkOpen();
+		modified = true;
 		statement.closeOnCompletion();
 	}
 
 	@Override
 	public boolean isCloseOnCompletion() throws SQLException {
+		checkOpen();
 		return statement.isCloseOnCompletion();
 	}
 
 	@Override
 	public <T> T unwrap(Class<T> iface) throws SQLException {
+		checkOpen();
 		return statement.unwrap(iface);
 	}
 
 	@Override
 	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		checkOpen();
 		return statement.isWrapperFor(iface);
 	}
 }
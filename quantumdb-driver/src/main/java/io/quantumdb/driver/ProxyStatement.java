@@ -1,37 +1,62 @@
 package io.quantumdb.driver;
 
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+
+import io.quantumdb.driver.MetricsListener.StatementKind;
 
 public class ProxyStatement implements Statement {
 
 	private final ProxyConnection connection;
 	private final Statement statement;
 	private final Transformer transformer;
+	private final boolean coalesceInserts;
+
+	private final Map<String, String> batchRewrites = new HashMap<>();
+	private final List<String> batch = Lists.newArrayList();
+	private int batchSize;
 
 	ProxyStatement(ProxyConnection connection, Statement statement, Transformer transformer) {
+		this(connection, statement, transformer, false);
+	}
+
+	/**
+	 * Creates a ProxyStatement which, if 'coalesceInserts' is true, coalesces consecutive single-row INSERT
+	 * statements of a batch into multi-row INSERT statements when executing the batch.
+	 */
+	ProxyStatement(ProxyConnection connection, Statement statement, Transformer transformer,
+			boolean coalesceInserts) {
+
 		this.connection = connection;
 		this.statement = statement;
 		this.transformer = transformer;
+		this.coalesceInserts = coalesceInserts;
 	}
 
 	@Override
 	public ResultSet executeQuery(String sql) throws SQLException {
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.executeQuery(transformedSql);
+		return transformer.execute(StatementKind.STATEMENT, () -> statement.executeQuery(transformedSql));
 	}
 
 	@Override
 	public int executeUpdate(String sql) throws SQLException {
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.executeUpdate(transformedSql);
+		return transformer.execute(StatementKind.STATEMENT, () -> statement.executeUpdate(transformedSql));
 	}
 
 	@Override
 	public void close() throws SQLException {
+		connection.unregister(this);
 		statement.close();
 	}
 
@@ -93,7 +118,7 @@ public class ProxyStatement implements Statement {
 	@Override
 	public boolean execute(String sql) throws SQLException {
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.execute(transformedSql);
+		return transformer.execute(StatementKind.STATEMENT, () -> statement.execute(transformedSql));
 	}
 
 	@Override
@@ -143,18 +168,60 @@ public class ProxyStatement implements Statement {
 
 	@Override
 	public void addBatch(String sql) throws SQLException {
-		String transformedSql = transformer.rewriteQuery(sql);
-		statement.addBatch(transformedSql);
+		// Bulk loaders tend to add the same SQL many times, which only needs to be rewritten once per batch.
+		String transformedSql = batchRewrites.get(sql);
+		if (transformedSql == null) {
+			transformedSql = transformer.rewriteQuery(sql);
+			batchRewrites.put(sql, transformedSql);
+		}
+
+		if (coalesceInserts) {
+			batch.add(transformedSql);
+		}
+		else {
+			statement.addBatch(transformedSql);
+		}
+		batchSize++;
 	}
 
 	@Override
 	public void clearBatch() throws SQLException {
+		resetBatch();
 		statement.clearBatch();
 	}
 
 	@Override
 	public int[] executeBatch() throws SQLException {
-		return statement.executeBatch();
+		int size = batchSize;
+		try {
+			if (!coalesceInserts) {
+				return transformer.executeBatch(StatementKind.STATEMENT, size, () -> statement.executeBatch());
+			}
+
+			BatchedInserts inserts = new BatchedInserts(batch);
+			for (String sql : inserts.getStatements()) {
+				statement.addBatch(sql);
+			}
+			return transformer.executeBatch(StatementKind.STATEMENT, size, () -> {
+				try {
+					return inserts.expand(statement.executeBatch());
+				}
+				catch (BatchUpdateException e) {
+					// The update counts must line up with the statements which the application added to the batch.
+					throw new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(),
+							inserts.expandPartially(e.getUpdateCounts()), e);
+				}
+			});
+		}
+		finally {
+			resetBatch();
+		}
+	}
+
+	private void resetBatch() {
+		batchRewrites.clear();
+		batch.clear();
+		batchSize = 0;
 	}
 
 	@Override
@@ -175,37 +242,37 @@ public class ProxyStatement implements Statement {
 	@Override
 	public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.executeUpdate(transformedSql, autoGeneratedKeys);
+		return transformer.execute(StatementKind.STATEMENT, () -> statement.executeUpdate(transformedSql, autoGeneratedKeys));
 	}
 
 	@Override
 	public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.executeUpdate(transformedSql, columnIndexes);
+		return transformer.execute(StatementKind.STATEMENT, () -> statement.executeUpdate(transformedSql, columnIndexes));
 	}
 
 	@Override
 	public int executeUpdate(String sql, String[] columnNames) throws SQLException {
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.executeUpdate(transformedSql, columnNames);
+		return transformer.execute(StatementKind.STATEMENT, () -> statement.executeUpdate(transformedSql, columnNames));
 	}
 
 	@Override
 	public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.execute(transformedSql, autoGeneratedKeys);
+		return transformer.execute(StatementKind.STATEMENT, () -> statement.execute(transformedSql, autoGeneratedKeys));
 	}
 
 	@Override
 	public boolean execute(String sql, int[] columnIndexes) throws SQLException {
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.execute(transformedSql, columnIndexes);
+		return transformer.execute(StatementKind.STATEMENT, () -> statement.execute(transformedSql, columnIndexes));
 	}
 
 	@Override
 	public boolean execute(String sql, String[] columnNames) throws SQLException {
 		String transformedSql = transformer.rewriteQuery(sql);
-		return statement.execute(transformedSql, columnNames);
+		return transformer.execute(StatementKind.STATEMENT, () -> statement.execute(transformedSql, columnNames));
 	}
 
 	@Override
@@ -0,0 +1,491 @@
+package io.quantumdb.driver;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import com.google.common.collect.Lists;
+import io.quantumdb.query.rewriter.PostgresqlQueryRewriter;
+
+/**
+ * A DataSource which pools physical connections to a database managed by QuantumDB, and hands out connections which
+ * are bound to a specific version of the database schema.
+ *
+ * Connections obtained through {@link #getConnection()} are bound to the current version of this DataSource. When
+ * switching to a new version through {@link #switchVersion(String)}, connections which are still in use remain bound
+ * to the old version until they are closed. Idle connections, and connections which are handed back to the pool
+ * afterwards, are rebound to the new version instead of being closed. A cut-over from one version to another
+ * therefore does not require re-establishing any connections, and the old version is drained once all of its
+ * connections have been handed back, after which {@link #getConnectionCount(String)} returns 0 for that version.
+ */
+public class QuantumDataSource implements DataSource, AutoCloseable {
+
+	static final String MAX_POOL_SIZE = "maxPoolSize";
+	static final int DEFAULT_MAX_POOL_SIZE = 10;
+	static final int DEFAULT_LOGIN_TIMEOUT = 30;
+
+	private static final class PhysicalConnection {
+
+		private final Connection connection;
+		private final StatementCache statementCache;
+		private final boolean readOnly;
+		private String version;
+		private Transformer transformer;
+		private String searchPath;
+
+		private PhysicalConnection(Connection connection, String version, int statementCacheSize)
+				throws SQLException {
+
+			this.connection = connection;
+			this.readOnly = connection.isReadOnly();
+			this.version = version;
+			this.statementCache = statementCacheSize > 0 ? new StatementCache(statementCacheSize) : null;
+		}
+
+	}
+
+	private final String url;
+	private final Properties info;
+	private final Properties refresherInfo;
+	private final java.sql.Driver delegate;
+	private final int maxPoolSize;
+	private final int cacheSize;
+	private final int statementCacheSize;
+	private final int refreshInterval;
+	private final boolean schemaRouting;
+	private final boolean coalesceInserts;
+
+	private final Object lock = new Object();
+	private final Map<String, Deque<PhysicalConnection>> idleConnections = new LinkedHashMap<>();
+	private final Map<String, Integer> borrowedConnections = new HashMap<>();
+	private int size;
+	private boolean closed;
+
+	private volatile String version;
+	private volatile int loginTimeout = DEFAULT_LOGIN_TIMEOUT;
+	private volatile PrintWriter logWriter;
+
+	/**
+	 * Creates a new QuantumDataSource for the specified URL (for instance:
+	 * "jdbc:quantumdb:postgresql://localhost:5432/database?version=abcdef1234"). The version specified in the URL
+	 * (if any) is used as the initial version of this DataSource. The maximum number of physical connections can be
+	 * configured through the "maxPoolSize" property or URL parameter.
+	 */
+	public QuantumDataSource(String url, Properties info) throws SQLException {
+		this(url, info, null);
+	}
+
+	QuantumDataSource(String url, Properties info, java.sql.Driver delegate) throws SQLException {
+		if (url == null || !url.startsWith(Driver.URL_PREFIX)) {
+			throw new SQLException("Not a QuantumDB URL: " + url);
+		}
+
+		this.url = Driver.toDelegateUrl(url);
+		this.info = new Properties();
+		this.info.putAll(info);
+		this.refresherInfo = Driver.getRefresherInfo(info);
+		this.delegate = delegate != null ? delegate : Driver.getDelegate(this.url);
+		this.version = Driver.parseParameter(this.url, "version");
+
+		this.maxPoolSize = Driver.parseNonNegativeInteger(this.url, info, MAX_POOL_SIZE, DEFAULT_MAX_POOL_SIZE);
+		this.cacheSize = Driver.parseNonNegativeInteger(this.url, info, Driver.REWRITE_CACHE_SIZE,
+				RewriteCache.DEFAULT_SIZE);
+		this.statementCacheSize = Driver.parseNonNegativeInteger(this.url, info, StatementCache.STATEMENT_CACHE_SIZE,
+				StatementCache.DEFAULT_SIZE);
+		this.refreshInterval = Driver.parseNonNegativeInteger(this.url, info, Driver.VERSION_REFRESH_INTERVAL,
+				VersionMappings.DEFAULT_REFRESH_INTERVAL);
+
+		this.schemaRouting = VersionSchemas.isEnabled(this.url, info);
+		this.coalesceInserts = Driver.parseBoolean(this.url, info, BatchedInserts.COALESCE_BATCHED_INSERTS);
+		Metrics.configure(this.url, info);
+
+		if (maxPoolSize == 0) {
+			throw new SQLException("The " + MAX_POOL_SIZE + " must be at least 1.");
+		}
+	}
+
+	/**
+	 * @return The version which connections obtained through {@link #getConnection()} are bound to.
+	 */
+	public String getVersion() {
+		return version;
+	}
+
+	/**
+	 * Binds all connections which are obtained from now on to the specified version. Idle connections are rebound
+	 * to this version right away, connections which are in use are rebound once they're handed back to the pool.
+	 */
+	public void switchVersion(String version) throws SQLException {
+		if (version == null || version.isEmpty()) {
+			throw new IllegalArgumentException("You must specify a 'version'.");
+		}
+
+		List<PhysicalConnection> rebind = Lists.newArrayList();
+		synchronized (lock) {
+			checkOpen();
+			this.version = version;
+
+			Iterator<Map.Entry<String, Deque<PhysicalConnection>>> iterator = idleConnections.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Map.Entry<String, Deque<PhysicalConnection>> entry = iterator.next();
+				if (!entry.getKey().equals(version)) {
+					rebind.addAll(entry.getValue());
+					iterator.remove();
+				}
+			}
+		}
+
+		// These connections still count towards the size of the pool, but can't be borrowed while being rebound.
+		for (PhysicalConnection physical : rebind) {
+			returnToPool(physical, rebind(physical, version));
+		}
+	}
+
+	/**
+	 * @return The number of physical connections which are bound to the specified version, either in use or idle.
+	 */
+	public int getConnectionCount(String version) {
+		synchronized (lock) {
+			Deque<PhysicalConnection> idle = idleConnections.get(version);
+			return borrowedConnections.getOrDefault(version, 0) + (idle != null ? idle.size() : 0);
+		}
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		String version = this.version;
+		if (version == null) {
+			throw new SQLException("No version was specified in the URL, or through switchVersion().");
+		}
+		return getConnectionForVersion(version);
+	}
+
+	/**
+	 * @return A connection which is bound to the specified version, regardless of the current version of this
+	 * DataSource. This allows an application to keep using the old version for some of its traffic during a cut-over.
+	 */
+	public ProxyConnection getConnectionForVersion(String version) throws SQLException {
+		if (version == null || version.isEmpty()) {
+			throw new IllegalArgumentException("You must specify a 'version'.");
+		}
+
+		PhysicalConnection physical = acquire(version);
+		if (!rebind(physical, version)) {
+			synchronized (lock) {
+				unborrow(version);
+			}
+			returnToPool(physical, false);
+			throw new SQLException("Could not bind connection to version: " + version);
+		}
+		return new ProxyConnection(physical.connection, physical.transformer, physical.statementCache,
+				() -> release(physical), coalesceInserts);
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		throw new SQLFeatureNotSupportedException("Credentials must be specified when creating the DataSource.");
+	}
+
+	@Override
+	public void close() {
+		List<PhysicalConnection> idle = Lists.newArrayList();
+		synchronized (lock) {
+			closed = true;
+			idleConnections.values().forEach(idle::addAll);
+			idleConnections.clear();
+			size -= idle.size();
+			lock.notifyAll();
+		}
+
+		idle.forEach(QuantumDataSource::closeQuietly);
+	}
+
+	private PhysicalConnection acquire(String version) throws SQLException {
+		int timeout = loginTimeout;
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeout);
+
+		synchronized (lock) {
+			while (true) {
+				checkOpen();
+
+				// Prefer idle connections of this version, then idle connections of other versions (which only need to
+				// be rebound), and only then establish a new connection.
+				PhysicalConnection physical = pollIdle(version);
+				if (physical == null) {
+					physical = pollIdleOfOtherVersion(version);
+				}
+				if (physical != null) {
+					borrow(version);
+					return physical;
+				}
+				if (size < maxPoolSize) {
+					size++;
+					borrow(version);
+					break;
+				}
+
+				long remaining = deadline - System.nanoTime();
+				if (timeout > 0 && remaining <= 0) {
+					throw new SQLTimeoutException("Timed out waiting for one of the " + maxPoolSize
+							+ " connections to become available.");
+				}
+
+				try {
+					if (timeout > 0) {
+						TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+					}
+					else {
+						lock.wait();
+					}
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new SQLException("Interrupted while waiting for a connection.", e);
+				}
+			}
+		}
+
+		Connection connection = null;
+		try {
+			Properties connectionInfo = new Properties();
+			connectionInfo.putAll(info);
+			connectionInfo.setProperty(Driver.APPLICATION_NAME, Driver.getApplicationName(info, version));
+			connection = delegate.connect(url, connectionInfo);
+			return new PhysicalConnection(connection, version, statementCacheSize);
+		}
+		catch (SQLException | RuntimeException e) {
+			if (connection != null) {
+				try {
+					connection.close();
+				}
+				catch (SQLException closeException) {
+					e.addSuppressed(closeException);
+				}
+			}
+			synchronized (lock) {
+				size--;
+				unborrow(version);
+				lock.notifyAll();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Binds the specified connection to the specified version: updates the application name it reports to the
+	 * database, and either prepares a Transformer with the table mapping of that version, or (when using the
+	 * "schema" routing mode) puts the schema of that version on its search_path.
+	 *
+	 * @return True if the connection was bound successfully, or false if the connection should be discarded.
+	 */
+	private boolean rebind(PhysicalConnection physical, String version) {
+		if (version.equals(physical.version) && physical.transformer != null) {
+			return true;
+		}
+
+		Transformer previous = physical.transformer;
+		try {
+			if (!version.equals(physical.version)) {
+				physical.connection.setClientInfo(Driver.APPLICATION_NAME, Driver.getApplicationName(info, version));
+			}
+
+			if (schemaRouting) {
+				if (physical.searchPath == null) {
+					physical.searchPath = VersionSchemas.getSearchPath(physical.connection);
+				}
+				VersionSchemas.use(physical.connection, version, physical.searchPath);
+				physical.transformer = VersionSchemas.createPassThroughTransformer(version);
+
+				// Queries aren't rewritten in this mode, so statements of the old version would be cached under the
+				// same SQL as those of the new version.
+				if (physical.statementCache != null && !version.equals(physical.version)) {
+					physical.statementCache.clear();
+				}
+			}
+			else {
+				VersionMappings versionMappings = VersionMappings.obtain(url, version, physical.connection,
+						() -> delegate.connect(url, refresherInfo), refreshInterval);
+
+				physical.transformer = new Transformer(new PostgresqlQueryRewriter(), versionMappings, url, cacheSize);
+			}
+			physical.version = version;
+			if (previous != null) {
+				previous.close();
+			}
+			return true;
+		}
+		catch (SQLException | RuntimeException e) {
+			return false;
+		}
+	}
+
+	private void release(PhysicalConnection physical) {
+		synchronized (lock) {
+			unborrow(physical.version);
+		}
+
+		boolean reusable = reset(physical);
+
+		// Connections of versions other than the current version are drained by rebinding them to the current version.
+		String current = this.version;
+		if (reusable && current != null && !current.equals(physical.version)) {
+			reusable = rebind(physical, current);
+		}
+		returnToPool(physical, reusable);
+	}
+
+	private void returnToPool(PhysicalConnection physical, boolean reusable) {
+		synchronized (lock) {
+			if (reusable && !closed) {
+				idleConnections.computeIfAbsent(physical.version, key -> new ArrayDeque<>()).push(physical);
+				lock.notifyAll();
+				return;
+			}
+			size--;
+			lock.notifyAll();
+		}
+		closeQuietly(physical);
+	}
+
+	/**
+	 * Restores the session state which the previous user of the connection may have changed: ends any open
+	 * transaction, and restores the auto-commit mode, read-only mode, transaction isolation level and search_path.
+	 *
+	 * @return True if the connection can be reused, or false if it should be discarded.
+	 */
+	private boolean reset(PhysicalConnection physical) {
+		Connection connection = physical.connection;
+		try {
+			if (connection.isClosed()) {
+				return false;
+			}
+			if (!connection.getAutoCommit()) {
+				connection.rollback();
+				connection.setAutoCommit(true);
+			}
+			if (connection.isReadOnly() != physical.readOnly) {
+				connection.setReadOnly(physical.readOnly);
+			}
+
+			// The transaction isolation level is set through the session's default_transaction_isolation.
+			try (Statement statement = connection.createStatement()) {
+				statement.execute(schemaRouting
+						? "RESET default_transaction_isolation;"
+						: "RESET default_transaction_isolation; RESET search_path;");
+			}
+			if (schemaRouting && physical.searchPath != null) {
+				VersionSchemas.use(connection, physical.version, physical.searchPath);
+			}
+			return true;
+		}
+		catch (SQLException e) {
+			return false;
+		}
+	}
+
+	private PhysicalConnection pollIdle(String version) {
+		Deque<PhysicalConnection> idle = idleConnections.get(version);
+		if (idle == null) {
+			return null;
+		}
+
+		PhysicalConnection physical = idle.poll();
+		if (idle.isEmpty()) {
+			idleConnections.remove(version);
+		}
+		return physical;
+	}
+
+	private PhysicalConnection pollIdleOfOtherVersion(String version) {
+		for (String idleVersion : Lists.newArrayList(idleConnections.keySet())) {
+			if (!idleVersion.equals(version)) {
+				return pollIdle(idleVersion);
+			}
+		}
+		return null;
+	}
+
+	private void borrow(String version) {
+		borrowedConnections.merge(version, 1, Integer::sum);
+	}
+
+	private void unborrow(String version) {
+		borrowedConnections.computeIfPresent(version, (key, count) -> count > 1 ? count - 1 : null);
+	}
+
+	private void checkOpen() throws SQLException {
+		if (closed) {
+			throw new SQLException("This DataSource has been closed.");
+		}
+	}
+
+	private static void closeQuietly(PhysicalConnection physical) {
+		if (physical.statementCache != null) {
+			physical.statementCache.close();
+		}
+		if (physical.transformer != null) {
+			physical.transformer.close();
+		}
+
+		try {
+			physical.connection.close();
+		}
+		catch (SQLException e) {
+			// Nothing left to clean up, the connection is discarded either way.
+		}
+	}
+
+	@Override
+	public PrintWriter getLogWriter() {
+		return logWriter;
+	}
+
+	@Override
+	public void setLogWriter(PrintWriter out) {
+		this.logWriter = out;
+	}
+
+	@Override
+	public void setLoginTimeout(int seconds) {
+		this.loginTimeout = seconds;
+	}
+
+	@Override
+	public int getLoginTimeout() {
+		return loginTimeout;
+	}
+
+	@Override
+	public Logger getParentLogger() {
+		return Logger.getLogger(QuantumDataSource.class.getPackage().getName());
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> type) throws SQLException {
+		if (isWrapperFor(type)) {
+			return type.cast(this);
+		}
+		throw new SQLException("Cannot unwrap to: " + type);
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> type) {
+		return type.isInstance(this);
+	}
+
+}
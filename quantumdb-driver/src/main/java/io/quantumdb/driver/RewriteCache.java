@@ -0,0 +1,116 @@
+package io.quantumdb.driver;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.quantumdb.query.rewriter.QueryRewriter;
+
+/**
+ * A bounded cache of rewritten SQL queries. A cache is shared by all connections to the same database which use the
+ * same version and table mapping. When a connection observes a different table mapping for its version, a new
+ * cache (with a new generation) replaces the old one, so queries rewritten for an older mapping are never reused.
+ */
+public final class RewriteCache {
+
+	static final int DEFAULT_SIZE = 1_000;
+
+	private static final ConcurrentMap<String, RewriteCache> CACHES = new ConcurrentHashMap<>();
+	private static final AtomicLong GENERATIONS = new AtomicLong();
+
+	static RewriteCache obtain(String url, String version, Map<String, String> tableMapping, int size) {
+		String key = url + "\u0000" + Objects.toString(version, "");
+		return CACHES.compute(key, (k, existing) -> {
+			if (existing != null && existing.size == size && existing.tableMapping.equals(tableMapping)) {
+				return existing;
+			}
+			return new RewriteCache(tableMapping, size, GENERATIONS.incrementAndGet());
+		});
+	}
+
+	private final Map<String, String> tableMapping;
+	private final Cache<String, String> queries;
+	private final int size;
+	private final long generation;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	private RewriteCache(Map<String, String> tableMapping, int size, long generation) {
+		this.tableMapping = ImmutableMap.copyOf(tableMapping);
+		this.size = size;
+		this.generation = generation;
+		this.queries = CacheBuilder.newBuilder()
+				.maximumSize(size)
+				.build();
+	}
+
+	/**
+	 * Returns the cached rewrite of the specified query, or rewrites it with the specified QueryRewriter. This
+	 * QueryRewriter must use the same table mapping as this cache.
+	 */
+	String rewrite(String query, QueryRewriter queryRewriter) throws SQLException {
+		String rewritten = getIfPresent(query);
+		return rewritten != null ? rewritten : load(query, queryRewriter);
+	}
+
+	/**
+	 * @return The cached rewrite of the specified query, or NULL if it has not been cached.
+	 */
+	String getIfPresent(String query) {
+		String rewritten = queries.getIfPresent(query);
+		if (rewritten != null) {
+			hits.increment();
+		}
+		return rewritten;
+	}
+
+	/**
+	 * Rewrites the specified query with the specified QueryRewriter (unless another thread has just done so), and
+	 * caches the result.
+	 */
+	String load(String query, QueryRewriter queryRewriter) throws SQLException {
+		misses.increment();
+		try {
+			return queries.get(query, () -> queryRewriter.rewrite(query));
+		}
+		catch (ExecutionException | UncheckedExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof SQLException) {
+				throw (SQLException) cause;
+			}
+			else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new SQLException("Could not rewrite query: " + query, cause);
+		}
+	}
+
+	/**
+	 * @return The generation of the table mapping which the cached queries were rewritten for.
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public long getSize() {
+		return queries.size();
+	}
+
+}
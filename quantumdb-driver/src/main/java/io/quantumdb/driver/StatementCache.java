@@ -0,0 +1,102 @@
+package io.quantumdb.driver;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of prepared statements of a single physical connection, keyed by their rewritten SQL. When an application
+ * closes a ProxyPreparedStatement, the underlying statement is parked in this cache instead of being closed, so that
+ * preparing the same (rewritten) SQL again reuses it, without having to parse and plan it on the server again. Since
+ * the key is the rewritten SQL, statements prepared for an older table mapping are never handed out for a newer one,
+ * and are eventually evicted. At most 'size' statements are kept, the least recently used ones are closed first.
+ */
+final class StatementCache {
+
+	static final String STATEMENT_CACHE_SIZE = "statementCacheSize";
+	static final int DEFAULT_SIZE = 0;
+
+	private final Map<String, PreparedStatement> statements;
+	private long hitCount;
+	private long missCount;
+	private boolean closed;
+
+	StatementCache(int size) {
+		this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+				if (size() <= size) {
+					return false;
+				}
+				closeQuietly(eldest.getValue());
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * @return A previously prepared statement for the specified SQL, which is removed from the cache, or NULL if
+	 * the cache holds no such statement.
+	 */
+	synchronized PreparedStatement take(String sql) throws SQLException {
+		PreparedStatement statement = statements.remove(sql);
+		if (statement != null && !statement.isClosed()) {
+			hitCount++;
+			return statement;
+		}
+		missCount++;
+		return null;
+	}
+
+	/**
+	 * Parks the specified statement in the cache.
+	 *
+	 * @return False if the statement could not be cached, in which case the caller should close it.
+	 */
+	synchronized boolean offer(String sql, PreparedStatement statement) {
+		if (closed || statements.containsKey(sql)) {
+			return false;
+		}
+		statements.put(sql, statement);
+		return true;
+	}
+
+	synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	synchronized long getMissCount() {
+		return missCount;
+	}
+
+	synchronized int getSize() {
+		return statements.size();
+	}
+
+	/**
+	 * Closes all cached statements, while continuing to accept statements which are offered afterwards.
+	 */
+	synchronized void clear() {
+		statements.values().forEach(StatementCache::closeQuietly);
+		statements.clear();
+	}
+
+	/**
+	 * Closes all cached statements. Statements which are offered afterwards are no longer accepted.
+	 */
+	synchronized void close() {
+		closed = true;
+		clear();
+	}
+
+	private static void closeQuietly(PreparedStatement statement) {
+		try {
+			statement.close();
+		}
+		catch (SQLException e) {
+			// The statement is discarded either way.
+		}
+	}
+
+}
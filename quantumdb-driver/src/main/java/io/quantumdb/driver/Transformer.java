@@ -1,58 +1,161 @@
 package io.quantumdb.driver;
 
 import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashMap;
 import java.util.Map;
 
+import io.quantumdb.driver.MetricsListener.StatementKind;
+import io.quantumdb.driver.VersionMappings.Snapshot;
 import io.quantumdb.query.rewriter.QueryRewriter;
 
 class Transformer {
 
+	interface SqlCall<T> {
+		T call() throws SQLException;
+	}
+
 	private final QueryRewriter queryRewriter;
-	private final Map<String, String> tableMapping;
+	private final VersionMappings versionMappings;
+	private final String url;
+	private final int cacheSize;
+
+	private Snapshot snapshot;
+	private RewriteCache rewriteCache;
+	private boolean closed;
 
 	Transformer(Connection connection, QueryRewriter queryRewriter, String version) throws SQLException {
-		this.tableMapping = new HashMap<>();
-		this.queryRewriter = queryRewriter;
+		this(queryRewriter, VersionMappings.load(version, connection), null, 0);
+	}
 
-		if (version != null && !version.isEmpty()) {
-			String query = new StringBuilder()
-					.append("SELECT ref_id, table_name ")
-					.append("FROM quantumdb.ref_versions ")
-					.append("WHERE version_id = ?;")
-					.toString();
-
-			try (PreparedStatement statement = connection.prepareStatement(query)) {
-				statement.setString(1, version);
-
-				try (ResultSet resultSet = statement.executeQuery()) {
-					while (resultSet.next()) {
-						String refId = resultSet.getString("ref_id");
-						String tableName = resultSet.getString("table_name");
-						tableMapping.put(tableName, refId);
-					}
-				}
-			}
-		}
+	Transformer(Connection connection, QueryRewriter queryRewriter, String url, String version, int cacheSize)
+			throws SQLException {
+		this(queryRewriter, VersionMappings.obtain(url, version, connection, null, 0), url, cacheSize);
+	}
 
-		queryRewriter.setTableMapping(tableMapping);
+	/**
+	 * Creates a new Transformer which rewrites queries using the (shared) table mapping of a version. When that table
+	 * mapping is refreshed, the Transformer switches to the new mapping before rewriting the next query. Rewritten
+	 * queries are cached in a RewriteCache, shared with all other connections to the same database and version,
+	 * holding at most 'cacheSize' queries. A 'cacheSize' of 0 disables caching.
+	 */
+	Transformer(QueryRewriter queryRewriter, VersionMappings versionMappings, String url, int cacheSize) {
+		this.queryRewriter = queryRewriter;
+		this.versionMappings = versionMappings;
+		this.url = url;
+		this.cacheSize = cacheSize;
+		refresh();
 	}
 
 	Map<String, String> getTableMappings() {
-		Map<String, String> result = new HashMap<>(tableMapping.size());
-		result.putAll(tableMapping);
-		return result;
+		return refresh().getTableMapping();
+	}
+
+	/**
+	 * @return The current table mapping, with an index from refIds back to table names.
+	 */
+	Snapshot getSnapshot() {
+		return refresh();
 	}
 
 	String getRefId(String tableName) {
-		return tableMapping.get(tableName);
+		return refresh().getTableMapping().get(tableName);
+	}
+
+	synchronized RewriteCache getRewriteCache() {
+		refresh();
+		return rewriteCache;
 	}
 
 	String rewriteQuery(String query) throws SQLException {
-		return queryRewriter.rewrite(query);
+		RewriteCache rewriteCache = getRewriteCache();
+		if (!Metrics.isEnabled()) {
+			if (rewriteCache == null || query == null) {
+				return queryRewriter.rewrite(query);
+			}
+			return rewriteCache.rewrite(query, queryRewriter);
+		}
+
+		long start = System.nanoTime();
+		String rewritten = null;
+		if (rewriteCache != null && query != null) {
+			rewritten = rewriteCache.getIfPresent(query);
+		}
+		boolean cacheHit = rewritten != null;
+		if (!cacheHit) {
+			rewritten = rewriteCache == null || query == null
+					? queryRewriter.rewrite(query)
+					: rewriteCache.load(query, queryRewriter);
+		}
+		Metrics.queryRewritten(versionMappings.getVersion(), System.nanoTime() - start, cacheHit);
+		return rewritten;
+	}
+
+	/**
+	 * Executes the specified call, which executes a statement on the database, and reports its duration to the
+	 * registered MetricsListeners.
+	 */
+	<T> T execute(StatementKind kind, SqlCall<T> call) throws SQLException {
+		if (!Metrics.isEnabled()) {
+			return call.call();
+		}
+
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			T result = call.call();
+			failed = false;
+			return result;
+		}
+		finally {
+			Metrics.statementExecuted(versionMappings.getVersion(), kind, System.nanoTime() - start, failed);
+		}
+	}
+
+	/**
+	 * Executes the specified call, which executes a batch of 'batchSize' statements on the database, and reports its
+	 * duration to the registered MetricsListeners.
+	 */
+	int[] executeBatch(StatementKind kind, int batchSize, SqlCall<int[]> call) throws SQLException {
+		if (!Metrics.isEnabled()) {
+			return call.call();
+		}
+
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			int[] result = call.call();
+			failed = false;
+			return result;
+		}
+		finally {
+			Metrics.batchExecuted(versionMappings.getVersion(), kind, batchSize, System.nanoTime() - start, failed);
+		}
+	}
+
+	/**
+	 * Releases the table mapping of this Transformer, which may then no longer be refreshed.
+	 */
+	synchronized void close() {
+		if (!closed) {
+			closed = true;
+			versionMappings.release();
+		}
+	}
+
+	private synchronized Snapshot refresh() {
+		Snapshot latest = versionMappings.getSnapshot();
+		if (latest == snapshot) {
+			return snapshot;
+		}
+
+		Map<String, String> tableMapping = latest.getTableMapping();
+		queryRewriter.setTableMapping(tableMapping);
+		if (url != null && cacheSize > 0) {
+			rewriteCache = RewriteCache.obtain(url, versionMappings.getVersion(), tableMapping, cacheSize);
+		}
+
+		snapshot = latest;
+		return snapshot;
 	}
 
 }
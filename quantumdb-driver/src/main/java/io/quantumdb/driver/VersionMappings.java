@@ -0,0 +1,247 @@
+package io.quantumdb.driver;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * The table mapping of a single version of a database, shared by all connections to that database which use that
+ * version. The mapping is loaded once, and (when opted into) refreshed periodically in the background, so that
+ * long-lived connections pick up changes made by the QuantumDB CLI without having to be re-established. A refreshed
+ * mapping keeps a single connection of its own open for this. A shared mapping keeps track of its users: once the
+ * last of them has released it, it's no longer refreshed, and the next user loads it anew.
+ */
+final class VersionMappings {
+
+	static final int DEFAULT_REFRESH_INTERVAL = 0;
+
+	private static final Logger LOGGER = Logger.getLogger(VersionMappings.class.getName());
+
+	private static final ConcurrentMap<String, VersionMappings> MAPPINGS = new ConcurrentHashMap<>();
+	private static final AtomicLong GENERATIONS = new AtomicLong();
+	private static final ScheduledExecutorService REFRESHER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "quantumdb-version-mapping-refresher");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	interface Connector {
+		Connection connect() throws SQLException;
+	}
+
+	/**
+	 * An immutable table mapping, indexed in both directions. Every time the mapping of a version changes, a snapshot
+	 * with a new generation replaces the previous one.
+	 */
+	static final class Snapshot {
+
+		private final Map<String, String> tableMapping;
+		private final Map<String, String> tableNames;
+		private final long generation;
+
+		private Snapshot(Map<String, String> tableMapping, long generation) {
+			this.tableMapping = ImmutableMap.copyOf(tableMapping);
+			this.tableNames = invert(this.tableMapping);
+			this.generation = generation;
+		}
+
+		/**
+		 * @return The mapping of table names to the refIds of the tables which hold their data.
+		 */
+		Map<String, String> getTableMapping() {
+			return tableMapping;
+		}
+
+		/**
+		 * @return The mapping of refIds to table names. Should several table names map to the same refId, the first
+		 * one in the table mapping is used.
+		 */
+		Map<String, String> getTableNames() {
+			return tableNames;
+		}
+
+		long getGeneration() {
+			return generation;
+		}
+
+	}
+
+	/**
+	 * Returns the shared table mapping of the specified version, loading it through the specified connection if no
+	 * other connection has done so yet. If 'refreshInterval' is positive, the mapping is reloaded every
+	 * 'refreshInterval' seconds through a connection obtained from the specified Connector. The refresh interval of
+	 * the connection which first loads the mapping applies. Every call must be paired with a call to
+	 * {@link #release()} once the caller no longer uses the mapping.
+	 */
+	static VersionMappings obtain(String url, String version, Connection connection, Connector connector,
+			int refreshInterval) throws SQLException {
+
+		String key = url + "\u0000" + Objects.toString(version, "");
+		VersionMappings existing = MAPPINGS.computeIfPresent(key, (k, mappings) -> mappings.retain());
+		if (existing != null) {
+			return existing;
+		}
+
+		VersionMappings created = new VersionMappings(key, version, queryTableMapping(connection, version));
+		return MAPPINGS.compute(key, (k, mappings) -> {
+			if (mappings != null) {
+				return mappings.retain();
+			}
+			if (connector != null && refreshInterval > 0 && !isNullOrEmpty(version)) {
+				created.refreshTask = REFRESHER.scheduleWithFixedDelay(() -> created.refresh(connector),
+						refreshInterval, refreshInterval, TimeUnit.SECONDS);
+			}
+			return created.retain();
+		});
+	}
+
+	/**
+	 * @return A table mapping of the specified version which is not shared with other connections.
+	 */
+	static VersionMappings load(String version, Connection connection) throws SQLException {
+		return new VersionMappings(null, version, queryTableMapping(connection, version));
+	}
+
+	/**
+	 * @return An empty table mapping, used by connections which do not rewrite queries, but do use a version.
+	 */
+	static VersionMappings empty(String version) {
+		return new VersionMappings(null, version, ImmutableMap.of());
+	}
+
+	private final String key;
+	private final String version;
+	private volatile Snapshot snapshot;
+
+	// Only accessed while computing the entry of this (shared) mapping in MAPPINGS.
+	private int users;
+	private ScheduledFuture<?> refreshTask;
+
+	// Only accessed by the REFRESHER thread.
+	private Connection refreshConnection;
+
+	private VersionMappings(String key, String version, Map<String, String> tableMapping) {
+		this.key = key;
+		this.version = version;
+		this.snapshot = new Snapshot(tableMapping, GENERATIONS.incrementAndGet());
+	}
+
+	/**
+	 * Signals that a user of this mapping no longer uses it. Once a shared mapping has no users left, it stops being
+	 * refreshed, and is removed so that the next user loads it anew.
+	 */
+	void release() {
+		if (key == null) {
+			return;
+		}
+
+		MAPPINGS.computeIfPresent(key, (k, mappings) -> {
+			if (mappings != this || --users > 0) {
+				return mappings;
+			}
+			if (refreshTask != null) {
+				refreshTask.cancel(false);
+				REFRESHER.execute(this::closeRefreshConnection);
+			}
+			return null;
+		});
+	}
+
+	private VersionMappings retain() {
+		users++;
+		return this;
+	}
+
+	String getVersion() {
+		return version;
+	}
+
+	Snapshot getSnapshot() {
+		return snapshot;
+	}
+
+	private void refresh(Connector connector) {
+		try {
+			if (refreshConnection == null) {
+				refreshConnection = connector.connect();
+			}
+			Map<String, String> tableMapping = queryTableMapping(refreshConnection, version);
+			if (!tableMapping.equals(snapshot.getTableMapping())) {
+				snapshot = new Snapshot(tableMapping, GENERATIONS.incrementAndGet());
+			}
+		}
+		catch (SQLException | RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Could not refresh the table mapping of version: " + version, e);
+
+			// The connection may well be broken, so the next refresh establishes a new one.
+			closeRefreshConnection();
+		}
+	}
+
+	private void closeRefreshConnection() {
+		if (refreshConnection == null) {
+			return;
+		}
+		try {
+			refreshConnection.close();
+		}
+		catch (SQLException e) {
+			LOGGER.log(Level.FINE, "Could not close the refresh connection of version: " + version, e);
+		}
+		finally {
+			refreshConnection = null;
+		}
+	}
+
+	private static Map<String, String> invert(Map<String, String> tableMapping) {
+		Map<String, String> tableNames = new HashMap<>();
+		tableMapping.forEach((tableName, refId) -> tableNames.putIfAbsent(refId, tableName));
+		return ImmutableMap.copyOf(tableNames);
+	}
+
+	private static Map<String, String> queryTableMapping(Connection connection, String version) throws SQLException {
+		Map<String, String> tableMapping = new HashMap<>();
+		if (isNullOrEmpty(version)) {
+			return tableMapping;
+		}
+
+		String query = new StringBuilder()
+				.append("SELECT ref_id, table_name ")
+				.append("FROM quantumdb.ref_versions ")
+				.append("WHERE version_id = ?;")
+				.toString();
+
+		try (PreparedStatement statement = connection.prepareStatement(query)) {
+			statement.setString(1, version);
+
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					String refId = resultSet.getString("ref_id");
+					String tableName = resultSet.getString("table_name");
+					tableMapping.put(tableName, refId);
+				}
+			}
+		}
+		return tableMapping;
+	}
+
+	private static boolean isNullOrEmpty(String version) {
+		return version == null || version.isEmpty();
+	}
+
+}
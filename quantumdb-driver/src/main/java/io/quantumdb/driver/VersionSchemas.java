@@ -0,0 +1,84 @@
+package io.quantumdb.driver;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import io.quantumdb.query.rewriter.PostgresqlQueryRewriter;
+
+/**
+ * Supports the "schema" routing mode, in which a connection uses a version by putting the schema of views which the
+ * QuantumDB CLI created for that version (when forking with --version-schemas) in front of its search_path. Queries
+ * are then sent to the database as-is, without having to be parsed and rewritten.
+ */
+final class VersionSchemas {
+
+	static final String ROUTING = "routing";
+
+	private static final String REWRITE_ROUTING = "rewrite";
+	private static final String SCHEMA_ROUTING = "schema";
+	private static final String SCHEMA_PREFIX = "quantumdb_";
+
+	/**
+	 * @return True if the "routing" property or URL parameter selects the "schema" routing mode, or false if queries
+	 * should be rewritten (the default).
+	 */
+	static boolean isEnabled(String url, Properties info) throws SQLException {
+		String routing = info.getProperty(ROUTING);
+		if (routing == null) {
+			routing = Driver.parseParameter(url, ROUTING);
+		}
+
+		if (routing == null || routing.equalsIgnoreCase(REWRITE_ROUTING)) {
+			return false;
+		}
+		else if (routing.equalsIgnoreCase(SCHEMA_ROUTING)) {
+			return true;
+		}
+		throw new SQLException("The " + ROUTING + " must be either '" + REWRITE_ROUTING + "' or '" + SCHEMA_ROUTING
+				+ "', but was: " + routing);
+	}
+
+	static String getSearchPath(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery("SHOW search_path;")) {
+
+			if (!resultSet.next()) {
+				throw new SQLException("Could not determine the search_path of the connection.");
+			}
+			return resultSet.getString(1);
+		}
+	}
+
+	/**
+	 * Sets the search_path of the connection to the schema of the specified version, followed by the specified
+	 * search_path, which should be the connection's original search_path.
+	 */
+	static void use(Connection connection, String version, String searchPath) throws SQLException {
+		if (version == null || version.isEmpty()) {
+			throw new SQLException("The '" + SCHEMA_ROUTING + "' routing mode requires a version.");
+		}
+
+		String schema = "\"" + (SCHEMA_PREFIX + version).replace("\"", "\"\"") + "\"";
+		try (PreparedStatement statement = connection.prepareStatement("SELECT set_config('search_path', ?, false);")) {
+			statement.setString(1, searchPath.isEmpty() ? schema : schema + ", " + searchPath);
+			statement.execute();
+		}
+	}
+
+	/**
+	 * @return A Transformer which leaves all queries untouched, attributing the statements it executes to the
+	 * specified version.
+	 */
+	static Transformer createPassThroughTransformer(String version) {
+		return new Transformer(new PostgresqlQueryRewriter(), VersionMappings.empty(version), null, 0);
+	}
+
+	private VersionSchemas() {
+		// Prevent instantiation.
+	}
+
+}
@@ -0,0 +1,133 @@
+package io.quantumdb.driver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.google.common.collect.Lists;
+import io.quantumdb.driver.StubDatabase.StubConnection;
+import org.junit.Test;
+
+public class BatchedInsertsTest {
+
+	@Test
+	public void testSplittingSingleRowInsert() {
+		String[] parts = BatchedInserts.split("INSERT INTO users (id, name) VALUES (1, 'Alice');");
+		assertArrayEquals(new String[] { "INSERT INTO users (id, name)", "(1, 'Alice')" }, parts);
+	}
+
+	@Test
+	public void testSplittingIsCaseInsensitive() {
+		String[] parts = BatchedInserts.split("insert into users values (1, 'Alice')");
+		assertArrayEquals(new String[] { "insert into users", "(1, 'Alice')" }, parts);
+	}
+
+	@Test
+	public void testSplittingRowWithNestedParenthesesAndQuotedKeywords() {
+		String[] parts = BatchedInserts.split("INSERT INTO \"values\" (id, name) VALUES (lower('A'), 'values (x)')");
+		assertArrayEquals(new String[] { "INSERT INTO \"values\" (id, name)", "(lower('A'), 'values (x)')" }, parts);
+	}
+
+	@Test
+	public void testStatementsWhichCannotBeSplit() {
+		assertNull(BatchedInserts.split(null));
+		assertNull(BatchedInserts.split("UPDATE users SET name = 'Alice' WHERE id = 1;"));
+		assertNull(BatchedInserts.split("INSERT INTO users SELECT * FROM other_users;"));
+		assertNull(BatchedInserts.split("INSERT INTO users VALUES (1), (2);"));
+		assertNull(BatchedInserts.split("INSERT INTO users VALUES (1) RETURNING id;"));
+		assertNull(BatchedInserts.split("INSERT INTO users VALUES (1) ON CONFLICT DO NOTHING;"));
+		assertNull(BatchedInserts.split("INSERT INTO users VALUES (1); -- comment"));
+		assertNull(BatchedInserts.split("INSERT INTO users VALUES (1) /* comment */"));
+		assertNull(BatchedInserts.split("INSERT INTO users VALUES ($$Alice$$);"));
+		assertNull(BatchedInserts.split("INSERT INTO users VALUES (E'Alice\\'s');"));
+		assertNull(BatchedInserts.split("INSERT INTO users VALUES ('Alice';"));
+		assertNull(BatchedInserts.split("INSERT INTO users VALUES (1));"));
+	}
+
+	@Test
+	public void testConsecutiveInsertsIntoSameTableAreCoalesced() {
+		BatchedInserts inserts = new BatchedInserts(Lists.newArrayList(
+				"INSERT INTO users (id) VALUES (1);",
+				"INSERT INTO users (id) VALUES (2);",
+				"INSERT INTO posts (id) VALUES (3);",
+				"DELETE FROM posts WHERE id = 4;",
+				"INSERT INTO posts (id) VALUES (5);",
+				"INSERT INTO posts (id) VALUES (6);"));
+
+		assertEquals(Lists.newArrayList(
+				"INSERT INTO users (id) VALUES (1), (2)",
+				"INSERT INTO posts (id) VALUES (3);",
+				"DELETE FROM posts WHERE id = 4;",
+				"INSERT INTO posts (id) VALUES (5), (6)"), inserts.getStatements());
+	}
+
+	@Test
+	public void testCoalescedStatementsAreLimitedInSize() {
+		List<String> batch = IntStream.range(0, 300)
+				.mapToObj(i -> "INSERT INTO users (id) VALUES (" + i + ");")
+				.collect(Collectors.toList());
+
+		assertEquals(3, new BatchedInserts(batch).getStatements().size());
+	}
+
+	@Test
+	public void testExpandingUpdateCounts() {
+		BatchedInserts inserts = new BatchedInserts(Lists.newArrayList(
+				"INSERT INTO users (id) VALUES (1);",
+				"INSERT INTO users (id) VALUES (2);",
+				"DELETE FROM posts WHERE id = 4;"));
+
+		int[] expanded = inserts.expand(new int[] { 2, 3 });
+		assertArrayEquals(new int[] { Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO, 3 }, expanded);
+	}
+
+	@Test
+	public void testExpandingUpdateCountsOfFailedBatch() {
+		BatchedInserts inserts = new BatchedInserts(Lists.newArrayList(
+				"DELETE FROM posts WHERE id = 4;",
+				"INSERT INTO users (id) VALUES (1);",
+				"INSERT INTO users (id) VALUES (2);",
+				"DELETE FROM posts WHERE id = 5;"));
+
+		int[] expanded = inserts.expandPartially(new int[] { 1, Statement.EXECUTE_FAILED });
+		assertArrayEquals(new int[] { 1, Statement.EXECUTE_FAILED, Statement.EXECUTE_FAILED,
+				Statement.EXECUTE_FAILED }, expanded);
+
+		expanded = inserts.expandPartially(null);
+		assertEquals(4, expanded.length);
+	}
+
+	@Test
+	public void testFailedCoalescedBatchReportsUpdateCountsOfOriginalBatch() throws SQLException {
+		StubDatabase database = new StubDatabase();
+		StubConnection physical = database.connect(new Properties());
+		ProxyConnection connection = new ProxyConnection(physical.getConnection(),
+				VersionSchemas.createPassThroughTransformer("v1"), null, null, true);
+
+		Statement statement = connection.createStatement();
+		statement.addBatch("INSERT INTO users (id) VALUES (1);");
+		statement.addBatch("INSERT INTO users (id) VALUES (2);");
+		statement.addBatch("DELETE FROM users WHERE id = 3;");
+
+		database.setFailing(true);
+		try {
+			statement.executeBatch();
+			fail("Expected a BatchUpdateException");
+		}
+		catch (BatchUpdateException e) {
+			assertArrayEquals(new int[] { Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO,
+					Statement.EXECUTE_FAILED }, e.getUpdateCounts());
+		}
+		assertEquals(Lists.newArrayList("INSERT INTO users (id) VALUES (1), (2)"), physical.getExecuted());
+	}
+
+}
@@ -0,0 +1,69 @@
+package io.quantumdb.driver;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	private final LatencyHistogram histogram = new LatencyHistogram();
+
+	@Test
+	public void testEmptyHistogramHasNoPercentiles() {
+		assertEquals(-1, histogram.getPercentileMicros(50));
+		assertEquals(-1, histogram.getPercentileMicros(99));
+	}
+
+	@Test
+	public void testLatenciesAreRecordedInBucketWithInclusiveUpperBound() {
+		record(10);
+		record(11);
+		record(25);
+
+		Map<String, Long> buckets = histogram.getBuckets();
+		assertEquals(Long.valueOf(1), buckets.get("<= 10us"));
+		assertEquals(Long.valueOf(2), buckets.get("<= 25us"));
+		assertEquals(Long.valueOf(0), buckets.get("<= 50us"));
+	}
+
+	@Test
+	public void testPercentilesReportUpperBoundOfBucket() {
+		for (int i = 0; i < 98; i++) {
+			record(80);
+		}
+		record(2_000);
+		record(40_000);
+
+		assertEquals(100, histogram.getPercentileMicros(50));
+		assertEquals(100, histogram.getPercentileMicros(98));
+		assertEquals(2_500, histogram.getPercentileMicros(99));
+		assertEquals(50_000, histogram.getPercentileMicros(100));
+	}
+
+	@Test
+	public void testLatenciesBeyondLargestBucketAreCounted() {
+		record(TimeUnit.SECONDS.toMicros(30));
+
+		assertEquals(Long.MAX_VALUE, histogram.getPercentileMicros(50));
+		assertEquals(Long.valueOf(1), histogram.getBuckets().get("> 10000000us"));
+		assertEquals(20, histogram.getBuckets().size());
+	}
+
+	@Test
+	public void testResetClearsAllBuckets() {
+		record(100);
+		record(1_000_000);
+		histogram.reset();
+
+		assertEquals(-1, histogram.getPercentileMicros(50));
+		assertEquals(0, histogram.getBuckets().values().stream().mapToLong(Long::longValue).sum());
+	}
+
+	private void record(long micros) {
+		histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+	}
+
+}
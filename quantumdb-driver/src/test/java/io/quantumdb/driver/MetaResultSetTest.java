@@ -0,0 +1,110 @@
+package io.quantumdb.driver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.quantumdb.query.rewriter.PostgresqlQueryRewriter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MetaResultSetTest {
+
+	private VersionMappings mappings;
+	private Transformer transformer;
+
+	@Before
+	public void setUp() throws SQLException {
+		StubDatabase database = new StubDatabase();
+		database.setTableMapping("v1", ImmutableMap.of("users", "table_1", "posts", "posts"));
+		Connection connection = database.connect(new Properties()).getConnection();
+
+		// The mappings are shared per URL, so every test uses a database of its own.
+		String url = "jdbc:postgresql://localhost/" + UUID.randomUUID();
+		mappings = VersionMappings.obtain(url, "v1", connection, null, 0);
+		transformer = new Transformer(new PostgresqlQueryRewriter(), mappings, url, 0);
+	}
+
+	@After
+	public void tearDown() {
+		mappings.release();
+	}
+
+	@Test
+	public void testSnapshotMapsRefIdsBackToTableNames() {
+		assertEquals(ImmutableMap.of("table_1", "users", "posts", "posts"),
+				transformer.getSnapshot().getTableNames());
+	}
+
+	@Test
+	public void testGhostTablesAreReportedUnderTheirTableName() throws SQLException {
+		ResultSet resultSet = new MetaResultSet(columns(row("table_1", "id")), transformer);
+
+		assertTrue(resultSet.next());
+		assertEquals("users", resultSet.getString("TABLE_NAME"));
+		assertEquals("users", resultSet.getString(1));
+		assertEquals("users", resultSet.getNString(1));
+		assertEquals("users", resultSet.getNString("TABLE_NAME"));
+		assertFalse(resultSet.next());
+	}
+
+	@Test
+	public void testOtherColumnsAreNotMapped() throws SQLException {
+		ResultSet resultSet = new MetaResultSet(columns(row("table_1", "table_1")), transformer);
+
+		assertTrue(resultSet.next());
+		assertEquals("table_1", resultSet.getString("COLUMN_NAME"));
+		assertEquals("table_1", resultSet.getString(2));
+	}
+
+	@Test
+	public void testSelfMappedTablesAreKept() throws SQLException {
+		ResultSet resultSet = new MetaResultSet(columns(row("posts", "id")), transformer);
+
+		assertTrue(resultSet.next());
+		assertEquals("posts", resultSet.getString(1));
+		assertFalse(resultSet.next());
+	}
+
+	@Test
+	public void testTablesOutsideOfTheVersionAreSkipped() throws SQLException {
+		ResultSet resultSet = new MetaResultSet(columns(
+				row("users", "id"),
+				row("table_2", "id"),
+				row("table_1", "name"),
+				row("other", "id"),
+				row("posts", "title")), transformer);
+
+		assertTrue(resultSet.next());
+		assertEquals("users", resultSet.getString(1));
+		assertEquals("name", resultSet.getString("COLUMN_NAME"));
+
+		assertTrue(resultSet.next());
+		assertEquals("posts", resultSet.getString(1));
+		assertEquals("title", resultSet.getString("COLUMN_NAME"));
+
+		assertFalse(resultSet.next());
+	}
+
+	@SafeVarargs
+	private static ResultSet columns(Map<String, String>... rows) {
+		List<Map<String, String>> list = ImmutableList.copyOf(rows);
+		return StubDatabase.createResultSet(list);
+	}
+
+	private static Map<String, String> row(String tableName, String columnName) {
+		return ImmutableMap.of("TABLE_NAME", tableName, "COLUMN_NAME", columnName);
+	}
+
+}
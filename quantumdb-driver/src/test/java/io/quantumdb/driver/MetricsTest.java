@@ -0,0 +1,185 @@
+package io.quantumdb.driver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import io.quantumdb.driver.MetricsListener.StatementKind;
+import org.junit.Test;
+
+public class MetricsTest {
+
+	private static final String URL = "jdbc:quantumdb:postgresql://localhost/test?version=v1";
+
+	@Test
+	public void testBuiltInListenersAreOnlyEnabledThroughMetricsProperty() {
+		// The built-in listeners cannot be disabled again, so this is the only test which enables them.
+		assertNull(Metrics.getStatistics());
+
+		Metrics.configure(URL, new Properties());
+		assertNull(Metrics.getStatistics());
+		assertFalse(Metrics.isEnabled());
+
+		Properties info = new Properties();
+		info.setProperty(Metrics.METRICS, "true");
+		Metrics.configure(URL, info);
+
+		DriverStatistics statistics = Metrics.getStatistics();
+		assertNotNull(statistics);
+		assertTrue(Metrics.isEnabled());
+
+		Metrics.configure(URL + "&metrics=true", new Properties());
+		assertSame(statistics, Metrics.getStatistics());
+	}
+
+	@Test
+	public void testListenersReceiveMeasurementsOfStatements() throws SQLException {
+		StubDatabase database = new StubDatabase();
+		ProxyConnection connection = new ProxyConnection(database.connect(new Properties()).getConnection(),
+				VersionSchemas.createPassThroughTransformer("v1"));
+
+		RecordingListener listener = new RecordingListener();
+		Metrics.addListener(listener);
+		try {
+			assertTrue(Metrics.isEnabled());
+
+			Statement statement = connection.createStatement();
+			statement.executeQuery("SELECT * FROM users;");
+			statement.addBatch("DELETE FROM users WHERE id = 1;");
+			statement.addBatch("DELETE FROM users WHERE id = 2;");
+			statement.executeBatch();
+
+			database.setFailing(true);
+			try {
+				statement.executeUpdate("DELETE FROM users;");
+				fail("Expected an SQLException");
+			}
+			catch (SQLException e) {
+				// Expected.
+			}
+		}
+		finally {
+			Metrics.removeListener(listener);
+		}
+
+		assertEquals(Lists.newArrayList(
+				"executed v1 STATEMENT succeeded",
+				"batch v1 STATEMENT 2 succeeded",
+				"executed v1 STATEMENT failed"), listener.getEvents());
+
+		// Removed listeners no longer receive measurements, and are no longer taken into account.
+		database.setFailing(false);
+		connection.createStatement().executeQuery("SELECT * FROM users;");
+		assertEquals(3, listener.getEvents().size());
+		assertEquals(Metrics.getStatistics() != null, Metrics.isEnabled());
+	}
+
+	@Test
+	public void testFailingListenerDoesNotAffectOtherListeners() {
+		MetricsListener failing = new MetricsListener() {
+			@Override
+			public void statementExecuted(String version, StatementKind kind, long durationNanos, boolean failed) {
+				throw new IllegalStateException("Listener failure");
+			}
+		};
+		RecordingListener listener = new RecordingListener();
+
+		Metrics.addListener(failing);
+		Metrics.addListener(listener);
+		try {
+			Metrics.statementExecuted("v1", StatementKind.PREPARED_STATEMENT, 1_000, false);
+		}
+		finally {
+			Metrics.removeListener(failing);
+			Metrics.removeListener(listener);
+		}
+
+		assertEquals(Lists.newArrayList("executed v1 PREPARED_STATEMENT succeeded"), listener.getEvents());
+	}
+
+	@Test
+	public void testDriverStatisticsAreAggregatedPerVersion() {
+		DriverStatistics statistics = new DriverStatistics();
+		statistics.queryRewritten("v1", micros(20), false);
+		statistics.queryRewritten("v1", micros(5), true);
+
+		statistics.statementExecuted("v1", StatementKind.STATEMENT, micros(80), false);
+		statistics.statementExecuted("v2", StatementKind.PREPARED_STATEMENT, micros(2_000), true);
+		statistics.statementExecuted(null, StatementKind.STATEMENT, micros(8), false);
+		statistics.batchExecuted("v1", StatementKind.STATEMENT, 3, micros(400), false);
+
+		assertEquals(2, statistics.getRewriteCount());
+		assertEquals(1, statistics.getRewriteCacheHitCount());
+		assertEquals(0.5, statistics.getRewriteCacheHitRatio(), 0.0);
+		assertEquals(micros(25), statistics.getRewriteTimeTotalNanos());
+		assertEquals(25, statistics.getRewriteLatencyP99Micros());
+
+		assertEquals(3, statistics.getExecuteCount());
+		assertEquals(1, statistics.getExecuteFailureCount());
+		assertEquals(micros(2_088), statistics.getExecuteTimeTotalNanos());
+		assertEquals(100, statistics.getExecuteLatencyP50Micros());
+		assertEquals(2_500, statistics.getExecuteLatencyP99Micros());
+		assertEquals(ImmutableMap.of("", 1L, "v1", 4L, "v2", 1L), statistics.getStatementsPerVersion());
+
+		assertEquals(1, statistics.getBatchCount());
+		assertEquals(3, statistics.getBatchedStatementCount());
+		assertEquals(micros(400), statistics.getBatchTimeTotalNanos());
+	}
+
+	@Test
+	public void testResettingDriverStatistics() {
+		DriverStatistics statistics = new DriverStatistics();
+		statistics.queryRewritten("v1", micros(20), true);
+		statistics.statementExecuted("v1", StatementKind.STATEMENT, micros(80), true);
+		statistics.batchExecuted("v1", StatementKind.STATEMENT, 3, micros(400), false);
+
+		statistics.reset();
+
+		assertEquals(0, statistics.getRewriteCount());
+		assertEquals(0.0, statistics.getRewriteCacheHitRatio(), 0.0);
+		assertEquals(0, statistics.getExecuteCount());
+		assertEquals(0, statistics.getExecuteFailureCount());
+		assertEquals(-1, statistics.getExecuteLatencyP50Micros());
+		assertTrue(statistics.getStatementsPerVersion().isEmpty());
+		assertEquals(0, statistics.getBatchedStatementCount());
+	}
+
+	private static long micros(long micros) {
+		return TimeUnit.MICROSECONDS.toNanos(micros);
+	}
+
+	private static class RecordingListener implements MetricsListener {
+
+		private final List<String> events = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void statementExecuted(String version, StatementKind kind, long durationNanos, boolean failed) {
+			events.add("executed " + version + " " + kind + " " + (failed ? "failed" : "succeeded"));
+		}
+
+		@Override
+		public void batchExecuted(String version, StatementKind kind, int batchSize, long durationNanos,
+				boolean failed) {
+			events.add("batch " + version + " " + kind + " " + batchSize + " " + (failed ? "failed" : "succeeded"));
+		}
+
+		List<String> getEvents() {
+			return events;
+		}
+
+	}
+
+}
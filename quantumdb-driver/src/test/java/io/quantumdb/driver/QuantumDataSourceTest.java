@@ -0,0 +1,156 @@
+package io.quantumdb.driver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import io.quantumdb.driver.StubDatabase.StubConnection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QuantumDataSourceTest {
+
+	private static final String URL = "jdbc:quantumdb:postgresql://localhost/test?version=v1&routing=schema";
+
+	private StubDatabase database;
+	private QuantumDataSource dataSource;
+
+	@Before
+	public void setUp() throws SQLException {
+		database = new StubDatabase();
+
+		Properties info = new Properties();
+		info.setProperty(QuantumDataSource.MAX_POOL_SIZE, "2");
+		dataSource = new QuantumDataSource(URL, info, database.asDriver());
+	}
+
+	@After
+	public void tearDown() {
+		dataSource.close();
+	}
+
+	@Test
+	public void testConnectionIsReusedAfterRelease() throws SQLException {
+		dataSource.getConnection().close();
+		dataSource.getConnection().close();
+
+		assertEquals(1, database.getConnections().size());
+		assertEquals(1, dataSource.getConnectionCount("v1"));
+	}
+
+	@Test
+	public void testClosingConnectionTwiceReleasesItOnce() throws SQLException {
+		Connection first = dataSource.getConnection();
+		Connection second = dataSource.getConnection();
+		first.close();
+		first.close();
+
+		assertEquals(2, dataSource.getConnectionCount("v1"));
+
+		// The pool holds one idle connection, so a third connection must not be established.
+		Connection third = dataSource.getConnection();
+		assertEquals(2, database.getConnections().size());
+
+		second.close();
+		third.close();
+		assertEquals(2, dataSource.getConnectionCount("v1"));
+	}
+
+	@Test
+	public void testSwitchingVersionDrainsConnectionsOfOldVersion() throws SQLException {
+		Connection connection = dataSource.getConnection();
+		dataSource.switchVersion("v2");
+
+		assertEquals(1, dataSource.getConnectionCount("v1"));
+		assertEquals(0, dataSource.getConnectionCount("v2"));
+
+		connection.close();
+
+		StubConnection physical = database.getConnections().get(0);
+		assertEquals(0, dataSource.getConnectionCount("v1"));
+		assertEquals(1, dataSource.getConnectionCount("v2"));
+		assertEquals("\"quantumdb_v2\", " + StubDatabase.DEFAULT_SEARCH_PATH, physical.getSearchPath());
+		assertEquals("QuantumDB driver - v2", physical.getInfo().getProperty(Driver.APPLICATION_NAME));
+	}
+
+	@Test(expected = SQLTimeoutException.class)
+	public void testExhaustedPoolTimesOut() throws SQLException {
+		dataSource.setLoginTimeout(1);
+		dataSource.getConnection();
+		dataSource.getConnection();
+		dataSource.getConnection();
+	}
+
+	@Test
+	public void testReleasedConnectionRejectsCalls() throws SQLException {
+		Connection connection = dataSource.getConnection();
+		connection.close();
+
+		assertTrue(connection.isClosed());
+		assertFalse(connection.isValid(1));
+		try {
+			connection.createStatement();
+			fail("Expected an SQLException");
+		}
+		catch (SQLException e) {
+			assertEquals("This connection has been closed.", e.getMessage());
+		}
+		try {
+			connection.setAutoCommit(false);
+			fail("Expected an SQLException");
+		}
+		catch (SQLException e) {
+			assertEquals("This connection has been closed.", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testReleaseClosesOpenStatements() throws SQLException {
+		Connection connection = dataSource.getConnection();
+		Statement statement = connection.createStatement();
+		PreparedStatement preparedStatement = connection.prepareStatement("SELECT * FROM users;");
+		Statement closedStatement = connection.createStatement();
+		closedStatement.close();
+
+		connection.close();
+
+		assertTrue(statement.isClosed());
+		assertTrue(preparedStatement.isClosed());
+	}
+
+	@Test
+	public void testReleaseRestoresSessionState() throws SQLException {
+		Connection connection = dataSource.getConnection();
+		connection.setAutoCommit(false);
+		connection.setReadOnly(true);
+		connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+		connection.setSchema("other");
+		connection.close();
+
+		StubConnection physical = database.getConnections().get(0);
+		assertTrue(physical.isAutoCommit());
+		assertFalse(physical.isReadOnly());
+		assertEquals(1, physical.getRollbacks());
+		assertTrue(physical.getExecuted().contains("RESET default_transaction_isolation;"));
+		assertEquals("\"quantumdb_v1\", " + StubDatabase.DEFAULT_SEARCH_PATH, physical.getSearchPath());
+	}
+
+	@Test
+	public void testClosingDataSourceClosesIdleConnections() throws SQLException {
+		dataSource.getConnection().close();
+		dataSource.close();
+
+		assertTrue(database.getConnections().get(0).isClosed());
+		assertEquals(0, dataSource.getConnectionCount("v1"));
+	}
+
+}
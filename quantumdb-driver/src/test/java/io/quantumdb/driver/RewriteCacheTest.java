@@ -0,0 +1,133 @@
+package io.quantumdb.driver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.ImmutableMap;
+import io.quantumdb.query.rewriter.PostgresqlQueryRewriter;
+import io.quantumdb.query.rewriter.QueryRewriter;
+import org.junit.Test;
+
+public class RewriteCacheTest {
+
+	private static final long TIMEOUT_MILLIS = 5_000;
+
+	private final String url = "jdbc:postgresql://localhost/" + UUID.randomUUID();
+
+	@Test
+	public void testCacheIsSharedForSameTableMapping() {
+		RewriteCache first = RewriteCache.obtain(url, "v1", ImmutableMap.of("users", "table_1"), 10);
+		RewriteCache second = RewriteCache.obtain(url, "v1", ImmutableMap.of("users", "table_1"), 10);
+
+		assertSame(first, second);
+		assertNotSame(first, RewriteCache.obtain(url, "v2", ImmutableMap.of("users", "table_1"), 10));
+	}
+
+	@Test
+	public void testChangedTableMappingStartsNewGeneration() {
+		RewriteCache first = RewriteCache.obtain(url, "v1", ImmutableMap.of("users", "table_1"), 10);
+		RewriteCache second = RewriteCache.obtain(url, "v1", ImmutableMap.of("users", "table_2"), 10);
+		RewriteCache third = RewriteCache.obtain(url, "v1", ImmutableMap.of("users", "table_2"), 20);
+
+		assertTrue(second.getGeneration() > first.getGeneration());
+		assertTrue(third.getGeneration() > second.getGeneration());
+		assertSame(third, RewriteCache.obtain(url, "v1", ImmutableMap.of("users", "table_2"), 20));
+	}
+
+	@Test
+	public void testRewrittenQueriesAreCached() throws SQLException {
+		AtomicInteger rewrites = new AtomicInteger();
+		QueryRewriter rewriter = new CountingQueryRewriter(rewrites);
+		RewriteCache cache = RewriteCache.obtain(url, "v1", ImmutableMap.of(), 10);
+
+		assertNull(cache.getIfPresent("SELECT 1;"));
+		assertEquals("SELECT 1; -- rewritten", cache.rewrite("SELECT 1;", rewriter));
+		assertEquals("SELECT 1; -- rewritten", cache.rewrite("SELECT 1;", rewriter));
+
+		assertEquals(1, rewrites.get());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getSize());
+	}
+
+	@Test(expected = SQLException.class)
+	public void testFailedRewriteIsNotCached() throws SQLException {
+		RewriteCache cache = RewriteCache.obtain(url, "v1", ImmutableMap.of(), 10);
+		try {
+			cache.rewrite("SELECT 1;", new FailingQueryRewriter());
+		}
+		finally {
+			assertEquals(0, cache.getSize());
+		}
+	}
+
+	@Test
+	public void testTransformerSwitchesCacheWhenMappingIsRefreshed() throws SQLException, InterruptedException {
+		StubDatabase database = new StubDatabase();
+		database.setTableMapping("v1", ImmutableMap.of("users", "table_1"));
+
+		VersionMappings mappings = VersionMappings.obtain(url, "v1", database.connect(new Properties()).getConnection(),
+				() -> database.connect(new Properties()).getConnection(), 1);
+		Transformer transformer = new Transformer(new PostgresqlQueryRewriter(), mappings, url, 10);
+
+		RewriteCache before = transformer.getRewriteCache();
+		assertEquals("SELECT * FROM table_1;", transformer.rewriteQuery("SELECT * FROM users;"));
+
+		database.setTableMapping("v1", ImmutableMap.of("users", "table_2"));
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (transformer.getRewriteCache() == before) {
+			assertTrue("Timed out waiting for refresh", System.currentTimeMillis() < deadline);
+			Thread.sleep(50);
+		}
+
+		assertNotEquals(before.getGeneration(), transformer.getRewriteCache().getGeneration());
+		assertEquals("SELECT * FROM table_2;", transformer.rewriteQuery("SELECT * FROM users;"));
+		transformer.close();
+	}
+
+	private static class CountingQueryRewriter implements QueryRewriter {
+
+		private final AtomicInteger rewrites;
+
+		private CountingQueryRewriter(AtomicInteger rewrites) {
+			this.rewrites = rewrites;
+		}
+
+		@Override
+		public void setTableMapping(Map<String, String> newTableMapping) {
+			// Not used.
+		}
+
+		@Override
+		public String rewrite(String query) {
+			rewrites.incrementAndGet();
+			return query + " -- rewritten";
+		}
+
+	}
+
+	private static class FailingQueryRewriter implements QueryRewriter {
+
+		@Override
+		public void setTableMapping(Map<String, String> newTableMapping) {
+			// Not used.
+		}
+
+		@Override
+		public String rewrite(String query) throws SQLException {
+			throw new SQLException("Could not parse query: " + query);
+		}
+
+	}
+
+}
@@ -0,0 +1,166 @@
+package io.quantumdb.driver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import io.quantumdb.driver.StubDatabase.StubConnection;
+import org.junit.Test;
+
+public class StatementCacheTest {
+
+	private final StubDatabase database = new StubDatabase();
+
+	@Test
+	public void testParkedStatementIsTakenOnce() throws SQLException {
+		StatementCache cache = new StatementCache(2);
+		PreparedStatement statement = prepare("SELECT 1;");
+
+		assertTrue(cache.offer("SELECT 1;", statement));
+		assertSame(statement, cache.take("SELECT 1;"));
+		assertNull(cache.take("SELECT 1;"));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedStatementIsEvicted() throws SQLException {
+		StatementCache cache = new StatementCache(2);
+		PreparedStatement first = prepare("SELECT 1;");
+		PreparedStatement second = prepare("SELECT 2;");
+		PreparedStatement third = prepare("SELECT 3;");
+
+		cache.offer("SELECT 1;", first);
+		cache.offer("SELECT 2;", second);
+		cache.offer("SELECT 3;", third);
+
+		assertTrue(first.isClosed());
+		assertFalse(second.isClosed());
+		assertEquals(2, cache.getSize());
+		assertNull(cache.take("SELECT 1;"));
+	}
+
+	@Test
+	public void testOfferOfDuplicateStatementIsRejected() throws SQLException {
+		StatementCache cache = new StatementCache(2);
+		assertTrue(cache.offer("SELECT 1;", prepare("SELECT 1;")));
+		assertFalse(cache.offer("SELECT 1;", prepare("SELECT 1;")));
+	}
+
+	@Test
+	public void testClearedCacheAcceptsNewStatements() throws SQLException {
+		StatementCache cache = new StatementCache(2);
+		PreparedStatement statement = prepare("SELECT 1;");
+		cache.offer("SELECT 1;", statement);
+
+		cache.clear();
+
+		assertTrue(statement.isClosed());
+		assertEquals(0, cache.getSize());
+		assertTrue(cache.offer("SELECT 2;", prepare("SELECT 2;")));
+	}
+
+	@Test
+	public void testClosedCacheRejectsStatements() throws SQLException {
+		StatementCache cache = new StatementCache(2);
+		PreparedStatement statement = prepare("SELECT 1;");
+		cache.offer("SELECT 1;", statement);
+
+		cache.close();
+
+		assertTrue(statement.isClosed());
+		assertFalse(cache.offer("SELECT 2;", prepare("SELECT 2;")));
+	}
+
+	@Test
+	public void testClosedProxyStatementIsParkedAndReused() throws SQLException {
+		StatementCache cache = new StatementCache(2);
+		StubConnection physical = database.connect(new Properties());
+		ProxyConnection connection = new ProxyConnection(physical.getConnection(),
+				VersionSchemas.createPassThroughTransformer("v1"), cache, null);
+
+		connection.prepareStatement("SELECT * FROM users;").close();
+		connection.prepareStatement("SELECT * FROM users;").close();
+
+		assertEquals(1, physical.getStatements().size());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getSize());
+	}
+
+	@Test
+	public void testModifiedProxyStatementIsNotParked() throws SQLException {
+		StatementCache cache = new StatementCache(2);
+		StubConnection physical = database.connect(new Properties());
+		ProxyConnection connection = new ProxyConnection(physical.getConnection(),
+				VersionSchemas.createPassThroughTransformer("v1"), cache, null);
+
+		PreparedStatement statement = connection.prepareStatement("SELECT * FROM users;");
+		statement.setFetchSize(100);
+		statement.close();
+
+		assertEquals(0, cache.getSize());
+		assertTrue(physical.getStatements().get(0).isClosed());
+	}
+
+	@Test
+	public void testClosedProxyStatementRejectsCalls() throws SQLException {
+		StubConnection physical = database.connect(new Properties());
+		ProxyConnection connection = new ProxyConnection(physical.getConnection(),
+				VersionSchemas.createPassThroughTransformer("v1"), new StatementCache(2), null);
+
+		PreparedStatement statement = connection.prepareStatement("SELECT * FROM users WHERE id = ?;");
+		statement.close();
+
+		try {
+			statement.setLong(1, 1L);
+			fail("Expected an SQLException");
+		}
+		catch (SQLException e) {
+			assertEquals("This statement has been closed.", e.getMessage());
+		}
+		try {
+			statement.getResultSet();
+			fail("Expected an SQLException");
+		}
+		catch (SQLException e) {
+			assertEquals("This statement has been closed.", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testSwitchingVersionClearsStatementCacheInSchemaRoutingMode() throws SQLException {
+		Properties info = new Properties();
+		info.setProperty(StatementCache.STATEMENT_CACHE_SIZE, "10");
+		String url = "jdbc:quantumdb:postgresql://localhost/test?version=v1&routing=schema";
+
+		try (QuantumDataSource dataSource = new QuantumDataSource(url, info, database.asDriver())) {
+			try (Connection connection = dataSource.getConnection()) {
+				connection.prepareStatement("SELECT * FROM users;").close();
+			}
+
+			dataSource.switchVersion("v2");
+			try (Connection connection = dataSource.getConnection()) {
+				connection.prepareStatement("SELECT * FROM users;").close();
+			}
+		}
+
+		// The statement prepared for version "v1" was discarded, rather than reused for version "v2".
+		StubConnection physical = database.getConnections().get(0);
+		assertEquals(2, physical.getPrepared().stream()
+				.filter("SELECT * FROM users;"::equals)
+				.count());
+	}
+
+	private PreparedStatement prepare(String sql) throws SQLException {
+		return database.connect(new Properties()).getConnection().prepareStatement(sql);
+	}
+
+}
@@ -0,0 +1,365 @@
+package io.quantumdb.driver;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A stand-in for a database managed by QuantumDB, which hands out stub connections that keep track of the session
+ * state the driver changes, and that answer the few queries the driver sends on its own: the table mapping lookup of
+ * a version, and reading and setting the search_path. Every other statement is merely recorded.
+ */
+final class StubDatabase {
+
+	static final String DEFAULT_SEARCH_PATH = "\"$user\", public";
+
+	/**
+	 * The session state of a single stub connection.
+	 */
+	static final class StubConnection {
+
+		private final Properties info;
+		private final Connection connection;
+		private final List<String> executed = new CopyOnWriteArrayList<>();
+		private final List<Statement> statements = new CopyOnWriteArrayList<>();
+		private final List<String> prepared = new CopyOnWriteArrayList<>();
+
+		private volatile boolean autoCommit = true;
+		private volatile boolean readOnly;
+		private volatile boolean closed;
+		private volatile int rollbacks;
+		private volatile String searchPath = DEFAULT_SEARCH_PATH;
+
+		private StubConnection(StubDatabase database, Properties info) {
+			this.info = info;
+			this.connection = proxy(Connection.class, (proxy, method, args) -> {
+				switch (method.getName()) {
+					case "createStatement":
+						return register(createStatement(database, null));
+					case "prepareStatement":
+					case "prepareCall":
+						prepared.add((String) args[0]);
+						return register(createStatement(database, (String) args[0]));
+					case "getAutoCommit":
+						return autoCommit;
+					case "setAutoCommit":
+						autoCommit = (boolean) args[0];
+						return null;
+					case "rollback":
+						rollbacks++;
+						return null;
+					case "isReadOnly":
+						return readOnly;
+					case "setReadOnly":
+						readOnly = (boolean) args[0];
+						return null;
+					case "setSchema":
+						searchPath = (String) args[0];
+						return null;
+					case "setClientInfo":
+						if (args.length == 2) {
+							this.info.setProperty((String) args[0], (String) args[1]);
+						}
+						return null;
+					case "getClientInfo":
+						return args != null && args.length == 1 ? this.info.getProperty((String) args[0]) : null;
+					case "close":
+						closed = true;
+						return null;
+					case "isClosed":
+						return closed;
+					case "isValid":
+						return !closed;
+					default:
+						return defaultValue(method.getReturnType());
+				}
+			});
+		}
+
+		Connection getConnection() {
+			return connection;
+		}
+
+		Properties getInfo() {
+			return info;
+		}
+
+		List<String> getExecuted() {
+			return executed;
+		}
+
+		List<Statement> getStatements() {
+			return statements;
+		}
+
+		/**
+		 * @return The SQL of all statements which were prepared through this connection, in order.
+		 */
+		List<String> getPrepared() {
+			return prepared;
+		}
+
+		boolean isAutoCommit() {
+			return autoCommit;
+		}
+
+		boolean isReadOnly() {
+			return readOnly;
+		}
+
+		boolean isClosed() {
+			return closed;
+		}
+
+		int getRollbacks() {
+			return rollbacks;
+		}
+
+		String getSearchPath() {
+			return searchPath;
+		}
+
+		private Statement register(Statement statement) {
+			statements.add(statement);
+			return statement;
+		}
+
+		private PreparedStatement createStatement(StubDatabase database, String sql) {
+			Map<Integer, Object> parameters = new ConcurrentHashMap<>();
+			List<String> batch = new ArrayList<>();
+			boolean[] closed = new boolean[1];
+
+			return proxy(PreparedStatement.class, (proxy, method, args) -> {
+				switch (method.getName()) {
+					case "setString":
+					case "setObject":
+					case "setInt":
+					case "setLong":
+						parameters.put((Integer) args[0], args[1]);
+						return null;
+					case "clearParameters":
+						parameters.clear();
+						return null;
+					case "execute":
+					case "executeUpdate":
+					case "executeQuery":
+						if (closed[0]) {
+							throw new SQLException("Statement has been closed.");
+						}
+						String query = args != null && args.length > 0 ? (String) args[0] : sql;
+						executed.add(query);
+						ResultSet resultSet = execute(database, query, parameters);
+						if (method.getName().equals("executeQuery")) {
+							return resultSet;
+						}
+						return method.getReturnType() == int.class ? 0 : resultSet != null;
+					case "addBatch":
+						batch.add(args != null ? (String) args[0] : sql);
+						return null;
+					case "clearBatch":
+						batch.clear();
+						return null;
+					case "executeBatch":
+						return executeBatch(database, batch);
+					case "close":
+						closed[0] = true;
+						return null;
+					case "isClosed":
+						return closed[0];
+					default:
+						return defaultValue(method.getReturnType());
+				}
+			});
+		}
+
+		/**
+		 * Executes the batch, which (when the database is failing) fails after executing its first statement.
+		 */
+		private int[] executeBatch(StubDatabase database, List<String> batch) throws SQLException {
+			try {
+				if (database.failing) {
+					executed.add(batch.get(0));
+					throw new BatchUpdateException("The database is unavailable.", new int[] { 1 });
+				}
+				executed.addAll(batch);
+				int[] updateCounts = new int[batch.size()];
+				Arrays.fill(updateCounts, 1);
+				return updateCounts;
+			}
+			finally {
+				batch.clear();
+			}
+		}
+
+		private ResultSet execute(StubDatabase database, String query, Map<Integer, Object> parameters)
+				throws SQLException {
+
+			if (database.failing) {
+				throw new SQLException("The database is unavailable.");
+			}
+			if (query.startsWith("SHOW search_path")) {
+				return createResultSet(Collections.singletonList(Collections.singletonMap("search_path", searchPath)));
+			}
+			if (query.startsWith("SELECT set_config('search_path'")) {
+				searchPath = (String) parameters.get(1);
+				return null;
+			}
+			if (query.contains("RESET search_path")) {
+				searchPath = DEFAULT_SEARCH_PATH;
+			}
+			if (query.contains("FROM quantumdb.ref_versions")) {
+				database.mappingQueries++;
+				Map<String, String> tableMapping = database.tableMappings.getOrDefault(parameters.get(1),
+						Collections.emptyMap());
+
+				List<Map<String, String>> rows = new ArrayList<>();
+				tableMapping.forEach((tableName, refId) -> {
+					Map<String, String> row = new ConcurrentHashMap<>();
+					row.put("table_name", tableName);
+					row.put("ref_id", refId);
+					rows.add(row);
+				});
+				return createResultSet(rows);
+			}
+			return null;
+		}
+
+	}
+
+	private final List<StubConnection> connections = new CopyOnWriteArrayList<>();
+	private final Map<String, Map<String, String>> tableMappings = new ConcurrentHashMap<>();
+	private volatile boolean failing;
+	private volatile int mappingQueries;
+
+	/**
+	 * Sets the table mapping (table name to refId) which is returned for the specified version.
+	 */
+	void setTableMapping(String version, Map<String, String> tableMapping) {
+		tableMappings.put(version, tableMapping);
+	}
+
+	/**
+	 * Makes every query fail, as if the database became unavailable.
+	 */
+	void setFailing(boolean failing) {
+		this.failing = failing;
+	}
+
+	int getMappingQueries() {
+		return mappingQueries;
+	}
+
+	List<StubConnection> getConnections() {
+		return connections;
+	}
+
+	StubConnection connect(Properties info) {
+		Properties copy = new Properties();
+		copy.putAll(info);
+		StubConnection connection = new StubConnection(this, copy);
+		connections.add(connection);
+		return connection;
+	}
+
+	/**
+	 * @return A JDBC Driver which connects to this stub database, regardless of the URL.
+	 */
+	java.sql.Driver asDriver() {
+		return proxy(java.sql.Driver.class, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "connect":
+					return connect((Properties) args[1]).getConnection();
+				case "acceptsURL":
+					return true;
+				default:
+					return defaultValue(method.getReturnType());
+			}
+		});
+	}
+
+	/**
+	 * Creates a forward-only result set over the given rows. Columns are numbered in the iteration order of the
+	 * first row, so rows should be created with a predictable order (for instance using an ImmutableMap).
+	 */
+	static ResultSet createResultSet(List<Map<String, String>> rows) {
+		Iterator<Map<String, String>> iterator = rows.iterator();
+		List<String> columns = rows.isEmpty() ? Collections.emptyList() : new ArrayList<>(rows.get(0).keySet());
+		Object[] current = new Object[1];
+
+		return proxy(ResultSet.class, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "next":
+					current[0] = iterator.hasNext() ? iterator.next() : null;
+					return current[0] != null;
+				case "findColumn":
+					int index = columns.indexOf(args[0]);
+					if (index < 0) {
+						throw new SQLException("Unknown column: " + args[0]);
+					}
+					return index + 1;
+				case "getString":
+				case "getNString":
+					@SuppressWarnings("unchecked")
+					Map<String, String> row = (Map<String, String>) current[0];
+					if (args[0] instanceof Integer) {
+						return row.get(columns.get((Integer) args[0] - 1));
+					}
+					return row.get(args[0]);
+				default:
+					return defaultValue(method.getReturnType());
+			}
+		});
+	}
+
+	private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+		InvocationHandler identity = (proxy, method, args) -> {
+			if (method.getDeclaringClass() == Object.class) {
+				switch (method.getName()) {
+					case "equals":
+						return proxy == args[0];
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					default:
+						return type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+				}
+			}
+			return handler.invoke(proxy, method, args);
+		};
+		return type.cast(Proxy.newProxyInstance(StubDatabase.class.getClassLoader(), new Class<?>[] { type },
+				identity));
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		if (type == boolean.class) {
+			return false;
+		}
+		else if (type == int.class) {
+			return 0;
+		}
+		else if (type == long.class) {
+			return 0L;
+		}
+		else if (type == int[].class) {
+			return new int[0];
+		}
+		else if (type.isPrimitive() && type != void.class) {
+			throw new UnsupportedOperationException("No default value for: " + type);
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,154 @@
+package io.quantumdb.driver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import com.google.common.collect.ImmutableMap;
+import io.quantumdb.query.rewriter.PostgresqlQueryRewriter;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VersionMappingsTest {
+
+	private static final long TIMEOUT_MILLIS = 5_000;
+
+	private StubDatabase database;
+	private Connection connection;
+	private String url;
+
+	@Before
+	public void setUp() {
+		database = new StubDatabase();
+		database.setTableMapping("v1", ImmutableMap.of("users", "table_1"));
+		connection = database.connect(new Properties()).getConnection();
+
+		// The mappings are shared per URL, so every test uses a database of its own.
+		url = "jdbc:postgresql://localhost/" + UUID.randomUUID();
+	}
+
+	@Test
+	public void testMappingIsSharedBetweenUsers() throws SQLException {
+		VersionMappings first = VersionMappings.obtain(url, "v1", connection, null, 0);
+		VersionMappings second = VersionMappings.obtain(url, "v1", connection, null, 0);
+
+		assertSame(first, second);
+		assertEquals(1, database.getMappingQueries());
+		assertEquals(ImmutableMap.of("users", "table_1"), first.getSnapshot().getTableMapping());
+		assertEquals(ImmutableMap.of("table_1", "users"), first.getSnapshot().getTableNames());
+	}
+
+	@Test
+	public void testMappingIsLoadedAnewOnceAllUsersReleasedIt() throws SQLException {
+		VersionMappings first = VersionMappings.obtain(url, "v1", connection, null, 0);
+		VersionMappings second = VersionMappings.obtain(url, "v1", connection, null, 0);
+		first.release();
+
+		assertSame(second, VersionMappings.obtain(url, "v1", connection, null, 0));
+		second.release();
+		second.release();
+
+		VersionMappings third = VersionMappings.obtain(url, "v1", connection, null, 0);
+		assertNotSame(first, third);
+		assertEquals(2, database.getMappingQueries());
+	}
+
+	@Test
+	public void testRefreshPicksUpChangedMapping() throws SQLException, InterruptedException {
+		VersionMappings mappings = VersionMappings.obtain(url, "v1", connection,
+				() -> database.connect(new Properties()).getConnection(), 1);
+		long generation = mappings.getSnapshot().getGeneration();
+
+		database.setTableMapping("v1", ImmutableMap.of("users", "table_2"));
+		awaitTrue(() -> mappings.getSnapshot().getGeneration() != generation);
+
+		assertEquals(ImmutableMap.of("users", "table_2"), mappings.getSnapshot().getTableMapping());
+		mappings.release();
+	}
+
+	@Test
+	public void testRefreshReusesItsConnection() throws SQLException, InterruptedException {
+		VersionMappings mappings = VersionMappings.obtain(url, "v1", connection,
+				() -> database.connect(new Properties()).getConnection(), 1);
+
+		int queries = database.getMappingQueries();
+		awaitTrue(() -> database.getMappingQueries() >= queries + 2);
+		assertEquals(2, database.getConnections().size());
+
+		mappings.release();
+		awaitTrue(() -> database.getConnections().get(1).isClosed());
+	}
+
+	@Test
+	public void testFailedRefreshKeepsMapping() throws SQLException, InterruptedException {
+		VersionMappings mappings = VersionMappings.obtain(url, "v1", connection,
+				() -> database.connect(new Properties()).getConnection(), 1);
+		VersionMappings.Snapshot snapshot = mappings.getSnapshot();
+
+		database.setFailing(true);
+		int connections = database.getConnections().size();
+		awaitTrue(() -> database.getConnections().size() > connections);
+
+		assertSame(snapshot, mappings.getSnapshot());
+		mappings.release();
+	}
+
+	@Test
+	public void testReleasedMappingIsNoLongerRefreshed() throws SQLException, InterruptedException {
+		VersionMappings mappings = VersionMappings.obtain(url, "v1", connection,
+				() -> database.connect(new Properties()).getConnection(), 1);
+		mappings.release();
+
+		int queries = database.getMappingQueries();
+		Thread.sleep(1_500);
+
+		assertEquals(queries, database.getMappingQueries());
+	}
+
+	@Test
+	public void testTransformerReleasesMappingOnce() throws SQLException {
+		VersionMappings first = VersionMappings.obtain(url, "v1", connection, null, 0);
+		VersionMappings.obtain(url, "v1", connection, null, 0);
+
+		Transformer transformer = new Transformer(new PostgresqlQueryRewriter(), first, url, 0);
+		transformer.close();
+		transformer.close();
+
+		assertSame(first, VersionMappings.obtain(url, "v1", connection, null, 0));
+	}
+
+	@Test
+	public void testRefresherDoesNotReportVersionAsApplicationName() throws SQLException, InterruptedException {
+		Properties info = new Properties();
+		info.setProperty(Driver.VERSION_REFRESH_INTERVAL, "1");
+		String dataSourceUrl = "jdbc:quantumdb:" + url.substring("jdbc:".length()) + "?version=v1";
+
+		try (QuantumDataSource dataSource = new QuantumDataSource(dataSourceUrl, info, database.asDriver())) {
+			dataSource.getConnection().close();
+
+			// The first stub connection is the one of the test, the second is the pooled connection.
+			awaitTrue(() -> database.getConnections().size() > 2);
+		}
+
+		assertEquals("QuantumDB driver - v1",
+				database.getConnections().get(1).getInfo().getProperty(Driver.APPLICATION_NAME));
+		assertEquals(Driver.REFRESHER_APPLICATION_NAME,
+				database.getConnections().get(2).getInfo().getProperty(Driver.APPLICATION_NAME));
+	}
+
+	private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (!condition.getAsBoolean()) {
+			assertTrue("Timed out waiting for condition", System.currentTimeMillis() < deadline);
+			Thread.sleep(50);
+		}
+	}
+
+}
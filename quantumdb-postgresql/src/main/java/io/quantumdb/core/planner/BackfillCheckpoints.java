@@ -0,0 +1,429 @@
+package io.quantumdb.core.planner;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.quantumdb.core.backends.Config;
+import io.quantumdb.core.schema.definitions.Catalog;
+import io.quantumdb.core.schema.definitions.Column;
+import io.quantumdb.core.schema.definitions.ColumnType.Type;
+import io.quantumdb.core.schema.definitions.ForeignKey;
+import io.quantumdb.core.schema.definitions.Identity;
+import io.quantumdb.core.schema.definitions.Index;
+import io.quantumdb.core.schema.definitions.Table;
+import io.quantumdb.core.utils.QueryBuilder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stores the progress of a fork, so that an interrupted fork can be resumed from where it left off. This consists of
+ * the progress of copying records into ghost tables ("quantumdb.backfill_checkpoints"), the identities of the NULL
+ * records inserted into ghost tables ("quantumdb.null_records"), and the indexes and foreign keys which still have
+ * to be created on the ghost tables ("quantumdb.pending_indexes" and "quantumdb.pending_foreign_keys").
+ */
+@Slf4j
+class BackfillCheckpoints {
+
+	/**
+	 * The progress of copying a (range of the) source table into a target table. The rangeIndex is 0 when the
+	 * table is copied serially, in which case both bounds are null.
+	 */
+	@Getter
+	@RequiredArgsConstructor
+	static class Checkpoint {
+		private final Table source;
+		private final Table target;
+		private final String columns;
+		private final int rangeIndex;
+		private final Object lowerBound;
+		private final Object upperBound;
+		private final Map<String, Object> highestId;
+
+		@Setter
+		private Map<String, Object> lastProcessedId;
+
+		@Setter
+		private boolean completed;
+
+		boolean isRanged() {
+			return lowerBound != null;
+		}
+	}
+
+	/**
+	 * A foreign key which is to be added to a ghost table once it has been populated.
+	 */
+	@Getter
+	@RequiredArgsConstructor
+	static class PendingForeignKey {
+		private final String refId;
+		private final String foreignKeyName;
+		private final String statement;
+	}
+
+	private final Config config;
+
+	/**
+	 * Whether the database supports INSERT ... ON CONFLICT statements (PostgreSQL 9.5 and up).
+	 */
+	@Setter
+	private boolean upsertsSupported;
+
+	BackfillCheckpoints(Config config) {
+		this.config = config;
+	}
+
+	List<Checkpoint> load(Connection connection, Table source, Table target, String columns) throws SQLException {
+		String query = "SELECT * FROM quantumdb.backfill_checkpoints "
+				+ "WHERE source_ref_id = ? AND target_ref_id = ? AND columns = ? ORDER BY range_index ASC;";
+
+		Type rangeType = source.getPrimaryKeyColumns().get(0).getType().getType();
+
+		List<Checkpoint> checkpoints = Lists.newArrayList();
+		try (PreparedStatement statement = connection.prepareStatement(query)) {
+			statement.setString(1, source.getName());
+			statement.setString(2, target.getName());
+			statement.setString(3, columns);
+
+			ResultSet resultSet = statement.executeQuery();
+			while (resultSet.next()) {
+				Checkpoint checkpoint = new Checkpoint(source, target, columns, resultSet.getInt("range_index"),
+						parseValue(rangeType, resultSet.getString("lower_bound")),
+						parseValue(rangeType, resultSet.getString("upper_bound")),
+						parseIdentity(source, resultSet.getString("highest_id")));
+
+				String lastProcessedId = resultSet.getString("last_processed_id");
+				if (lastProcessedId != null) {
+					checkpoint.setLastProcessedId(parseIdentity(source, lastProcessedId));
+				}
+				checkpoint.setCompleted(resultSet.getBoolean("completed"));
+				checkpoints.add(checkpoint);
+			}
+		}
+		return checkpoints;
+	}
+
+	void save(Connection connection, Checkpoint checkpoint) throws SQLException {
+		if (config.isDryRun()) {
+			return;
+		}
+
+		if (!upsertsSupported && update(connection, checkpoint)) {
+			return;
+		}
+
+		String query = "INSERT INTO quantumdb.backfill_checkpoints (source_ref_id, target_ref_id, columns, "
+				+ "range_index, lower_bound, upper_bound, highest_id, last_processed_id, completed, updated) "
+				+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, NOW())";
+
+		if (upsertsSupported) {
+			query += " ON CONFLICT (source_ref_id, target_ref_id, columns, range_index) DO UPDATE "
+					+ "SET last_processed_id = EXCLUDED.last_processed_id, completed = EXCLUDED.completed, updated = NOW()";
+		}
+
+		Table source = checkpoint.getSource();
+		try (PreparedStatement statement = connection.prepareStatement(query + ";")) {
+			statement.setString(1, source.getName());
+			statement.setString(2, checkpoint.getTarget().getName());
+			statement.setString(3, checkpoint.getColumns());
+			statement.setInt(4, checkpoint.getRangeIndex());
+			statement.setString(5, formatValue(checkpoint.getLowerBound()));
+			statement.setString(6, formatValue(checkpoint.getUpperBound()));
+			statement.setString(7, formatIdentity(source, checkpoint.getHighestId()));
+			statement.setString(8, formatIdentity(source, checkpoint.getLastProcessedId()));
+			statement.setBoolean(9, checkpoint.isCompleted());
+			statement.executeUpdate();
+		}
+	}
+
+	/**
+	 * @return True if the checkpoint was already stored, and has been updated.
+	 */
+	private boolean update(Connection connection, Checkpoint checkpoint) throws SQLException {
+		String query = "UPDATE quantumdb.backfill_checkpoints SET last_processed_id = ?, completed = ?, updated = NOW() "
+				+ "WHERE source_ref_id = ? AND target_ref_id = ? AND columns = ? AND range_index = ?;";
+
+		try (PreparedStatement statement = connection.prepareStatement(query)) {
+			statement.setString(1, formatIdentity(checkpoint.getSource(), checkpoint.getLastProcessedId()));
+			statement.setBoolean(2, checkpoint.isCompleted());
+			statement.setString(3, checkpoint.getSource().getName());
+			statement.setString(4, checkpoint.getTarget().getName());
+			statement.setString(5, checkpoint.getColumns());
+			statement.setInt(6, checkpoint.getRangeIndex());
+			return statement.executeUpdate() > 0;
+		}
+	}
+
+	void clear(Connection connection, Collection<String> targetRefIds) throws SQLException {
+		if (config.isDryRun() || targetRefIds.isEmpty()) {
+			return;
+		}
+
+		List<String> queries = Lists.newArrayList(
+				"DELETE FROM quantumdb.backfill_checkpoints WHERE target_ref_id = ?;",
+				"DELETE FROM quantumdb.pending_indexes WHERE ref_id = ?;",
+				"DELETE FROM quantumdb.pending_foreign_keys WHERE ref_id = ?;");
+
+		for (String query : queries) {
+			try (PreparedStatement statement = connection.prepareStatement(query)) {
+				for (String targetRefId : targetRefIds) {
+					statement.setString(1, targetRefId);
+					statement.executeUpdate();
+				}
+			}
+		}
+		log.debug("Cleared checkpoints of tables: {}", targetRefIds);
+	}
+
+	void savePendingIndexes(Connection connection, Collection<Table> tables) throws SQLException {
+		if (config.isDryRun()) {
+			return;
+		}
+
+		TableCreator creator = new TableCreator(config);
+		String query = "INSERT INTO quantumdb.pending_indexes (ref_id, index_name, statement) VALUES (?, ?, ?);";
+		try (PreparedStatement statement = connection.prepareStatement(query)) {
+			for (Table table : tables) {
+				for (Index index : table.getIndexes()) {
+					statement.setString(1, table.getName());
+					statement.setString(2, index.getIndexName());
+					statement.setString(3, creator.createIndexStatement(index));
+					statement.executeUpdate();
+				}
+			}
+		}
+	}
+
+	ListMultimap<String, String> loadPendingIndexes(Connection connection, Collection<Table> tables)
+			throws SQLException {
+
+		ListMultimap<String, String> statements = LinkedListMultimap.create();
+		// Indexes which were already built before the fork was interrupted are left out.
+		String query = new QueryBuilder()
+				.append("SELECT p.statement FROM quantumdb.pending_indexes p")
+				.append("WHERE p.ref_id = ? AND NOT EXISTS (")
+				.append("  SELECT 1 FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid")
+				.append("  WHERE i.indrelid = ?::regclass AND c.relname = p.index_name")
+				.append(") ORDER BY p.index_name ASC;")
+				.toString();
+
+		try (PreparedStatement statement = connection.prepareStatement(query)) {
+			for (Table table : tables) {
+				statement.setString(1, table.getName());
+				statement.setString(2, QueryUtils.quoted(table.getName()));
+				ResultSet resultSet = statement.executeQuery();
+				while (resultSet.next()) {
+					statements.put(table.getName(), resultSet.getString("statement"));
+				}
+			}
+		}
+		return statements;
+	}
+
+	void savePendingForeignKeys(Connection connection, Collection<Table> tables) throws SQLException {
+		if (config.isDryRun()) {
+			return;
+		}
+
+		TableCreator creator = new TableCreator(config);
+		String query = "INSERT INTO quantumdb.pending_foreign_keys (ref_id, foreign_key_name, statement) VALUES (?, ?, ?);";
+		try (PreparedStatement statement = connection.prepareStatement(query)) {
+			for (Table table : tables) {
+				for (ForeignKey foreignKey : table.getForeignKeys()) {
+					if (TableCreator.isDeferrable(foreignKey)) {
+						statement.setString(1, table.getName());
+						statement.setString(2, foreignKey.getForeignKeyName());
+						statement.setString(3, creator.createForeignKeyStatement(foreignKey, true));
+						statement.executeUpdate();
+					}
+				}
+			}
+		}
+	}
+
+	List<PendingForeignKey> loadPendingForeignKeys(Connection connection, Collection<Table> tables) throws SQLException {
+		List<PendingForeignKey> foreignKeys = Lists.newArrayList();
+		String query = "SELECT * FROM quantumdb.pending_foreign_keys WHERE ref_id = ? ORDER BY foreign_key_name ASC;";
+		try (PreparedStatement statement = connection.prepareStatement(query)) {
+			for (Table table : tables) {
+				statement.setString(1, table.getName());
+				ResultSet resultSet = statement.executeQuery();
+				while (resultSet.next()) {
+					foreignKeys.add(new PendingForeignKey(resultSet.getString("ref_id"),
+							resultSet.getString("foreign_key_name"), resultSet.getString("statement")));
+				}
+			}
+		}
+		return foreignKeys;
+	}
+
+	Map<Table, Identity> loadNullRecords(Connection connection, Catalog catalog) throws SQLException {
+		Map<Table, Identity> identities = Maps.newHashMap();
+		try (PreparedStatement statement = connection.prepareStatement("SELECT * FROM quantumdb.null_records;")) {
+			ResultSet resultSet = statement.executeQuery();
+			while (resultSet.next()) {
+				String refId = resultSet.getString("ref_id");
+				if (!catalog.containsTable(refId)) {
+					continue;
+				}
+
+				Table table = catalog.getTable(refId);
+				Identity identity = new Identity();
+				parseIdentity(table, resultSet.getString("identity")).forEach(identity::add);
+				identities.put(table, identity);
+			}
+		}
+		return identities;
+	}
+
+	void saveNullRecord(Connection connection, Table table, Identity identity) throws SQLException {
+		if (config.isDryRun()) {
+			return;
+		}
+
+		Map<String, Object> values = Maps.newHashMap();
+		identity.values().forEach(entry -> values.put(entry.getKey(), entry.getValue()));
+
+		String query = "INSERT INTO quantumdb.null_records (ref_id, identity) VALUES (?, ?);";
+		try (PreparedStatement statement = connection.prepareStatement(query)) {
+			statement.setString(1, table.getName());
+			statement.setString(2, formatIdentity(table, values));
+			statement.executeUpdate();
+		}
+	}
+
+	void deleteNullRecord(Connection connection, Table table) throws SQLException {
+		if (config.isDryRun()) {
+			return;
+		}
+
+		try (PreparedStatement statement = connection.prepareStatement("DELETE FROM quantumdb.null_records WHERE ref_id = ?;")) {
+			statement.setString(1, table.getName());
+			statement.executeUpdate();
+		}
+	}
+
+	/**
+	 * Formats the specified primary key values in the same record notation which the migrator functions return,
+	 * for example: ("12","abc").
+	 */
+	static String formatIdentity(Table table, Map<String, Object> identity) {
+		if (identity == null || identity.isEmpty()) {
+			return null;
+		}
+
+		return table.getPrimaryKeyColumns().stream()
+				.map(column -> "\"" + formatValue(identity.get(column.getName())) + "\"")
+				.collect(Collectors.joining(",", "(", ")"));
+	}
+
+	/**
+	 * Parses primary key values in record notation, as returned by the migrator functions, for example: (12,abc).
+	 * Returns an empty Map if the record cannot be mapped onto the primary key of the specified table.
+	 */
+	static Map<String, Object> parseIdentity(Table table, String record) {
+		Map<String, Object> identity = Maps.newHashMap();
+		if (record == null) {
+			return identity;
+		}
+
+		String result = record.substring(1, record.length() - 1);
+
+		List<String> parts = Lists.newArrayList();
+		StringBuilder currentPart = new StringBuilder();
+
+		boolean quoted = false;
+		char prev = ' ';
+		for (int i = 0; i < result.length(); i++) {
+			char c = result.charAt(i);
+			if (c == ',' && !quoted) {
+				parts.add(currentPart.toString());
+				currentPart = new StringBuilder();
+			}
+			else if (c == '"' && prev != '\\') {
+				quoted = !quoted;
+			}
+			else {
+				currentPart.append(c);
+			}
+			prev = c;
+		}
+
+		if (currentPart.length() > 0) {
+			parts.add(currentPart.toString());
+		}
+
+		List<Column> primaryKeyColumns = table.getPrimaryKeyColumns();
+		if (parts.size() != primaryKeyColumns.size()) {
+			return identity;
+		}
+
+		for (int i = 0; i < primaryKeyColumns.size(); i++) {
+			Column column = primaryKeyColumns.get(i);
+			String columnName = column.getName();
+			Object value = parseValue(column.getType().getType(), parts.get(i));
+			identity.put(columnName, value);
+		}
+		return identity;
+	}
+
+	static Object parseValue(Type type, String value) {
+		if (Strings.isNullOrEmpty(value)) {
+			return null;
+		}
+
+		switch (type) {
+			case SMALLINT:
+				return Short.parseShort(value);
+			case INTEGER:
+				return Integer.parseInt(value);
+			case BIGINT:
+				return Long.parseLong(value);
+			case FLOAT:
+				return Float.parseFloat(value);
+			case DOUBLE:
+				return Double.parseDouble(value);
+			case NUMERIC:
+				return new BigDecimal(value);
+			case BOOLEAN:
+				return Boolean.parseBoolean(value);
+			case TEXT:
+			case CHAR:
+			case VARCHAR:
+			case OID:
+				return value;
+			case DATE:
+				return Date.valueOf(value);
+			case TIMESTAMP:
+				return Timestamp.valueOf(value);
+			case UUID:
+			default:
+				return UUID.fromString(value);
+		}
+	}
+
+	private static String formatValue(Object value) {
+		if (value == null) {
+			return null;
+		}
+		return value.toString();
+	}
+
+}
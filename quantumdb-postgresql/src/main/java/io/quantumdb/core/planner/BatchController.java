@@ -0,0 +1,136 @@
+package io.quantumdb.core.planner;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import io.quantumdb.core.backends.Config;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Determines the size of each batch, and the time to wait between batches, while copying records into a ghost
+ * table. The batch size is scaled towards a configured duration per batch, while the controller backs off (smaller
+ * batches, longer pauses) whenever the database reports replication lag, lock waits, or a number of active queries
+ * which exceed the configured thresholds.
+ */
+@Slf4j
+class BatchController {
+
+	static final long INITIAL_BATCH_SIZE = 2_000;
+	static final long MIN_BATCH_SIZE = 100;
+	static final long MAX_BATCH_SIZE = 100_000;
+
+	static final long MIN_WAIT_TIME = 50;
+	static final long MAX_WAIT_TIME = 10_000;
+
+	private static final long PROBE_INTERVAL = 1_000;
+
+	private final Config config;
+
+	private long batchSize;
+	private long waitTime;
+	private long lastProbe;
+	private boolean overloaded;
+	private boolean replicationLagSupported;
+	private boolean lockWaitsSupported;
+
+	BatchController(Config config) {
+		this.config = config;
+		this.batchSize = INITIAL_BATCH_SIZE;
+		this.waitTime = MIN_WAIT_TIME;
+		this.replicationLagSupported = true;
+		this.lockWaitsSupported = true;
+	}
+
+	long getBatchSize() {
+		return batchSize;
+	}
+
+	long getWaitTime() {
+		return waitTime;
+	}
+
+	void onBatchCompleted(Connection connection, long duration) throws SQLException {
+		long now = System.currentTimeMillis();
+		if (now - lastProbe >= PROBE_INTERVAL) {
+			overloaded = isOverloaded(connection);
+			lastProbe = now;
+		}
+		adjust(duration, overloaded);
+	}
+
+	void adjust(long duration, boolean overloaded) {
+		if (overloaded) {
+			batchSize = Math.max(MIN_BATCH_SIZE, batchSize / 2);
+			waitTime = Math.min(MAX_WAIT_TIME, waitTime * 2);
+			return;
+		}
+
+		waitTime = Math.max(MIN_WAIT_TIME, waitTime / 2);
+
+		// Scale towards the target duration, but never more than a factor 2 per batch to dampen noisy measurements.
+		double ratio = (double) config.getBackfillTargetBatchTime() / Math.max(1, duration);
+		ratio = Math.max(0.5, Math.min(2.0, ratio));
+		batchSize = Math.max(MIN_BATCH_SIZE, Math.min(MAX_BATCH_SIZE, (long) (batchSize * ratio)));
+	}
+
+	private boolean isOverloaded(Connection connection) throws SQLException {
+		if (replicationLagSupported) {
+			try {
+				long lag = queryLong(connection, "SELECT COALESCE(MAX(EXTRACT(EPOCH FROM replay_lag) * 1000), 0) "
+						+ "FROM pg_stat_replication;");
+
+				if (lag > config.getBackfillMaxReplicationLag()) {
+					log.info("Replication lag of {} ms exceeds threshold -> backing off...", lag);
+					return true;
+				}
+			}
+			catch (SQLException e) {
+				log.warn("Could not determine replication lag, no longer taking it into account: {}", e.getMessage());
+				replicationLagSupported = false;
+			}
+		}
+
+		// The wait_event_type column was only introduced in PostgreSQL 9.6.
+		if (lockWaitsSupported) {
+			try {
+				long lockWaits = queryLong(connection, "SELECT COUNT(*) FROM pg_stat_activity "
+						+ "WHERE datname = current_database() AND wait_event_type = 'Lock';");
+
+				if (lockWaits > config.getBackfillMaxLockWaits()) {
+					log.info("{} queries are waiting for locks -> backing off...", lockWaits);
+					return true;
+				}
+			}
+			catch (SQLException e) {
+				log.warn("Could not determine lock waits, no longer taking them into account: {}", e.getMessage());
+				lockWaitsSupported = false;
+			}
+		}
+
+		int maxActiveQueries = config.getBackfillMaxActiveQueries();
+		if (maxActiveQueries > 0) {
+			long activeQueries = queryLong(connection, "SELECT COUNT(*) FROM pg_stat_activity "
+					+ "WHERE datname = current_database() AND state = 'active' AND pid <> pg_backend_pid();");
+
+			if (activeQueries > maxActiveQueries) {
+				log.info("{} queries are active -> backing off...", activeQueries);
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private long queryLong(Connection connection, String query) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			ResultSet resultSet = statement.executeQuery(query);
+			if (resultSet.next()) {
+				return resultSet.getLong(1);
+			}
+			return 0;
+		}
+	}
+
+}
@@ -1,6 +1,5 @@
 package io.quantumdb.core.planner;
 
-import static io.quantumdb.core.planner.QueryUtils.quoted;
 import static io.quantumdb.core.schema.definitions.ForeignKey.Action.CASCADE;
 import static io.quantumdb.core.schema.definitions.ForeignKey.Action.NO_ACTION;
 import static io.quantumdb.core.schema.definitions.ForeignKey.Action.RESTRICT;
@@ -11,7 +10,6 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -33,150 +31,256 @@ import io.quantumdb.core.schema.definitions.Sequence;
 import io.quantumdb.core.schema.definitions.Table;
 import io.quantumdb.core.utils.QueryBuilder;
 import lombok.AccessLevel;
+import lombok.Data;
 import lombok.NoArgsConstructor;
 
+/**
+ * Loads the Catalog of the "public" schema. All tables, columns, primary keys, indexes and foreign keys are fetched
+ * with a fixed number of set-based queries on pg_catalog, rather than with several queries per table, so loading a
+ * schema with thousands of tables takes a handful of round trips. The fetched rows are collected in a Snapshot, from
+ * which the Catalog is then assembled in memory, so that a Snapshot can also be cached (see CatalogSnapshots).
+ */
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 class CatalogLoader {
 
 	private static final Pattern SEQUENCE_EXPRESSION = Pattern.compile("nextval\\(\\'\"?(\\w+_id_seq)\"?\\'::regclass\\)", Pattern.CASE_INSENSITIVE);
 
+	private static final String SCHEMA = "public";
+
+	/**
+	 * The rows describing the tables of the schema, as fetched from pg_catalog.
+	 */
+	@Data
+	static class Snapshot {
+		static final int FORMAT = 1;
+
+		private final int format;
+		private final List<String> tables;
+		private final List<ColumnRow> columns;
+		private final List<PrimaryKeyRow> primaryKeys;
+		private final List<String> indexDefinitions;
+		private final List<ForeignKeyRow> foreignKeys;
+	}
+
+	@Data
+	static class ColumnRow {
+		private final String tableName;
+		private final String columnName;
+		private final String columnDefault;
+		private final String dataType;
+		private final boolean nullable;
+		private final Integer characterMaximumLength;
+		private final Integer numericPrecision;
+		private final Integer numericScale;
+		private final Integer datetimePrecision;
+	}
+
+	@Data
+	static class PrimaryKeyRow {
+		private final String tableName;
+		private final String columnName;
+	}
+
+	@Data
+	static class ForeignKeyRow {
+		private final String tableName;
+		private final String constraintName;
+		private final String referencingColumn;
+		private final String referredTable;
+		private final String referredColumn;
+		private final String onUpdate;
+		private final String onDelete;
+	}
+
 	static Catalog load(Connection connection, String catalogName) throws SQLException {
-		Catalog catalog = new Catalog(catalogName);
-		loadTables(connection, catalog);
-		return catalog;
+		return assemble(catalogName, fetch(connection));
 	}
 
-	private static void loadTables(Connection connection, Catalog catalog) throws SQLException {
-		String query = new QueryBuilder()
-				.append("SELECT DISTINCT(table_name) AS table_name ")
-				.append("FROM information_schema.tables ")
-				.append("WHERE table_schema = ? AND table_type != 'VIEW'")
-				.append("ORDER BY table_name ASC")
-				.toString();
+	static Snapshot fetch(Connection connection) throws SQLException {
+		return new Snapshot(Snapshot.FORMAT, fetchTables(connection), fetchColumns(connection),
+				fetchPrimaryKeys(connection), fetchIndexDefinitions(connection), fetchForeignKeys(connection));
+	}
 
-		Set<String> tableNames = Sets.newHashSet();
-		try (PreparedStatement statement = connection.prepareStatement(query)) {
-			statement.setString(1, "public");
+	static Catalog assemble(String catalogName, Snapshot snapshot) {
+		Catalog catalog = new Catalog(catalogName);
 
-			ResultSet resultSet = statement.executeQuery();
-			while (resultSet.next()) {
-				String tableName = resultSet.getString("table_name");
-				tableNames.add(tableName);
-			}
+		Map<String, Set<String>> primaryKeys = Maps.newHashMap();
+		for (PrimaryKeyRow row : snapshot.getPrimaryKeys()) {
+			primaryKeys.computeIfAbsent(row.getTableName(), key -> Sets.newLinkedHashSet()).add(row.getColumnName());
 		}
 
-		for (String tableName : tableNames) {
-			Table table = createTable(connection, tableName);
+		Map<String, List<Column>> columns = Maps.newHashMap();
+		for (ColumnRow row : snapshot.getColumns()) {
+			List<Column> tableColumns = columns.computeIfAbsent(row.getTableName(), name -> Lists.newArrayList());
+			Set<String> tablePrimaryKeys = primaryKeys.getOrDefault(row.getTableName(), Sets.newHashSet());
+			tableColumns.add(createColumn(row, tablePrimaryKeys, tableColumns.isEmpty()));
+		}
+
+		for (String tableName : snapshot.getTables()) {
+			Table table = new Table(tableName);
+			table.addColumns(columns.getOrDefault(tableName, Lists.newArrayList()));
 			catalog.addTable(table);
 
 			table.getColumns().stream()
 					.map(Column::getSequence)
 					.filter(Objects::nonNull)
 					.forEach(catalog::addSequence);
-
-			addIndexes(connection, catalog, tableName);
 		}
 
-		for (String tableName : tableNames) {
-			addForeignKeys(connection, catalog, tableName);
-		}
+		snapshot.getIndexDefinitions().forEach(definition -> addIndex(catalog, definition));
+		addForeignKeys(catalog, snapshot.getForeignKeys());
+		return catalog;
 	}
 
-	private static Table createTable(Connection connection, String tableName) throws SQLException {
-		Table table = new Table(tableName);
+	private static List<String> fetchTables(Connection connection) throws SQLException {
+		String query = new QueryBuilder()
+				.append("SELECT c.relname AS table_name")
+				.append("FROM pg_class c")
+				.append("JOIN pg_namespace n ON n.oid = c.relnamespace")
+				.append("WHERE n.nspname = ? AND c.relkind IN ('r', 'p', 'f')")
+				.append("ORDER BY c.relname ASC")
+				.toString();
+
+		List<String> tableNames = Lists.newArrayList();
+		try (PreparedStatement statement = connection.prepareStatement(query)) {
+			statement.setString(1, SCHEMA);
+
+			ResultSet resultSet = statement.executeQuery();
+			while (resultSet.next()) {
+				tableNames.add(resultSet.getString("table_name"));
+			}
+		}
+		return tableNames;
+	}
 
+	/**
+	 * Fetches the columns of all tables in the schema. The same functions which the information_schema.columns view
+	 * uses are used to determine the type, length and precision of each column.
+	 */
+	private static List<ColumnRow> fetchColumns(Connection connection) throws SQLException {
 		String query = new QueryBuilder()
-				.append("SELECT *")
-				.append("FROM information_schema.columns")
-				.append("WHERE table_schema = ? AND table_name = ?")
-				.append("ORDER BY ordinal_position ASC")
+				.append("SELECT")
+				.append("  c.relname AS table_name,")
+				.append("  a.attname AS column_name,")
+				.append("  pg_get_expr(ad.adbin, ad.adrelid) AS column_default,")
+				.append("  CASE WHEN a.attnotnull OR (t.typtype = 'd' AND t.typnotnull) THEN 'NO' ELSE 'YES' END")
+				.append("    AS is_nullable,")
+				.append("  CASE")
+				.append("    WHEN bt.typelem <> 0 AND bt.typlen = -1 THEN 'ARRAY'")
+				.append("    WHEN bn.nspname = 'pg_catalog' THEN format_type(bt.oid, NULL)")
+				.append("    ELSE 'USER-DEFINED'")
+				.append("  END AS data_type,")
+				.append("  information_schema._pg_char_max_length(bt.oid, information_schema._pg_truetypmod(a.*, t.*))")
+				.append("    AS character_maximum_length,")
+				.append("  information_schema._pg_numeric_precision(bt.oid, information_schema._pg_truetypmod(a.*, t.*))")
+				.append("    AS numeric_precision,")
+				.append("  information_schema._pg_numeric_scale(bt.oid, information_schema._pg_truetypmod(a.*, t.*))")
+				.append("    AS numeric_scale,")
+				.append("  information_schema._pg_datetime_precision(bt.oid, information_schema._pg_truetypmod(a.*, t.*))")
+				.append("    AS datetime_precision")
+				.append("FROM pg_attribute a")
+				.append("JOIN pg_class c ON c.oid = a.attrelid")
+				.append("JOIN pg_namespace n ON n.oid = c.relnamespace")
+				.append("JOIN pg_type t ON t.oid = a.atttypid")
+				.append("JOIN pg_type bt ON bt.oid = information_schema._pg_truetypid(a.*, t.*)")
+				.append("JOIN pg_namespace bn ON bn.oid = bt.typnamespace")
+				.append("LEFT JOIN pg_attrdef ad ON ad.adrelid = a.attrelid AND ad.adnum = a.attnum")
+				.append("WHERE n.nspname = ? AND c.relkind IN ('r', 'p', 'f') AND a.attnum > 0 AND NOT a.attisdropped")
+				.append("ORDER BY c.relname ASC, a.attnum ASC")
 				.toString();
 
-		List<Column> columns = Lists.newArrayList();
-		Set<String> primaryKeys = determinePrimaryKeys(connection, tableName);
+		List<ColumnRow> columns = Lists.newArrayList();
 		try (PreparedStatement statement = connection.prepareStatement(query)) {
-			statement.setString(1, "public");
-			statement.setString(2, tableName);
+			statement.setString(1, SCHEMA);
 
 			ResultSet resultSet = statement.executeQuery();
 			while (resultSet.next()) {
-				String columnName = resultSet.getString("column_name");
-				String expression = resultSet.getString("column_default");
 				String type = resultSet.getString("data_type");
-				Integer characterMaximum = null;
-				if (resultSet.getObject("character_maximum_length") != null) {
-					characterMaximum = resultSet.getInt("character_maximum_length");
-				}
-				Integer numericPrecision = null;
-				if (resultSet.getObject("numeric_precision") != null) {
-					numericPrecision = resultSet.getInt("numeric_precision");
-				}
-				Integer numericScale = null;
-				if (resultSet.getObject("numeric_scale") != null) {
-					numericScale = resultSet.getInt("numeric_scale");
-				}
 				Integer datetimePrecision = null;
-				if (!type.equals("date") && resultSet.getObject("datetime_precision") != null) {
-					datetimePrecision = resultSet.getInt("datetime_precision");
+				if (!type.equals("date")) {
+					datetimePrecision = getInteger(resultSet, "datetime_precision");
 				}
 
-				Set<Column.Hint> hints = Sets.newHashSet();
-				if (!"yes".equalsIgnoreCase(resultSet.getString("is_nullable"))) {
-					hints.add(Column.Hint.NOT_NULL);
-				}
-				if (primaryKeys.contains(columnName) || (primaryKeys.isEmpty() && columns.isEmpty())) {
-					hints.add(Column.Hint.PRIMARY_KEY);
-				}
+				columns.add(new ColumnRow(
+						resultSet.getString("table_name"),
+						resultSet.getString("column_name"),
+						resultSet.getString("column_default"),
+						type,
+						"yes".equalsIgnoreCase(resultSet.getString("is_nullable")),
+						getInteger(resultSet, "character_maximum_length"),
+						getInteger(resultSet, "numeric_precision"),
+						getInteger(resultSet, "numeric_scale"),
+						datetimePrecision));
+			}
+		}
+		return columns;
+	}
 
-				Sequence sequence = null;
-				if (expression != null) {
-					Matcher matcher = SEQUENCE_EXPRESSION.matcher(expression);
-					if (matcher.find()) {
-						hints.add(Column.Hint.AUTO_INCREMENT);
-						sequence = new Sequence(matcher.group(1));
-					}
-				}
+	private static Integer getInteger(ResultSet resultSet, String column) throws SQLException {
+		if (resultSet.getObject(column) == null) {
+			return null;
+		}
+		return resultSet.getInt(column);
+	}
 
-				ColumnType columnType = null;
-				if (numericScale != null && numericPrecision != null) {
-					columnType = PostgresTypes.from(type, numericPrecision, numericScale);
-				}
-				else if (characterMaximum != null) {
-					columnType = PostgresTypes.from(type, characterMaximum);
-				}
-				else if (numericPrecision != null) {
-					columnType = PostgresTypes.from(type, numericPrecision);
-				}
-				else if (datetimePrecision != null) {
-					columnType = PostgresTypes.from(type, datetimePrecision);
-				}
-				else {
-					columnType = PostgresTypes.from(type);
-				}
+	private static Column createColumn(ColumnRow row, Set<String> primaryKeys, boolean first) {
+		String columnName = row.getColumnName();
+		String expression = row.getColumnDefault();
+		String type = row.getDataType();
+		Integer characterMaximum = row.getCharacterMaximumLength();
+		Integer numericPrecision = row.getNumericPrecision();
+		Integer numericScale = row.getNumericScale();
+		Integer datetimePrecision = row.getDatetimePrecision();
+
+		Set<Column.Hint> hints = Sets.newHashSet();
+		if (!row.isNullable()) {
+			hints.add(Column.Hint.NOT_NULL);
+		}
+		if (primaryKeys.contains(columnName) || (primaryKeys.isEmpty() && first)) {
+			hints.add(Column.Hint.PRIMARY_KEY);
+		}
 
-				Column.Hint[] hintArray = hints.toArray(new Column.Hint[0]);
-				Column column;
-				if (sequence == null) {
-					column = new Column(columnName, columnType, expression, hintArray);
-				}
-				else {
-					column = new Column(columnName, columnType, sequence, hintArray);
-				}
-				columns.add(column);
+		Sequence sequence = null;
+		if (expression != null) {
+			Matcher matcher = SEQUENCE_EXPRESSION.matcher(expression);
+			if (matcher.find()) {
+				hints.add(Column.Hint.AUTO_INCREMENT);
+				sequence = new Sequence(matcher.group(1));
 			}
 		}
 
-		return table.addColumns(columns);
+		ColumnType columnType = null;
+		if (numericScale != null && numericPrecision != null) {
+			columnType = PostgresTypes.from(type, numericPrecision, numericScale);
+		}
+		else if (characterMaximum != null) {
+			columnType = PostgresTypes.from(type, characterMaximum);
+		}
+		else if (numericPrecision != null) {
+			columnType = PostgresTypes.from(type, numericPrecision);
+		}
+		else if (datetimePrecision != null) {
+			columnType = PostgresTypes.from(type, datetimePrecision);
+		}
+		else {
+			columnType = PostgresTypes.from(type);
+		}
+
+		Column.Hint[] hintArray = hints.toArray(new Column.Hint[0]);
+		if (sequence == null) {
+			return new Column(columnName, columnType, expression, hintArray);
+		}
+		return new Column(columnName, columnType, sequence, hintArray);
 	}
 
-	private static Set<String> determinePrimaryKeys(Connection connection, String tableName) throws SQLException {
+	private static List<PrimaryKeyRow> fetchPrimaryKeys(Connection connection) throws SQLException {
 		String query = new QueryBuilder()
 				.append("SELECT ")
+				.append("  pg_class.relname AS table_name, ")
 				.append("  pg_attribute.attname AS name ")
 				.append("FROM pg_index, pg_class, pg_attribute, pg_namespace ")
 				.append("WHERE ")
-				.append("  nspname = 'public' AND ")
-				.append("  pg_class.oid = '" + quoted(tableName) + "'::regclass AND ")
+				.append("  nspname = ? AND ")
 				.append("  indrelid = pg_class.oid AND ")
 				.append("  pg_class.relnamespace = pg_namespace.oid AND ")
 				.append("  pg_attribute.attrelid = pg_class.oid AND ")
@@ -184,22 +288,23 @@ class CatalogLoader {
 				.append("  AND indisprimary")
 				.toString();
 
-		Set<String> primaryKeyColumns = Sets.newLinkedHashSet();
-		try (Statement statement = connection.createStatement()) {
+		List<PrimaryKeyRow> primaryKeyColumns = Lists.newArrayList();
+		try (PreparedStatement statement = connection.prepareStatement(query)) {
+			statement.setString(1, SCHEMA);
 
-			ResultSet resultSet = statement.executeQuery(query);
+			ResultSet resultSet = statement.executeQuery();
 			while (resultSet.next()) {
-				String name = resultSet.getString("name");
-				primaryKeyColumns.add(name);
+				primaryKeyColumns.add(new PrimaryKeyRow(resultSet.getString("table_name"), resultSet.getString("name")));
 			}
 		}
 
 		return primaryKeyColumns;
 	}
 
-	private static void addForeignKeys(Connection connection, Catalog catalog, String tableName) throws SQLException {
+	private static List<ForeignKeyRow> fetchForeignKeys(Connection connection) throws SQLException {
 		String query = new QueryBuilder()
 				.append("SELECT")
+				.append("  con.table_name AS table_name,")
 				.append("	att2.attname AS referencing_column,")
 				.append("	cl.relname AS referred_table,")
 				.append("  att.attname AS referred_column,")
@@ -208,6 +313,7 @@ class CatalogLoader {
 				.append("  con.confdeltype AS confdeltype")
 				.append("FROM")
 				.append("  (SELECT")
+				.append("    cl.relname AS table_name,")
 				.append("    unnest(con1.conkey) AS parent,")
 				.append("    unnest(con1.confkey) AS child,")
 				.append("    con1.conname,")
@@ -220,67 +326,65 @@ class CatalogLoader {
 				.append("    JOIN pg_namespace ns ON cl.relnamespace = ns.oid")
 				.append("    JOIN pg_constraint con1 ON con1.conrelid = cl.oid")
 				.append("  WHERE")
-				.append("    ns.nspname = ? AND cl.relname = ? AND con1.contype = 'f'")
+				.append("    ns.nspname = ? AND cl.relkind IN ('r', 'p', 'f') AND con1.contype = 'f'")
 				.append("  ) con")
 				.append("  JOIN pg_attribute att ON att.attrelid = con.confrelid AND att.attnum = con.child")
 				.append("  JOIN pg_class cl ON cl.oid = con.confrelid")
 				.append("  JOIN pg_attribute att2 ON att2.attrelid = con.conrelid AND att2.attnum = con.parent")
-				.append("ORDER BY con.conname ASC, parent ASC;")
+				.append("ORDER BY con.table_name ASC, con.conname ASC, parent ASC;")
 				.toString();
 
+		List<ForeignKeyRow> foreignKeys = Lists.newArrayList();
 		try (PreparedStatement statement = connection.prepareStatement(query)) {
-			statement.setString(1, "public");
-			statement.setString(2, tableName);
-			ResultSet resultSet = statement.executeQuery();
-
-			String prevConstraintName = null;
-			String prevReferredTable = null;
-			Action prevOnDelete = null;
-			Action prevOnUpdate = null;
-			Map<String, String> mapping = Maps.newLinkedHashMap();
+			statement.setString(1, SCHEMA);
 
+			ResultSet resultSet = statement.executeQuery();
 			while (resultSet.next()) {
-				String referencingColumn = resultSet.getString("referencing_column");
-				String referredTable = resultSet.getString("referred_table");
-				String referredColumn = resultSet.getString("referred_column");
-				String constraintName = resultSet.getString("constraint_name");
-
-				Action onUpdate = valueOf(resultSet.getString("confupdtype"));
-				Action onDelete = valueOf(resultSet.getString("confdeltype"));
-
-				if (prevConstraintName != null && !constraintName.equals(prevConstraintName)) {
-					Table source = catalog.getTable(tableName);
-					Table target = catalog.getTable(prevReferredTable);
+				foreignKeys.add(new ForeignKeyRow(
+						resultSet.getString("table_name"),
+						resultSet.getString("constraint_name"),
+						resultSet.getString("referencing_column"),
+						resultSet.getString("referred_table"),
+						resultSet.getString("referred_column"),
+						resultSet.getString("confupdtype"),
+						resultSet.getString("confdeltype")));
+			}
+		}
+		return foreignKeys;
+	}
 
-					source.addForeignKey(Lists.newArrayList(mapping.keySet()))
-							.named(prevConstraintName)
-							.onDelete(prevOnDelete)
-							.onUpdate(prevOnUpdate)
-							.referencing(target, Lists.newArrayList(mapping.values()));
+	private static void addForeignKeys(Catalog catalog, List<ForeignKeyRow> rows) {
+		ForeignKeyRow previous = null;
+		Map<String, String> mapping = Maps.newLinkedHashMap();
 
-					mapping.clear();
-				}
+		for (ForeignKeyRow row : rows) {
+			if (previous != null && (!row.getConstraintName().equals(previous.getConstraintName())
+					|| !row.getTableName().equals(previous.getTableName()))) {
 
-				prevReferredTable = referredTable;
-				prevConstraintName = constraintName;
-				prevOnDelete = onDelete;
-				prevOnUpdate = onUpdate;
-				mapping.put(referencingColumn, referredColumn);
+				addForeignKey(catalog, previous, mapping);
+				mapping.clear();
 			}
 
-			if (prevConstraintName != null) {
-				Table source = catalog.getTable(tableName);
-				Table target = catalog.getTable(prevReferredTable);
+			previous = row;
+			mapping.put(row.getReferencingColumn(), row.getReferredColumn());
+		}
 
-				source.addForeignKey(Lists.newArrayList(mapping.keySet()))
-						.named(prevConstraintName)
-						.onDelete(prevOnDelete)
-						.onUpdate(prevOnUpdate)
-						.referencing(target, Lists.newArrayList(mapping.values()));
-			}
+		if (previous != null) {
+			addForeignKey(catalog, previous, mapping);
 		}
 	}
 
+	private static void addForeignKey(Catalog catalog, ForeignKeyRow row, Map<String, String> mapping) {
+		Table source = catalog.getTable(row.getTableName());
+		Table target = catalog.getTable(row.getReferredTable());
+
+		source.addForeignKey(Lists.newArrayList(mapping.keySet()))
+				.named(row.getConstraintName())
+				.onDelete(valueOf(row.getOnDelete()))
+				.onUpdate(valueOf(row.getOnUpdate()))
+				.referencing(target, Lists.newArrayList(mapping.values()));
+	}
+
 	private static Action valueOf(String input) {
 		switch (input) {
 			case "a": return NO_ACTION;
@@ -292,55 +396,59 @@ class CatalogLoader {
 		}
 	}
 
-	private static void addIndexes(Connection connection, Catalog catalog, String tableName) throws SQLException {
+	private static List<String> fetchIndexDefinitions(Connection connection) throws SQLException {
 		String query = new QueryBuilder()
 				.append("SELECT pg_get_indexdef(i.indexrelid) AS index_definition")
 				.append("FROM pg_index i")
 				.append("LEFT JOIN pg_class c ON i.indrelid = c.oid")
 				.append("LEFT JOIN pg_namespace nsp ON c.relnamespace = nsp.oid")
-				.append("WHERE c.relname = ? AND nsp.nspname = ?;")
+				.append("WHERE nsp.nspname = ? AND c.relkind IN ('r', 'p', 'f')")
+				.append("ORDER BY c.relname ASC, i.indexrelid ASC;")
 				.toString();
 
+		List<String> indexDefinitions = Lists.newArrayList();
 		try (PreparedStatement statement = connection.prepareStatement(query)) {
-			statement.setString(1, tableName);
-			statement.setString(2, "public");
-			ResultSet resultSet = statement.executeQuery();
+			statement.setString(1, SCHEMA);
 
+			ResultSet resultSet = statement.executeQuery();
 			while (resultSet.next()) {
-				String indexDefinition = resultSet.getString("index_definition");
-
-				StatementParser parser = new StatementParser(indexDefinition);
-				parser.expect("CREATE");
-				boolean unique = parser.present("UNIQUE");
-				parser.expect("INDEX");
-				parser.present("CONCURRENTLY");
-				String indexName = parser.consume();
-				indexName = removeOuterQuotes(indexName);
-				if (indexName.startsWith("pk_")) {
-					continue;
-				}
-
-				parser.expect("ON");
-				String indexTableName = parser.consume();
-				if (indexTableName.startsWith("public.")) {
-					indexTableName = indexTableName.substring("public.".length());
-				}
-				else if (indexTableName.startsWith("\"public\".")) {
-					indexTableName = indexTableName.substring("\"public\".".length());
-				}
-				indexTableName = removeOuterQuotes(indexTableName);
+				indexDefinitions.add(resultSet.getString("index_definition"));
+			}
+		}
+		return indexDefinitions;
+	}
 
-				if (parser.present("USING")) {
-					parser.consume();
-				}
+	private static void addIndex(Catalog catalog, String indexDefinition) {
+		StatementParser parser = new StatementParser(indexDefinition);
+		parser.expect("CREATE");
+		boolean unique = parser.present("UNIQUE");
+		parser.expect("INDEX");
+		parser.present("CONCURRENTLY");
+		String indexName = parser.consume();
+		indexName = removeOuterQuotes(indexName);
+		if (indexName.startsWith("pk_")) {
+			return;
+		}
 
-				List<String> groups = parser.consumeGroup('(', ')', ',').stream().map(String::trim).collect(Collectors.toList());
-				// TODO: Add support for expressions. Now we only support column references.
+		parser.expect("ON");
+		String indexTableName = parser.consume();
+		if (indexTableName.startsWith("public.")) {
+			indexTableName = indexTableName.substring("public.".length());
+		}
+		else if (indexTableName.startsWith("\"public\".")) {
+			indexTableName = indexTableName.substring("\"public\".".length());
+		}
+		indexTableName = removeOuterQuotes(indexTableName);
 
-				Table table = catalog.getTable(indexTableName);
-				table.addIndex(new Index(indexName, groups, unique));
-			}
+		if (parser.present("USING")) {
+			parser.consume();
 		}
+
+		List<String> groups = parser.consumeGroup('(', ')', ',').stream().map(String::trim).collect(Collectors.toList());
+		// TODO: Add support for expressions. Now we only support column references.
+
+		Table table = catalog.getTable(indexTableName);
+		table.addIndex(new Index(indexName, groups, unique));
 	}
 
 	private static String removeOuterQuotes(String input) {
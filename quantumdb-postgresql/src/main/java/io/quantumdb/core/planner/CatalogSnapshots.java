@@ -0,0 +1,177 @@
+package io.quantumdb.core.planner;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import io.quantumdb.core.planner.CatalogLoader.Snapshot;
+import io.quantumdb.core.schema.definitions.Catalog;
+import io.quantumdb.core.utils.QueryBuilder;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Caches the Snapshot from which the Catalog is assembled in the "quantumdb.catalog_snapshots" table, so that it
+ * doesn't have to be introspected from pg_catalog on every run. Every cached Snapshot is stamped with the "schema
+ * generation" stored in the "quantumdb.config" table, which is incremented by event triggers whenever DDL is
+ * executed on objects in the "public" schema, from which the Catalog is loaded. DDL in other schemas (including
+ * temporary tables) is ignored. A cached Snapshot is only used if its generation is still current, and if both event
+ * triggers are installed and enabled. Otherwise the Catalog is loaded from pg_catalog.
+ */
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+class CatalogSnapshots {
+
+	private static final String GENERATION = "schema_generation";
+
+	private static final Gson GSON = new Gson();
+
+	/**
+	 * Installs the function and event triggers which increment the schema generation. This requires superuser
+	 * privileges and PostgreSQL 9.5 or higher.
+	 */
+	static void install(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute(new QueryBuilder()
+					.append("INSERT INTO quantumdb.config (name, value)")
+					.append("SELECT '" + GENERATION + "', '0'")
+					.append("WHERE NOT EXISTS (SELECT 1 FROM quantumdb.config WHERE name = '" + GENERATION + "');")
+					.toString());
+
+			statement.execute(new QueryBuilder()
+					.append("CREATE OR REPLACE FUNCTION quantumdb.bump_schema_generation()")
+					.append("RETURNS event_trigger")
+					.append("LANGUAGE plpgsql")
+					.append("SECURITY DEFINER")
+					.append("SET search_path = pg_catalog, pg_temp")
+					.append("AS $$")
+					.append("BEGIN")
+					.append("  IF TG_EVENT = 'sql_drop' THEN")
+					.append("    IF NOT EXISTS (SELECT 1 FROM pg_event_trigger_dropped_objects()")
+					.append("        WHERE schema_name = 'public') THEN")
+					.append("      RETURN;")
+					.append("    END IF;")
+					.append("  ELSIF NOT EXISTS (SELECT 1 FROM pg_event_trigger_ddl_commands()")
+					.append("      WHERE schema_name = 'public') THEN")
+					.append("    RETURN;")
+					.append("  END IF;")
+					.append("  UPDATE quantumdb.config SET value = (value::bigint + 1)::text")
+					.append("    WHERE name = '" + GENERATION + "';")
+					.append("EXCEPTION WHEN undefined_table THEN")
+					.append("  RETURN;")
+					.append("END;")
+					.append("$$;")
+					.toString());
+
+			statement.execute("DROP EVENT TRIGGER IF EXISTS quantumdb_ddl_command_end;");
+			statement.execute("DROP EVENT TRIGGER IF EXISTS quantumdb_sql_drop;");
+			statement.execute("CREATE EVENT TRIGGER quantumdb_ddl_command_end ON ddl_command_end "
+					+ "EXECUTE PROCEDURE quantumdb.bump_schema_generation();");
+			statement.execute("CREATE EVENT TRIGGER quantumdb_sql_drop ON sql_drop "
+					+ "EXECUTE PROCEDURE quantumdb.bump_schema_generation();");
+		}
+
+		if (!connection.getAutoCommit()) {
+			connection.commit();
+		}
+	}
+
+	/**
+	 * @return The Catalog of the specified name, assembled from the cached Snapshot if it's still current, or else
+	 * loaded from pg_catalog (in which case the cached Snapshot is refreshed, if the event triggers are installed).
+	 */
+	static Catalog load(Connection connection, String catalogName) throws SQLException {
+		String query = new QueryBuilder()
+				.append("SELECT g.value::bigint AS generation, s.snapshot")
+				.append("FROM quantumdb.config g")
+				.append("LEFT JOIN quantumdb.catalog_snapshots s")
+				.append("  ON s.catalog_name = ? AND s.generation = g.value::bigint")
+				.append("WHERE g.name = '" + GENERATION + "'")
+				.append("  AND (SELECT COUNT(*) FROM pg_event_trigger")
+				.append("    WHERE evtname IN ('quantumdb_ddl_command_end', 'quantumdb_sql_drop')")
+				.append("    AND evtenabled <> 'D') = 2;")
+				.toString();
+
+		long generation;
+		String json;
+		try (PreparedStatement statement = connection.prepareStatement(query)) {
+			statement.setString(1, catalogName);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				if (!resultSet.next()) {
+					return CatalogLoader.load(connection, catalogName);
+				}
+				generation = resultSet.getLong("generation");
+				json = resultSet.getString("snapshot");
+			}
+		}
+
+		Snapshot snapshot = deserialize(json);
+		if (snapshot != null) {
+			log.debug("Using cached catalog snapshot of generation: {}", generation);
+			return CatalogLoader.assemble(catalogName, snapshot);
+		}
+
+		// The generation was read before fetching, so the stored Snapshot is never older than its generation.
+		snapshot = CatalogLoader.fetch(connection);
+		store(connection, catalogName, generation, snapshot);
+		return CatalogLoader.assemble(catalogName, snapshot);
+	}
+
+	private static void store(Connection connection, String catalogName, long generation, Snapshot snapshot)
+			throws SQLException {
+
+		try {
+			try (PreparedStatement statement = connection.prepareStatement(
+					"DELETE FROM quantumdb.catalog_snapshots WHERE catalog_name = ?;")) {
+				statement.setString(1, catalogName);
+				statement.execute();
+			}
+			try (PreparedStatement statement = connection.prepareStatement(
+					"INSERT INTO quantumdb.catalog_snapshots (catalog_name, generation, snapshot) VALUES (?, ?, ?);")) {
+				statement.setString(1, catalogName);
+				statement.setLong(2, generation);
+				statement.setString(3, serialize(snapshot));
+				statement.execute();
+			}
+			if (!connection.getAutoCommit()) {
+				connection.commit();
+			}
+		}
+		catch (SQLException e) {
+			if (!connection.getAutoCommit()) {
+				connection.rollback();
+			}
+			log.warn("Could not store catalog snapshot: " + e.getMessage(), e);
+		}
+	}
+
+	static String serialize(Snapshot snapshot) {
+		return GSON.toJson(snapshot);
+	}
+
+	/**
+	 * @return The deserialized Snapshot, or NULL if there's none, or if it was stored in an unsupported format.
+	 */
+	static Snapshot deserialize(String json) {
+		if (json == null) {
+			return null;
+		}
+		try {
+			Snapshot snapshot = GSON.fromJson(json, Snapshot.class);
+			if (snapshot == null || snapshot.getFormat() != Snapshot.FORMAT) {
+				return null;
+			}
+			return snapshot;
+		}
+		catch (JsonParseException e) {
+			log.warn("Ignoring unreadable catalog snapshot: " + e.getMessage());
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,120 @@
+package io.quantumdb.core.planner;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import io.quantumdb.core.backends.Config;
+import io.quantumdb.core.schema.definitions.Index;
+import io.quantumdb.core.schema.definitions.Table;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Builds the indexes of ghost tables. The indexes of a single table are built one after another, but the indexes of
+ * different tables are built at the same time over a bounded number of connections, as configured through
+ * {@link Config#getIndexBuildConcurrency()}.
+ */
+@Slf4j
+@RequiredArgsConstructor
+class IndexBuilder {
+
+	private static final int PARALLEL_MAINTENANCE_SERVER_VERSION = 110000;
+
+	private final PostgresqlBackend backend;
+	private final Config config;
+
+	/**
+	 * @return The CREATE INDEX statements of the specified tables, grouped by table name.
+	 */
+	static ListMultimap<String, String> createStatements(Config config, Collection<Table> tables) {
+		TableCreator creator = new TableCreator(config);
+		ListMultimap<String, String> statements = LinkedListMultimap.create();
+		for (Table table : tables) {
+			for (Index index : table.getIndexes()) {
+				statements.put(table.getName(), creator.createIndexStatement(index));
+			}
+		}
+		return statements;
+	}
+
+	void build(ListMultimap<String, String> statements) throws SQLException, InterruptedException {
+		Map<String, Collection<String>> statementsPerTable = statements.asMap();
+		if (statementsPerTable.isEmpty()) {
+			return;
+		}
+
+		// Statements of a dry run are written to a single output file, so there's nothing to gain by running these.
+		int concurrency = config.isDryRun() ? 1 : config.getIndexBuildConcurrency();
+		concurrency = Math.max(1, Math.min(concurrency, statementsPerTable.size()));
+
+		ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+		try {
+			List<Future<Void>> futures = Lists.newArrayList();
+			for (Map.Entry<String, Collection<String>> entry : statementsPerTable.entrySet()) {
+				futures.add(executor.submit(() -> {
+					try (Connection connection = backend.connect()) {
+						build(connection, entry.getKey(), entry.getValue());
+					}
+					return null;
+				}));
+			}
+
+			for (Future<Void> future : futures) {
+				await(future);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void build(Connection connection, String tableName, Collection<String> statements) throws SQLException {
+		configureSession(connection);
+		for (String statement : statements) {
+			log.info("Creating index on table: {}", tableName);
+			QueryUtils.execute(connection, config, statement);
+		}
+	}
+
+	private void configureSession(Connection connection) throws SQLException {
+		if (config.isDryRun()) {
+			return;
+		}
+
+		String maintenanceWorkMem = config.getIndexMaintenanceWorkMem();
+		if (!Strings.isNullOrEmpty(maintenanceWorkMem)) {
+			QueryUtils.execute(connection, config, "SET maintenance_work_mem = '" + maintenanceWorkMem + "';");
+		}
+
+		// This setting was only introduced in PostgreSQL 11, older servers reject unknown parameters.
+		Integer maxParallelWorkers = config.getIndexMaxParallelWorkers();
+		if (maxParallelWorkers != null && backend.getServerVersion() >= PARALLEL_MAINTENANCE_SERVER_VERSION) {
+			QueryUtils.execute(connection, config, "SET max_parallel_maintenance_workers = " + maxParallelWorkers + ";");
+		}
+	}
+
+	private void await(Future<Void> future) throws SQLException, InterruptedException {
+		try {
+			future.get();
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof SQLException) {
+				throw (SQLException) cause;
+			}
+			throw new SQLException("Could not create indexes.", cause);
+		}
+	}
+
+}
@@ -16,6 +16,7 @@ import java.util.stream.Collectors;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import io.quantumdb.core.backends.Backend;
 import io.quantumdb.core.backends.Config;
 import io.quantumdb.core.schema.definitions.Column;
@@ -34,9 +35,24 @@ public class NullRecords {
 
 	private final Config config;
 
-	private final Map<Table, Identity> identities = Maps.newHashMap();
+	// Plan steps may be executed concurrently, so these are accessed by multiple threads.
+	private final Map<Table, Identity> identities = Maps.newConcurrentMap();
+	private final Set<Table> restored = Sets.newConcurrentHashSet();
+
+	/**
+	 * Registers NULL records which were inserted by an earlier, interrupted fork. These will not be inserted again,
+	 * but will be deleted as usual.
+	 */
+	public void restore(Map<Table, Identity> identities) {
+		this.identities.putAll(identities);
+		this.restored.addAll(identities.keySet());
+	}
 
 	public Map<Table, Identity> insertNullObjects(Backend backend, Set<Table> tables) throws SQLException {
+		tables = tables.stream()
+				.filter(table -> !restored.contains(table))
+				.collect(Collectors.toSet());
+
 		for (Table table : tables) {
 			Preconditions.checkArgument(!identities.containsKey(table));
 		}
@@ -53,10 +69,12 @@ public class NullRecords {
 					.collect(Collectors.toSet());
 
 			log.debug("Generating NULL objects for tables: " + tableNames);
+			BackfillCheckpoints checkpoints = new BackfillCheckpoints(config);
 			Map<String, Identity> generatedIdentities = Maps.newHashMap();
 			for (Table table : tables) {
 				Identity identity = insertNullObject(connection, table, generatedIdentities);
 				if (identity != null) {
+					checkpoints.saveNullRecord(connection, table, identity);
 					persisted.put(table, identity);
 				}
 			}
@@ -79,8 +97,10 @@ public class NullRecords {
 			ensureDeferredConstraints(connection);
 
 			log.debug("Dropping NULL objects for tables: " + tables);
+			BackfillCheckpoints checkpoints = new BackfillCheckpoints(config);
 			for (Table table : tables) {
 				dropNullObject(connection, table);
+				checkpoints.deleteNullRecord(connection, table);
 			}
 
 			commit(connection);
@@ -20,9 +20,15 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class PostgresqlBackend implements io.quantumdb.core.backends.Backend {
 
+	private static final int UPSERTS_SERVER_VERSION = 90500;
+	private static final int TRANSITION_TABLES_SERVER_VERSION = 100000;
+	private static final int EVENT_TRIGGER_COMMANDS_SERVER_VERSION = 90500;
+
 	private final Backend backend;
 	private final Config config;
 
+	private volatile Integer serverVersion;
+
 	public PostgresqlBackend(Config config) {
 		this.config = config;
 		this.backend = new Backend();
@@ -33,7 +39,14 @@ public class PostgresqlBackend implements io.quantumdb.core.backends.Backend {
 		log.trace("Loading state from database...");
 		try (Connection connection = connect()) {
 			QuantumTables.prepare(connection);
-			Catalog catalog = CatalogLoader.load(connection, config.getCatalog());
+			if (config.isCatalogSnapshots()) {
+				if (getServerVersion() < EVENT_TRIGGER_COMMANDS_SERVER_VERSION) {
+					throw new SQLException("Catalog snapshots require PostgreSQL 9.5 or higher.");
+				}
+				CatalogSnapshots.install(connection);
+			}
+
+			Catalog catalog = CatalogSnapshots.load(connection, config.getCatalog());
 			return backend.load(connection, catalog);
 		}
 	}
@@ -78,6 +91,39 @@ public class PostgresqlBackend implements io.quantumdb.core.backends.Backend {
 		}
 	}
 
+	/**
+	 * @return The version of the PostgreSQL server as a number, for instance 90605 for 9.6.5 or 100004 for 10.4.
+	 */
+	public int getServerVersion() throws SQLException {
+		if (serverVersion == null) {
+			try (Connection connection = connect()) {
+				try (Statement statement = connection.createStatement()) {
+					ResultSet resultSet = statement.executeQuery("SHOW server_version_num;");
+					if (!resultSet.next()) {
+						throw new SQLException("Could not determine the version of the database server.");
+					}
+					serverVersion = Integer.parseInt(resultSet.getString(1));
+					log.debug("Detected PostgreSQL server with version: {}", serverVersion);
+				}
+			}
+		}
+		return serverVersion;
+	}
+
+	/**
+	 * @return True if the server supports INSERT ... ON CONFLICT statements (PostgreSQL 9.5 and up).
+	 */
+	public boolean supportsUpserts() throws SQLException {
+		return getServerVersion() >= UPSERTS_SERVER_VERSION;
+	}
+
+	/**
+	 * @return True if the server supports statement-level triggers with transition tables (PostgreSQL 10 and up).
+	 */
+	public boolean supportsTransitionTables() throws SQLException {
+		return getServerVersion() >= TRANSITION_TABLES_SERVER_VERSION;
+	}
+
 	@Override
 	@SneakyThrows(ClassNotFoundException.class)
 	public Connection connect() throws SQLException {
@@ -76,6 +76,19 @@ public class PostgresqlMigrationPlanner implements MigrationPlanner {
 				.filter(version -> version.getParent() != null)
 				.forEachOrdered(version -> migrator.migrate(version, (SchemaOperation) version.getOperation()));
 
+		return createPlan(state, from, to, migrator.getRefLog(), true);
+	}
+
+	/**
+	 * Creates a migration plan for a fork from one version to another which was interrupted earlier. The schema
+	 * operations have already been applied to the RefLog, and the ghost tables and views already exist.
+	 */
+	public Plan resumePlan(State state, Version from, Version to) {
+		log.debug("Creating migration plan to resume migration from version: {} to: {}", from, to);
+		return createPlan(state, from, to, state.getRefLog(), false);
+	}
+
+	private Plan createPlan(State state, Version from, Version to, RefLog refLog, boolean includeViews) {
 		Set<String> preTableRefIds = refLog.getTableRefs(from).stream()
 				.map(TableRef::getRefId)
 				.collect(Collectors.toSet());
@@ -93,7 +106,7 @@ public class PostgresqlMigrationPlanner implements MigrationPlanner {
 				.collect(Collectors.toSet());
 
 		Set<String> newTableRefIds = Sets.difference(postTableRefIds, preTableRefIds);
-		Set<String> newViewRefIds = Sets.difference(postViewRefIds, preViewRefIds);
+		Set<String> newViewRefIds = includeViews ? Sets.difference(postViewRefIds, preViewRefIds) : Sets.newHashSet();
 
 		/*
 		 * TODO: The planner currently pollutes the catalog with intermediate tables and views during the planning
@@ -121,7 +134,7 @@ public class PostgresqlMigrationPlanner implements MigrationPlanner {
 		log.debug("The following views will be created: " + newViewRefIds.stream()
 				.collect(Collectors.toMap(Function.identity(), (id) -> refLog.getViewRefById(id).getName())));
 
-		return new Planner(state, from, to, newTableRefIds, newViewRefIds, migrator.getRefLog()).createPlan();
+		return new Planner(state, from, to, newTableRefIds, newViewRefIds, refLog).createPlan();
 	}
 
 	private static class Planner {
@@ -4,17 +4,27 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static io.quantumdb.core.planner.QueryUtils.quoted;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
@@ -28,13 +38,17 @@ import io.quantumdb.core.backends.planner.Step;
 import io.quantumdb.core.backends.postgresql.migrator.ViewCreator;
 import io.quantumdb.core.migration.Migrator.Stage;
 import io.quantumdb.core.migration.VersionTraverser.Direction;
+import io.quantumdb.core.planner.BackfillCheckpoints.PendingForeignKey;
 import io.quantumdb.core.schema.definitions.Catalog;
 import io.quantumdb.core.schema.definitions.Column;
 import io.quantumdb.core.schema.definitions.ForeignKey;
+import io.quantumdb.core.schema.definitions.Identity;
+import io.quantumdb.core.schema.definitions.Index;
 import io.quantumdb.core.schema.definitions.Sequence;
 import io.quantumdb.core.schema.definitions.Table;
 import io.quantumdb.core.schema.operations.DataOperation;
 import io.quantumdb.core.schema.operations.Operation.Type;
+import io.quantumdb.core.utils.QueryBuilder;
 import io.quantumdb.core.versioning.RefLog;
 import io.quantumdb.core.versioning.RefLog.ColumnRef;
 import io.quantumdb.core.versioning.RefLog.SyncRef;
@@ -58,6 +72,20 @@ class PostgresqlMigrator implements DatabaseMigrator {
 	@Override
 	public void applySchemaChanges(State state, Version from, Version to) throws MigrationException {
 		RefLog refLog = state.getRefLog();
+		if (isInterrupted(refLog, to)) {
+			if (!config.isResume()) {
+				throw new MigrationException("An earlier fork to version: " + to.getId() + " was interrupted. "
+						+ "Either resume it using --resume, or drop version: " + to.getId() + " to start over.");
+			}
+
+			log.info("Resuming interrupted fork to version: {}", to.getId());
+			Plan plan = new PostgresqlMigrationPlanner().resumePlan(state, from, to);
+			PlanValidator.validate(plan);
+
+			new InternalPlanner(backend, config, plan, state, from, to, Sets.newHashSet(), true).migrate();
+			return;
+		}
+
 		Set<Version> preMigration = refLog.getVersions();
 		Plan plan = new PostgresqlMigrationPlanner().createPlan(state, from, to);
 
@@ -66,7 +94,21 @@ class PostgresqlMigrator implements DatabaseMigrator {
 		Set<Version> intermediateVersions = Sets.newHashSet(Sets.difference(postMigration, preMigration));
 		intermediateVersions.remove(to);
 
-		new InternalPlanner(backend, config, plan, state, from, to, intermediateVersions).migrate();
+		new InternalPlanner(backend, config, plan, state, from, to, intermediateVersions, false).migrate();
+	}
+
+	/**
+	 * A fork was interrupted when the RefLog contains tables for the (inactive) target version, which are not
+	 * present in any of the active versions. These are the ghost tables which were created by that fork.
+	 */
+	private boolean isInterrupted(RefLog refLog, Version to) {
+		Set<Version> activeVersions = refLog.getVersions();
+		if (activeVersions.contains(to)) {
+			return false;
+		}
+
+		return refLog.getTableRefs(to).stream()
+				.anyMatch(tableRef -> tableRef.getVersions().stream().noneMatch(activeVersions::contains));
 	}
 
 	@Override
@@ -192,10 +234,16 @@ class PostgresqlMigrator implements DatabaseMigrator {
 			connection.setAutoCommit(false);
 
 			dropSynchronizers(connection, state.getRefLog(), tablesToDrop);
+			boolean transitionTablesSupported = backend.supportsTransitionTables();
+			boolean upsertsSupported = backend.supportsUpserts();
 			for (SyncFunction syncFunction : newSyncFunctions.values()) {
+				syncFunction.setTransitionTablesSupported(transitionTablesSupported);
+				syncFunction.setUpsertsSupported(upsertsSupported);
 				QueryUtils.execute(connection, config, syncFunction.createFunctionStatement().toString());
 				QueryUtils.execute(connection, config, syncFunction.createTriggerStatement().toString());
 			}
+			// The views in the schema of this version depend on the tables which are about to be dropped.
+			new VersionSchemaCreator(config).drop(connection, version);
 			dropTables(connection, refLog, catalog, tablesToDrop);
 			refLog.setVersionState(version, false);
 			backend.persistState(state, null);
@@ -232,7 +280,7 @@ class PostgresqlMigrator implements DatabaseMigrator {
 		String sourceRefId = sync.getSource().getRefId();
 		String targetRefId = sync.getTarget().getRefId();
 
-		QueryUtils.execute(connection, config, "DROP TRIGGER " + quoted(triggerName) + " ON " + quoted(sourceRefId) + ";");
+		QueryUtils.execute(connection, config, SyncFunction.createDropTriggerStatement(triggerName, sourceRefId).toString());
 		QueryUtils.execute(connection, config, "DROP FUNCTION " + quoted(functionName) + "();");
 		sync.drop();
 		log.info("Dropped synchronizer: {}/{} for: {} -> {}", triggerName, functionName, sourceRefId, targetRefId);
@@ -312,12 +360,13 @@ class PostgresqlMigrator implements DatabaseMigrator {
 		private final Config config;
 		private final Version from;
 		private final Version to;
+		private final boolean resume;
 
 		private final com.google.common.collect.Table<String, String, SyncFunction> syncFunctions;
-
+		private final Object lock = new Object();
 
 		public InternalPlanner(PostgresqlBackend backend, Config config, Plan plan, State state,
-				Version from, Version to, Set<Version> intermediateVersions) {
+				Version from, Version to, Set<Version> intermediateVersions, boolean resume) {
 
 			this.backend = backend;
 			this.config = config;
@@ -330,33 +379,93 @@ class PostgresqlMigrator implements DatabaseMigrator {
 			this.syncFunctions = HashBasedTable.create();
 			this.from = from;
 			this.to = to;
+			this.resume = resume;
 		}
 
 		public void migrate() throws MigrationException {
-			createGhostTables();
+			if (resume) {
+				restoreProgress();
+			}
+			else {
+				createGhostTables();
 
-			Optional<Step> nextStep;
-			while ((nextStep = plan.nextStep()).isPresent()) {
-				try {
-					Step step = nextStep.get();
-					execute(step.getOperation());
-					step.markAsExecuted();
-				}
-				catch (InterruptedException e) {
-					Thread.currentThread().interrupt();
-					throw new MigrationException(e);
-				}
+				// Persist the ghost tables and views early on, so that an interrupted fork can be resumed.
+				createViews(to);
+				persistState();
+				savePendingStatements();
+			}
+
+			try {
+				executeSteps();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new MigrationException(e);
 			}
 
 			createIndexes();
 
+			createDeferredForeignKeys();
+
 			synchronizeBackwards();
 
-			refLog.setVersionState(to, true);
+			if (config.isVersionSchemas()) {
+				createVersionSchemas();
+			}
 
-			createViews(to);
+			refLog.setVersionState(to, true);
 
 			persistState();
+
+			clearCheckpoints();
+		}
+
+		private void restoreProgress() throws MigrationException {
+			Catalog catalog = state.getCatalog();
+			Set<Table> ghostTables = plan.getGhostTables();
+			for (Table ghostTable : ghostTables) {
+				TableRef tableRef = refLog.getTableRefById(ghostTable.getName());
+
+				Set<SyncRef> syncs = Sets.union(tableRef.getInboundSyncs(), tableRef.getOutboundSyncs());
+				for (SyncRef sync : syncs) {
+					TableRef source = sync.getSource();
+					TableRef target = sync.getTarget();
+					Map<ColumnRef, ColumnRef> mapping = refLog.getColumnMapping(source, target);
+
+					log.info("Reusing sync function: {} for table: {}", sync.getFunctionName(), source.getRefId());
+					syncFunctions.put(source.getRefId(), target.getRefId(), new SyncFunction(refLog, source, target,
+							mapping, catalog, nullRecords, sync.getFunctionName(), sync.getName()));
+				}
+			}
+
+			try (Connection connection = backend.connect()) {
+				boolean transitionTablesSupported = backend.supportsTransitionTables();
+				boolean upsertsSupported = backend.supportsUpserts();
+				syncFunctions.values().forEach(sync -> {
+					sync.setTransitionTablesSupported(transitionTablesSupported);
+					sync.setUpsertsSupported(upsertsSupported);
+				});
+
+				Map<Table, Identity> identities = new BackfillCheckpoints(config).loadNullRecords(connection, catalog);
+				identities.keySet().retainAll(ghostTables);
+				nullRecords.restore(identities);
+			}
+			catch (SQLException e) {
+				throw new MigrationException(e);
+			}
+		}
+
+		private void clearCheckpoints() throws MigrationException {
+			Set<String> refIds = plan.getGhostTables().stream()
+					.map(Table::getName)
+					.collect(Collectors.toSet());
+
+			try (Connection connection = backend.connect()) {
+				new BackfillCheckpoints(config).clear(connection, refIds);
+			}
+			catch (SQLException e) {
+				throw new MigrationException(e);
+			}
 		}
 
 		private void persistState() throws MigrationException {
@@ -368,6 +477,83 @@ class PostgresqlMigrator implements DatabaseMigrator {
 			}
 		}
 
+		/**
+		 * Executes all steps of the plan. Steps whose dependencies have all been executed are copied at the same time
+		 * over a bounded pool of workers (see {@link Config#getStepConcurrency()}). Steps which add or drop NULL records
+		 * are quick and are executed on the calling thread in the order in which they appear in the plan.
+		 */
+		private void executeSteps() throws MigrationException, InterruptedException {
+			// Statements of a dry run are written to a single output file, so there's nothing to gain by running these.
+			int concurrency = config.isDryRun() ? 1 : config.getStepConcurrency();
+			if (concurrency <= 1) {
+				Optional<Step> nextStep;
+				while ((nextStep = plan.nextStep()).isPresent()) {
+					Step step = nextStep.get();
+					execute(step.getOperation());
+					step.markAsExecuted();
+				}
+				return;
+			}
+
+			ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+			CompletionService<Step> completionService = new ExecutorCompletionService<>(executor);
+			try {
+				Set<Step> submitted = Sets.newHashSet();
+				int running = 0;
+				while (true) {
+					boolean progressed = false;
+					for (Step step : plan.getExecutableSteps()) {
+						if (!submitted.add(step)) {
+							continue;
+						}
+
+						if (step.getOperation().getType() == Operation.Type.COPY) {
+							completionService.submit(() -> {
+								execute(step.getOperation());
+								return step;
+							});
+							running++;
+						}
+						else {
+							execute(step.getOperation());
+							step.markAsExecuted();
+							progressed = true;
+						}
+					}
+
+					if (progressed) {
+						continue;
+					}
+					else if (running == 0) {
+						break;
+					}
+
+					Step completed = await(completionService.take());
+					completed.markAsExecuted();
+					running--;
+				}
+			}
+			finally {
+				executor.shutdownNow();
+			}
+		}
+
+		private Step await(Future<Step> future) throws MigrationException, InterruptedException {
+			try {
+				return future.get();
+			}
+			catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof MigrationException) {
+					throw (MigrationException) cause;
+				}
+				else if (cause instanceof InterruptedException) {
+					throw (InterruptedException) cause;
+				}
+				throw new MigrationException(cause);
+			}
+		}
+
 		private void execute(Operation operation) throws MigrationException, InterruptedException {
 
 			log.info("Executing operation: " + operation);
@@ -375,20 +561,32 @@ class PostgresqlMigrator implements DatabaseMigrator {
 				Set<Table> tables = operation.getTables();
 				switch (operation.getType()) {
 					case ADD_NULL:
-						nullRecords.insertNullObjects(backend, tables);
+						synchronized (lock) {
+							nullRecords.insertNullObjects(backend, tables);
+						}
 						break;
 					case DROP_NULL:
-						nullRecords.deleteNullObjects(backend, tables);
+						synchronized (lock) {
+							nullRecords.deleteNullObjects(backend, tables);
+						}
 						break;
 					case COPY:
 						Table table = tables.iterator().next();
 						Set<String> columns = operation.getColumns();
-						Set<String> previouslyMigrated = Sets.newHashSet(this.migratedColumns.get(table));
-						Set<String> combined = Sets.union(previouslyMigrated, columns);
 
-						synchronizeForwards(table, Sets.newHashSet(combined));
+						// The sync functions and the RefLog are shared with concurrently executing steps.
+						Set<String> previouslyMigrated;
+						synchronized (lock) {
+							previouslyMigrated = Sets.newHashSet(this.migratedColumns.get(table));
+							Set<String> combined = Sets.union(previouslyMigrated, columns);
+							synchronizeForwards(table, Sets.newHashSet(combined));
+						}
+
 						copyData(table, previouslyMigrated, columns);
-						this.migratedColumns.putAll(table, columns);
+
+						synchronized (lock) {
+							this.migratedColumns.putAll(table, columns);
+						}
 						break;
 				}
 			}
@@ -411,7 +609,20 @@ class PostgresqlMigrator implements DatabaseMigrator {
 			try (Connection connection = backend.connect()) {
 				TableCreator creator = new TableCreator(config);
 				creator.createTables(connection, plan.getGhostTables());
-				creator.createForeignKeys(connection, plan.getGhostTables());
+
+				// Foreign keys which don't cascade changes are only created once the ghost tables have been populated.
+				creator.createImmediateForeignKeys(connection, plan.getGhostTables());
+			}
+			catch (SQLException e) {
+				throw new MigrationException(e);
+			}
+		}
+
+		private void savePendingStatements() throws MigrationException {
+			try (Connection connection = backend.connect()) {
+				BackfillCheckpoints checkpoints = new BackfillCheckpoints(config);
+				checkpoints.savePendingIndexes(connection, plan.getGhostTables());
+				checkpoints.savePendingForeignKeys(connection, plan.getGhostTables());
 			}
 			catch (SQLException e) {
 				throw new MigrationException(e);
@@ -419,15 +630,118 @@ class PostgresqlMigrator implements DatabaseMigrator {
 		}
 
 		private void createIndexes() throws MigrationException {
+			try {
+				ListMultimap<String, String> statements;
+				if (resume) {
+					// The catalog only contains the indexes which were already created before the fork was interrupted.
+					try (Connection connection = backend.connect()) {
+						dropInvalidIndexes(connection, plan.getGhostTables());
+						statements = new BackfillCheckpoints(config)
+								.loadPendingIndexes(connection, plan.getGhostTables());
+					}
+				}
+				else {
+					statements = IndexBuilder.createStatements(config, plan.getGhostTables());
+				}
+
+				new IndexBuilder(backend, config).build(statements);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new MigrationException(e);
+			}
+			catch (SQLException e) {
+				throw new MigrationException(e);
+			}
+		}
+
+		/**
+		 * Creates the schemas of views of both the source and the target version, so that clients can switch between
+		 * these versions by changing their search_path.
+		 */
+		private void createVersionSchemas() throws MigrationException {
+			try (Connection connection = backend.connect()) {
+				VersionSchemaCreator creator = new VersionSchemaCreator(config);
+				if (from != null) {
+					creator.create(connection, refLog, from);
+				}
+				creator.create(connection, refLog, to);
+			}
+			catch (SQLException e) {
+				throw new MigrationException(e);
+			}
+		}
+
+		private void createDeferredForeignKeys() throws MigrationException {
 			try (Connection connection = backend.connect()) {
 				TableCreator creator = new TableCreator(config);
-				creator.createIndexes(connection, plan.getGhostTables());
+				if (resume) {
+					List<PendingForeignKey> foreignKeys = new BackfillCheckpoints(config)
+							.loadPendingForeignKeys(connection, plan.getGhostTables());
+
+					for (PendingForeignKey foreignKey : foreignKeys) {
+						if (!constraintExists(connection, foreignKey.getRefId(), foreignKey.getForeignKeyName())) {
+							QueryUtils.execute(connection, config, foreignKey.getStatement());
+						}
+						creator.validateForeignKey(connection, foreignKey.getRefId(), foreignKey.getForeignKeyName());
+					}
+				}
+				else {
+					creator.createDeferredForeignKeys(connection, plan.getGhostTables());
+				}
 			}
 			catch (SQLException e) {
 				throw new MigrationException(e);
 			}
 		}
 
+		/**
+		 * An interrupted CREATE INDEX CONCURRENTLY leaves an invalid index behind, which would otherwise be taken for an
+		 * index that was already built. These are dropped, so that they are built again.
+		 */
+		private void dropInvalidIndexes(Connection connection, Collection<Table> tables) throws SQLException {
+			String query = new QueryBuilder()
+					.append("SELECT c.relname AS index_name")
+					.append("FROM pg_index i")
+					.append("JOIN pg_class c ON c.oid = i.indexrelid")
+					.append("WHERE i.indrelid = ?::regclass AND NOT i.indisvalid;")
+					.toString();
+
+			List<String> invalidIndexes = Lists.newArrayList();
+			try (PreparedStatement statement = connection.prepareStatement(query)) {
+				for (Table table : tables) {
+					Set<String> indexNames = table.getIndexes().stream()
+							.map(Index::getIndexName)
+							.collect(Collectors.toSet());
+
+					statement.setString(1, quoted(table.getName()));
+					ResultSet resultSet = statement.executeQuery();
+					while (resultSet.next()) {
+						String indexName = resultSet.getString("index_name");
+						if (indexNames.contains(indexName)) {
+							invalidIndexes.add(indexName);
+						}
+					}
+				}
+			}
+
+			for (String indexName : invalidIndexes) {
+				log.info("Dropping invalid index: {} left behind by an interrupted build", indexName);
+				QueryUtils.execute(connection, config, "DROP INDEX CONCURRENTLY IF EXISTS " + quoted(indexName) + ";");
+			}
+		}
+
+		private boolean constraintExists(Connection connection, String tableName, String constraintName)
+				throws SQLException {
+
+			String query = "SELECT 1 FROM pg_constraint WHERE conname = ? AND conrelid = ?::regclass;";
+			try (PreparedStatement statement = connection.prepareStatement(query)) {
+				statement.setString(1, constraintName);
+				statement.setString(2, quoted(tableName));
+				return statement.executeQuery().next();
+			}
+		}
+
 		private void synchronizeForwards(Table targetTable, Set<String> targetColumns) throws SQLException {
 			log.info("Creating forward sync function for table: {}...", targetTable.getName());
 			try (Connection connection = backend.connect()) {
@@ -446,16 +760,25 @@ class PostgresqlMigrator implements DatabaseMigrator {
 		private void copyData(Table targetTable, Set<String> migratedColumns, Set<String> columnsToMigrate)
 				throws SQLException, InterruptedException {
 
-			Catalog catalog = state.getCatalog();
-			Multimap<TableRef, TableRef> tableMapping = state.getRefLog().getTableMapping(from, to);
-			for (Entry<TableRef, TableRef> entry : tableMapping.entries()) {
-				if (entry.getValue().getRefId().equals(targetTable.getName())) {
-					Table source = catalog.getTable(entry.getKey().getRefId());
-					Table target = catalog.getTable(entry.getValue().getRefId());
-					TableDataMigrator tableDataMigrator = new TableDataMigrator(backend, config, refLog);
-					tableDataMigrator.migrateData(nullRecords, source, target, from, to, migratedColumns, columnsToMigrate);
+			// Other steps may concurrently alter the RefLog, so resolve the source tables before copying any data.
+			List<Table> sources = Lists.newArrayList();
+			Table target;
+			synchronized (lock) {
+				Catalog catalog = state.getCatalog();
+				target = catalog.getTable(targetTable.getName());
+				Multimap<TableRef, TableRef> tableMapping = state.getRefLog().getTableMapping(from, to);
+				for (Entry<TableRef, TableRef> entry : tableMapping.entries()) {
+					if (entry.getValue().getRefId().equals(targetTable.getName())) {
+						sources.add(catalog.getTable(entry.getKey().getRefId()));
+					}
 				}
 			}
+
+			for (Table source : sources) {
+				TableDataMigrator tableDataMigrator = new TableDataMigrator(backend, config, refLog, lock);
+				tableDataMigrator.migrateData(nullRecords, source, target, from, to, migratedColumns,
+						columnsToMigrate);
+			}
 		}
 
 		private void synchronizeBackwards() throws MigrationException {
@@ -491,6 +814,8 @@ class PostgresqlMigrator implements DatabaseMigrator {
 			if (syncFunction == null) {
 				Map<ColumnRef, ColumnRef> mapping = refLog.getColumnMapping(source, target);
 				syncFunction = new SyncFunction(refLog, source, target, mapping, catalog, nullRecords);
+				syncFunction.setTransitionTablesSupported(backend.supportsTransitionTables());
+				syncFunction.setUpsertsSupported(backend.supportsUpserts());
 				syncFunction.setColumnsToMigrate(columns);
 				syncFunctions.put(sourceRefId, targetRefId, syncFunction);
 
@@ -502,6 +827,9 @@ class PostgresqlMigrator implements DatabaseMigrator {
 
 				Map<ColumnRef, ColumnRef> columnMapping = refLog.getColumnMapping(source, target);
 				refLog.addSync(syncFunction.getTriggerName(), syncFunction.getFunctionName(), columnMapping);
+
+				// Persist the new synchronizer right away, so that an interrupted fork can reuse it when resumed.
+				backend.persistState(state, null);
 			}
 			else {
 				syncFunction.setColumnsToMigrate(columns);
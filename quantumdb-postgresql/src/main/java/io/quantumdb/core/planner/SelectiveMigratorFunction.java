@@ -10,6 +10,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import io.quantumdb.core.planner.MigratorFunction.Stage;
@@ -29,20 +30,33 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class SelectiveMigratorFunction {
 
+	static final String BATCH_SIZE = "batch_size";
+	static final String LOWER_BOUND = "lower_bound";
+	static final String UPPER_BOUND = "upper_bound";
+
+	/**
+	 * Creates a migrator function which copies records from the source table to the target table in batches. The
+	 * size of each batch is passed as the first parameter of the function, so that it can be tuned between calls.
+	 * When ranged is true, the function accepts two additional trailing parameters (a lower and an upper bound,
+	 * both inclusive) on the first primary key column, which restricts the function to that slice of the key space.
+	 * When setBased is true, and the function populates the target table (rather than updating it), each batch is
+	 * copied with a single INSERT INTO ... SELECT statement instead of inserting the records one by one.
+	 */
 	static MigratorFunction createMigrator(NullRecords nullRecords, RefLog refLog, Table source, Table target,
-			Version from, Version to, long batchSize, Stage stage, Set<String> migratedColumns,
-			Set<String> columnsToBeMigrated) {
+			Version from, Version to, Stage stage, Set<String> migratedColumns, Set<String> columnsToBeMigrated,
+			boolean ranged, boolean setBased) {
 
 		if (migratedColumns.isEmpty()) {
-			return createInsertMigrator(nullRecords, refLog, source, target, from, to, batchSize, stage, columnsToBeMigrated);
+			return createInsertMigrator(nullRecords, refLog, source, target, from, to, stage, columnsToBeMigrated,
+					ranged, setBased);
 		}
 		else {
-			return createUpdateMigrator(refLog, source, target, from, to, batchSize, stage, columnsToBeMigrated);
+			return createUpdateMigrator(refLog, source, target, from, to, stage, columnsToBeMigrated, ranged);
 		}
 	}
 
 	private static MigratorFunction createUpdateMigrator(RefLog refLog, Table source, Table target, Version from,
-			Version to, long batchSize, Stage stage, Set<String> columnsToBeMigrated) {
+			Version to, Stage stage, Set<String> columnsToBeMigrated, boolean ranged) {
 
 		List<Column> primaryKeyColumns = source.getPrimaryKeyColumns();
 		Map<String, String> functionParameterMapping = Maps.newHashMap();
@@ -62,15 +76,17 @@ public class SelectiveMigratorFunction {
 
 		QueryBuilder createStatement = new QueryBuilder();
 
-		switch (stage) {
-			case INITIAL:
-				createStatement.append("CREATE FUNCTION " + quoted(functionName) + "()");
-				break;
-			case CONSECUTIVE:
-				createStatement.append(
-						"CREATE FUNCTION " + quoted(functionName) + "(" + Joiner.on(", ").join(functionParameters) + ")");
-				break;
+		List<String> signature = Lists.newArrayList(BATCH_SIZE + " bigint");
+		if (stage == Stage.CONSECUTIVE) {
+			signature.addAll(functionParameters);
 		}
+		if (ranged) {
+			String rangeType = primaryKeyColumns.get(0).getType().toString();
+			signature.add(LOWER_BOUND + " " + rangeType);
+			signature.add(UPPER_BOUND + " " + rangeType);
+		}
+
+		createStatement.append("CREATE FUNCTION " + quoted(functionName) + "(" + Joiner.on(", ").join(signature) + ")");
 
 		createStatement.append("  RETURNS text AS $$");
 		createStatement.append("  DECLARE r record;");
@@ -78,28 +94,7 @@ public class SelectiveMigratorFunction {
 		createStatement.append("	FOR r IN");
 		createStatement.append("	  SELECT * FROM " + quoted(source.getName()));
 
-		if (stage != Stage.INITIAL) {
-			createStatement.append("		WHERE");
-			for (int i = 0; i < primaryKeyColumns.size(); i++) {
-				if (i > 0) {
-					createStatement.append("OR");
-				}
-
-				createStatement.append("(");
-
-				for (int j = 0; j < i; j++) {
-					String primaryKeyColumnName = primaryKeyColumns.get(j).getName();
-					String value = functionParameterMapping.get(primaryKeyColumnName);
-					createStatement.append(quoted(primaryKeyColumnName) + " = " + value);
-					createStatement.append("AND");
-				}
-
-				String primaryKeyColumnName = primaryKeyColumns.get(i).getName();
-				String value = functionParameterMapping.get(primaryKeyColumnName);
-				createStatement.append(quoted(primaryKeyColumnName) + " > " + value);
-				createStatement.append(")");
-			}
-		}
+		appendFilter(createStatement, primaryKeyColumns, functionParameterMapping, stage, ranged);
 
 		Multimap<TableRef, TableRef> tableMapping = refLog.getTableMapping(from, to);
 
@@ -146,7 +141,7 @@ public class SelectiveMigratorFunction {
 				.collect(Collectors.joining(" AND "));
 
 		createStatement.append("		ORDER BY " + primaryKeyColumnNames.stream().map(value -> quoted(value) + " ASC").collect(Collectors.joining(", ")));
-		createStatement.append("		LIMIT " + batchSize);
+		createStatement.append("		LIMIT " + BATCH_SIZE);
 		createStatement.append("	LOOP");
 		createStatement.append("	  BEGIN");
 		createStatement.append("		UPDATE " + quoted(target.getName()));
@@ -161,16 +156,18 @@ public class SelectiveMigratorFunction {
 				.map(column -> column.getType().getType().toString())
 				.collect(Collectors.toList());
 
-		QueryBuilder dropStatement = new QueryBuilder();
-		switch (stage) {
-			case INITIAL:
-				dropStatement.append("DROP FUNCTION " + quoted(functionName) + "();");
-				break;
-			case CONSECUTIVE:
-				dropStatement.append("DROP FUNCTION " + quoted(functionName) + "(" + Joiner.on(",").join(parameterTypes) + ");");
-				break;
+		List<String> signatureTypes = Lists.newArrayList("BIGINT");
+		if (stage == Stage.CONSECUTIVE) {
+			signatureTypes.addAll(parameterTypes);
+		}
+		if (ranged) {
+			signatureTypes.add(parameterTypes.get(0));
+			signatureTypes.add(parameterTypes.get(0));
 		}
 
+		QueryBuilder dropStatement = new QueryBuilder();
+		dropStatement.append("DROP FUNCTION " + quoted(functionName) + "(" + Joiner.on(",").join(signatureTypes) + ");");
+
 		LinkedHashMap<String, String> zippedPrimaryKeys = Maps.newLinkedHashMap();
 		for (int i = 0; i < primaryKeyColumnNames.size(); i++) {
 			zippedPrimaryKeys.put(primaryKeyColumnNames.get(i), parameterTypes.get(i));
@@ -180,7 +177,8 @@ public class SelectiveMigratorFunction {
 	}
 
 	private static MigratorFunction createInsertMigrator(NullRecords nullRecords, RefLog refLog, Table source,
-			Table target, Version from, Version to, long batchSize, Stage stage, Set<String> columns) {
+			Table target, Version from, Version to, Stage stage, Set<String> columns, boolean ranged,
+			boolean setBased) {
 
 		List<Column> primaryKeyColumns = source.getPrimaryKeyColumns();
 		Map<String, String> functionParameterMapping = Maps.newHashMap();
@@ -245,24 +243,98 @@ public class SelectiveMigratorFunction {
 
 		QueryBuilder createStatement = new QueryBuilder();
 
-		switch (stage) {
-			case INITIAL:
-				createStatement.append("CREATE FUNCTION " + quoted(functionName) + "()");
-				break;
-			case CONSECUTIVE:
-				createStatement.append(
-						"CREATE FUNCTION " + quoted(functionName) + "(" + Joiner.on(", ").join(functionParameters) + ")");
-				break;
+		List<String> signature = Lists.newArrayList(BATCH_SIZE + " bigint");
+		if (stage == Stage.CONSECUTIVE) {
+			signature.addAll(functionParameters);
+		}
+		if (ranged) {
+			String rangeType = primaryKeyColumns.get(0).getType().toString();
+			signature.add(LOWER_BOUND + " " + rangeType);
+			signature.add(UPPER_BOUND + " " + rangeType);
 		}
 
-		createStatement.append("  RETURNS text AS $$");
-		createStatement.append("  DECLARE r record;");
-		createStatement.append("  BEGIN");
-		createStatement.append("	FOR r IN");
-		createStatement.append("	  SELECT * FROM " + quoted(source.getName()));
+		createStatement.append("CREATE FUNCTION " + quoted(functionName) + "(" + Joiner.on(", ").join(signature) + ")");
+
+		if (setBased) {
+			createStatement.append("  RETURNS text AS $$");
+			createStatement.append("  DECLARE result text;");
+			createStatement.append("  BEGIN");
+			createStatement.append("	WITH batch AS (");
+			createStatement.append("	  SELECT * FROM " + quoted(source.getName()));
+
+			appendFilter(createStatement, primaryKeyColumns, functionParameterMapping, stage, ranged);
+
+			createStatement.append("		ORDER BY " + primaryKeyColumnNames.stream().map(value -> quoted(value) + " ASC").collect(Collectors.joining(", ")));
+			createStatement.append("		LIMIT " + BATCH_SIZE);
+			createStatement.append("	), inserted AS (");
+			createStatement.append("	  INSERT INTO " + quoted(target.getName()));
+			createStatement.append("		(" + values.keySet().stream().map(QueryUtils::quoted).collect(Collectors.joining(", ")) + ")");
+			createStatement.append("		SELECT " + Joiner.on(", ").join(values.values()) + " FROM batch r");
+			createStatement.append("		ON CONFLICT DO NOTHING");
+			createStatement.append("	)");
+			createStatement.append("	SELECT CONCAT('(', " + primaryKeyColumnNames.stream().map(value -> "r." + quoted(value)).collect(Collectors.joining(",',', ")) + ", ')')");
+			createStatement.append("	  INTO result FROM batch r");
+			createStatement.append("	  ORDER BY " + primaryKeyColumnNames.stream().map(value -> "r." + quoted(value) + " DESC").collect(Collectors.joining(", ")));
+			createStatement.append("	  LIMIT 1;");
+			createStatement.append("  RETURN result;");
+			createStatement.append("END; $$ LANGUAGE 'plpgsql';");
+		}
+		else {
+			createStatement.append("  RETURNS text AS $$");
+			createStatement.append("  DECLARE r record;");
+			createStatement.append("  BEGIN");
+			createStatement.append("	FOR r IN");
+			createStatement.append("	  SELECT * FROM " + quoted(source.getName()));
+
+			appendFilter(createStatement, primaryKeyColumns, functionParameterMapping, stage, ranged);
+
+			createStatement.append("		ORDER BY " + primaryKeyColumnNames.stream().map(value -> quoted(value) + " ASC").collect(Collectors.joining(", ")));
+			createStatement.append("		LIMIT " + BATCH_SIZE);
+			createStatement.append("	LOOP");
+			createStatement.append("	  BEGIN");
+			createStatement.append("		INSERT INTO " + target.getName());
+			createStatement.append("		  (" + values.keySet().stream().map(QueryUtils::quoted).collect(Collectors.joining(", ")) + ")");
+			createStatement.append("		  VALUES (" + Joiner.on(", ").join(values.values()) + ");");
+			createStatement.append("	  EXCEPTION WHEN unique_violation THEN END;");
+			createStatement.append("	END LOOP;");
+			createStatement.append("  RETURN CONCAT('(', " + primaryKeyColumnNames.stream().map(value -> "r." + quoted(value)).collect(Collectors.joining(",',', ")) + ", ')');");
+			createStatement.append("END; $$ LANGUAGE 'plpgsql';");
+		}
 
+		List<String> parameterTypes = primaryKeyColumns.stream()
+				.map(column -> column.getType().getType().toString())
+				.collect(Collectors.toList());
+
+		List<String> signatureTypes = Lists.newArrayList("BIGINT");
+		if (stage == Stage.CONSECUTIVE) {
+			signatureTypes.addAll(parameterTypes);
+		}
+		if (ranged) {
+			signatureTypes.add(parameterTypes.get(0));
+			signatureTypes.add(parameterTypes.get(0));
+		}
+
+		QueryBuilder dropStatement = new QueryBuilder();
+		dropStatement.append("DROP FUNCTION " + quoted(functionName) + "(" + Joiner.on(",").join(signatureTypes) + ");");
+
+		LinkedHashMap<String, String> zippedPrimaryKeys = Maps.newLinkedHashMap();
+		for (int i = 0; i < primaryKeyColumnNames.size(); i++) {
+			zippedPrimaryKeys.put(primaryKeyColumnNames.get(i), parameterTypes.get(i));
+		}
+
+		return new MigratorFunction(functionName, zippedPrimaryKeys, createStatement.toString(), dropStatement.toString());
+	}
+
+	private static void appendFilter(QueryBuilder createStatement, List<Column> primaryKeyColumns,
+			Map<String, String> functionParameterMapping, Stage stage, boolean ranged) {
+
+		if (stage == Stage.INITIAL && !ranged) {
+			return;
+		}
+
+		createStatement.append("		WHERE");
 		if (stage != Stage.INITIAL) {
-			createStatement.append("		WHERE");
+			createStatement.append("(");
 			for (int i = 0; i < primaryKeyColumns.size(); i++) {
 				if (i > 0) {
 					createStatement.append("OR");
@@ -282,41 +354,18 @@ public class SelectiveMigratorFunction {
 				createStatement.append(quoted(primaryKeyColumnName) + " > " + value);
 				createStatement.append(")");
 			}
+			createStatement.append(")");
 		}
 
-		createStatement.append("		ORDER BY " + primaryKeyColumnNames.stream().map(value -> quoted(value) + " ASC").collect(Collectors.joining(", ")));
-		createStatement.append("		LIMIT " + batchSize);
-		createStatement.append("	LOOP");
-		createStatement.append("	  BEGIN");
-		createStatement.append("		INSERT INTO " + target.getName());
-		createStatement.append("		  (" + values.keySet().stream().map(QueryUtils::quoted).collect(Collectors.joining(", ")) + ")");
-		createStatement.append("		  VALUES (" + Joiner.on(", ").join(values.values()) + ");");
-		createStatement.append("	  EXCEPTION WHEN unique_violation THEN END;");
-		createStatement.append("	END LOOP;");
-		createStatement.append("  RETURN CONCAT('(', " + primaryKeyColumnNames.stream().map(value -> "r." + quoted(value)).collect(Collectors.joining(",',', ")) + ", ')');");
-		createStatement.append("END; $$ LANGUAGE 'plpgsql';");
-
-		List<String> parameterTypes = primaryKeyColumns.stream()
-				.map(column -> column.getType().getType().toString())
-				.collect(Collectors.toList());
-
-		QueryBuilder dropStatement = new QueryBuilder();
+		if (ranged) {
+			if (stage != Stage.INITIAL) {
+				createStatement.append("AND");
+			}
 
-		switch (stage) {
-			case INITIAL:
-				dropStatement.append("DROP FUNCTION " + quoted(functionName) + "();");
-				break;
-			case CONSECUTIVE:
-				dropStatement.append("DROP FUNCTION " + quoted(functionName) + "(" + Joiner.on(",").join(parameterTypes) + ");");
-				break;
+			String rangeColumnName = quoted(primaryKeyColumns.get(0).getName());
+			createStatement.append(rangeColumnName + " >= " + LOWER_BOUND);
+			createStatement.append("AND " + rangeColumnName + " <= " + UPPER_BOUND);
 		}
-
-		LinkedHashMap<String, String> zippedPrimaryKeys = Maps.newLinkedHashMap();
-		for (int i = 0; i < primaryKeyColumnNames.size(); i++) {
-			zippedPrimaryKeys.put(primaryKeyColumnNames.get(i), parameterTypes.get(i));
-		}
-
-		return new MigratorFunction(functionName, zippedPrimaryKeys, createStatement.toString(), dropStatement.toString());
 	}
 
 }
@@ -24,11 +24,15 @@ import io.quantumdb.core.versioning.RefLog.ColumnRef;
 import io.quantumdb.core.versioning.RefLog.TableRef;
 import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.Setter;
 
 @Data
 public class SyncFunction {
 
+	private static final String UPDATE_TRIGGER_SUFFIX = "_update";
+	private static final String DELETE_TRIGGER_SUFFIX = "_delete";
+
 	private final TableRef source;
 	private final TableRef target;
 	private final String functionName;
@@ -50,6 +54,20 @@ public class SyncFunction {
 	@Setter(AccessLevel.NONE)
 	private ImmutableMap<String, String> updateIdentitiesForInserts;
 
+	/**
+	 * Whether the database supports statement-level triggers with transition tables (PostgreSQL 10 and up).
+	 */
+	private boolean transitionTablesSupported;
+
+	/**
+	 * Whether the database supports INSERT ... ON CONFLICT statements (PostgreSQL 9.5 and up).
+	 */
+	private boolean upsertsSupported;
+
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private Boolean statementLevel;
+
 	public SyncFunction(RefLog refLog, TableRef source, TableRef target, Map<ColumnRef, ColumnRef> columnMapping,
 			Catalog catalog, NullRecords nullRecords) {
 
@@ -142,7 +160,52 @@ public class SyncFunction {
 				.orElse(null);
 	}
 
+	/**
+	 * @return True if changes are synchronized once per statement using transition tables, rather than once per row.
+	 * This requires the database to support transition tables, and every primary key column of the target table to
+	 * be mapped from a column of the source table. Once determined, this no longer changes so that an updated
+	 * function always matches the trigger(s) which were created for it.
+	 */
+	public boolean isStatementLevel() {
+		if (statementLevel != null) {
+			return statementLevel;
+		}
+		else if (updateIdentities == null) {
+			return false;
+		}
+
+		statementLevel = transitionTablesSupported && isPrimaryKeyMapped();
+		return statementLevel;
+	}
+
+	/**
+	 * @return True if updates are synchronized using INSERT ... ON CONFLICT statements, rather than a loop which
+	 * retries the UPDATE and INSERT statements until one of them succeeds.
+	 */
+	public boolean isUpsert() {
+		return upsertsSupported && isPrimaryKeyMapped();
+	}
+
+	/**
+	 * @return True if every primary key column of the target table is mapped from a column of the source table.
+	 */
+	private boolean isPrimaryKeyMapped() {
+		if (updateIdentities == null || updateIdentities.isEmpty()) {
+			return false;
+		}
+
+		Table targetTable = catalog.getTable(target.getRefId());
+		return updateIdentities.size() == targetTable.getPrimaryKeyColumns().size();
+	}
+
 	public QueryBuilder createFunctionStatement() {
+		if (isStatementLevel()) {
+			return createStatementLevelFunctionStatement();
+		}
+		else if (isUpsert()) {
+			return createUpsertFunctionStatement();
+		}
+
 		return new QueryBuilder()
 				.append("CREATE OR REPLACE FUNCTION " + quoted(functionName) + "()")
 				.append("RETURNS TRIGGER AS $$")
@@ -173,6 +236,74 @@ public class SyncFunction {
 				.append("$$ LANGUAGE 'plpgsql';");
 	}
 
+	private QueryBuilder createUpsertFunctionStatement() {
+		return new QueryBuilder()
+				.append("CREATE OR REPLACE FUNCTION " + quoted(functionName) + "()")
+				.append("RETURNS TRIGGER AS $$")
+				.append("BEGIN")
+				.append("  IF TG_OP = 'INSERT' THEN")
+				.append("    INSERT INTO " + quoted(target.getRefId()))
+				.append("      (" + represent(insertExpressions, entry -> quoted(entry.getKey()), ", ") + ") VALUES")
+				.append("      (" + represent(insertExpressions, Entry::getValue, ", ") + ");")
+				.append("  ELSIF TG_OP = 'UPDATE' THEN")
+				.append("    UPDATE " + quoted(target.getRefId()))
+				.append("      SET " + represent(updateIdentitiesForInserts, " = ", ", "))
+				.append("      WHERE " + represent(updateIdentities, " = ", " AND ") + ";")
+				.append("    IF NOT found THEN")
+				.append("      INSERT INTO " + quoted(target.getRefId()))
+				.append("        (" + represent(insertExpressions, entry -> quoted(entry.getKey()), ", ") + ") VALUES")
+				.append("        (" + represent(insertExpressions, Entry::getValue, ", ") + ")")
+				.append("        ON CONFLICT (" + represent(updateIdentities, entry -> quoted(entry.getKey()), ", ") + ") DO UPDATE")
+				.append("        SET " + represent(updateIdentitiesForInserts, entry -> quoted(entry.getKey()) + " = EXCLUDED." + quoted(entry.getKey()), ", ") + ";")
+				.append("    END IF;")
+				.append("  ELSIF TG_OP = 'DELETE' THEN")
+				.append("    DELETE FROM " + quoted(target.getRefId()))
+				.append("      WHERE " + represent(updateIdentities, " = ", " AND ") + ";")
+				.append("  END IF;")
+				.append("  RETURN NEW;")
+				.append("END;")
+				.append("$$ LANGUAGE 'plpgsql';");
+	}
+
+	private QueryBuilder createStatementLevelFunctionStatement() {
+		String targetTable = quoted(target.getRefId());
+		String columns = represent(insertExpressions, entry -> quoted(entry.getKey()), ", ");
+		String values = represent(insertExpressions, entry -> alias(entry.getValue(), "n"), ", ");
+
+		return new QueryBuilder()
+				.append("CREATE OR REPLACE FUNCTION " + quoted(functionName) + "()")
+				.append("RETURNS TRIGGER AS $$")
+				.append("BEGIN")
+				.append("  IF TG_OP = 'INSERT' THEN")
+				.append("    INSERT INTO " + targetTable + " (" + columns + ")")
+				.append("      SELECT " + values + " FROM new_rows n;")
+				.append("  ELSIF TG_OP = 'UPDATE' THEN")
+				.append("    DELETE FROM " + targetTable + " t USING old_rows o")
+				.append("      WHERE " + represent(updateIdentities, entry -> "t." + quoted(entry.getKey()) + " = " + alias(entry.getValue(), "o"), " AND "))
+				.append("      AND NOT EXISTS (SELECT 1 FROM new_rows n WHERE " + represent(updateIdentities, entry -> alias(entry.getValue(), "n") + " = " + alias(entry.getValue(), "o"), " AND ") + ");")
+				.append("    INSERT INTO " + targetTable + " (" + columns + ")")
+				.append("      SELECT " + values + " FROM new_rows n")
+				.append("      ON CONFLICT (" + represent(updateIdentities, entry -> quoted(entry.getKey()), ", ") + ") DO UPDATE")
+				.append("      SET " + represent(updateIdentitiesForInserts, entry -> quoted(entry.getKey()) + " = EXCLUDED." + quoted(entry.getKey()), ", ") + ";")
+				.append("  ELSIF TG_OP = 'DELETE' THEN")
+				.append("    DELETE FROM " + targetTable + " t USING old_rows o")
+				.append("      WHERE " + represent(updateIdentities, entry -> "t." + quoted(entry.getKey()) + " = " + alias(entry.getValue(), "o"), " AND ") + ";")
+				.append("  END IF;")
+				.append("  RETURN NULL;")
+				.append("END;")
+				.append("$$ LANGUAGE 'plpgsql';");
+	}
+
+	/**
+	 * Replaces the NEW or OLD record in the specified expression by the specified alias of a transition table.
+	 */
+	private String alias(String expression, String alias) {
+		if (expression.startsWith("NEW.") || expression.startsWith("OLD.")) {
+			return alias + expression.substring(3);
+		}
+		return expression;
+	}
+
 	private String represent(Map<String, String> inputs, String innerJoin, String entryJoin) {
 		return inputs.entrySet().stream()
 				.map(entry -> quoted(entry.getKey()) + innerJoin + entry.getValue())
@@ -186,6 +317,16 @@ public class SyncFunction {
 	}
 
 	public QueryBuilder createTriggerStatement() {
+		if (isStatementLevel()) {
+			// Transition tables cannot be used by triggers which fire on more than one event.
+			return new QueryBuilder()
+					.append(createStatementLevelTriggerStatement(triggerName, "INSERT", "NEW TABLE AS new_rows"))
+					.append(createStatementLevelTriggerStatement(triggerName + UPDATE_TRIGGER_SUFFIX, "UPDATE",
+							"OLD TABLE AS old_rows NEW TABLE AS new_rows"))
+					.append(createStatementLevelTriggerStatement(triggerName + DELETE_TRIGGER_SUFFIX, "DELETE",
+							"OLD TABLE AS old_rows"));
+		}
+
 		return new QueryBuilder()
 				.append("CREATE TRIGGER " + quoted(triggerName))
 				.append("AFTER INSERT OR UPDATE OR DELETE")
@@ -195,4 +336,27 @@ public class SyncFunction {
 				.append("EXECUTE PROCEDURE " + quoted(functionName) + "();");
 	}
 
+	private String createStatementLevelTriggerStatement(String name, String event, String transitionTables) {
+		return new QueryBuilder()
+				.append("CREATE TRIGGER " + quoted(name))
+				.append("AFTER " + event)
+				.append("ON " + quoted(source.getRefId()))
+				.append("REFERENCING " + transitionTables)
+				.append("FOR EACH STATEMENT")
+				.append("WHEN (pg_trigger_depth() = 0)")
+				.append("EXECUTE PROCEDURE " + quoted(functionName) + "();")
+				.toString();
+	}
+
+	/**
+	 * Creates the statement which drops the trigger(s) of a synchronizer, regardless of whether it synchronizes
+	 * changes per row or per statement.
+	 */
+	public static QueryBuilder createDropTriggerStatement(String triggerName, String sourceRefId) {
+		return new QueryBuilder()
+				.append("DROP TRIGGER " + quoted(triggerName) + " ON " + quoted(sourceRefId) + ";")
+				.append("DROP TRIGGER IF EXISTS " + quoted(triggerName + UPDATE_TRIGGER_SUFFIX) + " ON " + quoted(sourceRefId) + ";")
+				.append("DROP TRIGGER IF EXISTS " + quoted(triggerName + DELETE_TRIGGER_SUFFIX) + " ON " + quoted(sourceRefId) + ";");
+	}
+
 }
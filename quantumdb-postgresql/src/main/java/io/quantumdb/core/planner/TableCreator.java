@@ -47,6 +47,56 @@ public class TableCreator {
 		}
 	}
 
+	/**
+	 * Creates only those foreign keys of the specified tables which cannot be deferred until after the tables have
+	 * been populated. See {@link #isDeferrable(ForeignKey)}.
+	 */
+	public void createImmediateForeignKeys(Connection connection, Collection<Table> tables) throws SQLException {
+		for (Table table : tables) {
+			for (ForeignKey foreignKey : table.getForeignKeys()) {
+				if (!isDeferrable(foreignKey)) {
+					log.info("Creating foreign key: {}", foreignKey.getForeignKeyName());
+					execute(connection, config, createForeignKeyStatement(foreignKey, false));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates those foreign keys of the specified tables which were deferred until after the tables had been
+	 * populated. These are first added without checking the existing records, and then validated separately which
+	 * does not block writes to either table.
+	 */
+	public void createDeferredForeignKeys(Connection connection, Collection<Table> tables) throws SQLException {
+		for (Table table : tables) {
+			for (ForeignKey foreignKey : table.getForeignKeys()) {
+				if (isDeferrable(foreignKey)) {
+					log.info("Creating foreign key: {}", foreignKey.getForeignKeyName());
+					execute(connection, config, createForeignKeyStatement(foreignKey, true));
+					validateForeignKey(connection, table.getName(), foreignKey.getForeignKeyName());
+				}
+			}
+		}
+	}
+
+	void validateForeignKey(Connection connection, String tableName, String foreignKeyName) throws SQLException {
+		log.info("Validating foreign key: {}", foreignKeyName);
+		execute(connection, config, "ALTER TABLE " + quoted(tableName) + " VALIDATE CONSTRAINT " + quoted(foreignKeyName) + ";");
+	}
+
+	/**
+	 * A foreign key can be deferred until after a ghost table has been populated, as long as it does not cascade
+	 * changes. Cascaded changes in the source tables are not picked up by the sync triggers (these only fire at
+	 * trigger depth 0), so the ghost tables rely on their own foreign keys to apply these changes.
+	 */
+	static boolean isDeferrable(ForeignKey foreignKey) {
+		return isPassive(foreignKey.getOnUpdate()) && isPassive(foreignKey.getOnDelete());
+	}
+
+	private static boolean isPassive(Action action) {
+		return action == Action.NO_ACTION || action == Action.RESTRICT;
+	}
+
 	public void createIndexes(Connection connection, Collection<Table> tables) throws SQLException {
 		for (Table table : tables) {
 			createIndexes(connection, table);
@@ -118,35 +168,44 @@ public class TableCreator {
 
 	private void createForeignKeys(Connection connection, Table table) throws SQLException {
 		for (ForeignKey foreignKey : table.getForeignKeys()) {
-			QueryBuilder queryBuilder = new QueryBuilder();
-			queryBuilder.append("ALTER TABLE " + quoted(table.getName()));
-			queryBuilder.append("ADD CONSTRAINT " + quoted(foreignKey.getForeignKeyName()));
-			queryBuilder.append("FOREIGN KEY (" + foreignKey.getReferencingColumns().stream().map(QueryUtils::quoted).collect(Collectors.joining(", ")) + ")");
-			queryBuilder.append("REFERENCES " + quoted(foreignKey.getReferredTableName()));
-			queryBuilder.append("(" + foreignKey.getReferredColumns().stream().map(QueryUtils::quoted).collect(Collectors.joining(", ")) + ")");
-			queryBuilder.append("ON UPDATE " + valueOf(foreignKey.getOnUpdate()));
-			queryBuilder.append("ON DELETE " + valueOf(foreignKey.getOnDelete()));
-			queryBuilder.append("DEFERRABLE");
-
 			log.info("Creating foreign key: {}", foreignKey.getForeignKeyName());
-			execute(connection, config, queryBuilder.toString());
+			execute(connection, config, createForeignKeyStatement(foreignKey, false));
+		}
+	}
+
+	String createForeignKeyStatement(ForeignKey foreignKey, boolean notValid) {
+		QueryBuilder queryBuilder = new QueryBuilder();
+		queryBuilder.append("ALTER TABLE " + quoted(foreignKey.getReferencingTableName()));
+		queryBuilder.append("ADD CONSTRAINT " + quoted(foreignKey.getForeignKeyName()));
+		queryBuilder.append("FOREIGN KEY (" + foreignKey.getReferencingColumns().stream().map(QueryUtils::quoted).collect(Collectors.joining(", ")) + ")");
+		queryBuilder.append("REFERENCES " + quoted(foreignKey.getReferredTableName()));
+		queryBuilder.append("(" + foreignKey.getReferredColumns().stream().map(QueryUtils::quoted).collect(Collectors.joining(", ")) + ")");
+		queryBuilder.append("ON UPDATE " + valueOf(foreignKey.getOnUpdate()));
+		queryBuilder.append("ON DELETE " + valueOf(foreignKey.getOnDelete()));
+		queryBuilder.append("DEFERRABLE");
+		if (notValid) {
+			queryBuilder.append("NOT VALID");
 		}
+		return queryBuilder.toString();
 	}
 
 	private void createIndexes(Connection connection, Table table) throws SQLException {
 		for (Index index : table.getIndexes()) {
-			QueryBuilder queryBuilder = new QueryBuilder();
-			queryBuilder.append("CREATE");
-			if (index.isUnique()) {
-				queryBuilder.append("UNIQUE");
-			}
-			queryBuilder.append("INDEX CONCURRENTLY " + quoted(index.getIndexName()));
-			queryBuilder.append("ON " + quoted(index.getParent().getName()));
-			queryBuilder.append("(" + index.getColumns().stream().map(QueryUtils::quoted).collect(Collectors.joining(", ")) + ");");
-
 			log.info("Creating index key: {} ({})", index.getIndexName(), index.getColumns());
-			execute(connection, config, queryBuilder.toString());
+			execute(connection, config, createIndexStatement(index));
+		}
+	}
+
+	String createIndexStatement(Index index) {
+		QueryBuilder queryBuilder = new QueryBuilder();
+		queryBuilder.append("CREATE");
+		if (index.isUnique()) {
+			queryBuilder.append("UNIQUE");
 		}
+		queryBuilder.append("INDEX CONCURRENTLY " + quoted(index.getIndexName()));
+		queryBuilder.append("ON " + quoted(index.getParent().getName()));
+		queryBuilder.append("(" + index.getColumns().stream().map(QueryUtils::quoted).collect(Collectors.joining(", ")) + ");");
+		return queryBuilder.toString();
 	}
 
 	private String valueOf(Action action) {
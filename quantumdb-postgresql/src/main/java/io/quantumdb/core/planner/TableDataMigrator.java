@@ -3,64 +3,135 @@ package io.quantumdb.core.planner;
 import static io.quantumdb.core.planner.QueryUtils.execute;
 import static io.quantumdb.core.planner.QueryUtils.quoted;
 
-import java.math.BigDecimal;
 import java.sql.Connection;
-import java.sql.Date;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.sql.Timestamp;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import com.google.common.base.Joiner;
-import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import io.quantumdb.core.backends.Backend;
+import com.google.common.collect.Sets;
 import io.quantumdb.core.backends.Config;
+import io.quantumdb.core.planner.BackfillCheckpoints.Checkpoint;
 import io.quantumdb.core.planner.MigratorFunction.Stage;
 import io.quantumdb.core.schema.definitions.Column;
-import io.quantumdb.core.schema.definitions.ColumnType.Type;
 import io.quantumdb.core.schema.definitions.Table;
 import io.quantumdb.core.utils.QueryBuilder;
 import io.quantumdb.core.versioning.RefLog;
 import io.quantumdb.core.versioning.Version;
+import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 class TableDataMigrator {
 
-	private static final long BATCH_SIZE = 2_000;
-	private static final long WAIT_TIME = 50;
+	private static final double SAMPLE_PERCENTAGE = 1.0;
+	private static final int TABLESAMPLE_SERVER_VERSION = 90500;
+
+	/**
+	 * A slice of the primary key space of a table, bounded (inclusively) on its first primary key column.
+	 */
+	@Data
+	private static class KeyRange {
+		private final Object lowerBound;
+		private final Object upperBound;
+		private final Map<String, Object> highestId;
+	}
 
-	private final Backend backend;
+	private final PostgresqlBackend backend;
 	private final Config config;
 	private final RefLog refLog;
+	private final Object lock;
+	private final BackfillCheckpoints checkpoints;
+
+	TableDataMigrator(PostgresqlBackend backend, Config config, RefLog refLog) {
+		this(backend, config, refLog, new Object());
+	}
 
-	TableDataMigrator(Backend backend, Config config, RefLog refLog) {
+	/**
+	 * @param lock The lock which guards the RefLog and NullRecords, when these are shared with concurrently
+	 *             executing steps. It's only held while the migrator functions are composed, not while copying data.
+	 */
+	TableDataMigrator(PostgresqlBackend backend, Config config, RefLog refLog, Object lock) {
 		this.backend = backend;
 		this.config = config;
 		this.refLog = refLog;
+		this.lock = lock;
+		this.checkpoints = new BackfillCheckpoints(config);
 	}
 
 	void migrateData(NullRecords nullRecords, Table source, Table target, Version from, Version to,
 			Set<String> migratedColumns, Set<String> columnsToMigrate) throws SQLException, InterruptedException {
 
-		Map<String, Object> highestId = queryHighestId(source);
-		if (highestId == null) {
-			log.info("Table: {} is empty -> nothing to migrate...", source.getName());
+		String columns = Joiner.on(",").join(Sets.newTreeSet(columnsToMigrate));
+
+		List<Checkpoint> checkpoints = Lists.newArrayList();
+		if (config.isResume()) {
+			try (Connection connection = backend.connect()) {
+				checkpoints.addAll(this.checkpoints.load(connection, source, target, columns));
+			}
+		}
+
+		if (checkpoints.isEmpty()) {
+			checkpoints.addAll(createCheckpoints(source, target, columns));
+			if (checkpoints.isEmpty()) {
+				log.info("Table: {} is empty -> nothing to migrate...", source.getName());
+				return;
+			}
+		}
+		else {
+			log.info("Resuming migration of data in table: {} to target: {} from {} checkpoint(s)", source.getName(),
+					target.getName(), checkpoints.size());
+		}
+
+		List<Checkpoint> pending = checkpoints.stream()
+				.filter(checkpoint -> !checkpoint.isCompleted())
+				.collect(Collectors.toList());
+
+		if (pending.isEmpty()) {
+			log.info("Data in table: {} has already been migrated to target: {}", source.getName(), target.getName());
 			return;
 		}
-		log.info("Migrating data in table: {} to target: {}", source.getName(), target.getName());
 
-		MigratorFunction initialMigrator = SelectiveMigratorFunction.createMigrator(nullRecords, refLog,
-				source, target, from, to, BATCH_SIZE, Stage.INITIAL, migratedColumns, columnsToMigrate);
-		MigratorFunction successiveMigrator = SelectiveMigratorFunction.createMigrator(nullRecords, refLog,
-				source, target, from, to, BATCH_SIZE, Stage.CONSECUTIVE, migratedColumns, columnsToMigrate);
+		boolean ranged = checkpoints.get(0).isRanged();
+		if (ranged) {
+			log.info("Migrating data in table: {} to target: {} using {} key ranges", source.getName(),
+					target.getName(), pending.size());
+		}
+		else {
+			log.info("Migrating data in table: {} to target: {}", source.getName(), target.getName());
+		}
+
+		// The set-based migrator functions rely on INSERT ... ON CONFLICT, which requires PostgreSQL 9.5 or up.
+		boolean upsertsSupported = backend.supportsUpserts();
+		this.checkpoints.setUpsertsSupported(upsertsSupported);
+
+		boolean setBased = config.isBackfillSetBased();
+		if (setBased && !upsertsSupported) {
+			log.warn("Server does not support upserts -> migrating data in table: {} row by row...", source.getName());
+			setBased = false;
+		}
+
+		MigratorFunction initialMigrator;
+		MigratorFunction successiveMigrator;
+		synchronized (lock) {
+			initialMigrator = SelectiveMigratorFunction.createMigrator(nullRecords, refLog, source, target, from, to,
+					Stage.INITIAL, migratedColumns, columnsToMigrate, ranged, setBased);
+			successiveMigrator = SelectiveMigratorFunction.createMigrator(nullRecords, refLog, source, target, from,
+					to, Stage.CONSECUTIVE, migratedColumns, columnsToMigrate, ranged, setBased);
+		}
 
 		if (initialMigrator == null) {
 			return;
@@ -71,7 +142,16 @@ class TableDataMigrator {
 			execute(connection, config, successiveMigrator.getCreateStatement());
 
 			if (!config.isDryRun()) {
-				migrate(connection, source, target, highestId, initialMigrator, successiveMigrator);
+				for (Checkpoint checkpoint : checkpoints) {
+					this.checkpoints.save(connection, checkpoint);
+				}
+
+				if (ranged) {
+					migrateDataInParallel(pending, initialMigrator, successiveMigrator);
+				}
+				else {
+					migrate(connection, pending.get(0), initialMigrator, successiveMigrator);
+				}
 			}
 
 			execute(connection, config, initialMigrator.getDropStatement());
@@ -79,24 +159,117 @@ class TableDataMigrator {
 		}
 	}
 
-	private void migrate(Connection connection, Table source, Table target, Map<String, Object> highestId,
-			MigratorFunction initialMigrator, MigratorFunction successiveMigrator)
-			throws SQLException, InterruptedException {
+	/**
+	 * Creates a Checkpoint for every key range to migrate. The table is split into multiple key ranges when the
+	 * configured parallelism allows for it, otherwise a single Checkpoint is returned which covers the entire table.
+	 * An empty List is returned when the table contains no records.
+	 */
+	private List<Checkpoint> createCheckpoints(Table source, Table target, String columns) throws SQLException {
+		Map<String, Object> highestId = queryHighestId(source);
+		if (highestId == null) {
+			return Lists.newArrayList();
+		}
+
+		int parallelism = config.getBackfillParallelism();
+		if (parallelism > 1) {
+			List<KeyRange> ranges = determineKeyRanges(source, parallelism);
+			if (ranges.size() > 1) {
+				List<Checkpoint> checkpoints = Lists.newArrayList();
+				for (int i = 0; i < ranges.size(); i++) {
+					KeyRange range = ranges.get(i);
+					checkpoints.add(new Checkpoint(source, target, columns, i, range.getLowerBound(),
+							range.getUpperBound(), range.getHighestId()));
+				}
+				return checkpoints;
+			}
+			log.info("Could not split table: {} into multiple key ranges -> migrating serially...", source.getName());
+		}
+
+		return Lists.newArrayList(new Checkpoint(source, target, columns, 0, null, null, highestId));
+	}
+
+	private void migrateDataInParallel(List<Checkpoint> pending, MigratorFunction initialMigrator,
+			MigratorFunction successiveMigrator) throws SQLException, InterruptedException {
+
+		int parallelism = Math.max(1, Math.min(config.getBackfillParallelism(), pending.size()));
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+		try {
+			List<Future<Void>> futures = Lists.newArrayList();
+			for (Checkpoint checkpoint : pending) {
+				futures.add(executor.submit(() -> {
+					try (Connection rangeConnection = backend.connect()) {
+						migrate(rangeConnection, checkpoint, initialMigrator, successiveMigrator);
+					}
+					return null;
+				}));
+			}
+
+			for (Future<Void> future : futures) {
+				awaitRange(future);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void awaitRange(Future<Void> future) throws SQLException, InterruptedException {
+		try {
+			future.get();
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof SQLException) {
+				throw (SQLException) cause;
+			}
+			else if (cause instanceof InterruptedException) {
+				throw (InterruptedException) cause;
+			}
+			throw new SQLException("Could not migrate key range.", cause);
+		}
+	}
+
+	private void migrate(Connection connection, Checkpoint checkpoint, MigratorFunction initialMigrator,
+			MigratorFunction successiveMigrator) throws SQLException, InterruptedException {
+
+		Table source = checkpoint.getSource();
+		Table target = checkpoint.getTarget();
+		Map<String, Object> highestId = checkpoint.getHighestId();
 
 		long start = System.currentTimeMillis();
 		Map<String, Object> lastProcessedId = Maps.newHashMap();
+		if (checkpoint.getLastProcessedId() != null) {
+			lastProcessedId.putAll(checkpoint.getLastProcessedId());
+		}
+		BatchController controller = new BatchController(config);
 
-		while (true) {
+		List<String> rangeValues = Lists.newArrayList();
+		if (checkpoint.isRanged()) {
+			String rangeType = initialMigrator.getParameters().values().iterator().next();
+			rangeValues.add(asExpression(checkpoint.getLowerBound()) + "::" + rangeType);
+			rangeValues.add(asExpression(checkpoint.getUpperBound()) + "::" + rangeType);
+		}
+
+		while (lastProcessedId.isEmpty() || !greaterThanOrEqualsTo(lastProcessedId, highestId)) {
 			long innerStart = System.currentTimeMillis();
 
+			long batchSize = controller.getBatchSize();
+
 			QueryBuilder migrator = new QueryBuilder();
 			if (lastProcessedId.isEmpty()) {
-				migrator.append("SELECT * FROM " + quoted(initialMigrator.getName()) + "();");
+				List<String> values = Lists.newArrayList(Long.toString(batchSize));
+				values.addAll(rangeValues);
+
+				migrator.append("SELECT * FROM " + quoted(initialMigrator.getName()) + "("
+						+ Joiner.on(", ").join(values) + ");");
 			}
 			else {
-				List<String> values = successiveMigrator.getParameters().keySet().stream()
+				List<String> values = Lists.newArrayList(Long.toString(batchSize));
+				successiveMigrator.getParameters().keySet().stream()
 						.map(parameterName -> asExpression(lastProcessedId.get(stripEscaping(parameterName))) + "::" + successiveMigrator.getParameters().get(parameterName))
-						.collect(Collectors.toList());
+						.forEach(values::add);
+
+				values.addAll(rangeValues);
 
 				migrator.append("SELECT * FROM " + quoted(successiveMigrator.getName()) + "(")
 						.append(Joiner.on(", ").join(values) + ");");
@@ -111,9 +284,6 @@ class TableDataMigrator {
 					}
 
 					lastProcessedId.putAll(identityMap);
-					if (greaterThanOrEqualsTo(lastProcessedId, highestId)) {
-						break;
-					}
 				}
 				else {
 					// No records returned. We're done migrating data...
@@ -121,13 +291,24 @@ class TableDataMigrator {
 				}
 			}
 
+			checkpoint.setLastProcessedId(Maps.newHashMap(lastProcessedId));
+			checkpoints.save(connection, checkpoint);
+
 			long innerEnd = System.currentTimeMillis();
-			log.info("Migration data source: {} target: {}, now at identity: {}, took: {} ms", source.getName(),
-					target.getName(), lastProcessedId, innerEnd - innerStart);
+			log.info("Migration data source: {} target: {}, now at identity: {}, batch of: {} took: {} ms",
+					source.getName(), target.getName(), lastProcessedId, batchSize, innerEnd - innerStart);
+
+			if (greaterThanOrEqualsTo(lastProcessedId, highestId)) {
+				break;
+			}
 
-			Thread.sleep(WAIT_TIME);
+			controller.onBatchCompleted(connection, innerEnd - innerStart);
+			Thread.sleep(controller.getWaitTime());
 		}
 
+		checkpoint.setCompleted(true);
+		checkpoints.save(connection, checkpoint);
+
 		long end = System.currentTimeMillis();
 		log.info("Migrating records source: {} target: {} took: {} ms", source.getName(), target.getName(), end - start);
 	}
@@ -140,20 +321,51 @@ class TableDataMigrator {
 	}
 
 	private Map<String, Object> queryHighestId(Table from) throws SQLException {
+		return queryHighestId(from, null, null);
+	}
+
+	/**
+	 * Queries the highest primary key in the specified table, optionally limited to the records whose first primary
+	 * key column lies within [lowerBound, upperBound). Both bounds may be null to leave that side unbounded.
+	 */
+	private Map<String, Object> queryHighestId(Table from, Object lowerBound, Object upperBound) throws SQLException {
 		List<String> primaryKeyColumns = from.getPrimaryKeyColumns().stream()
 				.map(Column::getName)
 				.collect(Collectors.toList());
 
+		String rangeColumn = quoted(primaryKeyColumns.get(0));
+		List<String> conditions = Lists.newArrayList();
+		if (lowerBound != null) {
+			conditions.add(rangeColumn + " >= ?");
+		}
+		if (upperBound != null) {
+			conditions.add(rangeColumn + " < ?");
+		}
+
+		QueryBuilder builder = new QueryBuilder()
+				.append("SELECT " + primaryKeyColumns.stream().map(QueryUtils::quoted).collect(Collectors.joining(", ")))
+				.append("FROM " + quoted(from.getName()));
+
+		if (!conditions.isEmpty()) {
+			builder.append("WHERE " + Joiner.on(" AND ").join(conditions));
+		}
+
+		String query = builder
+				.append("ORDER BY " + primaryKeyColumns.stream().map(value -> quoted(value) + " DESC").collect(Collectors.joining(", ")))
+				.append("LIMIT 1")
+				.toString();
+
 		try (Connection connection = backend.connect()) {
-			try (Statement statement = connection.createStatement()) {
-				String query = new QueryBuilder()
-						.append("SELECT " + primaryKeyColumns.stream().map(QueryUtils::quoted).collect(Collectors.joining(", ")))
-						.append("FROM " + quoted(from.getName()))
-						.append("ORDER BY " + primaryKeyColumns.stream().map(value -> quoted(value) + " DESC").collect(Collectors.joining(", ")))
-						.append("LIMIT 1")
-						.toString();
+			try (PreparedStatement statement = connection.prepareStatement(query)) {
+				int index = 1;
+				if (lowerBound != null) {
+					statement.setObject(index++, lowerBound);
+				}
+				if (upperBound != null) {
+					statement.setObject(index, upperBound);
+				}
 
-				ResultSet resultSet = statement.executeQuery(query);
+				ResultSet resultSet = statement.executeQuery();
 				if (resultSet.next()) {
 					Map<String, Object> id = Maps.newHashMap();
 					for (String primaryKeyColumn : primaryKeyColumns) {
@@ -167,6 +379,155 @@ class TableDataMigrator {
 		}
 	}
 
+	/**
+	 * Splits the key space of the specified table into (at most) the specified number of disjoint ranges on the
+	 * first primary key column. Split points are taken from the planner statistics in pg_stats when available, or
+	 * else from a small sample of the table. Ranges which contain no records are omitted. An empty List is returned
+	 * when no split points could be determined, in which case the table is migrated serially.
+	 */
+	private List<KeyRange> determineKeyRanges(Table table, int parallelism) throws SQLException {
+		Column rangeColumn = table.getPrimaryKeyColumns().get(0);
+
+		List<Object> splitPoints = querySplitPoints(table, rangeColumn, parallelism);
+		if (splitPoints.isEmpty()) {
+			return Lists.newArrayList();
+		}
+
+		Object lowestValue = queryLowestValue(table, rangeColumn);
+
+		List<Object> boundaries = Lists.newArrayList();
+		boundaries.add(lowestValue);
+		boundaries.addAll(splitPoints);
+
+		List<KeyRange> ranges = Lists.newArrayList();
+		for (int i = 0; i < boundaries.size(); i++) {
+			Object lowerBound = boundaries.get(i);
+			Object nextBound = i + 1 < boundaries.size() ? boundaries.get(i + 1) : null;
+
+			Map<String, Object> highestId = queryHighestId(table, lowerBound, nextBound);
+			if (highestId != null) {
+				Object upperBound = highestId.get(rangeColumn.getName());
+				ranges.add(new KeyRange(lowerBound, upperBound, highestId));
+			}
+		}
+		return ranges;
+	}
+
+	private List<Object> querySplitPoints(Table table, Column column, int parallelism) {
+		try (Connection connection = backend.connect()) {
+			List<Object> histogram = queryHistogram(connection, table, column);
+			if (!histogram.isEmpty()) {
+				return pickSplitPoints(histogram, parallelism);
+			}
+
+			if (backend.getServerVersion() < TABLESAMPLE_SERVER_VERSION) {
+				log.info("No statistics available for table: {}, and sampling requires PostgreSQL 9.5 or up",
+						table.getName());
+				return Lists.newArrayList();
+			}
+
+			log.info("No statistics available for table: {}, sampling split points instead...", table.getName());
+			return sampleSplitPoints(connection, table, column, parallelism);
+		}
+		catch (SQLException e) {
+			log.warn("Could not determine split points of table: {}: {}", table.getName(), e.getMessage());
+			return Lists.newArrayList();
+		}
+	}
+
+	private List<Object> queryHistogram(Connection connection, Table table, Column column) throws SQLException {
+		// The histogram bounds are stored as anyarray, so these must be cast to an array of the column's own type.
+		String typeQuery = "SELECT format_type(atttypid, atttypmod) FROM pg_attribute "
+				+ "WHERE attrelid = ?::regclass AND attname = ?;";
+
+		String type;
+		try (PreparedStatement statement = connection.prepareStatement(typeQuery)) {
+			statement.setString(1, quoted(table.getName()));
+			statement.setString(2, column.getName());
+
+			ResultSet resultSet = statement.executeQuery();
+			if (!resultSet.next()) {
+				return Lists.newArrayList();
+			}
+			type = resultSet.getString(1);
+		}
+
+		List<Object> histogram = Lists.newArrayList();
+		String query = "SELECT UNNEST(histogram_bounds::text::" + type + "[]) AS bound FROM pg_stats "
+				+ "WHERE schemaname = current_schema() AND tablename = ? AND attname = ?;";
+
+		try (PreparedStatement statement = connection.prepareStatement(query)) {
+			statement.setString(1, table.getName());
+			statement.setString(2, column.getName());
+
+			ResultSet resultSet = statement.executeQuery();
+			while (resultSet.next()) {
+				histogram.add(resultSet.getObject("bound"));
+			}
+		}
+		return histogram;
+	}
+
+	private List<Object> sampleSplitPoints(Connection connection, Table table, Column column, int parallelism)
+			throws SQLException {
+
+		String fractions = IntStream.range(1, parallelism)
+				.mapToObj(i -> Double.toString((double) i / parallelism))
+				.collect(Collectors.joining(", "));
+
+		String sampleQuery = new QueryBuilder()
+				.append("SELECT UNNEST(PERCENTILE_DISC(ARRAY[" + fractions + "])")
+				.append("WITHIN GROUP (ORDER BY " + quoted(column.getName()) + ")) AS bound")
+				.append("FROM " + quoted(table.getName()) + " TABLESAMPLE SYSTEM (" + SAMPLE_PERCENTAGE + ");")
+				.toString();
+
+		List<Object> splitPoints = Lists.newArrayList();
+		try (Statement statement = connection.createStatement()) {
+			ResultSet resultSet = statement.executeQuery(sampleQuery);
+			while (resultSet.next()) {
+				Object bound = resultSet.getObject("bound");
+				if (bound != null && !splitPoints.contains(bound)) {
+					splitPoints.add(bound);
+				}
+			}
+		}
+		return splitPoints;
+	}
+
+	/**
+	 * Picks evenly spaced inner bounds from the histogram, which holds approximately equally populated buckets.
+	 */
+	private List<Object> pickSplitPoints(List<Object> histogram, int parallelism) {
+		List<Object> splitPoints = Lists.newArrayList();
+		int buckets = histogram.size() - 1;
+		for (int i = 1; i < parallelism && buckets > 0; i++) {
+			Object bound = histogram.get(i * buckets / parallelism);
+			if (!splitPoints.contains(bound) && !bound.equals(histogram.get(0))) {
+				splitPoints.add(bound);
+			}
+		}
+		return splitPoints;
+	}
+
+	private Object queryLowestValue(Table table, Column column) throws SQLException {
+		String query = new QueryBuilder()
+				.append("SELECT " + quoted(column.getName()))
+				.append("FROM " + quoted(table.getName()))
+				.append("ORDER BY " + quoted(column.getName()) + " ASC")
+				.append("LIMIT 1")
+				.toString();
+
+		try (Connection connection = backend.connect()) {
+			try (Statement statement = connection.createStatement()) {
+				ResultSet resultSet = statement.executeQuery(query);
+				if (resultSet.next()) {
+					return resultSet.getObject(1);
+				}
+				return null;
+			}
+		}
+	}
+
 	private boolean greaterThanOrEqualsTo(Map<String, Object> cursor, Map<String, Object> limit) {
 		for (String key : cursor.keySet()) {
 			Object left = cursor.get(key);
@@ -204,82 +565,8 @@ class TableDataMigrator {
 	}
 
 	private Map<String, Object> readIdentity(Table from, ResultSet resultSet) throws SQLException {
-		String result = resultSet.getString(1);
-		result = result.substring(1, result.length() - 1);
-
-		List<String> parts = Lists.newArrayList();
-		StringBuilder currentPart = new StringBuilder();
-
-		boolean quoted = false;
-		char prev = ' ';
-		for (int i = 0; i < result.length(); i++) {
-			char c = result.charAt(i);
-			if (c == ',' && !quoted) {
-				parts.add(currentPart.toString());
-				currentPart = new StringBuilder();
-			}
-			else if (c == '"' && prev != '\\') {
-				quoted = !quoted;
-			}
-			else {
-				currentPart.append(c);
-			}
-			prev = c;
-		}
-
-		if (currentPart.length() > 0) {
-			parts.add(currentPart.toString());
-		}
-
-		Map<String, Object> identity = Maps.newHashMap();
-		List<Column> primaryKeyColumns = from.getPrimaryKeyColumns();
-
-		if (parts.size() != primaryKeyColumns.size()) {
-			return identity;
-		}
-
-		for (int i = 0; i < primaryKeyColumns.size(); i++) {
-			Column column = primaryKeyColumns.get(i);
-			String columnName = column.getName();
-			Object value = parseValue(column.getType().getType(), parts.get(i));
-			identity.put(columnName, value);
-		}
-		return identity;
-	}
-
-	private Object parseValue(Type type, String value) {
-		if (Strings.isNullOrEmpty(value)) {
-			return null;
-		}
-
-		switch (type) {
-			case SMALLINT:
-				return Short.parseShort(value);
-			case INTEGER:
-				return Integer.parseInt(value);
-			case BIGINT:
-				return Long.parseLong(value);
-			case FLOAT:
-				return Float.parseFloat(value);
-			case DOUBLE:
-				return Double.parseDouble(value);
-			case NUMERIC:
-				return new BigDecimal(value);
-			case BOOLEAN:
-				return Boolean.parseBoolean(value);
-			case TEXT:
-			case CHAR:
-			case VARCHAR:
-			case OID:
-				return value;
-			case DATE:
-				return Date.valueOf(value);
-			case TIMESTAMP:
-				return Timestamp.valueOf(value);
-			case UUID:
-			default:
-				return UUID.fromString(value);
-		}
+		// Set-based migrator functions return NULL when there are no more records to migrate.
+		return BackfillCheckpoints.parseIdentity(from, resultSet.getString(1));
 	}
 
 	private String asExpression(Object value) {
@@ -0,0 +1,71 @@
+package io.quantumdb.core.planner;
+
+import static io.quantumdb.core.planner.QueryUtils.execute;
+import static io.quantumdb.core.planner.QueryUtils.quoted;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import io.quantumdb.core.backends.Config;
+import io.quantumdb.core.versioning.RefLog;
+import io.quantumdb.core.versioning.RefLog.TableRef;
+import io.quantumdb.core.versioning.RefLog.ViewRef;
+import io.quantumdb.core.versioning.Version;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates a schema for a version, containing a view for every table and view of that version which exposes the
+ * underlying ghost table (or view) under its logical name. Since each view selects from a single table, PostgreSQL
+ * allows inserts, updates and deletes on these views, so clients can use a version by putting its schema on their
+ * search_path, instead of having their queries rewritten by the QuantumDB driver.
+ */
+@Slf4j
+@RequiredArgsConstructor
+class VersionSchemaCreator {
+
+	private static final String SCHEMA_PREFIX = "quantumdb_";
+
+	private final Config config;
+
+	static String getSchemaName(Version version) {
+		return SCHEMA_PREFIX + version.getId();
+	}
+
+	void create(Connection connection, RefLog refLog, Version version) throws SQLException {
+		String schema = quoted(getSchemaName(version));
+		log.info("Creating schema: {} for version: {}", schema, version.getId());
+		execute(connection, config, "CREATE SCHEMA IF NOT EXISTS " + schema + ";");
+
+		List<TableRef> tableRefs = refLog.getTableRefs(version).stream()
+				.sorted(Comparator.comparing(TableRef::getName))
+				.collect(Collectors.toList());
+
+		for (TableRef tableRef : tableRefs) {
+			String columns = tableRef.getColumns().keySet().stream()
+					.map(QueryUtils::quoted)
+					.collect(Collectors.joining(", "));
+
+			execute(connection, config, createViewStatement(schema, tableRef.getName(), columns, tableRef.getRefId()));
+		}
+
+		for (ViewRef viewRef : refLog.getViewRefs(version)) {
+			execute(connection, config, createViewStatement(schema, viewRef.getName(), "*", viewRef.getRefId()));
+		}
+	}
+
+	void drop(Connection connection, Version version) throws SQLException {
+		String schema = quoted(getSchemaName(version));
+		log.info("Dropping schema: {} of version: {}", schema, version.getId());
+		execute(connection, config, "DROP SCHEMA IF EXISTS " + schema + " CASCADE;");
+	}
+
+	private String createViewStatement(String schema, String name, String columns, String refId) {
+		return "CREATE OR REPLACE VIEW " + schema + "." + quoted(name)
+				+ " AS SELECT " + columns + " FROM public." + quoted(refId) + ";";
+	}
+
+}
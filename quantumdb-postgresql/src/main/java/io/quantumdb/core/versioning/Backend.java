@@ -7,7 +7,6 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
-import java.time.Instant;
 import java.util.Collection;
 import java.util.Date;
 import java.util.LinkedHashMap;
@@ -128,6 +127,9 @@ public class Backend {
 		Multimap<RefId, TableColumn> columnsPerTable = LinkedHashMultimap.create();
 		tableColumns.forEach(column -> columnsPerTable.put(column.getRefId(), column));
 
+		Multimap<TableColumn, TableColumn> sourcesPerTarget = LinkedHashMultimap.create();
+		columnMappings.forEach(mapping -> sourcesPerTarget.put(mapping.getTarget(), mapping.getSource()));
+
 		Map<TableColumn, ColumnRef> columnCache = Maps.newLinkedHashMap();
 
 		RefLog refLog = new RefLog();
@@ -139,9 +141,8 @@ public class Backend {
 			for (Entry<RefId, String> entry : tableVersions.column(version).entrySet()) {
 				TableRef tableRef = null;
 				if (version.getParent() != null) {
-					tableRef = refLog.getTableRefs(version.getParent()).stream()
-							.filter(ref -> ref.getName().equals(entry.getValue()) && ref.getRefId().equals(entry.getKey().getRefId()))
-							.findFirst()
+					tableRef = refLog.findTableRef(version.getParent(), entry.getValue())
+							.filter(ref -> ref.getRefId().equals(entry.getKey().getRefId()))
 							.orElse(null);
 				}
 
@@ -151,9 +152,7 @@ public class Backend {
 				else {
 					Map<TableColumn, ColumnRef> columnRefs = columnsPerTable.get(entry.getKey()).stream()
 							.collect(Collectors.toMap(Function.identity(), column -> {
-								List<ColumnRef> basedOn = columnMappings.stream()
-										.filter(mapping -> mapping.getTarget().equals(column))
-										.map(TableColumnMapping::getSource)
+								List<ColumnRef> basedOn = sourcesPerTarget.get(column).stream()
 										.map(columnCache::get)
 										.filter(Objects::nonNull)
 										.collect(Collectors.toList());
@@ -217,88 +216,91 @@ public class Backend {
 
 		Operations operations = new Operations();
 
-		try (Statement statement = connection.createStatement()) {
-			String query = "SELECT * FROM quantumdb.changelog;";
-			String deleteQuery = "DELETE FROM quantumdb.changelog WHERE version_id = ?;";
-			String insertQuery = "INSERT INTO quantumdb.changelog (version_id, operation_type, operation, parent_version_id) VALUES (?, ?, ?, ?);";
-			String updateQuery = "UPDATE quantumdb.changelog SET operation_type = ?, operation = ?, parent_version_id = ? WHERE version_id = ?;";
+		String query = "SELECT * FROM quantumdb.changelog;";
+		String deleteQuery = "DELETE FROM quantumdb.changelog WHERE version_id = ?;";
+		String insertQuery = "INSERT INTO quantumdb.changelog (version_id, operation_type, operation, parent_version_id) VALUES (?, ?, ?, ?);";
+		String updateQuery = "UPDATE quantumdb.changelog SET operation_type = ?, operation = ?, parent_version_id = ? WHERE version_id = ?;";
+
+		try (Statement statement = connection.createStatement();
+				PreparedStatement delete = connection.prepareStatement(deleteQuery);
+				PreparedStatement update = connection.prepareStatement(updateQuery);
+				PreparedStatement insert = connection.prepareStatement(insertQuery)) {
 
 			ResultSet resultSet = statement.executeQuery(query);
 			while (resultSet.next()) {
 				String versionId = resultSet.getString("version_id");
 				Version version = mapping.remove(versionId);
-				if (version != null) {
-					try (PreparedStatement update = connection.prepareStatement(updateQuery)) {
-						Operation operation = version.getOperation();
-
-						if (operation != null) {
-							update.setString(1, operations.getOperationType(operation.getClass()).orElseThrow(
-									() -> new IllegalArgumentException("There's no such operation as: " + operation.getClass())));
-
-							update.setString(2, gson.toJson(operation));
-						}
-						else {
-							update.setString(1, null);
-							update.setString(2, null);
-						}
-
-						if (version.getParent() == null) {
-							update.setString(3, null);
-						}
-						else {
-							update.setString(3, version.getParent().getId());
-						}
-						update.setString(4, versionId);
-
-						update.execute();
-						log.debug("Updated entry for changelog id: {}", versionId);
-					}
+				if (version == null) {
+					delete.setString(1, versionId);
+					delete.addBatch();
+					log.debug("Deleting entry for changelog id: {}", versionId);
+					continue;
 				}
-				else {
-					try (PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
-						delete.setString(1, versionId);
-						delete.execute();
-						log.debug("Deleted entry for changelog id: {}", versionId);
-					}
+
+				String operationType = getOperationType(operations, version);
+				String operation = getOperation(version);
+				String parentVersionId = getParentVersionId(version);
+
+				boolean changed = !Objects.equals(operationType, resultSet.getString("operation_type"))
+						|| !Objects.equals(operation, resultSet.getString("operation"))
+						|| !Objects.equals(parentVersionId, resultSet.getString("parent_version_id"));
+
+				if (changed) {
+					update.setString(1, operationType);
+					update.setString(2, operation);
+					update.setString(3, parentVersionId);
+					update.setString(4, versionId);
+					update.addBatch();
+					log.debug("Updating entry for changelog id: {}", versionId);
 				}
 			}
+			resultSet.close();
 
-			if (!mapping.isEmpty()) {
-				PreparedStatement insert = connection.prepareStatement(insertQuery);
-				for (Entry<String, Version> entry : mapping.entrySet()) {
-					Version version = entry.getValue();
-					Operation operation = version.getOperation();
-
-					insert.setString(1, entry.getKey());
+			// Versions are listed from the root onwards, so parents are always inserted before their children.
+			for (Entry<String, Version> entry : mapping.entrySet()) {
+				Version version = entry.getValue();
 
-					if (operation != null) {
-						insert.setString(2, operations.getOperationType(operation.getClass()).orElseThrow(
-								() -> new IllegalArgumentException("There's no such operation as: " + operation.getClass())));
+				insert.setString(1, entry.getKey());
+				insert.setString(2, getOperationType(operations, version));
+				insert.setString(3, getOperation(version));
+				insert.setString(4, getParentVersionId(version));
+				insert.addBatch();
+				log.debug("Inserting new entry for changelog id: {}", entry.getKey());
+			}
 
-						insert.setString(3, gson.toJson(operation));
-					}
-					else {
-						insert.setString(2, null);
-						insert.setString(3, null);
-					}
+			// Deleting an entry cascades to its children, so these must first be updated to point to their new parent.
+			update.executeBatch();
+			delete.executeBatch();
+			insert.executeBatch();
+		}
+	}
 
-					String versionId = null;
-					if (version.getParent() != null) {
-						versionId = version.getParent().getId();
-					}
+	private String getOperationType(Operations operations, Version version) {
+		Operation operation = version.getOperation();
+		if (operation == null) {
+			return null;
+		}
+		return operations.getOperationType(operation.getClass()).orElseThrow(
+				() -> new IllegalArgumentException("There's no such operation as: " + operation.getClass()));
+	}
 
-					insert.setString(4, versionId);
-					insert.execute();
-					log.debug("Inserted new entry for changelog id: {}", versionId);
-				}
-			}
+	private String getOperation(Version version) {
+		Operation operation = version.getOperation();
+		if (operation == null) {
+			return null;
+		}
+		return gson.toJson(operation);
+	}
 
-			resultSet.close();
+	private String getParentVersionId(Version version) {
+		if (version.getParent() == null) {
+			return null;
 		}
+		return version.getParent().getId();
 	}
 
 	private void persistChangesets(Connection connection, Changelog changelog, Version lastActive) throws SQLException {
-		Map<String, ChangeSet> mapping = Maps.newHashMap();
+		Map<String, ChangeSet> mapping = Maps.newLinkedHashMap();
 		List<Version> versions = Lists.newLinkedList();
 		versions.add(changelog.getRoot());
 
@@ -319,61 +321,62 @@ public class Backend {
 			}
 		}
 
-		try (Statement statement = connection.createStatement()) {
-			String query = "SELECT * FROM quantumdb.changesets;";
-			String deleteQuery = "DELETE FROM quantumdb.changesets WHERE version_id = ?;";
-			String insertQuery = "INSERT INTO quantumdb.changesets (id, version_id, author, description, created) VALUES (?, ?, ?, ?, ?);";
-			String updateQuery = "UPDATE quantumdb.changesets SET author = ?, description = ?, created = ? WHERE version_id = ?;";
+		String query = "SELECT * FROM quantumdb.changesets;";
+		String deleteQuery = "DELETE FROM quantumdb.changesets WHERE version_id = ?;";
+		String insertQuery = "INSERT INTO quantumdb.changesets (id, version_id, author, description, created) VALUES (?, ?, ?, ?, ?);";
+		String updateQuery = "UPDATE quantumdb.changesets SET author = ?, description = ?, created = ? WHERE version_id = ?;";
+
+		try (Statement statement = connection.createStatement();
+				PreparedStatement delete = connection.prepareStatement(deleteQuery);
+				PreparedStatement update = connection.prepareStatement(updateQuery);
+				PreparedStatement insert = connection.prepareStatement(insertQuery)) {
 
 			ResultSet resultSet = statement.executeQuery(query);
 			while (resultSet.next()) {
 				String versionId = resultSet.getString("version_id");
 				ChangeSet changeSet = mapping.remove(versionId);
-				if (changeSet != null) {
-					try (PreparedStatement update = connection.prepareStatement(updateQuery)) {
-						update.setString(1, changeSet.getAuthor());
-						update.setString(2, changeSet.getDescription());
-						update.setTimestamp(3, new Timestamp(changeSet.getCreated().getTime()));
-						update.setString(4, versionId);
-						update.execute();
-						log.debug("Updated entry for changeset id: {}", versionId);
-					}
+				if (changeSet == null) {
+					delete.setString(1, versionId);
+					delete.addBatch();
+					log.debug("Deleting entry for changeset id: {}", versionId);
+					continue;
 				}
-				else {
-					try (PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
-						delete.setString(1, versionId);
-						delete.execute();
-						log.debug("Deleted entry for changeset id: {}", versionId);
-					}
+
+				Timestamp created = resultSet.getTimestamp("created");
+				boolean changed = !Objects.equals(changeSet.getAuthor(), resultSet.getString("author"))
+						|| !Objects.equals(changeSet.getDescription(), resultSet.getString("description"))
+						|| created == null || created.getTime() != changeSet.getCreated().getTime();
+
+				if (changed) {
+					update.setString(1, changeSet.getAuthor());
+					update.setString(2, changeSet.getDescription());
+					update.setTimestamp(3, new Timestamp(changeSet.getCreated().getTime()));
+					update.setString(4, versionId);
+					update.addBatch();
+					log.debug("Updating entry for changeset id: {}", versionId);
 				}
 			}
+			resultSet.close();
 
-			if (!mapping.isEmpty()) {
-				PreparedStatement insert = connection.prepareStatement(insertQuery);
-				for (Entry<String, ChangeSet> entry : mapping.entrySet()) {
-					String versionId = entry.getKey();
-					ChangeSet changeSet = entry.getValue();
-
-					if (changeSet != null) {
-						insert.setString(1, changeSet.getId());
-						insert.setString(2, versionId);
-						insert.setString(3, changeSet.getAuthor());
-						insert.setString(4, changeSet.getDescription());
-						insert.setTimestamp(5, new Timestamp(changeSet.getCreated().getTime()));
-					}
-					else {
-						insert.setString(1, versionId);
-						insert.setString(2, "");
-						insert.setString(3, "");
-						insert.setTimestamp(4, Timestamp.from(Instant.now()));
-						throw new IllegalArgumentException("This would be weird!");
-					}
-					insert.execute();
-					log.debug("Inserted new entry for changeset id: {}", versionId);
+			for (Entry<String, ChangeSet> entry : mapping.entrySet()) {
+				String versionId = entry.getKey();
+				ChangeSet changeSet = entry.getValue();
+				if (changeSet == null) {
+					throw new IllegalArgumentException("There's no changeset for version: " + versionId);
 				}
+
+				insert.setString(1, changeSet.getId());
+				insert.setString(2, versionId);
+				insert.setString(3, changeSet.getAuthor());
+				insert.setString(4, changeSet.getDescription());
+				insert.setTimestamp(5, new Timestamp(changeSet.getCreated().getTime()));
+				insert.addBatch();
+				log.debug("Inserting new entry for changeset id: {}", versionId);
 			}
 
-			resultSet.close();
+			delete.executeBatch();
+			update.executeBatch();
+			insert.executeBatch();
 		}
 	}
 
@@ -382,33 +385,33 @@ public class Backend {
 		refLog.getTableRefs().forEach(ref -> refIds.add(ref.getRefId()));
 		refLog.getViewRefs().forEach(ref -> refIds.add(ref.getRefId()));
 
-		try (Statement statement = connection.createStatement()) {
-			String query = "SELECT * FROM quantumdb.refs ORDER BY ref_id ASC;";
-			String deleteQuery = "DELETE FROM quantumdb.refs WHERE ref_id = ?;";
-			String insertQuery = "INSERT INTO quantumdb.refs (ref_id) VALUES (?);";
+		String query = "SELECT * FROM quantumdb.refs ORDER BY ref_id ASC;";
+		String deleteQuery = "DELETE FROM quantumdb.refs WHERE ref_id = ?;";
+		String insertQuery = "INSERT INTO quantumdb.refs (ref_id) VALUES (?);";
+
+		try (Statement statement = connection.createStatement();
+				PreparedStatement delete = connection.prepareStatement(deleteQuery);
+				PreparedStatement insert = connection.prepareStatement(insertQuery)) {
 
 			ResultSet resultSet = statement.executeQuery(query);
 			while (resultSet.next()) {
 				String refId = resultSet.getString("ref_id");
 				if (!refIds.remove(refId)) {
-					try (PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
-						delete.setString(1, refId);
-						delete.execute();
-						log.debug("Deleted entry for ref id: {}", refId);
-					}
+					delete.setString(1, refId);
+					delete.addBatch();
+					log.debug("Deleting entry for ref id: {}", refId);
 				}
 			}
+			resultSet.close();
 
-			if (!refIds.isEmpty()) {
-				PreparedStatement insert = connection.prepareStatement(insertQuery);
-				for (String refId : refIds) {
-					insert.setString(1, refId);
-					insert.execute();
-					log.debug("Inserted new entry for ref id: {}", refId);
-				}
+			for (String refId : refIds) {
+				insert.setString(1, refId);
+				insert.addBatch();
+				log.debug("Inserting new entry for ref id: {}", refId);
 			}
 
-			resultSet.close();
+			delete.executeBatch();
+			insert.executeBatch();
 		}
 	}
 
@@ -452,56 +455,41 @@ public class Backend {
 			versionIds.forEach(versionId -> mapping.put(refId, versionId, viewName));
 		});
 
-		try (Statement statement = connection.createStatement()) {
-			String query = "SELECT * FROM quantumdb.ref_versions ORDER BY ref_id ASC;";
-			String deleteQuery = "DELETE FROM quantumdb.ref_versions WHERE ref_id = ? AND version_id = ?;";
-			String insertQuery = "INSERT INTO quantumdb.ref_versions (ref_id, version_id, table_name) VALUES (?, ?, ?);";
+		String query = "SELECT * FROM quantumdb.ref_versions ORDER BY ref_id ASC;";
+		String deleteQuery = "DELETE FROM quantumdb.ref_versions WHERE ref_id = ? AND version_id = ?;";
+		String insertQuery = "INSERT INTO quantumdb.ref_versions (ref_id, version_id, table_name) VALUES (?, ?, ?);";
+
+		try (Statement statement = connection.createStatement();
+				PreparedStatement delete = connection.prepareStatement(deleteQuery);
+				PreparedStatement insert = connection.prepareStatement(insertQuery)) {
 
 			ResultSet resultSet = statement.executeQuery(query);
 			while (resultSet.next()) {
 				String refId = resultSet.getString("ref_id");
 				String versionId = resultSet.getString("version_id");
 
-				if (mapping.containsRow(refId)) {
-					Map<String, String> internalMapping = mapping.row(refId);
-					if (!internalMapping.containsKey(versionId)) {
-						try (PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
-							delete.setString(1, refId);
-							delete.setString(2, versionId);
-							delete.execute();
-							log.debug("Deleted entry for ref_versions id: {} / {}", refId, versionId);
-						}
-					}
-					else {
-						mapping.remove(refId, versionId);
-					}
-				}
-				else {
-					try (PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
-						delete.setString(1, refId);
-						delete.setString(2, versionId);
-						delete.execute();
-						log.debug("Deleted entry for ref_versions id: {} / {}", refId, versionId);
-					}
+				if (mapping.remove(refId, versionId) == null) {
+					delete.setString(1, refId);
+					delete.setString(2, versionId);
+					delete.addBatch();
+					log.debug("Deleting entry for ref_versions id: {} / {}", refId, versionId);
 				}
 			}
+			resultSet.close();
 
-			if (!mapping.isEmpty()) {
-				PreparedStatement insert = connection.prepareStatement(insertQuery);
-				for (Cell<String, String, String> entry : mapping.cellSet()) {
-					String refId = entry.getRowKey();
-					String versionId = entry.getColumnKey();
-
-					insert.setString(1, refId);
-					insert.setString(2, versionId);
-					insert.setString(3, entry.getValue());
-					insert.execute();
+			for (Cell<String, String, String> entry : mapping.cellSet()) {
+				String refId = entry.getRowKey();
+				String versionId = entry.getColumnKey();
 
-					log.debug("Inserted new entry for ref_versions id: {} / {}", refId, versionId);
-				}
+				insert.setString(1, refId);
+				insert.setString(2, versionId);
+				insert.setString(3, entry.getValue());
+				insert.addBatch();
+				log.debug("Inserting new entry for ref_versions id: {} / {}", refId, versionId);
 			}
 
-			resultSet.close();
+			delete.executeBatch();
+			insert.executeBatch();
 		}
 	}
 
@@ -511,58 +499,57 @@ public class Backend {
 				.forEach(tableRef -> columnMapping.putAll(tableRef.getRefId(), tableRef.getColumns().keySet()));
 
 		List<RawTableColumn> columns = Lists.newArrayList();
-		try (Statement statement = connection.createStatement()) {
-			String query = "SELECT * FROM quantumdb.table_columns ORDER BY id ASC;";
-			String deleteQuery = "DELETE FROM quantumdb.table_columns WHERE id = ?;";
-			String insertQuery = "INSERT INTO quantumdb.table_columns (ref_id, column_name) VALUES (?, ?) RETURNING id;";
+
+		String query = "SELECT * FROM quantumdb.table_columns ORDER BY id ASC;";
+		String deleteQuery = "DELETE FROM quantumdb.table_columns WHERE id = ?;";
+		String insertQuery = "INSERT INTO quantumdb.table_columns (ref_id, column_name) "
+				+ "SELECT * FROM UNNEST(?::varchar[], ?::varchar[]) RETURNING id, ref_id, column_name;";
+
+		try (Statement statement = connection.createStatement();
+				PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
 
 			ResultSet resultSet = statement.executeQuery(query);
 			while (resultSet.next()) {
-				Long id = resultSet.getLong("id");
+				long id = resultSet.getLong("id");
 				String refId = resultSet.getString("ref_id");
-				if (columnMapping.containsKey(refId)) {
-					Collection<String> columnNames = columnMapping.get(refId);
-					String columnName = resultSet.getString("column_name");
-					if (!columnNames.contains(columnName)) {
-						try (PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
-							delete.setLong(1, id);
-							delete.execute();
-							log.debug("Deleted entry for table_columns id: {} - {} / {}", id, refId, columnName);
-						}
-					}
-					else {
-						columnMapping.remove(refId, columnName);
-						columns.add(new RawTableColumn(id, refId, columnName));
-					}
+				String columnName = resultSet.getString("column_name");
+
+				if (columnMapping.remove(refId, columnName)) {
+					columns.add(new RawTableColumn(id, refId, columnName));
 				}
 				else {
-					try (PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
-						delete.setLong(1, id);
-						delete.execute();
-						log.debug("Deleted entry for table_columns id: {}", id);
-					}
+					delete.setLong(1, id);
+					delete.addBatch();
+					log.debug("Deleting entry for table_columns id: {} - {} / {}", id, refId, columnName);
 				}
 			}
+			resultSet.close();
 
-			if (!columnMapping.isEmpty()) {
-				try (PreparedStatement insert = connection.prepareStatement(insertQuery)) {
-					for (Entry<String, String> entry : columnMapping.entries()) {
-						String refId = entry.getKey();
-						String columnName = entry.getValue();
+			delete.executeBatch();
+		}
 
-						insert.setString(1, refId);
-						insert.setString(2, columnName);
-						ResultSet generatedKeys = insert.executeQuery();
-						generatedKeys.next();
+		if (!columnMapping.isEmpty()) {
+			List<String> refIds = Lists.newArrayList();
+			List<String> columnNames = Lists.newArrayList();
+			columnMapping.entries().forEach(entry -> {
+				refIds.add(entry.getKey());
+				columnNames.add(entry.getValue());
+			});
 
-						long id = generatedKeys.getLong("id");
-						columns.add(new RawTableColumn(id, refId, columnName));
-						log.debug("Inserted new entry for table_columns id: {} - {} / {}", id, refId, columnName);
-					}
+			try (PreparedStatement insert = connection.prepareStatement(insertQuery)) {
+				insert.setArray(1, connection.createArrayOf("varchar", refIds.toArray()));
+				insert.setArray(2, connection.createArrayOf("varchar", columnNames.toArray()));
+
+				ResultSet generatedKeys = insert.executeQuery();
+				while (generatedKeys.next()) {
+					long id = generatedKeys.getLong("id");
+					String refId = generatedKeys.getString("ref_id");
+					String columnName = generatedKeys.getString("column_name");
+
+					columns.add(new RawTableColumn(id, refId, columnName));
+					log.debug("Inserted new entry for table_columns id: {} - {} / {}", id, refId, columnName);
 				}
 			}
-
-			resultSet.close();
 		}
 		return columns;
 	}
@@ -593,10 +580,14 @@ public class Backend {
 		}
 
 		Map<Long, RawColumnMapping> results = Maps.newHashMap();
-		try (Statement statement = connection.createStatement()) {
-			String query = "SELECT * FROM quantumdb.column_mappings;";
-			String deleteQuery = "DELETE FROM quantumdb.column_mappings WHERE id = ?;";
-			String insertQuery = "INSERT INTO quantumdb.column_mappings (source_column_id, target_column_id) VALUES (?, ?) RETURNING id;";
+
+		String query = "SELECT * FROM quantumdb.column_mappings;";
+		String deleteQuery = "DELETE FROM quantumdb.column_mappings WHERE id = ?;";
+		String insertQuery = "INSERT INTO quantumdb.column_mappings (source_column_id, target_column_id) "
+				+ "SELECT * FROM UNNEST(?::bigint[], ?::bigint[]) RETURNING id, source_column_id, target_column_id;";
+
+		try (Statement statement = connection.createStatement();
+				PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
 
 			ResultSet resultSet = statement.executeQuery(query);
 			while (resultSet.next()) {
@@ -607,37 +598,42 @@ public class Backend {
 				RawColumn source = index.get(sourceId);
 				RawColumn target = index.get(targetId);
 
-				if (columnMapping.containsEntry(source, target)) {
-					columnMapping.remove(source, target);
+				if (columnMapping.remove(source, target)) {
 					results.put(id, new RawColumnMapping(id, source, target));
 				}
 				else {
-					try (PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
-						delete.setLong(1, id);
-						delete.execute();
-						log.debug("Deleted entry for column_mappings id: {}", id);
-					}
+					delete.setLong(1, id);
+					delete.addBatch();
+					log.debug("Deleting entry for column_mappings id: {}", id);
 				}
 			}
+			resultSet.close();
 
-			if (!columnMapping.isEmpty()) {
-				try (PreparedStatement insert = connection.prepareStatement(insertQuery)) {
-					for (Entry<RawColumn, RawColumn> entry : columnMapping.entries()) {
-						long sourceId = reverseIndex.get(entry.getKey());
-						long targetId = reverseIndex.get(entry.getValue());
+			delete.executeBatch();
+		}
 
-						insert.setLong(1, sourceId);
-						insert.setLong(2, targetId);
-						ResultSet generatedKeys = insert.executeQuery();
-						generatedKeys.next();
+		if (!columnMapping.isEmpty()) {
+			List<Long> sourceIds = Lists.newArrayList();
+			List<Long> targetIds = Lists.newArrayList();
+			columnMapping.entries().forEach(entry -> {
+				sourceIds.add(reverseIndex.get(entry.getKey()));
+				targetIds.add(reverseIndex.get(entry.getValue()));
+			});
 
-						long id = generatedKeys.getLong("id");
-						results.put(id, new RawColumnMapping(id, entry.getKey(), entry.getValue()));
-						log.debug("Inserted new entry for column_mappings id: {} - {} / {}", id, sourceId, targetId);
-					}
+			try (PreparedStatement insert = connection.prepareStatement(insertQuery)) {
+				insert.setArray(1, connection.createArrayOf("bigint", sourceIds.toArray()));
+				insert.setArray(2, connection.createArrayOf("bigint", targetIds.toArray()));
+
+				ResultSet generatedKeys = insert.executeQuery();
+				while (generatedKeys.next()) {
+					long id = generatedKeys.getLong("id");
+					long sourceId = generatedKeys.getLong("source_column_id");
+					long targetId = generatedKeys.getLong("target_column_id");
+
+					results.put(id, new RawColumnMapping(id, index.get(sourceId), index.get(targetId)));
+					log.debug("Inserted new entry for column_mappings id: {} - {} / {}", id, sourceId, targetId);
 				}
 			}
-			resultSet.close();
 		}
 
 		return results;
@@ -654,11 +650,17 @@ public class Backend {
 		}
 
 		Map<Long, SyncRef> mapping = Maps.newHashMap();
-		try (Statement statement = connection.createStatement()) {
-			String query = "SELECT * FROM quantumdb.synchronizers;";
-			String deleteQuery = "DELETE FROM quantumdb.synchronizers WHERE id = ?;";
-			String insertQuery = "INSERT INTO quantumdb.synchronizers (source_ref_id, target_ref_id, trigger_name, function_name) VALUES (?, ?, ?, ?) RETURNING id;";
-			String updateQuery = "UPDATE quantumdb.synchronizers SET trigger_name = ?, function_name = ? WHERE id = ?;";
+
+		String query = "SELECT * FROM quantumdb.synchronizers;";
+		String deleteQuery = "DELETE FROM quantumdb.synchronizers WHERE id = ?;";
+		String insertQuery = "INSERT INTO quantumdb.synchronizers (source_ref_id, target_ref_id, trigger_name, function_name) "
+				+ "SELECT * FROM UNNEST(?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[]) "
+				+ "RETURNING id, source_ref_id, target_ref_id;";
+		String updateQuery = "UPDATE quantumdb.synchronizers SET trigger_name = ?, function_name = ? WHERE id = ?;";
+
+		try (Statement statement = connection.createStatement();
+				PreparedStatement delete = connection.prepareStatement(deleteQuery);
+				PreparedStatement update = connection.prepareStatement(updateQuery)) {
 
 			ResultSet resultSet = statement.executeQuery(query);
 			while (resultSet.next()) {
@@ -666,48 +668,61 @@ public class Backend {
 				String sourceRefId = resultSet.getString("source_ref_id");
 				String targetRefId = resultSet.getString("target_ref_id");
 
-				if (syncMapping.contains(sourceRefId, targetRefId)) {
-					SyncRef syncRef = syncMapping.remove(sourceRefId, targetRefId);
+				SyncRef syncRef = syncMapping.remove(sourceRefId, targetRefId);
+				if (syncRef == null) {
+					delete.setLong(1, id);
+					delete.addBatch();
+					log.debug("Deleting entry for synchronizers id: {}", id);
+					continue;
+				}
 
-					try (PreparedStatement update = connection.prepareStatement(updateQuery)) {
-						update.setString(1, syncRef.getName());
-						update.setString(2, syncRef.getFunctionName());
-						update.setLong(3, id);
-						update.execute();
-						log.debug("Updated entry for synchronizers id: {} - {} -> {}", id, sourceRefId, targetRefId);
-					}
+				boolean changed = !Objects.equals(syncRef.getName(), resultSet.getString("trigger_name"))
+						|| !Objects.equals(syncRef.getFunctionName(), resultSet.getString("function_name"));
 
-					mapping.put(id, syncRef);
-				}
-				else {
-					try (PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
-						delete.setLong(1, id);
-						delete.execute();
-						log.debug("Deleted entry for synchronizers id: {}", id);
-					}
+				if (changed) {
+					update.setString(1, syncRef.getName());
+					update.setString(2, syncRef.getFunctionName());
+					update.setLong(3, id);
+					update.addBatch();
+					log.debug("Updating entry for synchronizers id: {} - {} -> {}", id, sourceRefId, targetRefId);
 				}
+
+				mapping.put(id, syncRef);
 			}
+			resultSet.close();
+
+			delete.executeBatch();
+			update.executeBatch();
+		}
 
-			if (!syncMapping.isEmpty()) {
-				PreparedStatement insert = connection.prepareStatement(insertQuery);
-				for (SyncRef syncRef : syncMapping.values()) {
-					String sourceRefId = syncRef.getSource().getRefId();
-					String targetRefId = syncRef.getTarget().getRefId();
+		if (!syncMapping.isEmpty()) {
+			List<String> sourceRefIds = Lists.newArrayList();
+			List<String> targetRefIds = Lists.newArrayList();
+			List<String> triggerNames = Lists.newArrayList();
+			List<String> functionNames = Lists.newArrayList();
+			for (SyncRef syncRef : syncMapping.values()) {
+				sourceRefIds.add(syncRef.getSource().getRefId());
+				targetRefIds.add(syncRef.getTarget().getRefId());
+				triggerNames.add(syncRef.getName());
+				functionNames.add(syncRef.getFunctionName());
+			}
 
-					insert.setString(1, sourceRefId);
-					insert.setString(2, targetRefId);
-					insert.setString(3, syncRef.getName());
-					insert.setString(4, syncRef.getFunctionName());
-					ResultSet generatedKeys = insert.executeQuery();
+			try (PreparedStatement insert = connection.prepareStatement(insertQuery)) {
+				insert.setArray(1, connection.createArrayOf("varchar", sourceRefIds.toArray()));
+				insert.setArray(2, connection.createArrayOf("varchar", targetRefIds.toArray()));
+				insert.setArray(3, connection.createArrayOf("varchar", triggerNames.toArray()));
+				insert.setArray(4, connection.createArrayOf("varchar", functionNames.toArray()));
 
-					generatedKeys.next();
+				ResultSet generatedKeys = insert.executeQuery();
+				while (generatedKeys.next()) {
 					long id = generatedKeys.getLong("id");
-					mapping.put(id, syncRef);
+					String sourceRefId = generatedKeys.getString("source_ref_id");
+					String targetRefId = generatedKeys.getString("target_ref_id");
+
+					mapping.put(id, syncMapping.get(sourceRefId, targetRefId));
 					log.debug("Inserted new entry for synchronizers id: {} - {} -> {}", id, sourceRefId, targetRefId);
 				}
 			}
-
-			resultSet.close();
 		}
 		return mapping;
 	}
@@ -728,80 +743,74 @@ public class Backend {
 			}
 		});
 
-		try (Statement statement = connection.createStatement()) {
-			String query = "SELECT * FROM quantumdb.synchronizer_columns;";
-			String deleteQuery = "DELETE FROM quantumdb.synchronizer_columns WHERE synchronizer_id = ? AND column_mapping = ?;";
-			String insertQuery = "INSERT INTO quantumdb.synchronizer_columns (synchronizer_id, column_mapping_id) VALUES (?, ?);";
+		String query = "SELECT * FROM quantumdb.synchronizer_columns;";
+		String deleteQuery = "DELETE FROM quantumdb.synchronizer_columns WHERE synchronizer_id = ? AND column_mapping_id = ?;";
+		String insertQuery = "INSERT INTO quantumdb.synchronizer_columns (synchronizer_id, column_mapping_id) VALUES (?, ?);";
+
+		try (Statement statement = connection.createStatement();
+				PreparedStatement delete = connection.prepareStatement(deleteQuery);
+				PreparedStatement insert = connection.prepareStatement(insertQuery)) {
 
 			ResultSet resultSet = statement.executeQuery(query);
 			while (resultSet.next()) {
 				long synchronizerId = resultSet.getLong("synchronizer_id");
 				long columnMappingId = resultSet.getLong("column_mapping_id");
 
-				if (idMapping.containsEntry(synchronizerId, columnMappingId)) {
-					idMapping.remove(synchronizerId, columnMappingId);
-				}
-				else {
-					try (PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
-						delete.setLong(1, synchronizerId);
-						delete.setLong(2, columnMappingId);
-						delete.execute();
-						log.debug("Deleted entry for synchronizer_columns id: {}, mapping: {}", synchronizerId, columnMappingId);
-					}
+				if (!idMapping.remove(synchronizerId, columnMappingId)) {
+					delete.setLong(1, synchronizerId);
+					delete.setLong(2, columnMappingId);
+					delete.addBatch();
+					log.debug("Deleting entry for synchronizer_columns id: {}, mapping: {}", synchronizerId, columnMappingId);
 				}
 			}
+			resultSet.close();
 
-			if (!idMapping.isEmpty()) {
-				PreparedStatement insert = connection.prepareStatement(insertQuery);
-				for (Entry<Long, Long> idEntry : idMapping.entries()) {
-					Long synchronizerId = idEntry.getKey();
-					Long columnMappingId = idEntry.getValue();
-					insert.setLong(1, synchronizerId);
-					insert.setLong(2, columnMappingId);
-					insert.execute();
-					log.debug("Inserted new entry for synchronizer_columns id: {}, mapping: {}", synchronizerId, columnMappingId);
-				}
+			for (Entry<Long, Long> idEntry : idMapping.entries()) {
+				Long synchronizerId = idEntry.getKey();
+				Long columnMappingId = idEntry.getValue();
+				insert.setLong(1, synchronizerId);
+				insert.setLong(2, columnMappingId);
+				insert.addBatch();
+				log.debug("Inserting new entry for synchronizer_columns id: {}, mapping: {}", synchronizerId, columnMappingId);
 			}
 
-			resultSet.close();
+			delete.executeBatch();
+			insert.executeBatch();
 		}
 	}
 
 	private void persistActiveVersions(Connection connection, RefLog refLog) throws SQLException {
-		try (Statement statement = connection.createStatement()) {
-			String query = "SELECT * FROM quantumdb.active_versions;";
-			String deleteQuery = "DELETE FROM quantumdb.active_versions WHERE version_id = ?;";
-			String insertQuery = "INSERT INTO quantumdb.active_versions (version_id) VALUES (?);";
+		Set<String> versions = refLog.getVersions().stream()
+				.map(Version::getId)
+				.collect(Collectors.toSet());
 
-			ResultSet resultSet = statement.executeQuery(query);
-			Set<String> versions = refLog.getVersions().stream()
-					.map(Version::getId)
-					.collect(Collectors.toSet());
+		String query = "SELECT * FROM quantumdb.active_versions;";
+		String deleteQuery = "DELETE FROM quantumdb.active_versions WHERE version_id = ?;";
+		String insertQuery = "INSERT INTO quantumdb.active_versions (version_id) VALUES (?);";
+
+		try (Statement statement = connection.createStatement();
+				PreparedStatement delete = connection.prepareStatement(deleteQuery);
+				PreparedStatement insert = connection.prepareStatement(insertQuery)) {
 
+			ResultSet resultSet = statement.executeQuery(query);
 			while (resultSet.next()) {
 				String versionId = resultSet.getString("version_id");
-				if (versions.contains(versionId)) {
-					versions.remove(versionId);
-				}
-				else {
-					try (PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
-						delete.setString(1, versionId);
-						delete.execute();
-						log.debug("Deleted entry for active_versions id: {}", versionId);
-					}
+				if (!versions.remove(versionId)) {
+					delete.setString(1, versionId);
+					delete.addBatch();
+					log.debug("Deleting entry for active_versions id: {}", versionId);
 				}
 			}
+			resultSet.close();
 
-			if (!versions.isEmpty()) {
-				PreparedStatement insert = connection.prepareStatement(insertQuery);
-				for (String versionId : versions) {
-					insert.setString(1, versionId);
-					insert.execute();
-					log.debug("Inserted new entry for active_versions id: {}", versionId);
-				}
+			for (String versionId : versions) {
+				insert.setString(1, versionId);
+				insert.addBatch();
+				log.debug("Inserting new entry for active_versions id: {}", versionId);
 			}
 
-			resultSet.close();
+			delete.executeBatch();
+			insert.executeBatch();
 		}
 	}
 
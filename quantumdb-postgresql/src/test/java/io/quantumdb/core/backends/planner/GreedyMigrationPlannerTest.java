@@ -1533,6 +1533,36 @@ public class GreedyMigrationPlannerTest {
 		}
 	}
 
+	@Test
+	public void testThatCopiesOfTheSameTableDependOnEachOther() {
+		List<Step> copies = plan.getSteps().stream()
+				.filter(step -> step.getOperation().getType() == Type.COPY)
+				.collect(Collectors.toList());
+
+		for (int i = 0; i < copies.size(); i++) {
+			Step step = copies.get(i);
+			Set<Table> tables = step.getOperation().getTables();
+			for (int j = 0; j < i; j++) {
+				Step earlier = copies.get(j);
+				if (earlier.getOperation().getTables().equals(tables)) {
+					collector.checkThat("Step: " + step + " should depend on: " + earlier,
+							step.getTransitiveDependencies(), hasItem(earlier));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testThatExecutingAllExecutableStepsCompletesThePlan() {
+		int rounds = 0;
+		List<Step> executable;
+		while (!(executable = plan.getExecutableSteps()).isEmpty() && rounds++ < plan.getSteps().size()) {
+			executable.forEach(Step::markAsExecuted);
+		}
+
+		collector.checkThat(plan.isExecuted(), is(true));
+	}
+
 	private String getRefId(String refId) {
 		return refLog.getTableRef(changelog.getLastAdded(), refId).getRefId();
 	}
@@ -0,0 +1,62 @@
+package io.quantumdb.core.planner;
+
+import static io.quantumdb.core.schema.definitions.Column.Hint.PRIMARY_KEY;
+import static io.quantumdb.core.schema.definitions.PostgresTypes.bigint;
+import static io.quantumdb.core.schema.definitions.PostgresTypes.text;
+import static io.quantumdb.core.schema.definitions.PostgresTypes.uuid;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.UUID;
+
+import com.google.common.collect.ImmutableMap;
+import io.quantumdb.core.schema.definitions.Column;
+import io.quantumdb.core.schema.definitions.Table;
+import org.junit.Test;
+
+public class BackfillCheckpointsTest {
+
+	@Test
+	public void testFormattingAndParsingSingleColumnIdentity() {
+		Table table = new Table("users")
+				.addColumn(new Column("id", bigint(), PRIMARY_KEY));
+
+		Map<String, Object> identity = ImmutableMap.of("id", 1234L);
+		String record = BackfillCheckpoints.formatIdentity(table, identity);
+
+		assertEquals("(\"1234\")", record);
+		assertEquals(identity, BackfillCheckpoints.parseIdentity(table, record));
+	}
+
+	@Test
+	public void testFormattingAndParsingCompositeIdentityWithSeparators() {
+		Table table = new Table("memberships")
+				.addColumn(new Column("group_id", uuid(), PRIMARY_KEY))
+				.addColumn(new Column("name", text(), PRIMARY_KEY));
+
+		Map<String, Object> identity = ImmutableMap.of("group_id", UUID.randomUUID(), "name", "Doe, John");
+		String record = BackfillCheckpoints.formatIdentity(table, identity);
+
+		assertEquals(identity, BackfillCheckpoints.parseIdentity(table, record));
+	}
+
+	@Test
+	public void testParsingRecordReturnedByMigratorFunction() {
+		Table table = new Table("users")
+				.addColumn(new Column("id", bigint(), PRIMARY_KEY));
+
+		assertEquals(ImmutableMap.of("id", 42L), BackfillCheckpoints.parseIdentity(table, "(42)"));
+	}
+
+	@Test
+	public void testParsingMissingRecord() {
+		Table table = new Table("users")
+				.addColumn(new Column("id", bigint(), PRIMARY_KEY));
+
+		assertTrue(BackfillCheckpoints.parseIdentity(table, null).isEmpty());
+		assertNull(BackfillCheckpoints.formatIdentity(table, null));
+	}
+
+}
@@ -0,0 +1,104 @@
+package io.quantumdb.core.planner;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import io.quantumdb.core.backends.Config;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class BatchControllerTest {
+
+	private BatchController controller;
+
+	@Before
+	public void setUp() {
+		Config config = new Config().setBackfillTargetBatchTime(1_000);
+		controller = new BatchController(config);
+	}
+
+	@Test
+	public void testBatchSizeGrowsWhenBatchesAreFast() {
+		controller.adjust(500, false);
+		assertEquals(BatchController.INITIAL_BATCH_SIZE * 2, controller.getBatchSize());
+		assertEquals(BatchController.MIN_WAIT_TIME, controller.getWaitTime());
+	}
+
+	@Test
+	public void testBatchSizeShrinksWhenBatchesAreSlow() {
+		controller.adjust(1_250, false);
+		assertEquals(BatchController.INITIAL_BATCH_SIZE * 4 / 5, controller.getBatchSize());
+	}
+
+	@Test
+	public void testBatchSizeChangesAtMostByFactorTwo() {
+		controller.adjust(1, false);
+		assertEquals(BatchController.INITIAL_BATCH_SIZE * 2, controller.getBatchSize());
+
+		controller.adjust(60_000, false);
+		assertEquals(BatchController.INITIAL_BATCH_SIZE, controller.getBatchSize());
+	}
+
+	@Test
+	public void testBatchSizeIsBounded() {
+		for (int i = 0; i < 100; i++) {
+			controller.adjust(1, false);
+		}
+		assertEquals(BatchController.MAX_BATCH_SIZE, controller.getBatchSize());
+
+		for (int i = 0; i < 100; i++) {
+			controller.adjust(60_000, false);
+		}
+		assertEquals(BatchController.MIN_BATCH_SIZE, controller.getBatchSize());
+	}
+
+	@Test
+	public void testBacksOffWhenOverloaded() {
+		controller.adjust(1, true);
+		assertEquals(BatchController.INITIAL_BATCH_SIZE / 2, controller.getBatchSize());
+		assertEquals(BatchController.MIN_WAIT_TIME * 2, controller.getWaitTime());
+
+		for (int i = 0; i < 100; i++) {
+			controller.adjust(1, true);
+		}
+		assertEquals(BatchController.MIN_BATCH_SIZE, controller.getBatchSize());
+		assertEquals(BatchController.MAX_WAIT_TIME, controller.getWaitTime());
+	}
+
+	@Test
+	public void testWaitTimeRecoversAfterOverload() {
+		controller.adjust(1_000, true);
+		controller.adjust(1_000, true);
+		assertEquals(BatchController.MIN_WAIT_TIME * 4, controller.getWaitTime());
+
+		controller.adjust(1_000, false);
+		assertEquals(BatchController.MIN_WAIT_TIME * 2, controller.getWaitTime());
+	}
+
+	@Test
+	public void testUnsupportedLockWaitProbeIsSkipped() throws SQLException {
+		ResultSet resultSet = Mockito.mock(ResultSet.class);
+		Mockito.when(resultSet.next()).thenReturn(true);
+		Mockito.when(resultSet.getLong(1)).thenReturn(0L);
+
+		// Mimics PostgreSQL 9.5 and older, where pg_stat_activity has no wait_event_type column.
+		Statement statement = Mockito.mock(Statement.class);
+		Mockito.when(statement.executeQuery(anyString())).thenReturn(resultSet);
+		Mockito.when(statement.executeQuery(contains("wait_event_type")))
+				.thenThrow(new SQLException("column \"wait_event_type\" does not exist"));
+
+		Connection connection = Mockito.mock(Connection.class);
+		Mockito.when(connection.createStatement()).thenReturn(statement);
+
+		controller.onBatchCompleted(connection, 500);
+		assertEquals(BatchController.INITIAL_BATCH_SIZE * 2, controller.getBatchSize());
+	}
+
+}
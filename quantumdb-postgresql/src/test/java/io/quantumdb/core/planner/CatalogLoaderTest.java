@@ -1,13 +1,21 @@
 package io.quantumdb.core.planner;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.stream.Collectors;
 
 import io.quantumdb.core.backends.PostgresqlDatabase;
+import com.google.common.collect.Lists;
 import io.quantumdb.core.schema.definitions.Catalog;
+import io.quantumdb.core.schema.definitions.Column;
+import io.quantumdb.core.schema.definitions.ForeignKey;
+import io.quantumdb.core.schema.definitions.ForeignKey.Action;
+import io.quantumdb.core.schema.definitions.PostgresTypes;
 import io.quantumdb.core.schema.definitions.Table;
 import org.junit.Rule;
 import org.junit.Test;
@@ -34,4 +42,43 @@ public class CatalogLoaderTest {
 		}
 	}
 
+	@Test
+	public void testLoadingColumnsIndexesAndForeignKeysOfMultipleTables() throws SQLException {
+		try (Connection connection = database.createConnection()) {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("CREATE TABLE users (id bigserial PRIMARY KEY, name varchar(64) NOT NULL, "
+						+ "balance numeric(10, 2));");
+				statement.execute("CREATE TABLE posts (id bigserial PRIMARY KEY, author_id bigint NOT NULL, "
+						+ "title text, CONSTRAINT posts_author_fk FOREIGN KEY (author_id) REFERENCES users (id) "
+						+ "ON DELETE CASCADE);");
+				statement.execute("CREATE INDEX posts_author_idx ON posts (author_id);");
+			}
+		}
+
+		try (Connection connection = database.createConnection()) {
+			Catalog catalog = CatalogLoader.load(connection, database.getCatalogName());
+			Table users = catalog.getTable("users");
+			Table posts = catalog.getTable("posts");
+
+			assertTrue(users.getColumn("id").isPrimaryKey());
+			assertTrue(users.getColumn("id").isAutoIncrement());
+			assertTrue(users.getColumn("name").isNotNull());
+			assertEquals(PostgresTypes.varchar(64), users.getColumn("name").getType());
+			assertEquals(PostgresTypes.numeric(10, 2), users.getColumn("balance").getType());
+			assertEquals(Lists.newArrayList("id", "author_id", "title"), posts.getColumns().stream()
+					.map(Column::getName)
+					.collect(Collectors.toList()));
+
+			assertNotNull(posts.getIndex("author_id"));
+
+			assertEquals(1, posts.getForeignKeys().size());
+			ForeignKey foreignKey = posts.getForeignKeys().get(0);
+			assertEquals("posts_author_fk", foreignKey.getForeignKeyName());
+			assertEquals("users", foreignKey.getReferredTableName());
+			assertEquals(Lists.newArrayList("author_id"), foreignKey.getReferencingColumns());
+			assertEquals(Action.CASCADE, foreignKey.getOnDelete());
+			assertTrue(users.getForeignKeys().isEmpty());
+		}
+	}
+
 }
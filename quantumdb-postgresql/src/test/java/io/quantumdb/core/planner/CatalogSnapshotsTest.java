@@ -0,0 +1,82 @@
+package io.quantumdb.core.planner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+import io.quantumdb.core.planner.CatalogLoader.ColumnRow;
+import io.quantumdb.core.planner.CatalogLoader.ForeignKeyRow;
+import io.quantumdb.core.planner.CatalogLoader.PrimaryKeyRow;
+import io.quantumdb.core.planner.CatalogLoader.Snapshot;
+import io.quantumdb.core.schema.definitions.Catalog;
+import io.quantumdb.core.schema.definitions.ForeignKey;
+import io.quantumdb.core.schema.definitions.ForeignKey.Action;
+import io.quantumdb.core.schema.definitions.PostgresTypes;
+import io.quantumdb.core.schema.definitions.Table;
+import org.junit.Test;
+
+public class CatalogSnapshotsTest {
+
+	@Test
+	public void testRoundTripOfSnapshot() {
+		Snapshot snapshot = createSnapshot(Snapshot.FORMAT);
+
+		Snapshot deserialized = CatalogSnapshots.deserialize(CatalogSnapshots.serialize(snapshot));
+
+		assertEquals(snapshot, deserialized);
+	}
+
+	@Test
+	public void testAssemblingCatalogFromDeserializedSnapshot() {
+		Snapshot snapshot = CatalogSnapshots.deserialize(CatalogSnapshots.serialize(createSnapshot(Snapshot.FORMAT)));
+		Catalog catalog = CatalogLoader.assemble("test", snapshot);
+
+		Table users = catalog.getTable("users");
+		Table posts = catalog.getTable("posts");
+
+		assertTrue(users.getColumn("id").isPrimaryKey());
+		assertTrue(users.getColumn("id").isAutoIncrement());
+		assertTrue(users.getColumn("name").isNotNull());
+		assertEquals(PostgresTypes.varchar(64), users.getColumn("name").getType());
+		assertEquals("users_id_seq", users.getColumn("id").getSequence().getName());
+		assertNotNull(posts.getIndex("author_id"));
+
+		ForeignKey foreignKey = posts.getForeignKeys().get(0);
+		assertEquals("posts_author_fk", foreignKey.getForeignKeyName());
+		assertEquals("users", foreignKey.getReferredTableName());
+		assertEquals(Action.CASCADE, foreignKey.getOnDelete());
+		assertEquals(Action.NO_ACTION, foreignKey.getOnUpdate());
+	}
+
+	@Test
+	public void testSnapshotOfOtherFormatIsIgnored() {
+		String json = CatalogSnapshots.serialize(createSnapshot(Snapshot.FORMAT + 1));
+		assertNull(CatalogSnapshots.deserialize(json));
+	}
+
+	@Test
+	public void testUnreadableSnapshotIsIgnored() {
+		assertNull(CatalogSnapshots.deserialize("{\"tables\": 3"));
+		assertNull(CatalogSnapshots.deserialize(null));
+	}
+
+	private Snapshot createSnapshot(int format) {
+		return new Snapshot(format,
+				Lists.newArrayList("users", "posts"),
+				Lists.newArrayList(
+						new ColumnRow("users", "id", "nextval('users_id_seq'::regclass)", "bigint", false,
+								null, 64, 0, null),
+						new ColumnRow("users", "name", null, "character varying", false, 64, null, null, null),
+						new ColumnRow("posts", "id", null, "bigint", false, null, 64, 0, null),
+						new ColumnRow("posts", "author_id", null, "bigint", false, null, 64, 0, null)),
+				Lists.newArrayList(
+						new PrimaryKeyRow("users", "id"),
+						new PrimaryKeyRow("posts", "id")),
+				Lists.newArrayList("CREATE INDEX posts_author_idx ON public.posts USING btree (author_id)"),
+				Lists.newArrayList(
+						new ForeignKeyRow("posts", "posts_author_fk", "author_id", "users", "id", "a", "c")));
+	}
+
+}
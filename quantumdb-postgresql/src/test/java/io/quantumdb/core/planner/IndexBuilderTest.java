@@ -0,0 +1,46 @@
+package io.quantumdb.core.planner;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import io.quantumdb.core.backends.Config;
+import io.quantumdb.core.schema.definitions.Catalog;
+import io.quantumdb.core.schema.definitions.Column;
+import io.quantumdb.core.schema.definitions.Column.Hint;
+import io.quantumdb.core.schema.definitions.Index;
+import io.quantumdb.core.schema.definitions.PostgresTypes;
+import io.quantumdb.core.schema.definitions.Table;
+import org.junit.Test;
+
+public class IndexBuilderTest {
+
+	@Test
+	public void testStatementsAreGroupedPerTable() {
+		Catalog catalog = new Catalog("test-db");
+		Table users = new Table("users")
+				.addColumn(new Column("id", PostgresTypes.bigint(), Hint.PRIMARY_KEY))
+				.addColumn(new Column("email", PostgresTypes.text(), Hint.NOT_NULL))
+				.addColumn(new Column("name", PostgresTypes.text(), Hint.NOT_NULL));
+
+		Table messages = new Table("messages")
+				.addColumn(new Column("id", PostgresTypes.bigint(), Hint.PRIMARY_KEY))
+				.addColumn(new Column("content", PostgresTypes.text(), Hint.NOT_NULL));
+
+		users.addIndex(new Index("users_email", Lists.newArrayList("email"), true));
+		users.addIndex(new Index("users_name", Lists.newArrayList("name"), false));
+
+		catalog.addTable(users);
+		catalog.addTable(messages);
+
+		ListMultimap<String, String> statements = IndexBuilder.createStatements(new Config(),
+				Lists.newArrayList(users, messages));
+
+		assertEquals(Lists.newArrayList(
+				"CREATE UNIQUE INDEX CONCURRENTLY \"users_email\" ON \"users\" (\"email\");",
+				"CREATE INDEX CONCURRENTLY \"users_name\" ON \"users\" (\"name\");"),
+				statements.get("users"));
+		assertEquals(1, statements.keySet().size());
+	}
+
+}
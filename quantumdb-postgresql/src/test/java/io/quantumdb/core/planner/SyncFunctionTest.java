@@ -62,4 +62,84 @@ public class SyncFunctionTest {
 		assertEquals("CREATE TRIGGER \"migration_trigger\" AFTER INSERT OR UPDATE OR DELETE ON \"table_a\" FOR EACH ROW WHEN (pg_trigger_depth() = 0) EXECUTE PROCEDURE \"migrate_data\"();", createTriggerStatement);
 	}
 
+	@Test
+	public void createStatementLevelSyncFunction() {
+		RefLog refLog = new RefLog();
+		Version v1 = new Version("v1", null);
+		Version v2 = new Version("v2", v1);
+
+		TableRef t1 = refLog.addTable("users", "table_a", v1,
+				new ColumnRef("id"),
+				new ColumnRef("name"));
+
+		TableRef t2 = refLog.addTable("users", "table_b", v2,
+				new ColumnRef("id", t1.getColumn("id")),
+				new ColumnRef("name", t1.getColumn("name")));
+
+		Catalog catalog = new Catalog(database.getCatalogName());
+
+		catalog.addTable(new Table("table_a")
+				.addColumn(new Column("id", PostgresTypes.bigint(), Hint.PRIMARY_KEY, Hint.AUTO_INCREMENT))
+				.addColumn(new Column("name", PostgresTypes.bigint(), Hint.NOT_NULL)));
+
+		catalog.addTable(new Table("table_b")
+				.addColumn(new Column("id", PostgresTypes.bigint(), Hint.PRIMARY_KEY, Hint.AUTO_INCREMENT))
+				.addColumn(new Column("name", PostgresTypes.bigint(), Hint.NOT_NULL)));
+
+		NullRecords nullRecords = new NullRecords(database.getConfig());
+
+		Map<ColumnRef, ColumnRef> columnMapping = refLog.getColumnMapping(t1, t2);
+		SyncFunction function = new SyncFunction(refLog, t1, t2, columnMapping, catalog, nullRecords,
+				"migrate_data", "migration_trigger");
+
+		function.setTransitionTablesSupported(true);
+		function.setColumnsToMigrate(Sets.newHashSet("id", "name"));
+
+		String createFunctionStatement = function.createFunctionStatement().toString();
+		String createTriggerStatement = function.createTriggerStatement().toString();
+
+		assertEquals("CREATE OR REPLACE FUNCTION \"migrate_data\"() RETURNS TRIGGER AS $$ BEGIN IF TG_OP = 'INSERT' THEN INSERT INTO \"table_b\" (\"name\", \"id\") SELECT n.\"name\", n.\"id\" FROM new_rows n; ELSIF TG_OP = 'UPDATE' THEN DELETE FROM \"table_b\" t USING old_rows o WHERE t.\"id\" = o.\"id\" AND NOT EXISTS (SELECT 1 FROM new_rows n WHERE n.\"id\" = o.\"id\"); INSERT INTO \"table_b\" (\"name\", \"id\") SELECT n.\"name\", n.\"id\" FROM new_rows n ON CONFLICT (\"id\") DO UPDATE SET \"id\" = EXCLUDED.\"id\", \"name\" = EXCLUDED.\"name\"; ELSIF TG_OP = 'DELETE' THEN DELETE FROM \"table_b\" t USING old_rows o WHERE t.\"id\" = o.\"id\"; END IF; RETURN NULL; END; $$ LANGUAGE 'plpgsql';", createFunctionStatement);
+		assertEquals("CREATE TRIGGER \"migration_trigger\" AFTER INSERT ON \"table_a\" REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT WHEN (pg_trigger_depth() = 0) EXECUTE PROCEDURE \"migrate_data\"(); "
+				+ "CREATE TRIGGER \"migration_trigger_update\" AFTER UPDATE ON \"table_a\" REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows FOR EACH STATEMENT WHEN (pg_trigger_depth() = 0) EXECUTE PROCEDURE \"migrate_data\"(); "
+				+ "CREATE TRIGGER \"migration_trigger_delete\" AFTER DELETE ON \"table_a\" REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT WHEN (pg_trigger_depth() = 0) EXECUTE PROCEDURE \"migrate_data\"();", createTriggerStatement);
+	}
+
+	@Test
+	public void createUpsertSyncFunction() {
+		RefLog refLog = new RefLog();
+		Version v1 = new Version("v1", null);
+		Version v2 = new Version("v2", v1);
+
+		TableRef t1 = refLog.addTable("users", "table_a", v1,
+				new ColumnRef("id"),
+				new ColumnRef("name"));
+
+		TableRef t2 = refLog.addTable("users", "table_b", v2,
+				new ColumnRef("id", t1.getColumn("id")),
+				new ColumnRef("name", t1.getColumn("name")));
+
+		Catalog catalog = new Catalog(database.getCatalogName());
+
+		catalog.addTable(new Table("table_a")
+				.addColumn(new Column("id", PostgresTypes.bigint(), Hint.PRIMARY_KEY, Hint.AUTO_INCREMENT))
+				.addColumn(new Column("name", PostgresTypes.bigint(), Hint.NOT_NULL)));
+
+		catalog.addTable(new Table("table_b")
+				.addColumn(new Column("id", PostgresTypes.bigint(), Hint.PRIMARY_KEY, Hint.AUTO_INCREMENT))
+				.addColumn(new Column("name", PostgresTypes.bigint(), Hint.NOT_NULL)));
+
+		NullRecords nullRecords = new NullRecords(database.getConfig());
+
+		Map<ColumnRef, ColumnRef> columnMapping = refLog.getColumnMapping(t1, t2);
+		SyncFunction function = new SyncFunction(refLog, t1, t2, columnMapping, catalog, nullRecords,
+				"migrate_data", "migration_trigger");
+
+		function.setUpsertsSupported(true);
+		function.setColumnsToMigrate(Sets.newHashSet("id", "name"));
+
+		String createFunctionStatement = function.createFunctionStatement().toString();
+
+		assertEquals("CREATE OR REPLACE FUNCTION \"migrate_data\"() RETURNS TRIGGER AS $$ BEGIN IF TG_OP = 'INSERT' THEN INSERT INTO \"table_b\" (\"name\", \"id\") VALUES (NEW.\"name\", NEW.\"id\"); ELSIF TG_OP = 'UPDATE' THEN UPDATE \"table_b\" SET \"id\" = NEW.\"id\", \"name\" = NEW.\"name\" WHERE \"id\" = OLD.\"id\"; IF NOT found THEN INSERT INTO \"table_b\" (\"name\", \"id\") VALUES (NEW.\"name\", NEW.\"id\") ON CONFLICT (\"id\") DO UPDATE SET \"id\" = EXCLUDED.\"id\", \"name\" = EXCLUDED.\"name\"; END IF; ELSIF TG_OP = 'DELETE' THEN DELETE FROM \"table_b\" WHERE \"id\" = OLD.\"id\"; END IF; RETURN NEW; END; $$ LANGUAGE 'plpgsql';", createFunctionStatement);
+	}
+
 }
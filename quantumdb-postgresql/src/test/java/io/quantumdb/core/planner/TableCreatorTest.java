@@ -205,4 +205,41 @@ public class TableCreatorTest {
 		}
 	}
 
+	@Test
+	public void testCreatingDeferredForeignKeysAfterTables() throws SQLException {
+		Catalog catalog = new Catalog(database.getCatalogName());
+		Table users = new Table("users")
+				.addColumn(new Column("id", PostgresTypes.bigint(), Hint.PRIMARY_KEY, Hint.AUTO_INCREMENT))
+				.addColumn(new Column("name", PostgresTypes.text(), Hint.NOT_NULL));
+
+		Table messages = new Table("messages")
+				.addColumn(new Column("id", PostgresTypes.bigint(), Hint.PRIMARY_KEY, Hint.AUTO_INCREMENT))
+				.addColumn(new Column("author_id", PostgresTypes.bigint(), Hint.NOT_NULL))
+				.addColumn(new Column("content", PostgresTypes.text(), Hint.NOT_NULL));
+
+		messages.addForeignKey("author_id")
+				.referencing(users, "id");
+
+		catalog.addTable(users);
+		catalog.addTable(messages);
+
+		TableCreator tableCreator = new TableCreator(database.getConfig());
+		try (Connection connection = database.createConnection()) {
+			tableCreator.createTables(connection, Lists.newArrayList(users, messages));
+			tableCreator.createImmediateForeignKeys(connection, Lists.newArrayList(users, messages));
+		}
+
+		try (Connection connection = database.createConnection()) {
+			Catalog loaded = CatalogLoader.load(connection, database.getCatalogName());
+			assertTrue(loaded.getTable("messages").getForeignKeys().isEmpty());
+
+			tableCreator.createDeferredForeignKeys(connection, Lists.newArrayList(users, messages));
+		}
+
+		try (Connection connection = database.createConnection()) {
+			Catalog loaded = CatalogLoader.load(connection, database.getCatalogName());
+			assertEquals(1, loaded.getTable("messages").getForeignKeys().size());
+		}
+	}
+
 }
@@ -0,0 +1,68 @@
+package io.quantumdb.core.planner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import com.google.common.collect.Lists;
+import io.quantumdb.core.backends.PostgresqlDatabase;
+import io.quantumdb.core.schema.definitions.Column;
+import io.quantumdb.core.schema.definitions.Column.Hint;
+import io.quantumdb.core.schema.definitions.PostgresTypes;
+import io.quantumdb.core.schema.definitions.Table;
+import io.quantumdb.core.versioning.RefLog;
+import io.quantumdb.core.versioning.RefLog.ColumnRef;
+import io.quantumdb.core.versioning.Version;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class VersionSchemaCreatorTest {
+
+	@Rule
+	public final PostgresqlDatabase database = new PostgresqlDatabase();
+
+	@Test
+	public void testWritingThroughViewsOfVersionSchema() throws SQLException {
+		Version version = new Version("abcdef1234", null);
+		RefLog refLog = new RefLog();
+		refLog.addTable("users", "table_1", version, new ColumnRef("id"), new ColumnRef("name"));
+
+		try (Connection connection = database.createConnection()) {
+			Table ghostTable = new Table("table_1")
+					.addColumn(new Column("id", PostgresTypes.bigint(), Hint.PRIMARY_KEY, Hint.AUTO_INCREMENT))
+					.addColumn(new Column("name", PostgresTypes.text(), Hint.NOT_NULL));
+
+			new TableCreator(database.getConfig()).create(connection, Lists.newArrayList(ghostTable));
+			new VersionSchemaCreator(database.getConfig()).create(connection, refLog, version);
+
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("SET search_path TO quantumdb_abcdef1234, public;");
+				statement.execute("INSERT INTO users (name) VALUES ('Michael');");
+				statement.execute("UPDATE users SET name = 'Michael de Jong' WHERE name = 'Michael';");
+				statement.execute("SET search_path TO public;");
+
+				try (ResultSet resultSet = statement.executeQuery("SELECT id, name FROM table_1;")) {
+					assertTrue(resultSet.next());
+					assertEquals(1, resultSet.getLong("id"));
+					assertEquals("Michael de Jong", resultSet.getString("name"));
+					assertFalse(resultSet.next());
+				}
+			}
+
+			new VersionSchemaCreator(database.getConfig()).drop(connection, version);
+
+			try (Statement statement = connection.createStatement()) {
+				String query = "SELECT 1 FROM information_schema.schemata WHERE schema_name = 'quantumdb_abcdef1234';";
+				try (ResultSet resultSet = statement.executeQuery(query)) {
+					assertFalse(resultSet.next());
+				}
+			}
+		}
+	}
+
+}
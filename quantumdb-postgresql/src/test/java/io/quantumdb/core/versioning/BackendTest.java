@@ -84,4 +84,46 @@ public class BackendTest {
 		assertEquals(expectedState, actualState);
 	}
 
+	@Test
+	public void testPersistingChangesToPreviouslyPersistedState() throws SQLException {
+		Catalog catalog = new Catalog("public")
+				.addTable(new Table("table_1")
+						.addColumn(new Column("id", bigint(), PRIMARY_KEY))
+						.addColumn(new Column("name", text(), NOT_NULL)))
+				.addTable(new Table("table_2")
+						.addColumn(new Column("id", bigint(), PRIMARY_KEY))
+						.addColumn(new Column("name", text(), NOT_NULL))
+						.addColumn(new Column("admin", bool(), "false", NOT_NULL)));
+
+		Changelog changelog = new Changelog(RandomHasher.generateHash(), new ChangeSet("init", "QuantumDB", "Initial import"))
+				.addChangeSet("add_table", "Michael de Jong", addColumn("table", "admin", bool(), "false", NOT_NULL));
+
+		RefLog refLog = new RefLog();
+		TableRef table1 = refLog.addTable("table", "table_1", changelog.getRoot(),
+				new ColumnRef("id"),
+				new ColumnRef("name"));
+
+		Backend backend = new Backend();
+		State expectedState = new State(catalog, refLog, changelog);
+		backend.persist(database.createConnection(), expectedState, null);
+
+		TableRef table2 = refLog.addTable("table", "table_2", changelog.getLastAdded(),
+				new ColumnRef("id", table1.getColumn("id")),
+				new ColumnRef("name", table1.getColumn("name")),
+				new ColumnRef("admin"));
+
+		refLog.addSync("trigger_1", "sync_1", ImmutableMap.<ColumnRef, ColumnRef>builder()
+				.put(table1.getColumn("id"), table2.getColumn("id"))
+				.put(table1.getColumn("name"), table2.getColumn("name"))
+				.build());
+
+		table2.dropColumn("admin");
+
+		backend.persist(database.createConnection(), expectedState, null);
+		backend.persist(database.createConnection(), expectedState, null);
+
+		State actualState = backend.load(database.getConnection(), catalog);
+		assertEquals(expectedState, actualState);
+	}
+
 }
@@ -1,165 +1,418 @@
 package io.quantumdb.query.rewriter;
 
 import java.sql.SQLException;
-import java.util.Deque;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.Map;
 
+/**
+ * Rewrites the table names in queries in a single pass over the query. The lexer works on offsets into the original
+ * query: it recognises (qualified) identifiers, quoted identifiers, string literals, dollar-quoted strings and
+ * comments, and only copies the query into the output buffer once a table name actually has to be replaced.
+ */
 @Experimental
 public class PostgresqlQueryRewriter implements QueryRewriter {
 
-	private static class State {
+	private enum TokenType {
+		WHITESPACE, COMMENT, NAME, STRING, OTHER
+	}
+
+	/**
+	 * An immutable, open-addressing hash table of table names, which can be queried with a region of a query (case
+	 * sensitive, or case insensitive), without having to allocate a String for that region.
+	 */
+	private static final class TableMapping {
+
+		private static final TableMapping EMPTY = new TableMapping(Collections.emptyMap());
+
+		private final String[] names;
+		private final String[] refIds;
+		private final int[] slots;
+		private final int mask;
+
+		private TableMapping(Map<String, String> tableMapping) {
+			int capacity = 4;
+			while (capacity < tableMapping.size() * 2) {
+				capacity <<= 1;
+			}
 
-		private StringBuilder output;
-		private String query;
-		private int lastProcessedCursor;
-		private int cursor;
-		private String previousWord;
-		private Deque<Character> stack;
+			this.names = new String[tableMapping.size()];
+			this.refIds = new String[tableMapping.size()];
+			this.slots = new int[capacity];
+			this.mask = capacity - 1;
 
-		private State(String query) {
-			this.query = query;
-			this.output = new StringBuilder();
-			this.cursor = 0;
-			this.lastProcessedCursor = 0;
-			this.previousWord = "";
-			this.stack = new LinkedList<>();
+			int index = 0;
+			for (Map.Entry<String, String> entry : tableMapping.entrySet()) {
+				String name = entry.getKey();
+				names[index] = name;
+				refIds[index] = entry.getValue();
+
+				int slot = hash(name, 0, name.length()) & mask;
+				while (slots[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				slots[slot] = ++index;
+			}
+		}
+
+		private boolean isEmpty() {
+			return names.length == 0;
+		}
+
+		private String find(String query, int start, int end, boolean ignoreCase) {
+			int length = end - start;
+			int first = hash(query, start, end) & mask;
+
+			// Exact matches take precedence over case-insensitive matches.
+			for (int slot = first; slots[slot] != 0; slot = (slot + 1) & mask) {
+				String name = names[slots[slot] - 1];
+				if (name.length() == length && query.regionMatches(false, start, name, 0, length)) {
+					return refIds[slots[slot] - 1];
+				}
+			}
+
+			if (ignoreCase) {
+				for (int slot = first; slots[slot] != 0; slot = (slot + 1) & mask) {
+					String name = names[slots[slot] - 1];
+					if (name.length() == length && query.regionMatches(true, start, name, 0, length)) {
+						return refIds[slots[slot] - 1];
+					}
+				}
+			}
+			return null;
+		}
+
+		private static int hash(String value, int start, int end) {
+			int hash = 0;
+			for (int i = start; i < end; i++) {
+				hash = 31 * hash + Character.toLowerCase(value.charAt(i));
+			}
+			return hash ^ (hash >>> 16);
 		}
 
 	}
 
 	private static final String DEFAULT_SCHEMA = "public";
-
-	private final Map<String, String> tableMapping;
+	private static final String[] TABLE_KEYWORDS = { "from", "join", "update", "into" };
+
+	private final StringBuilder output;
+	private TableMapping tableMapping;
+
+	// State of the query which is currently being rewritten.
+	private String query;
+	private int length;
+	private int copied;
+	private TokenType tokenType;
+	private int parts;
+	private int firstPartStart;
+	private int firstPartEnd;
+	private int lastPartStart;
+	private int lastPartEnd;
+	private boolean lastPartQuoted;
 
 	public PostgresqlQueryRewriter() {
-		this.tableMapping = new HashMap<>();
+		this.output = new StringBuilder();
+		this.tableMapping = TableMapping.EMPTY;
 	}
 
-	public void setTableMapping(Map<String, String> newTableMapping) {
-		tableMapping.clear();
-		tableMapping.putAll(newTableMapping);
+	public synchronized void setTableMapping(Map<String, String> newTableMapping) {
+		tableMapping = new TableMapping(newTableMapping);
 	}
 
-	public String rewrite(String query) throws SQLException {
+	public synchronized String rewrite(String query) throws SQLException {
 		if (query == null) {
 			throw new IllegalArgumentException("You must specify specify a 'query'.");
 		}
+		if (tableMapping.isEmpty()) {
+			return query;
+		}
+
+		this.query = query;
+		this.length = query.length();
+		this.copied = 0;
+		this.output.setLength(0);
 
-		State state = new State(query);
-		for (state.cursor = 0; state.cursor < query.length(); state.cursor++) {
-			char currentCharacter = query.charAt(state.cursor);
-
-				switch (currentCharacter) {
-					case '\'':
-					case '\"':
-					case '`':
-						Character onStack = state.stack.peekFirst();
-						if (onStack != null && onStack.equals(currentCharacter)) {
-							state.stack.removeFirst();
-						}
-						else {
-							state.stack.addFirst(currentCharacter);
-						}
-						processWordStartOrMiddle(state);
-						break;
-					case ' ':
-					case ',':
-					case ';':
-						if (state.stack.isEmpty()) {
-							processWordEnding(state);
-						}
-						processWordStartOrMiddle(state);
-						break;
-					default:
-						processWordStartOrMiddle(state);
-						break;
+		try {
+			boolean expectTableName = false;
+			int cursor = 0;
+			while (cursor < length) {
+				int start = cursor;
+				cursor = nextToken(cursor);
+
+				if (tokenType == TokenType.WHITESPACE || tokenType == TokenType.COMMENT) {
+					continue;
 				}
-		}
 
-		processWordEnding(state);
+				if (expectTableName) {
+					rewriteTableName(start, cursor);
+				}
+				expectTableName = isTableKeyword();
+			}
+
+			if (copied == 0) {
+				return query;
+			}
 
-		return state.output.toString();
+			output.append(query, copied, length);
+			return output.toString();
+		}
+		finally {
+			this.query = null;
+		}
 	}
 
-	private void processWordEnding(State state) throws SQLException {
-		String word = state.query.substring(state.lastProcessedCursor, state.cursor);
+	private void rewriteTableName(int start, int end) {
+		if (tokenType == TokenType.STRING) {
+			if (!isEnclosedBy(start, end, '\'')) {
+				return;
+			}
 
-		if (word.trim().isEmpty()) {
-			state.output.append(word);
+			// Table names between single quotes are matched case sensitively.
+			String refId = tableMapping.find(query, start + 1, end - 1, false);
+			if (refId != null) {
+				replace(start + 1, end - 1, refId);
+			}
+			return;
 		}
-		else {
-			state.output.append(processWord(state, word));
+		else if (tokenType != TokenType.NAME || parts > 2) {
+			return;
+		}
+
+		if (parts == 2) {
+			int schemaLength = firstPartEnd - firstPartStart;
+			boolean isDefaultSchema = schemaLength == DEFAULT_SCHEMA.length()
+					&& query.regionMatches(true, firstPartStart, DEFAULT_SCHEMA, 0, schemaLength);
+
+			if (!isDefaultSchema) {
+				return;
+			}
 		}
 
-		state.lastProcessedCursor = state.cursor;
+		if (lastPartQuoted) {
+			if (!isEnclosedBy(lastPartStart, lastPartEnd, '"')) {
+				return;
+			}
+
+			String refId = tableMapping.find(query, lastPartStart + 1, lastPartEnd - 1, false);
+			if (refId != null) {
+				replace(lastPartStart + 1, lastPartEnd - 1, refId);
+			}
+		}
+		else {
+			String refId = tableMapping.find(query, lastPartStart, lastPartEnd, true);
+			if (refId != null) {
+				replace(lastPartStart, lastPartEnd, refId);
+			}
+		}
 	}
 
-	private void processWordStartOrMiddle(State state) {
-		String word = state.query.substring(state.lastProcessedCursor, state.cursor);
+	private boolean isTableKeyword() {
+		if (tokenType != TokenType.NAME || parts != 1 || lastPartQuoted) {
+			return false;
+		}
 
-		if (word.trim().isEmpty()) {
-			state.output.append(word);
-			state.lastProcessedCursor = state.cursor;
+		int wordLength = lastPartEnd - lastPartStart;
+		for (String keyword : TABLE_KEYWORDS) {
+			if (keyword.length() == wordLength && query.regionMatches(true, lastPartStart, keyword, 0, wordLength)) {
+				return true;
+			}
 		}
+		return false;
+	}
+
+	private boolean isEnclosedBy(int start, int end, char quote) {
+		return end - start >= 2 && query.charAt(start) == quote && query.charAt(end - 1) == quote;
 	}
 
-	private String processWord(State state, String word) throws SQLException {
-		if (state.previousWord.equalsIgnoreCase("from") || state.previousWord.equalsIgnoreCase("join") ||
-				state.previousWord.equalsIgnoreCase("update") || state.previousWord.equalsIgnoreCase("into")) {
+	private void replace(int start, int end, String replacement) {
+		output.append(query, copied, start);
+		output.append(replacement);
+		copied = end;
+	}
 
-			boolean isQuoted = isQuoted(word);
-			if (isQuoted) {
-				word = word.substring(1, word.length() - 1);
+	/**
+	 * Scans the token which starts at the specified offset, and records its type.
+	 *
+	 * @return The offset directly after the token.
+	 */
+	private int nextToken(int start) {
+		char current = query.charAt(start);
+
+		if (Character.isWhitespace(current)) {
+			tokenType = TokenType.WHITESPACE;
+			int end = start + 1;
+			while (end < length && Character.isWhitespace(query.charAt(end))) {
+				end++;
+			}
+			return end;
+		}
+		else if (current == '-' && charAt(start + 1) == '-') {
+			tokenType = TokenType.COMMENT;
+			int end = start + 2;
+			while (end < length && query.charAt(end) != '\n') {
+				end++;
 			}
+			return end;
+		}
+		else if (current == '/' && charAt(start + 1) == '*') {
+			tokenType = TokenType.COMMENT;
+			return skipBlockComment(start);
+		}
+		else if (current == '\'') {
+			tokenType = TokenType.STRING;
+			return skipStringLiteral(start);
+		}
+		else if (current == '$') {
+			int end = skipDollarQuotedString(start);
+			tokenType = end > start + 1 ? TokenType.STRING : TokenType.OTHER;
+			return end;
+		}
+		else if (current == '"' || isIdentifierStart(current)) {
+			tokenType = TokenType.NAME;
+			return scanName(start);
+		}
+		else if (Character.isDigit(current)) {
+			tokenType = TokenType.OTHER;
+			int end = start + 1;
+			while (end < length && (isIdentifierPart(query.charAt(end)) || query.charAt(end) == '.')) {
+				end++;
+			}
+			return end;
+		}
 
-			String schema = null;
-			if (word != null && word.startsWith(DEFAULT_SCHEMA + ".")) {
-				schema = DEFAULT_SCHEMA;
-				word = word.substring(DEFAULT_SCHEMA.length() + 1, word.length());
+		tokenType = TokenType.OTHER;
+		return start + 1;
+	}
+
+	/**
+	 * Scans a (possibly qualified) name, where each part is either an identifier, or a quoted identifier.
+	 */
+	private int scanName(int start) {
+		parts = 0;
+		int cursor = start;
+		while (true) {
+			int partStart = cursor;
+			boolean quoted = query.charAt(cursor) == '"';
+			cursor = quoted ? skipQuotedIdentifier(cursor) : skipIdentifier(cursor);
+
+			if (parts++ == 0) {
+				firstPartStart = partStart;
+				firstPartEnd = cursor;
 			}
+			lastPartStart = partStart;
+			lastPartEnd = cursor;
+			lastPartQuoted = quoted;
 
-			String tableName = tableMapping.get(word);
+			char next = charAt(cursor + 1);
+			if (charAt(cursor) != '.' || (next != '"' && !isIdentifierStart(next))) {
+				return cursor;
+			}
+			cursor++;
+		}
+	}
 
-			if (!isQuoted && tableName == null) {
-				for (Map.Entry<String, String> entry : tableMapping.entrySet()) {
-					if (entry.getKey().equalsIgnoreCase(word)) {
-						tableName = entry.getValue();
-						break;
-					}
+	private int skipIdentifier(int start) {
+		int end = start + 1;
+		while (end < length && isIdentifierPart(query.charAt(end))) {
+			end++;
+		}
+		return end;
+	}
+
+	private int skipQuotedIdentifier(int start) {
+		int end = start + 1;
+		while (end < length) {
+			if (query.charAt(end) == '"') {
+				if (charAt(end + 1) != '"') {
+					return end + 1;
 				}
+				end++;
 			}
+			end++;
+		}
+		return length;
+	}
+
+	private int skipStringLiteral(int start) {
+		// Strings prefixed with E (for instance: E'It\'s') may contain backslash escapes.
+		boolean escapes = start > 0 && (query.charAt(start - 1) == 'E' || query.charAt(start - 1) == 'e')
+				&& (start == 1 || !isIdentifierPart(query.charAt(start - 2)));
 
-			if (tableName == null) {
-				//throw new SQLException("No table with name: '" + word + "' exists.");
+		int end = start + 1;
+		while (end < length) {
+			char current = query.charAt(end);
+			if (escapes && current == '\\') {
+				end++;
 			}
-			else {
-				word = tableName;
+			else if (current == '\'') {
+				if (charAt(end + 1) != '\'') {
+					return end + 1;
+				}
+				end++;
 			}
+			end++;
+		}
+		return length;
+	}
 
-			if (schema != null) {
-				word = schema + "." + word;
+	/**
+	 * Skips a dollar-quoted string such as $$text$$ or $tag$text$tag$.
+	 *
+	 * @return The offset directly after the closing tag, or the offset directly after the '$' in case the '$' does
+	 * not start a dollar-quoted string (for instance, the positional parameter $1).
+	 */
+	private int skipDollarQuotedString(int start) {
+		int tagEnd = start + 1;
+		if (tagEnd < length && isIdentifierStart(query.charAt(tagEnd))) {
+			while (tagEnd < length && isIdentifierPart(query.charAt(tagEnd)) && query.charAt(tagEnd) != '$') {
+				tagEnd++;
 			}
+		}
+		if (charAt(tagEnd) != '$') {
+			return start + 1;
+		}
 
-			if (isQuoted) {
-				word = "'" + word + "'";
+		int tagLength = tagEnd + 1 - start;
+		for (int cursor = tagEnd + 1; cursor < length; cursor++) {
+			if (query.charAt(cursor) == '$' && query.regionMatches(cursor, query, start, tagLength)) {
+				return cursor + tagLength;
 			}
 		}
+		return length;
+	}
 
-		state.previousWord = word;
-		return word;
+	private int skipBlockComment(int start) {
+		// Block comments may be nested in PostgreSQL.
+		int depth = 0;
+		int end = start;
+		while (end < length) {
+			char current = query.charAt(end);
+			if (current == '/' && charAt(end + 1) == '*') {
+				depth++;
+				end += 2;
+			}
+			else if (current == '*' && charAt(end + 1) == '/') {
+				end += 2;
+				if (--depth == 0) {
+					return end;
+				}
+			}
+			else {
+				end++;
+			}
+		}
+		return length;
 	}
 
-	private boolean isQuoted(String word) {
-		char first = word.charAt(0);
-		char last = word.charAt(word.length() - 1);
+	private char charAt(int index) {
+		return index < length ? query.charAt(index) : '\0';
+	}
 
-		if (first != last) {
-			return false;
-		}
+	private static boolean isIdentifierStart(char character) {
+		return Character.isLetter(character) || character == '_';
+	}
 
-		return first == '\'';
+	private static boolean isIdentifierPart(char character) {
+		return Character.isLetterOrDigit(character) || character == '_' || character == '$';
 	}
 
 }
@@ -1,6 +1,7 @@
 package io.quantumdb.query.rewriter;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.sql.SQLException;
 import java.util.HashMap;
@@ -74,6 +75,60 @@ public class PostgresqlQueryRewriterTest {
 		assertEquals(expected, rewrite(input));
 	}
 
+	@Test
+	public void testSelectQueryWithQuotedIdentifier() throws SQLException {
+		String input = "SELECT * FROM \"users\" WHERE \"users\".id = 1;";
+		String expected = "SELECT * FROM \"users_v2\" WHERE \"users\".id = 1;";
+		assertEquals(expected, rewrite(input));
+	}
+
+	@Test
+	public void testThatQuotedIdentifierIsCaseSensitive() throws SQLException {
+		String input = "SELECT * FROM \"Users\"";
+		assertEquals(input, rewrite(input));
+	}
+
+	@Test
+	public void testSelectQueryWithOtherSchemaIsNotRewritten() throws SQLException {
+		String input = "SELECT * FROM archive.users";
+		assertEquals(input, rewrite(input));
+	}
+
+	@Test
+	public void testQuerySpanningMultipleLines() throws SQLException {
+		String input = "SELECT *\nFROM\n\tusers\nJOIN accounts ON accounts.owner_id = users.id";
+		String expected = "SELECT *\nFROM\n\tusers_v2\nJOIN accounts_v2 ON accounts.owner_id = users.id";
+		assertEquals(expected, rewrite(input));
+	}
+
+	@Test
+	public void testKeywordsInStringLiteralsAndCommentsAreIgnored() throws SQLException {
+		String input = "SELECT 'from users', E'it\\'s from users', $$ from users $$, $tag$ into users $tag$ "
+				+ "/* from /* nested */ users */ -- from users\nFROM users";
+		String expected = "SELECT 'from users', E'it\\'s from users', $$ from users $$, $tag$ into users $tag$ "
+				+ "/* from /* nested */ users */ -- from users\nFROM users_v2";
+		assertEquals(expected, rewrite(input));
+	}
+
+	@Test
+	public void testCommentBetweenKeywordAndTableName() throws SQLException {
+		String input = "DELETE FROM /* all */ users WHERE id = $1";
+		String expected = "DELETE FROM /* all */ users_v2 WHERE id = $1";
+		assertEquals(expected, rewrite(input));
+	}
+
+	@Test
+	public void testInsertAndUpdateQueries() throws SQLException {
+		assertEquals("INSERT INTO users_v2 (id) VALUES (1);", rewrite("INSERT INTO users (id) VALUES (1);"));
+		assertEquals("UPDATE users_v2 SET name = 'from users';", rewrite("UPDATE users SET name = 'from users';"));
+	}
+
+	@Test
+	public void testQueryWithoutTableNamesIsReturnedAsIs() throws SQLException {
+		String input = "SELECT 1;";
+		assertSame(input, rewrite(input));
+	}
+
 	@Test
 	@Ignore
 	public void testImplicitJoin() throws SQLException {